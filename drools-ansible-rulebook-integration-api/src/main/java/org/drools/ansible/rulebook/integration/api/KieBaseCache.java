@@ -0,0 +1,277 @@
+package org.drools.ansible.rulebook.integration.api;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import org.drools.ansible.rulebook.integration.api.domain.RulesSet;
+import org.drools.ansible.rulebook.integration.api.rulesengine.RulesExecutionController;
+import org.drools.ansible.rulebook.integration.api.rulesengine.SharedRulesExecutionController;
+import org.kie.api.KieBase;
+import org.kie.api.runtime.KieSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reference counted cache of the KieBases compiled from identical rulesets, keyed by the SHA-256 of the ruleset text,
+ * its options and its HA mode. All the sessions created from the same ruleset share the same executable model and KieBase,
+ * which is retained only as long as at least one of those sessions is alive. Rulesets built programmatically aren't cached.
+ */
+public class KieBaseCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(KieBaseCache.class.getName());
+
+    private static final String KIEBASE_CACHE_ENABLED_PROPERTY = "drools.kiebase.cache.enabled";
+    private static final boolean KIEBASE_CACHE_ENABLED;
+
+    private static final String PRELOAD_RETENTION_PROPERTY = "drools.kiebase.preload.retention";
+    private static final int PRELOAD_RETENTION_SECONDS;
+
+    static {
+        String cacheEnabledEnvValue = System.getenv("DROOLS_KIEBASE_CACHE_ENABLED");
+        if (cacheEnabledEnvValue != null && !cacheEnabledEnvValue.isEmpty()) {
+            // Environment variable takes precedence over system property
+            System.setProperty(KIEBASE_CACHE_ENABLED_PROPERTY, cacheEnabledEnvValue);
+        }
+        KIEBASE_CACHE_ENABLED = Boolean.parseBoolean(System.getProperty(KIEBASE_CACHE_ENABLED_PROPERTY, "true"));
+        LOG.info("KieBase cache enabled set to {}", KIEBASE_CACHE_ENABLED);
+
+        String preloadRetentionEnvValue = System.getenv("DROOLS_KIEBASE_PRELOAD_RETENTION");
+        if (preloadRetentionEnvValue != null && !preloadRetentionEnvValue.isEmpty()) {
+            // Environment variable takes precedence over system property
+            System.setProperty(PRELOAD_RETENTION_PROPERTY, preloadRetentionEnvValue);
+        }
+        PRELOAD_RETENTION_SECONDS = Integer.getInteger(PRELOAD_RETENTION_PROPERTY, 600);
+    }
+
+    private static final KieBaseCache INSTANCE = new KieBaseCache();
+
+    public static KieBaseCache get() {
+        return INSTANCE;
+    }
+
+    private final Map<String, CachedKieBase> cachedKieBases = new HashMap<>();
+
+    private final Map<KieBase, CachedKieBase> cachedKieBasesByInstance = new IdentityHashMap<>();
+
+    private final AtomicBoolean artifactsPreloaded = new AtomicBoolean(false);
+
+    private KieBaseCache() { }
+
+    public boolean isEnabled() {
+        return KIEBASE_CACHE_ENABLED;
+    }
+
+    /**
+     * Compiles in background the rulesets stored in the RulesetArtifactStore by a previous run, keeping each of them
+     * in the cache until the first session is created from it. A ruleset created while its artifact is still being
+     * compiled waits for that compilation instead of starting a new one. The preloaded KieBases that no session has
+     * taken over after the configured retention time are released. This is done only once per process.
+     */
+    public void preloadArtifacts() {
+        if (!KIEBASE_CACHE_ENABLED || !RulesetArtifactStore.get().isEnabled() || !artifactsPreloaded.compareAndSet(false, true)) {
+            return;
+        }
+        Thread preloader = new Thread(() -> {
+            long start = System.currentTimeMillis();
+            for (RulesSet rulesSet : RulesetArtifactStore.get().load()) {
+                try {
+                    acquire(rulesSet, true);
+                } catch (RuntimeException e) {
+                    LOG.warn("Unable to preload ruleset {}", rulesSet.getName(), e);
+                }
+            }
+            try {
+                long retention = PRELOAD_RETENTION_SECONDS * 1000L - (System.currentTimeMillis() - start);
+                if (retention > 0) {
+                    Thread.sleep(retention);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                releasePreloaded();
+            }
+        }, "drools-ruleset-preloader");
+        preloader.setDaemon(true);
+        preloader.start();
+    }
+
+    /**
+     * Returns the KieBase compiled from the given ruleset, compiling it if it is not already cached.
+     * Each invocation has to be balanced by a release() when the session created from it is disposed.
+     */
+    public CachedKieBase acquire(RulesSet rulesSet) {
+        return acquire(rulesSet, false);
+    }
+
+    /**
+     * When preloading, the reference is held by the preloader until the first session takes it over, and nothing
+     * is done if the ruleset is already cached.
+     */
+    private CachedKieBase acquire(RulesSet rulesSet, boolean preloading) {
+        String key = KIEBASE_CACHE_ENABLED ? cacheKey(rulesSet) : null;
+        if (key == null) {
+            return CachedKieBase.compile(null, rulesSet);
+        }
+
+        CachedKieBase cached;
+        boolean compiling = false;
+        synchronized (this) {
+            cached = cachedKieBases.get(key);
+            if (cached == null) {
+                cached = new CachedKieBase(key);
+                cachedKieBases.put(key, cached);
+                compiling = true;
+            } else if (preloading) {
+                return cached;
+            }
+            if (preloading) {
+                cached.preloaded = true;
+                cached.references++;
+            } else if (cached.preloaded) {
+                // the first session takes over the reference held by the preloader
+                cached.preloaded = false;
+            } else {
+                cached.references++;
+            }
+        }
+
+        if (!compiling) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Reusing cached KieBase for ruleset {}", rulesSet.getName());
+            }
+            return cached.awaitCompilation();
+        }
+
+        // compile out of the lock, so different rulesets can be compiled in parallel
+        try {
+            CachedKieBase compiled = CachedKieBase.compile(key, rulesSet);
+            synchronized (this) {
+                cached.rulesSet = compiled.rulesSet;
+                cached.rulesExecutionController = compiled.rulesExecutionController;
+                cached.kieBase = compiled.kieBase;
+                cachedKieBasesByInstance.put(cached.kieBase, cached);
+            }
+            cached.compilation.complete(cached);
+            RulesetArtifactStore.get().store(key, cached.rulesSet);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                cachedKieBases.remove(key);
+            }
+            cached.compilation.completeExceptionally(e);
+            throw e;
+        }
+        return cached;
+    }
+
+    private synchronized void releasePreloaded() {
+        for (CachedKieBase cached : new ArrayList<>(cachedKieBasesByInstance.values())) {
+            if (cached.preloaded) {
+                cached.preloaded = false;
+                release(cached.kieBase);
+            }
+        }
+    }
+
+    /**
+     * Registers one more session created from the given, already acquired, KieBase.
+     * This is a no-op for a KieBase that has not been cached.
+     */
+    public synchronized void retain(KieBase kieBase) {
+        CachedKieBase cached = cachedKieBasesByInstance.get(kieBase);
+        if (cached != null) {
+            cached.references++;
+        }
+    }
+
+    /**
+     * Releases the given KieBase, evicting it from the cache when no session created from it is alive anymore.
+     * This is a no-op for a KieBase that has not been cached.
+     */
+    public synchronized void release(KieBase kieBase) {
+        CachedKieBase cached = cachedKieBasesByInstance.get(kieBase);
+        if (cached != null && --cached.references == 0) {
+            cachedKieBases.remove(cached.key);
+            cachedKieBasesByInstance.remove(kieBase);
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Evicted KieBase of ruleset {} from cache", cached.rulesSet.getName());
+            }
+        }
+    }
+
+    synchronized int size() {
+        return cachedKieBases.size();
+    }
+
+    static String cacheKey(RulesSet rulesSet) {
+        if (rulesSet.getContentHash() == null) {
+            return null;
+        }
+        String options = rulesSet.getOptions().getOptions().stream()
+                .map(Enum::name)
+                .sorted()
+                .collect(Collectors.joining(","));
+        return rulesSet.getContentHash() + ":" + rulesSet.isHaMode() + ":" + options;
+    }
+
+    public static class CachedKieBase {
+
+        private final String key;
+        private final CompletableFuture<CachedKieBase> compilation = new CompletableFuture<>();
+        private int references;
+        private boolean preloaded;
+
+        private RulesSet rulesSet;
+        private RulesExecutionController rulesExecutionController;
+        private KieBase kieBase;
+
+        private CachedKieBase(String key) {
+            this.key = key;
+        }
+
+        private static CachedKieBase compile(String key, RulesSet rulesSet) {
+            long start = System.currentTimeMillis();
+            CachedKieBase compiled = new CachedKieBase(key);
+            compiled.rulesSet = rulesSet;
+            // the sessions of a cached or sharded KieBase can fire at the same time, so each of them has to disable the actions only for its own thread
+            compiled.rulesExecutionController = key != null || rulesSet.getShards() > 1 ? new SharedRulesExecutionController() : new RulesExecutionController();
+            compiled.kieBase = RulesExecutorFactory.createKieBase(rulesSet, compiled.rulesExecutionController);
+            if (LOG.isInfoEnabled()) {
+                LOG.info("KieBase for ruleset {} compiled in {} ms", rulesSet.getName(), System.currentTimeMillis() - start);
+            }
+            return compiled;
+        }
+
+        private CachedKieBase awaitCompilation() {
+            try {
+                return compilation.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException runtimeException ? runtimeException : e;
+            }
+        }
+
+        /**
+         * Returns the compiled ruleset, which is shared by all the sessions of this KieBase
+         */
+        public RulesSet getRulesSet() {
+            return rulesSet;
+        }
+
+        public RulesExecutionController getRulesExecutionController() {
+            return rulesExecutionController;
+        }
+
+        public KieBase getKieBase() {
+            return kieBase;
+        }
+
+        public KieSession newKieSession() {
+            return RulesExecutorFactory.newKieSession(kieBase);
+        }
+    }
+}
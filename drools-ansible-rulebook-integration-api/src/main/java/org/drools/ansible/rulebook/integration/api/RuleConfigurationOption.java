@@ -10,5 +10,25 @@ public enum RuleConfigurationOption {
      * because of the default automatic advancements)
      */
     FULLY_MANUAL_PSEUDOCLOCK,
-    ASYNC_EVALUATION
+    ASYNC_EVALUATION,
+    /**
+     * When this option is set, events concurrently sent to the same session are queued and evaluated in
+     * micro-batches of up to drools.microbatch.max.size events, optionally waiting up to drools.microbatch.max.delay.micros
+     * for a batch to fill up. When all the rules of the ruleset match a single event without any time constraint, the whole
+     * batch is inserted and evaluated with a single fire, otherwise the events of the batch are evaluated one after the other.
+     * It isn't supported in HA mode, where the state of the session is persisted once per processed event.
+     */
+    MICRO_BATCHING,
+    /**
+     * When this option is set, once_within throttles, accumulate_within counters and once_after groups are evaluated by
+     * looking up the group of the matched event in a table kept by the session, instead of inserting a synthetic control
+     * event for each group and joining the events against them. It can also be enabled with the native_throttling property of the ruleset.
+     */
+    NATIVE_THROTTLING,
+    /**
+     * When this option is set, the sequences of events of the timed_out rules, and their deadlines, are tracked by the
+     * session, instead of inserting a synthetic control event for each matched pattern and accumulating them.
+     * It can also be enabled with the native_timed_out property of the ruleset.
+     */
+    NATIVE_TIMED_OUT
 }
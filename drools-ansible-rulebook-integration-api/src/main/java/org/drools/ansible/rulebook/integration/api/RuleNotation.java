@@ -4,12 +4,26 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.drools.ansible.rulebook.integration.api.domain.RulesSet;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
 public interface RuleNotation {
 
     RulesSet jsonToRuleSet(ObjectMapper mapper, String json);
 
     default RulesSet toRulesSet(RuleFormat format, String text) {
-        return jsonToRuleSet(ObjectMapperFactory.createMapper(format.getJsonFactory() ), text );
+        return jsonToRuleSet(ObjectMapperFactory.createMapper(format.getJsonFactory() ), text ).withSource(format, text).withContentHash(sha256(text));
+    }
+
+    private static String sha256(String text) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(md.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
     }
 
     default RuleNotation withOptions(RuleConfigurationOption... options) {
@@ -1,22 +1,27 @@
 package org.drools.ansible.rulebook.integration.api;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.drools.ansible.rulebook.integration.api.rulesengine.FactsCursor;
+import org.drools.ansible.rulebook.integration.api.rulesengine.FactsPage;
 import org.drools.ansible.rulebook.integration.api.rulesengine.MemoryMonitorUtil;
 import org.drools.ansible.rulebook.integration.api.rulesengine.RulesEvaluator;
 import org.drools.ansible.rulebook.integration.api.rulesengine.RulesExecutorSession;
 import org.drools.ansible.rulebook.integration.api.rulesengine.SessionStats;
-import org.kie.api.prototype.PrototypeFactInstance;
 import org.kie.api.runtime.KieSession;
 import org.kie.api.runtime.rule.Match;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static org.drools.ansible.rulebook.integration.api.io.JsonMapper.createGenerator;
 import static org.drools.ansible.rulebook.integration.api.io.JsonMapper.toJson;
 import static org.drools.ansible.rulebook.integration.api.rulesmodel.RulesModelUtil.asFactMap;
 
@@ -24,6 +29,8 @@ public class RulesExecutor {
 
     protected static final Logger log = LoggerFactory.getLogger(RulesExecutor.class);
 
+    private static final int FACTS_STREAMING_PAGE_SIZE = 1000;
+
     protected final RulesEvaluator rulesEvaluator;
 
     RulesExecutor(RulesExecutorSession rulesExecutorSession, boolean async) {
@@ -71,17 +78,17 @@ public class RulesExecutor {
     }
 
     public CompletableFuture<Integer> executeFacts(String json) {
-        MemoryMonitorUtil.checkMemoryOccupation(rulesEvaluator.getSessionStatsCollector());
+        MemoryMonitorUtil.checkMemoryOccupation(rulesEvaluator.getSessionStatsView());
         return rulesEvaluator.executeFacts(asFactMap(json));
     }
 
     public CompletableFuture<List<Match>> processFacts(String json) {
-        MemoryMonitorUtil.checkMemoryOccupation(rulesEvaluator.getSessionStatsCollector());
+        MemoryMonitorUtil.checkMemoryOccupation(rulesEvaluator.getSessionStatsView());
         return rulesEvaluator.processFacts(asFactMap(json));
     }
 
     public CompletableFuture<List<Match>> processEvents(String json) {
-        MemoryMonitorUtil.checkMemoryOccupation(rulesEvaluator.getSessionStatsCollector());
+        MemoryMonitorUtil.checkMemoryOccupation(rulesEvaluator.getSessionStatsView());
         rulesEvaluator.stashFirstEventJsonForValidation(json);
         return rulesEvaluator.processEvents(asFactMap(json));
     }
@@ -94,18 +101,60 @@ public class RulesExecutor {
         return rulesEvaluator.processRetractMatchingFacts(asFactMap(json), allowPartialMatch, keysToExclude);
     }
 
+    public CompletableFuture<List<Match>> processUpdateMatchingFacts(String json, String patch) {
+        return rulesEvaluator.processUpdateMatchingFacts(asFactMap(json), asFactMap(patch));
+    }
+
     public Collection<?> getAllFacts() {
         return rulesEvaluator.getAllFacts();
     }
 
     public List<Map<String, Object>> getAllFactsAsMap() {
-        return getAllFacts().stream().map(PrototypeFactInstance.class::cast).map(PrototypeFactInstance::asMap).collect(Collectors.toList());
+        return rulesEvaluator.getAllFactsAsMap();
     }
 
     public String getAllFactsAsJson() {
         return toJson(getAllFactsAsMap());
     }
 
+    /**
+     * Returns a page of at most pageSize facts, starting from the given continuation token, or from the first fact
+     * when the token is null. Only the facts having all the values of the optional path filter are returned.
+     */
+    public FactsPage getFactsPage(String continuationToken, int pageSize, Map<String, Object> pathFilter) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Invalid page size: " + pageSize);
+        }
+        return rulesEvaluator.getFactsPage(continuationToken, pageSize, pathFilter);
+    }
+
+    /**
+     * Opens a cursor reading, one page at a time, the facts currently in the session matching the optional path filter
+     */
+    public FactsCursor openFactsCursor(Map<String, Object> pathFilter) {
+        return rulesEvaluator.openFactsCursor(pathFilter);
+    }
+
+    /**
+     * Writes all the facts matching the optional path filter as a json array on the given output stream,
+     * reading them one page at a time, so that the whole working memory is never materialized at once.
+     */
+    public void writeAllFactsAsJson(OutputStream outputStream, Map<String, Object> pathFilter) {
+        try (JsonGenerator generator = createGenerator(outputStream)) {
+            generator.writeStartArray();
+            FactsCursor cursor = openFactsCursor(pathFilter);
+            while (cursor.hasNext()) {
+                for (Map<String, Object> fact : cursor.nextPage(FACTS_STREAMING_PAGE_SIZE)) {
+                    generator.writeObject(fact);
+                }
+                generator.flush();
+            }
+            generator.writeEndArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     public CompletableFuture<List<Match>> advanceTime(long amount, TimeUnit unit ) {
         log.debug("Advancing time by {} {}", amount, unit);
         return rulesEvaluator.advanceTime(amount, unit );
@@ -114,4 +163,8 @@ public class RulesExecutor {
     public KieSession asKieSession() {
         return rulesEvaluator.asKieSession();
     }
+
+    public List<KieSession> asKieSessions() {
+        return rulesEvaluator.asKieSessions();
+    }
 }
@@ -1,8 +1,10 @@
 package org.drools.ansible.rulebook.integration.api;
 
 import org.drools.ansible.rulebook.integration.api.domain.RulesSet;
+import org.drools.ansible.rulebook.integration.api.rulesengine.RulesEvaluator;
 import org.drools.ansible.rulebook.integration.api.rulesengine.RulesExecutionController;
 import org.drools.ansible.rulebook.integration.api.rulesengine.RulesExecutorSession;
+import org.drools.ansible.rulebook.integration.api.rulesengine.ShardedRulesEvaluator;
 import org.drools.core.ClockType;
 import org.drools.model.Model;
 import org.drools.modelcompiler.KieBaseBuilder;
@@ -16,6 +18,8 @@ import org.kie.api.runtime.conf.ClockTypeOption;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
@@ -50,11 +54,40 @@ public class RulesExecutorFactory {
     }
 
     public static RulesExecutor createRulesExecutor(RulesSet rulesSet) {
-        RulesExecutor rulesExecutor = new RulesExecutor(createRulesExecutorSession(rulesSet), rulesSet.hasOption(ASYNC_EVALUATION));
+        RulesExecutor rulesExecutor = rulesSet.getShards() > 1 ?
+                new RulesExecutor(createShardedRulesEvaluator(rulesSet)) :
+                new RulesExecutor(createRulesExecutorSession(rulesSet), rulesSet.hasOption(ASYNC_EVALUATION));
         configurePseudoClock(rulesSet, rulesExecutor);
         return rulesExecutor;
     }
 
+    private static RulesEvaluator createShardedRulesEvaluator(RulesSet rulesSet) {
+        // all the shards share the same id, so they are registered and identified as a single session
+        long id = ID_GENERATOR.getAndIncrement();
+        boolean async = rulesSet.hasOption(ASYNC_EVALUATION);
+
+        // the shards are sessions of the same KieBase, each of them releasing it when disposed
+        KieBaseCache.CachedKieBase kieBase = KieBaseCache.get().acquire(rulesSet);
+        try {
+            // the partition locality of the rules can be checked only after they have been compiled
+            kieBase.getRulesSet().checkPartitionLocalRules();
+        } catch (IllegalArgumentException e) {
+            KieBaseCache.get().release(kieBase.getKieBase());
+            throw e;
+        }
+
+        List<RulesEvaluator> shards = new ArrayList<>();
+        for (int i = 0; i < rulesSet.getShards(); i++) {
+            if (i > 0) {
+                KieBaseCache.get().retain(kieBase.getKieBase());
+            }
+            RulesExecutorSession shardSession = new RulesExecutorSession(kieBase.getRulesSet(), kieBase.newKieSession(), kieBase.getRulesExecutionController(), id);
+            shards.add(RulesEvaluator.createRulesEvaluator(shardSession, async));
+        }
+        LOG.info("Ruleset {} evaluated on {} shards", rulesSet.getName(), shards.size());
+        return new ShardedRulesEvaluator(shards, rulesSet.getPartitionKey());
+    }
+
     protected static void configurePseudoClock(RulesSet rulesSet, RulesExecutor rulesExecutor) {
         if (!rulesSet.hasOption(FULLY_MANUAL_PSEUDOCLOCK)) {
             if (rulesSet.getClockPeriod() != null) {
@@ -68,14 +101,20 @@ public class RulesExecutorFactory {
     }
 
     private static RulesExecutorSession createRulesExecutorSession(RulesSet rulesSet) {
-        RulesExecutionController rulesExecutionController = new RulesExecutionController();
-        KieSession kieSession = createKieSession(rulesSet, rulesExecutionController);
-        return new RulesExecutorSession(rulesSet, kieSession, rulesExecutionController, ID_GENERATOR.getAndIncrement());
+        KieBaseCache.CachedKieBase kieBase = KieBaseCache.get().acquire(rulesSet);
+        return new RulesExecutorSession(kieBase.getRulesSet(), kieBase.newKieSession(), kieBase.getRulesExecutionController(), ID_GENERATOR.getAndIncrement());
     }
 
     protected static KieSession createKieSession(RulesSet rulesSet, RulesExecutionController rulesExecutionController) {
+        return newKieSession(createKieBase(rulesSet, rulesExecutionController));
+    }
+
+    protected static KieBase createKieBase(RulesSet rulesSet, RulesExecutionController rulesExecutionController) {
         Model model = rulesSet.toExecModel(rulesExecutionController);
-        KieBase kieBase = KieBaseBuilder.createKieBaseFromModel( model, KieBaseMutabilityOption.DISABLED, EventProcessingOption.STREAM );
+        return KieBaseBuilder.createKieBaseFromModel( model, KieBaseMutabilityOption.DISABLED, EventProcessingOption.STREAM );
+    }
+
+    protected static KieSession newKieSession(KieBase kieBase) {
         KieSessionConfiguration conf = KieServices.get().newKieSessionConfiguration();
         conf.setOption(ClockTypeOption.get(ClockType.PSEUDO_CLOCK.getId()));
         return kieBase.newKieSession(conf, null);
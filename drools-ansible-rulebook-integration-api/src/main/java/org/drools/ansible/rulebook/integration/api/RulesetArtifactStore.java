@@ -0,0 +1,338 @@
+package org.drools.ansible.rulebook.integration.api;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.drools.ansible.rulebook.integration.api.domain.RulesSet;
+import org.kie.api.KieBase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Local directory of the rulesets compiled by this process, each of them stored together with the options and HA mode
+ * it has been compiled with, and with the version of the engine that compiled it. When requested at startup, the stored
+ * rulesets are compiled again in background and kept in the KieBaseCache, so that creating them after a restart or
+ * a failover waits at most for the rest of that compilation, instead of the whole of it.
+ * This is not a compiled artifact: the executable model, and then the KieBase built from it, can't be written to disk,
+ * because it isn't generated as source code but built through the flow DSL, whose constraints and consequences are lambdas
+ * capturing the runtime objects of this process. So the artifact is the ruleset source, and it still has to be compiled.
+ * Since that source can contain the values of the rulebook variables, it is encrypted with AES-256-GCM and written to
+ * files readable only by the owner of the process.
+ * Artifacts written by a different version of the engine, or that can't be decrypted, are discarded.
+ * The store is disabled unless both a directory and an encryption key are configured.
+ */
+public class RulesetArtifactStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RulesetArtifactStore.class.getName());
+
+    private static final String ARTIFACTS_DIR_PROPERTY = "drools.ruleset.artifacts.dir";
+    private static final String ARTIFACTS_MAX_PROPERTY = "drools.ruleset.artifacts.max";
+    private static final String ARTIFACTS_KEY_PROPERTY = "drools.ruleset.artifacts.key";
+
+    private static final Path ARTIFACTS_DIR;
+    private static final int ARTIFACTS_MAX;
+    private static final String ARTIFACTS_KEY;
+
+    static {
+        String artifactsDirEnvValue = System.getenv("DROOLS_RULESET_ARTIFACTS_DIR");
+        if (artifactsDirEnvValue != null && !artifactsDirEnvValue.isEmpty()) {
+            // Environment variable takes precedence over system property
+            System.setProperty(ARTIFACTS_DIR_PROPERTY, artifactsDirEnvValue);
+        }
+        String artifactsDir = System.getProperty(ARTIFACTS_DIR_PROPERTY);
+        ARTIFACTS_DIR = artifactsDir == null || artifactsDir.isEmpty() ? null : Path.of(artifactsDir);
+        LOG.info("Ruleset artifacts directory set to {}", ARTIFACTS_DIR);
+
+        String artifactsMaxEnvValue = System.getenv("DROOLS_RULESET_ARTIFACTS_MAX");
+        if (artifactsMaxEnvValue != null && !artifactsMaxEnvValue.isEmpty()) {
+            // Environment variable takes precedence over system property
+            System.setProperty(ARTIFACTS_MAX_PROPERTY, artifactsMaxEnvValue);
+        }
+        ARTIFACTS_MAX = Integer.getInteger(ARTIFACTS_MAX_PROPERTY, 16);
+        LOG.info("Ruleset artifacts max number set to {}", ARTIFACTS_MAX);
+
+        String artifactsKeyEnvValue = System.getenv("DROOLS_RULESET_ARTIFACTS_KEY");
+        if (artifactsKeyEnvValue != null && !artifactsKeyEnvValue.isEmpty()) {
+            // Environment variable takes precedence over system property
+            System.setProperty(ARTIFACTS_KEY_PROPERTY, artifactsKeyEnvValue);
+        }
+        String artifactsKey = System.getProperty(ARTIFACTS_KEY_PROPERTY);
+        ARTIFACTS_KEY = artifactsKey == null || artifactsKey.isEmpty() ? null : artifactsKey;
+        if (ARTIFACTS_DIR != null && ARTIFACTS_KEY == null) {
+            LOG.warn("Ruleset artifacts directory is set, but no encryption key is configured: the rulesets won't be stored");
+        }
+    }
+
+    private static final String ARTIFACT_FORMAT_VERSION = "1";
+
+    private static final String ARTIFACT_EXTENSION = ".ruleset.json";
+
+    private static final String CIPHER_ALGORITHM = "AES/GCM/NoPadding";
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_LENGTH_BITS = 128;
+    private static final int KEY_LENGTH = 32; // 256 bits
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+
+    private static final RulesetArtifactStore INSTANCE = createDefault();
+
+    public static RulesetArtifactStore get() {
+        return INSTANCE;
+    }
+
+    private static RulesetArtifactStore createDefault() {
+        try {
+            return new RulesetArtifactStore(ARTIFACTS_DIR, ARTIFACTS_MAX, ARTIFACTS_KEY);
+        } catch (IllegalArgumentException e) {
+            LOG.warn("Invalid ruleset artifacts encryption key: the rulesets won't be stored", e);
+            return new RulesetArtifactStore(null, ARTIFACTS_MAX, null);
+        }
+    }
+
+    private final Path artifactsDir;
+    private final int maxArtifacts;
+    private final SecretKey key;
+
+    /**
+     * @param base64Key Base64-encoded 256-bit AES key used to encrypt the artifacts, the store is disabled if null
+     */
+    RulesetArtifactStore(Path artifactsDir, int maxArtifacts, String base64Key) {
+        this.artifactsDir = base64Key == null ? null : artifactsDir;
+        this.maxArtifacts = maxArtifacts;
+        this.key = base64Key == null ? null : decodeKey(base64Key);
+    }
+
+    private static SecretKey decodeKey(String base64Key) {
+        byte[] keyBytes = Base64.getDecoder().decode(base64Key);
+        if (keyBytes.length != KEY_LENGTH) {
+            throw new IllegalArgumentException("Ruleset artifacts key must be exactly 256 bits (32 bytes), got " + (keyBytes.length * 8) + " bits");
+        }
+        return new SecretKeySpec(keyBytes, "AES");
+    }
+
+    public boolean isEnabled() {
+        return artifactsDir != null;
+    }
+
+    /**
+     * Stores the given ruleset, compiled with the given cache key, unless it is already stored. In this case
+     * the existing artifact is marked as the most recently used one. Failures are only logged, because the artifacts
+     * are just an optimization of the following startups.
+     */
+    void store(String key, RulesSet rulesSet) {
+        if (!isEnabled() || rulesSet.getSource() == null) {
+            return;
+        }
+        Path artifactPath = artifactsDir.resolve(fileNameOf(key));
+        try {
+            if (Files.exists(artifactPath)) {
+                Files.setLastModifiedTime(artifactPath, FileTime.fromMillis(System.currentTimeMillis()));
+                return;
+            }
+            Files.createDirectories(artifactsDir);
+
+            RulesetArtifact artifact = new RulesetArtifact();
+            artifact.setVersion(currentVersion());
+            artifact.setKey(key);
+            artifact.setFormat(rulesSet.getSourceFormat());
+            artifact.setHaMode(rulesSet.isHaMode());
+            artifact.setOptions(new ArrayList<>(rulesSet.getOptions().getOptions()));
+            artifact.setSource(rulesSet.getSource());
+
+            // write and then rename, so a crash can't leave a truncated artifact behind
+            // the temporary file, and then the artifact, is created readable and writable only by its owner
+            Path tmpPath = Files.createTempFile(artifactsDir, "ruleset", ".tmp");
+            Files.writeString(tmpPath, encrypt(OBJECT_MAPPER.writeValueAsString(artifact)), StandardCharsets.UTF_8);
+            Files.move(tmpPath, artifactPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Stored artifact of ruleset {} in {}", rulesSet.getName(), artifactPath);
+            }
+
+            pruneOldestArtifacts();
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            LOG.warn("Unable to store the artifact of ruleset {} in {}", rulesSet.getName(), artifactsDir, e);
+        }
+    }
+
+    /**
+     * Returns the rulesets stored by a previous run of the same version of the engine, most recently used first,
+     * ready to be compiled exactly as they have been compiled when stored. Unreadable or outdated artifacts are deleted.
+     */
+    List<RulesSet> load() {
+        if (!isEnabled() || !Files.isDirectory(artifactsDir)) {
+            return List.of();
+        }
+        List<RulesSet> rulesSets = new ArrayList<>();
+        for (Path artifactPath : listArtifacts()) {
+            try {
+                RulesetArtifact artifact = OBJECT_MAPPER.readValue(decrypt(Files.readString(artifactPath, StandardCharsets.UTF_8)), RulesetArtifact.class);
+                if (!currentVersion().equals(artifact.getVersion())) {
+                    LOG.info("Deleting artifact {} compiled by version {} of the engine, current one is {}", artifactPath, artifact.getVersion(), currentVersion());
+                    Files.deleteIfExists(artifactPath);
+                    continue;
+                }
+                RulesSet rulesSet = RuleNotation.CoreNotation.INSTANCE
+                        .withOptions(artifact.getOptions().toArray(new RuleConfigurationOption[0]))
+                        .toRulesSet(artifact.getFormat(), artifact.getSource());
+                rulesSet.setHaMode(artifact.isHaMode());
+                if (!artifact.getKey().equals(KieBaseCache.cacheKey(rulesSet))) {
+                    throw new IllegalStateException("Artifact key " + artifact.getKey() + " doesn't match its content");
+                }
+                rulesSets.add(rulesSet);
+            } catch (IOException | GeneralSecurityException | RuntimeException e) {
+                LOG.warn("Deleting unreadable ruleset artifact {}", artifactPath, e);
+                deleteQuietly(artifactPath);
+            }
+        }
+        return rulesSets;
+    }
+
+    /**
+     * Returns Base64( 12-byte-IV | AES-GCM-ciphertext | 16-byte-tag ) of the given text
+     */
+    String encrypt(String text) throws GeneralSecurityException {
+        byte[] iv = new byte[IV_LENGTH];
+        SECURE_RANDOM.nextBytes(iv);
+        Cipher cipher = Cipher.getInstance(CIPHER_ALGORITHM);
+        cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH_BITS, iv));
+        byte[] ciphertext = cipher.doFinal(text.getBytes(StandardCharsets.UTF_8));
+
+        byte[] combined = new byte[IV_LENGTH + ciphertext.length];
+        System.arraycopy(iv, 0, combined, 0, IV_LENGTH);
+        System.arraycopy(ciphertext, 0, combined, IV_LENGTH, ciphertext.length);
+        return Base64.getEncoder().encodeToString(combined);
+    }
+
+    String decrypt(String data) throws GeneralSecurityException {
+        byte[] combined = Base64.getDecoder().decode(data.trim());
+        if (combined.length < IV_LENGTH) {
+            throw new GeneralSecurityException("Encrypted artifact too short");
+        }
+        Cipher cipher = Cipher.getInstance(CIPHER_ALGORITHM);
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH_BITS, combined, 0, IV_LENGTH));
+        return new String(cipher.doFinal(combined, IV_LENGTH, combined.length - IV_LENGTH), StandardCharsets.UTF_8);
+    }
+
+    private void pruneOldestArtifacts() {
+        List<Path> artifacts = listArtifacts();
+        for (int i = maxArtifacts; i < artifacts.size(); i++) {
+            deleteQuietly(artifacts.get(i));
+        }
+    }
+
+    private List<Path> listArtifacts() {
+        try (Stream<Path> files = Files.list(artifactsDir)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(ARTIFACT_EXTENSION))
+                    .sorted(Comparator.comparing(RulesetArtifactStore::lastModified).reversed())
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            LOG.warn("Unable to list ruleset artifacts in {}", artifactsDir, e);
+            return List.of();
+        }
+    }
+
+    private static FileTime lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            LOG.warn("Unable to delete ruleset artifact {}", path, e);
+        }
+    }
+
+    private static String fileNameOf(String key) {
+        return UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)) + ARTIFACT_EXTENSION;
+    }
+
+    static String currentVersion() {
+        return ARTIFACT_FORMAT_VERSION + ":" +
+                RulesetArtifactStore.class.getPackage().getImplementationVersion() + ":" +
+                KieBase.class.getPackage().getImplementationVersion();
+    }
+
+    public static class RulesetArtifact {
+
+        private String version;
+        private String key;
+        private RuleFormat format;
+        private boolean haMode;
+        private List<RuleConfigurationOption> options;
+        private String source;
+
+        public String getVersion() {
+            return version;
+        }
+
+        public void setVersion(String version) {
+            this.version = version;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public void setKey(String key) {
+            this.key = key;
+        }
+
+        public RuleFormat getFormat() {
+            return format;
+        }
+
+        public void setFormat(RuleFormat format) {
+            this.format = format;
+        }
+
+        public boolean isHaMode() {
+            return haMode;
+        }
+
+        public void setHaMode(boolean haMode) {
+            this.haMode = haMode;
+        }
+
+        public List<RuleConfigurationOption> getOptions() {
+            return options;
+        }
+
+        public void setOptions(List<RuleConfigurationOption> options) {
+            this.options = options;
+        }
+
+        public String getSource() {
+            return source;
+        }
+
+        public void setSource(String source) {
+            this.source = source;
+        }
+    }
+}
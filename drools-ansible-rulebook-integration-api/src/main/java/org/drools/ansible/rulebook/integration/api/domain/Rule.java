@@ -122,6 +122,28 @@ public class Rule {
         return ruleGenerationContext.hasTemporalConstraint(this);
     }
 
+    /**
+     * @return true if this rule matches a single event or fact, without any join or time constraint
+     */
+    public boolean isSinglePattern() {
+        return ruleGenerationContext.isSinglePattern(this);
+    }
+
+    /**
+     * @return true if this rule only matches events sharing the same partition key
+     */
+    public boolean isPartitionLocal(List<String> partitionKey) {
+        return ruleGenerationContext.isPartitionLocal(this, partitionKey);
+    }
+
+    /**
+     * @return the time, in milliseconds after its insertion, within which an event can still take part in a new match of
+     * this rule, or Long.MAX_VALUE if the event has to be kept until it expires
+     */
+    public long getEventsRetention() {
+        return ruleGenerationContext.getEventsRetention(this);
+    }
+
     public boolean requiresAsyncExecution() {
         return ruleGenerationContext.requiresAsyncExecution(this);
     }
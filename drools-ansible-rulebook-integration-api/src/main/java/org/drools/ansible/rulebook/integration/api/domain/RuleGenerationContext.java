@@ -141,6 +141,27 @@ public class RuleGenerationContext {
         return timeConstraint != null;
     }
 
+    public boolean isSinglePattern(org.drools.ansible.rulebook.integration.api.domain.Rule ansibleRule) {
+    	updateContextFromRule(ansibleRule);
+        return getOrCreateLHS() instanceof PrototypeDSL.PrototypePatternDef && timeConstraint == null;
+    }
+
+    public boolean isPartitionLocal(org.drools.ansible.rulebook.integration.api.domain.Rule ansibleRule, List<String> partitionKey) {
+    	updateContextFromRule(ansibleRule);
+        ViewItem pattern = getOrCreateLHS();
+        return timeConstraint != null ? timeConstraint.isPartitionLocal(partitionKey) : pattern instanceof PrototypeDSL.PrototypePatternDef;
+    }
+
+    public long getEventsRetention(org.drools.ansible.rulebook.integration.api.domain.Rule ansibleRule) {
+    	updateContextFromRule(ansibleRule);
+        ViewItem pattern = getOrCreateLHS();
+        if (timeConstraint != null) {
+            return timeConstraint.getEventsRetention();
+        }
+        // a single pattern can only match an event when it is inserted
+        return pattern instanceof PrototypeDSL.PrototypePatternDef ? 0 : Long.MAX_VALUE;
+    }
+
     public boolean requiresAsyncExecution(org.drools.ansible.rulebook.integration.api.domain.Rule rule) {
     	updateContextFromRule(rule);
         getOrCreateLHS();
@@ -1,8 +1,12 @@
 package org.drools.ansible.rulebook.integration.api.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import org.drools.ansible.rulebook.integration.api.RuleConfigurationOption;
 import org.drools.ansible.rulebook.integration.api.RuleConfigurationOptions;
+import org.drools.ansible.rulebook.integration.api.RuleFormat;
+import org.drools.ansible.rulebook.integration.api.domain.temporal.OnceAbstractTimeConstraint;
+import org.drools.ansible.rulebook.integration.api.domain.temporal.OnceAbstractTimeConstraint.GroupByAttribute;
 import org.drools.ansible.rulebook.integration.api.domain.temporal.TimeAmount;
 import org.drools.ansible.rulebook.integration.api.rulesengine.RulesExecutionController;
 import org.drools.model.Model;
@@ -12,6 +16,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class RulesSet {
@@ -26,13 +31,24 @@ public class RulesSet {
 
     private static final TimeAmount DEFAULT_EVENTS_TTL = new TimeAmount(2, TimeUnit.HOURS);
     private TimeAmount eventsTtl = DEFAULT_EVENTS_TTL;
+    private boolean eventsTtlConfigured;
+    private TimeAmount effectiveEventsTtl;
 
     private boolean matchMultipleRules;
 
     private boolean haMode;
 
+    private int shards = 1;
+
+    private List<String> partitionKey;
+
     private final RuleConfigurationOptions options = new RuleConfigurationOptions();
 
+    private String contentHash;
+
+    private RuleFormat sourceFormat;
+    private String source;
+
     private int enabledRulesNumber;
     private int disabledRulesNumber;
 
@@ -66,6 +82,7 @@ public class RulesSet {
 
         enabledRulesNumber = enabledRules.get();
         disabledRulesNumber = rules.size() - enabledRulesNumber;
+        effectiveEventsTtl = computeEffectiveEventsTtl();
 
         return model;
     }
@@ -112,6 +129,43 @@ public class RulesSet {
         return this;
     }
 
+    @JsonIgnore
+    public RuleConfigurationOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * @return the SHA-256 of the text this ruleset has been parsed from, or null if it has been built programmatically
+     */
+    @JsonIgnore
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public RulesSet withContentHash(String contentHash) {
+        this.contentHash = contentHash;
+        return this;
+    }
+
+    /**
+     * @return the text this ruleset has been parsed from, or null if it has been built programmatically
+     */
+    @JsonIgnore
+    public String getSource() {
+        return source;
+    }
+
+    @JsonIgnore
+    public RuleFormat getSourceFormat() {
+        return sourceFormat;
+    }
+
+    public RulesSet withSource(RuleFormat sourceFormat, String source) {
+        this.sourceFormat = sourceFormat;
+        this.source = source;
+        return this;
+    }
+
     public void setClock_period(String clockPeriod) {
         this.clockPeriod = TimeAmount.parseTimeAmount(clockPeriod);
         options.addOptions(RuleConfigurationOption.USE_PSEUDO_CLOCK);
@@ -128,20 +182,69 @@ public class RulesSet {
 
     public void setDefault_events_ttl(String clockPeriod) {
         this.eventsTtl = TimeAmount.parseTimeAmount(clockPeriod);
+        this.eventsTtlConfigured = true;
     }
 
     public void setDefaultEventsTtl(int amount, TimeUnit timeUnit) {
         this.eventsTtl = new TimeAmount(amount, timeUnit);
+        this.eventsTtlConfigured = true;
     }
 
     public TimeAmount getEventsTtl() {
         return eventsTtl;
     }
 
+    /**
+     * @return the TTL of the events inserted in a session of this ruleset. When no events TTL has been configured and no rule
+     * can match an event after the longest time window of the ruleset, the events are expired just after that window instead
+     * of after the default TTL, so the joins of the time window rules don't have to scan events that could never satisfy
+     * their temporal constraints. An events TTL explicitly configured on the ruleset is always honored.
+     * Note that this only prunes the candidates older than the window: a join still scans all the events inside the window,
+     * because the beta memories of Drools can only be indexed on the equality (or range) constraints between fact properties,
+     * not on the temporal distance between events.
+     */
+    @JsonIgnore
+    public TimeAmount getEffectiveEventsTtl() {
+        return effectiveEventsTtl != null ? effectiveEventsTtl : eventsTtl;
+    }
+
+    private TimeAmount computeEffectiveEventsTtl() {
+        if (eventsTtlConfigured) {
+            return eventsTtl;
+        }
+        if (haMode) {
+            // the recovery of the HA sessions relies on the events being retained for the whole configured TTL
+            return eventsTtl;
+        }
+        long retention = rules.stream().map(RuleContainer::getRule)
+                .filter(Rule::isEnabled)
+                .mapToLong(Rule::getEventsRetention)
+                .max()
+                .orElse(Long.MAX_VALUE);
+        if (retention == 0 || retention >= Math.min(eventsTtl.toMillis(), Integer.MAX_VALUE)) {
+            // no time window shorter than the TTL
+            return eventsTtl;
+        }
+        // an event still matches another one received exactly at the end of the window
+        return new TimeAmount((int) retention + 1, TimeUnit.MILLISECONDS);
+    }
+
     public void setMatch_multiple_rules(boolean matchMultipleRules) {
         this.matchMultipleRules = matchMultipleRules;
     }
 
+    public void setNative_throttling(boolean nativeThrottling) {
+        if (nativeThrottling) {
+            options.addOptions(RuleConfigurationOption.NATIVE_THROTTLING);
+        }
+    }
+
+    public void setNative_timed_out(boolean nativeTimedOut) {
+        if (nativeTimedOut) {
+            options.addOptions(RuleConfigurationOption.NATIVE_TIMED_OUT);
+        }
+    }
+
     public boolean isMatchMultipleRules() {
         return matchMultipleRules;
     }
@@ -154,10 +257,52 @@ public class RulesSet {
         this.haMode = haMode;
     }
 
+    public void setShards(int shards) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("The number of shards must be positive, was " + shards);
+        }
+        this.shards = shards;
+    }
+
+    public int getShards() {
+        return shards;
+    }
+
+    public void setPartition_key(List<String> partitionKey) {
+        this.partitionKey = partitionKey;
+    }
+
+    public List<GroupByAttribute> getPartitionKey() {
+        return partitionKey == null ? null : OnceAbstractTimeConstraint.parseGroupByAttributes(partitionKey);
+    }
+
+    /**
+     * Checks that this ruleset can be evaluated on multiple sessions partitioning the events by their partition key,
+     * i.e. that no rule can match events having different partition keys. Rules have to be already compiled.
+     */
+    public void checkPartitionLocalRules() {
+        if (partitionKey == null || partitionKey.isEmpty()) {
+            throw new IllegalArgumentException("Ruleset " + name + " requires a partition_key to be evaluated on " + shards + " shards");
+        }
+        List<String> keys = getPartitionKey().stream().map(GroupByAttribute::getKey).collect(Collectors.toList());
+        rules.stream().map(RuleContainer::getRule)
+                .filter(Rule::isEnabled)
+                .filter(rule -> !rule.isPartitionLocal(keys))
+                .findFirst()
+                .ifPresent(rule -> {
+                    throw new IllegalArgumentException("Rule " + rule.getName() + " of ruleset " + name + " is not local to the partition_key " + partitionKey +
+                            ": only single pattern rules, grouping their events by the partition_key when throttled, can be evaluated on multiple shards");
+                });
+    }
+
     public boolean hasTemporalConstraint() {
         return rules.stream().map(RuleContainer::getRule).anyMatch(Rule::hasTemporalConstraint);
     }
 
+    public boolean hasOnlySinglePatternRules() {
+        return rules.stream().map(RuleContainer::getRule).filter(Rule::isEnabled).allMatch(Rule::isSinglePattern);
+    }
+
     public boolean requiresAsyncExecution() {
         return rules.stream().map(RuleContainer::getRule).anyMatch(Rule::requiresAsyncExecution);
     }
@@ -12,8 +12,10 @@ import org.drools.ansible.rulebook.integration.api.domain.constraints.RulebookOp
 import org.drools.ansible.rulebook.integration.api.domain.constraints.SearchMatchesConstraint;
 import org.drools.ansible.rulebook.integration.api.domain.constraints.SelectAttrConstraint;
 import org.drools.ansible.rulebook.integration.api.domain.constraints.SelectConstraint;
+import org.drools.ansible.rulebook.integration.api.domain.temporal.DedupWithinDefinition;
 import org.drools.ansible.rulebook.integration.api.domain.temporal.OnceAfterDefinition;
 import org.drools.ansible.rulebook.integration.api.domain.temporal.OnceWithinDefinition;
+import org.drools.ansible.rulebook.integration.api.domain.temporal.SlidingWindowDefinition;
 import org.drools.ansible.rulebook.integration.api.domain.temporal.TimeConstraint;
 import org.drools.ansible.rulebook.integration.api.domain.temporal.TimeWindowDefinition;
 import org.drools.ansible.rulebook.integration.api.domain.temporal.TimedOutDefinition;
@@ -109,14 +111,35 @@ public class MapCondition implements Condition {
         Map throttle = (Map) condition.getMap().remove("throttle");
         if (throttle != null) {
             List<String> groupByAttributes = (List<String>) throttle.get(TimeConstraint.GROUP_BY_ATTRIBUTES);
+            if (throttle.containsKey(OnceAfterDefinition.SAMPLE_SIZE) && throttle.get(OnceAfterDefinition.KEYWORD) == null) {
+                throw new IllegalArgumentException(OnceAfterDefinition.SAMPLE_SIZE + " is only supported by " + OnceAfterDefinition.KEYWORD);
+            }
             String onceWithin = (String) throttle.get(OnceWithinDefinition.KEYWORD);
             if (onceWithin != null) {
                 ruleContext.setTimeConstraint(OnceWithinDefinition.parseOnceWithin(onceWithin, groupByAttributes));
                 return;
             }
+            String dedupWithin = (String) throttle.get(DedupWithinDefinition.KEYWORD);
+            if (dedupWithin != null) {
+                Number falsePositiveRate = (Number) throttle.get(DedupWithinDefinition.FALSE_POSITIVE_RATE);
+                Integer expectedKeys = (Integer) throttle.get(DedupWithinDefinition.EXPECTED_KEYS);
+                ruleContext.setTimeConstraint(DedupWithinDefinition.parseDedupWithin(dedupWithin, falsePositiveRate, expectedKeys, groupByAttributes));
+                return;
+            }
             String onceAfter = (String) throttle.get(OnceAfterDefinition.KEYWORD);
             if (onceAfter != null) {
-                ruleContext.setTimeConstraint(OnceAfterDefinition.parseOnceAfter(onceAfter, groupByAttributes));
+                Integer sampleSize = OnceAfterDefinition.parseSampleSize(throttle.get(OnceAfterDefinition.SAMPLE_SIZE));
+                ruleContext.setTimeConstraint(OnceAfterDefinition.parseOnceAfter(onceAfter, groupByAttributes, sampleSize));
+                return;
+            }
+            String slidingWindow = (String) throttle.get(SlidingWindowDefinition.KEYWORD);
+            if (slidingWindow != null) {
+                Integer threshold = (Integer) throttle.get("threshold");
+                if (threshold == null) {
+                    throw new IllegalArgumentException("threshold is required for sliding_window");
+                }
+                Integer buckets = (Integer) throttle.get(SlidingWindowDefinition.BUCKETS);
+                ruleContext.setTimeConstraint(SlidingWindowDefinition.parseSlidingWindow(slidingWindow, threshold, buckets, groupByAttributes));
                 return;
             }
             throw new IllegalArgumentException("Invalid throttle definition");
@@ -2,10 +2,12 @@ package org.drools.ansible.rulebook.integration.api.domain.temporal;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.drools.ansible.rulebook.integration.api.RuleConfigurationOption;
 import org.drools.ansible.rulebook.integration.api.domain.RuleGenerationContext;
 import org.drools.ansible.rulebook.integration.api.rulesengine.EmptyMatchDecorator;
 import org.drools.ansible.rulebook.integration.api.rulesengine.RegisterOnlyAgendaFilter;
@@ -22,6 +24,7 @@ import org.kie.api.runtime.rule.Match;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static org.drools.ansible.rulebook.integration.api.rulesengine.RegisterOnlyAgendaFilter.NATIVE_THROTTLE_TAG;
 import static org.drools.ansible.rulebook.integration.api.rulesengine.RegisterOnlyAgendaFilter.RULE_TYPE_TAG;
 import static org.drools.ansible.rulebook.integration.api.rulesengine.RegisterOnlyAgendaFilter.SYNTHETIC_RULE_TAG;
 import static org.drools.ansible.rulebook.integration.api.rulesmodel.PrototypeFactory.SYNTHETIC_PROTOTYPE_NAME;
@@ -80,6 +83,12 @@ import static org.drools.model.PatternDSL.rule;
  * then
  *   control.current_count++
  *   if (control.current_count < 3) delete singleton
+ *
+ * With the NATIVE_THROTTLING option the control events and the synthetic rules aren't generated. The rule R only has the
+ * original pattern and is tagged with this definition, so that, when R is about to fire, the agenda filter increments the
+ * counter of the group of the matched event in the NativeGroupTable of the session, opening a new time window when the group
+ * has none: the activation is discarded and the event deleted until the threshold is reached, then the rule fires and the
+ * counter is removed. This way the memory is bounded by the number of groups instead of the number of accumulated events.
  */
 public class AccumulateWithinDefinition extends OnceAbstractTimeConstraint {
 
@@ -91,6 +100,8 @@ public class AccumulateWithinDefinition extends OnceAbstractTimeConstraint {
 
     private final int threshold;
 
+    private boolean nativeThrottling;
+
     static {
         RegisterOnlyAgendaFilter.registerMatchTransformer(KEYWORD, AccumulateWithinDefinition::transformAccumulateWithinMatch);
     }
@@ -123,6 +134,24 @@ public class AccumulateWithinDefinition extends OnceAbstractTimeConstraint {
         return KEYWORD;
     }
 
+    public int getThreshold() {
+        return threshold;
+    }
+
+    @Override
+    public ViewItem processTimeConstraint(RuleGenerationContext ruleContext, ViewItem pattern) {
+        this.nativeThrottling = ruleContext.hasOption(RuleConfigurationOption.NATIVE_THROTTLING);
+        if (!nativeThrottling) {
+            return processTimeConstraint(ruleContext.getRuleName(), pattern);
+        }
+        this.ruleName = ruleContext.getRuleName();
+        if (guardedPattern != null) {
+            throw new IllegalStateException("Cannot process this TimeConstraint twice");
+        }
+        guardedPattern = (PrototypeDSL.PrototypePatternDef) pattern;
+        return guardedPattern;
+    }
+
     @Override
     public ViewItem processTimeConstraint(String ruleName, ViewItem pattern) {
         this.ruleName = ruleName;
@@ -140,6 +169,12 @@ public class AccumulateWithinDefinition extends OnceAbstractTimeConstraint {
 
     @Override
     public Rule buildTimedRule(String ruleName, RuleItemBuilder pattern, RuleItemBuilder consequence) {
+        if (nativeThrottling) {
+            return rule(ruleName)
+                    .metadata(RULE_TYPE_TAG, KEYWORD)
+                    .metadata(NATIVE_THROTTLE_TAG, this)
+                    .build(pattern, consequence);
+        }
         return rule(ruleName)
                 .metadata(RULE_TYPE_TAG, KEYWORD)
                 .build(pattern, consequence);
@@ -147,7 +182,9 @@ public class AccumulateWithinDefinition extends OnceAbstractTimeConstraint {
 
     @Override
     public Variable<?>[] getTimeConstraintConsequenceVariables() {
-        return new Variable[]{getPatternVariable(), getControlVariable()};
+        return nativeThrottling ?
+                new Variable[]{getPatternVariable()} :
+                new Variable[]{getPatternVariable(), getControlVariable()};
     }
 
     @Override
@@ -162,12 +199,18 @@ public class AccumulateWithinDefinition extends OnceAbstractTimeConstraint {
         // Delete the event
         drools.delete(facts[0]);
 
-        // Delete the control event
-        drools.delete(facts[1]);
+        // Delete the control event, when the counter isn't kept by the session
+        if (!nativeThrottling) {
+            drools.delete(facts[1]);
+        }
     }
 
     @Override
     public List<Rule> getControlRules(RuleGenerationContext ruleContext) {
+        if (nativeThrottling) {
+            return Collections.emptyList();
+        }
+
         List<Rule> rules = new ArrayList<>();
 
         // Rule 1: First event handler
@@ -216,6 +259,12 @@ public class AccumulateWithinDefinition extends OnceAbstractTimeConstraint {
         return rules;
     }
 
+    public Map<String, Object> toControlData(List<Object> groupKey, int currentCount) {
+        Map<String, Object> controlData = createControlData(ACCUMULATE_WITHIN_CONTROL, groupKey);
+        controlData.put("current_count", currentCount);
+        return controlData;
+    }
+
     @Override
     public String toString() {
         return "AccumulateWithinDefinition{" +
@@ -0,0 +1,148 @@
+package org.drools.ansible.rulebook.integration.api.domain.temporal;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.drools.ansible.rulebook.integration.api.domain.RuleGenerationContext;
+import org.drools.model.Drools;
+import org.drools.model.Rule;
+import org.drools.model.RuleItemBuilder;
+import org.drools.model.Variable;
+import org.drools.model.prototype.PrototypeDSL;
+import org.drools.model.view.ViewItem;
+import org.kie.api.prototype.PrototypeFactInstance;
+
+import static org.drools.ansible.rulebook.integration.api.domain.temporal.TimeAmount.parseTimeAmount;
+import static org.drools.ansible.rulebook.integration.api.rulesengine.RegisterOnlyAgendaFilter.NATIVE_THROTTLE_TAG;
+import static org.drools.ansible.rulebook.integration.api.rulesengine.RegisterOnlyAgendaFilter.RULE_TYPE_TAG;
+import static org.drools.ansible.rulebook.integration.api.rulesmodel.RulesModelUtil.writeMetaDataOnEvent;
+import static org.drools.model.PatternDSL.rule;
+
+/**
+ * Drops the duplicated events within a time window, like once_within, but remembering the groups that already fired
+ * with a probabilistic data structure instead of a control event per group.
+ *
+ *    e.g.:
+ *      condition:
+ *         all:
+ *           - singleton << event.sensu.process.type == "alert"
+ *         throttle:
+ *           dedup_within: 10 minutes
+ *           false_positive_rate: 0.001
+ *           expected_keys: 1000000
+ *           group_by_attributes:
+ *             - event.sensu.host
+ *             - event.sensu.process.type
+ *
+ * This constraint doesn't have any control event or synthetic rule and is always evaluated natively by the session. The rule R
+ * only has the original pattern and is tagged with this definition, so that, when R is about to fire, the agenda filter looks
+ * up the group of the matched event in the RotatingBloomFilter kept by the session for R: if the group has been seen within
+ * the time window the activation is discarded and the event deleted, otherwise the group is remembered and the rule fires.
+ *
+ * The memory used by a rule is fixed by the expected number of distinct groups within a window (100000 by default) and by
+ * the false positive rate (0.01 by default), i.e. the probability that the first event of a group is dropped as a duplicate,
+ * which grows beyond the configured one when the groups are more than the expected ones. A group is remembered for at least
+ * the time window and at most a third of it more. Differently from once_within the state of this constraint isn't persisted
+ * for HA, so after a recovery the first event of a group fires again even if it is a duplicate.
+ */
+public class DedupWithinDefinition extends OnceAbstractTimeConstraint {
+
+    public static final String KEYWORD = "dedup_within";
+
+    public static final String FALSE_POSITIVE_RATE = "false_positive_rate";
+
+    public static final String EXPECTED_KEYS = "expected_keys";
+
+    public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+
+    public static final int DEFAULT_EXPECTED_KEYS = 100_000;
+
+    private final double falsePositiveRate;
+
+    private final int expectedKeys;
+
+    public DedupWithinDefinition(TimeAmount timeAmount, List<GroupByAttribute> groupByAttributes) {
+        this(timeAmount, DEFAULT_FALSE_POSITIVE_RATE, DEFAULT_EXPECTED_KEYS, groupByAttributes);
+    }
+
+    public DedupWithinDefinition(TimeAmount timeAmount, double falsePositiveRate, int expectedKeys, List<GroupByAttribute> groupByAttributes) {
+        super(timeAmount, groupByAttributes);
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("The " + FALSE_POSITIVE_RATE + " of " + KEYWORD + " must be between 0 and 1: " + falsePositiveRate);
+        }
+        if (expectedKeys <= 0) {
+            throw new IllegalArgumentException("The " + EXPECTED_KEYS + " of " + KEYWORD + " must be positive: " + expectedKeys);
+        }
+        this.falsePositiveRate = falsePositiveRate;
+        this.expectedKeys = expectedKeys;
+    }
+
+    @Override
+    public boolean requiresAsyncExecution() {
+        return false;
+    }
+
+    public double getFalsePositiveRate() {
+        return falsePositiveRate;
+    }
+
+    public int getExpectedKeys() {
+        return expectedKeys;
+    }
+
+    @Override
+    public ViewItem processTimeConstraint(RuleGenerationContext ruleContext, ViewItem pattern) {
+        return processTimeConstraint(ruleContext.getRuleName(), pattern);
+    }
+
+    @Override
+    public ViewItem processTimeConstraint(String ruleName, ViewItem pattern) {
+        this.ruleName = ruleName;
+        if (guardedPattern != null) {
+            throw new IllegalStateException("Cannot process this TimeConstraint twice");
+        }
+        guardedPattern = (PrototypeDSL.PrototypePatternDef) pattern;
+        return guardedPattern;
+    }
+
+    @Override
+    public Rule buildTimedRule(String ruleName, RuleItemBuilder pattern, RuleItemBuilder consequence) {
+        return rule(ruleName)
+                .metadata(RULE_TYPE_TAG, KEYWORD)
+                .metadata(NATIVE_THROTTLE_TAG, this)
+                .build(pattern, consequence);
+    }
+
+    @Override
+    public Variable<?>[] getTimeConstraintConsequenceVariables() {
+        return new Variable[]{getPatternVariable()};
+    }
+
+    @Override
+    public void executeTimeConstraintConsequence(Drools drools, Object... facts) {
+        PrototypeFactInstance fact = (PrototypeFactInstance) facts[0];
+        drools.delete(fact);
+
+        Map<String, Object> ruleEngineMeta = new HashMap<>();
+        ruleEngineMeta.put("dedup_within_time_window", timeAmount.toString());
+        writeMetaDataOnEvent(fact, ruleEngineMeta);
+    }
+
+    @Override
+    public String toString() {
+        return "DedupWithinDefinition{" +
+                "timeAmount=" + timeAmount +
+                ", falsePositiveRate=" + falsePositiveRate +
+                ", expectedKeys=" + expectedKeys +
+                ", groupByAttributes=" + groupByAttributes +
+                "}";
+    }
+
+    public static DedupWithinDefinition parseDedupWithin(String dedupWithin, Number falsePositiveRate, Integer expectedKeys, List<String> groupByAttributes) {
+        return new DedupWithinDefinition(parseTimeAmount(dedupWithin),
+                                         falsePositiveRate == null ? DEFAULT_FALSE_POSITIVE_RATE : falsePositiveRate.doubleValue(),
+                                         expectedKeys == null ? DEFAULT_EXPECTED_KEYS : expectedKeys,
+                                         parseGroupByAttributes(groupByAttributes));
+    }
+}
@@ -11,6 +11,8 @@ import org.drools.model.prototype.PrototypeVariable;
 import org.kie.api.prototype.PrototypeEventInstance;
 import org.kie.api.prototype.PrototypeFactInstance;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
@@ -19,6 +21,8 @@ import static org.drools.ansible.rulebook.integration.api.rulesmodel.PrototypeFa
 import static org.drools.ansible.rulebook.integration.api.rulesmodel.PrototypeFactory.getPrototypeEvent;
 import static org.drools.model.prototype.PrototypeDSL.protoPattern;
 import static org.drools.model.prototype.PrototypeDSL.variable;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
 import static org.drools.model.prototype.PrototypeExpression.prototypeField;
 
 public abstract class OnceAbstractTimeConstraint implements TimeConstraint {
@@ -37,6 +41,12 @@ public abstract class OnceAbstractTimeConstraint implements TimeConstraint {
         this.groupByAttributes = groupByAttributes;
     }
 
+    @Override
+    public boolean isPartitionLocal(List<String> partitionKey) {
+        // events of the same group always share the same partition key, so they are all evaluated by the same session
+        return groupByAttributes.stream().map(GroupByAttribute::getKey).collect(toSet()).containsAll(partitionKey);
+    }
+
     /**
      * Recreates a control event from stored data during session recovery.
      * This method reconstructs the synthetic control event with the same expiration
@@ -60,6 +70,53 @@ public abstract class OnceAbstractTimeConstraint implements TimeConstraint {
         return controlEvent;
     }
 
+    public String getRuleName() {
+        return ruleName;
+    }
+
+    /**
+     * Returns the name of the variable bound to the grouped event in the matches of the rule
+     */
+    public String getGroupedEventBinding() {
+        return getPatternVariable().getName();
+    }
+
+    public List<Object> getGroupKey(PrototypeFactInstance fact) {
+        List<Object> groupKey = new ArrayList<>(groupByAttributes.size());
+        for (GroupByAttribute unique : groupByAttributes) {
+            groupKey.add(unique.evalExtractorOnFact(fact));
+        }
+        return groupKey;
+    }
+
+    /**
+     * Returns the key of the group described by the content of a control event
+     */
+    public List<Object> getGroupKey(Map<String, Object> controlData) {
+        List<Object> groupKey = new ArrayList<>(groupByAttributes.size());
+        for (GroupByAttribute unique : groupByAttributes) {
+            groupKey.add(controlData.get(unique.getKey()));
+        }
+        return groupKey;
+    }
+
+    public long getWindowMillis() {
+        return timeAmount.toMillis();
+    }
+
+    /**
+     * Returns the content of the control event of the given group, as it would be inserted for this rule
+     */
+    protected Map<String, Object> createControlData(String controlName, List<Object> groupKey) {
+        Map<String, Object> controlData = new LinkedHashMap<>();
+        controlData.put(CONTROL_NAME, controlName);
+        for (int i = 0; i < groupByAttributes.size(); i++) {
+            controlData.put(groupByAttributes.get(i).getKey(), groupKey.get(i));
+        }
+        controlData.put("drools_rule_name", ruleName);
+        return controlData;
+    }
+
     protected PrototypeVariable getPatternVariable() {
         return (PrototypeVariable) guardedPattern.getFirstVariable();
     }
@@ -81,6 +138,13 @@ public abstract class OnceAbstractTimeConstraint implements TimeConstraint {
         return controlPattern;
     }
 
+    public static List<GroupByAttribute> parseGroupByAttributes(List<String> attributes) {
+        return attributes.stream()
+                .map(OnceAbstractTimeConstraint::sanitizeAttributeName)
+                .map(GroupByAttribute::from)
+                .collect(toList());
+    }
+
     static String sanitizeAttributeName(String name) {
         if (name.startsWith("event.")) {
             return name.substring("event.".length());
@@ -119,7 +183,11 @@ public abstract class OnceAbstractTimeConstraint implements TimeConstraint {
         }
 
         public Object evalExtractorOnFact(PrototypeFactInstance fact) {
-            return ExtractorUtils.getValueFrom(extractor, fact.asMap());
+            return evalExtractorOnMap(fact.asMap());
+        }
+
+        public Object evalExtractorOnMap(Map<String, Object> map) {
+            return ExtractorUtils.getValueFrom(extractor, map);
         }
 
         @Override
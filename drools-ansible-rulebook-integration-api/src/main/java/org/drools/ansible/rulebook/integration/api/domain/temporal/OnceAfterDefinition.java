@@ -1,8 +1,10 @@
 package org.drools.ansible.rulebook.integration.api.domain.temporal;
 
+import org.drools.ansible.rulebook.integration.api.RuleConfigurationOption;
 import org.drools.ansible.rulebook.integration.api.domain.RuleGenerationContext;
 import org.drools.ansible.rulebook.integration.api.rulesengine.EmptyMatchDecorator;
 import org.drools.ansible.rulebook.integration.api.rulesengine.RegisterOnlyAgendaFilter;
+import org.drools.core.common.DefaultEventHandle;
 import org.drools.model.Drools;
 import org.drools.model.Index;
 import org.drools.model.Rule;
@@ -20,20 +22,27 @@ import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static java.util.stream.Collectors.toList;
 import static org.drools.ansible.rulebook.integration.api.domain.temporal.TimeAmount.parseTimeAmount;
+import static org.drools.ansible.rulebook.integration.api.rulesengine.RegisterOnlyAgendaFilter.NATIVE_THROTTLE_TAG;
 import static org.drools.ansible.rulebook.integration.api.rulesengine.RegisterOnlyAgendaFilter.RULE_TYPE_TAG;
 import static org.drools.ansible.rulebook.integration.api.rulesengine.RegisterOnlyAgendaFilter.SYNTHETIC_RULE_TAG;
+import static org.drools.ansible.rulebook.integration.api.rulesmodel.PrototypeFactory.DEFAULT_PROTOTYPE_NAME;
 import static org.drools.ansible.rulebook.integration.api.rulesmodel.PrototypeFactory.SYNTHETIC_PROTOTYPE_NAME;
 import static org.drools.ansible.rulebook.integration.api.rulesmodel.PrototypeFactory.getPrototypeEvent;
+import static org.drools.ansible.rulebook.integration.api.rulesmodel.RulesModelUtil.mapToFact;
 import static org.drools.ansible.rulebook.integration.api.rulesmodel.RulesModelUtil.writeMetaDataOnEvent;
 import static org.drools.model.DSL.accFunction;
 import static org.drools.model.DSL.accumulate;
 import static org.drools.model.DSL.declarationOf;
+import static org.drools.model.DSL.execute;
 import static org.drools.model.DSL.not;
 import static org.drools.model.DSL.on;
 import static org.drools.model.PatternDSL.rule;
@@ -103,6 +112,45 @@ import static org.drools.model.prototype.PrototypeDSL.variable;
  *   c1.set("events_in_window", c1.get("events_in_window") + 1 );
  *   delete(e);
  * end
+ *
+ * <h2>Aggregation mode</h2>
+ *
+ * Adding a sample_size to the throttle definition, e.g.
+ *
+ *         throttle:
+ *           once_after: 10 minutes
+ *           group_by_attributes:
+ *             - event.sensu.host
+ *           sample_size: 3
+ *
+ * the control event of a group doesn't retain the first event, but only the number of events received in the window, the
+ * pseudo clock times of the first and of the last of them and a sample made of the first sample_size events (none when it is 0).
+ * In this way the state of each group has a fixed size regardless of how the events of that group are large or noisy.
+ * When the window ends, each group is bound in the match to a summary event having the group_by_attributes values at their own
+ * paths and the aggregated data in its meta.rule_engine, e.g.
+ *
+ *   { "sensu": { "host": "h1" },
+ *     "meta": { "rule_engine": { "once_after_time_window": "10 minutes", "events_in_window": 42,
+ *                                "first_event_time": 1700000000000, "last_event_time": 1700000590000,
+ *                                "events_sample": [ { first event }, { second event }, { third event } ] } } }
+ *
+ * <h2>Native throttling</h2>
+ *
+ * With the NATIVE_THROTTLING option the R_control, R_start and R_cleanup_duplicate rules aren't generated. The original
+ * pattern is moved into a R_collect rule tagged with this definition, so that, when it is about to fire, the agenda filter
+ * discards its activation, deletes the event and collects it in the control event of its group, kept by the NativeGroupTable
+ * of the session instead of the working memory. All the groups of the rule share the window opened by the first of them,
+ * and, when the clock passes its end, the session inserts their control events together with the end control event,
+ * so that the rule R, reduced to
+ *
+ * rule R when
+ *   c1 : Control( end_once_after == "R" )
+ *   accumulate( Control( drools_rule_name == "R" ); $result : collectList() )
+ * then
+ *   ...
+ * end
+ *
+ * fires with the same match it would have without that option.
  */
 public class OnceAfterDefinition extends OnceAbstractTimeConstraint {
 
@@ -110,12 +158,26 @@ public class OnceAfterDefinition extends OnceAbstractTimeConstraint {
 
     public static final String KEYWORD = "once_after";
     public static final String ONCE_AFTER_CONTROL = "once_after_control";
+    public static final String SAMPLE_SIZE = "sample_size";
+
+    private static final String EVENTS_IN_WINDOW = "events_in_window";
+    private static final String FIRST_EVENT_TIME = "first_event_time";
+    private static final String LAST_EVENT_TIME = "last_event_time";
+    private static final String EVENTS_SAMPLE = "events_sample";
+    private static final String TIME_WINDOW = "once_after_time_window";
+    private static final Set<String> AGGREGATION_CONTROL_FIELDS = Set.of(CONTROL_NAME, "drools_rule_name",
+            TIME_WINDOW, EVENTS_IN_WINDOW, FIRST_EVENT_TIME, LAST_EVENT_TIME, EVENTS_SAMPLE);
 
     private final PrototypeEvent controlPrototype = getPrototypeEvent(SYNTHETIC_PROTOTYPE_NAME);
     private final PrototypeVariable controlVar1 = variable( controlPrototype, "c1" );
     private final PrototypeVariable controlVar2 = variable( controlPrototype, "c2" );
     private final Variable<List> resultsVar = declarationOf( List.class, "results" );
 
+    // null unless the aggregation mode is enabled
+    private final Integer sampleSize;
+
+    private boolean nativeThrottling;
+
     static {
         RegisterOnlyAgendaFilter.registerMatchTransformer(KEYWORD, OnceAfterDefinition::transformOnceAfterMatch);
     }
@@ -136,13 +198,55 @@ public class OnceAfterDefinition extends OnceAbstractTimeConstraint {
 
     private static Object controlFact2Event(PrototypeFactInstance fact) {
         Map ruleEngineMeta = new HashMap();
-        ruleEngineMeta.put("once_after_time_window", fact.get("once_after_time_window"));
-        ruleEngineMeta.put("events_in_window", fact.get("events_in_window"));
-        return writeMetaDataOnEvent((PrototypeFactInstance) fact.get("event"), ruleEngineMeta);
+        ruleEngineMeta.put(TIME_WINDOW, fact.get(TIME_WINDOW));
+        ruleEngineMeta.put(EVENTS_IN_WINDOW, fact.get(EVENTS_IN_WINDOW));
+        Object event = fact.get("event");
+        if (event != null) {
+            return writeMetaDataOnEvent((PrototypeFactInstance) event, ruleEngineMeta);
+        }
+
+        // aggregation mode: the control only holds the group and the aggregated data
+        ruleEngineMeta.put(FIRST_EVENT_TIME, fact.get(FIRST_EVENT_TIME));
+        ruleEngineMeta.put(LAST_EVENT_TIME, fact.get(LAST_EVENT_TIME));
+        ruleEngineMeta.put(EVENTS_SAMPLE, fact.get(EVENTS_SAMPLE));
+        PrototypeFactInstance summaryEvent = getPrototypeEvent(DEFAULT_PROTOTYPE_NAME).newInstance();
+        Map<String, Object> summaryMap = summaryEvent.asMap();
+        fact.asMap().forEach((key, value) -> {
+            if (!AGGREGATION_CONTROL_FIELDS.contains(key)) {
+                putOnPath(summaryMap, key, value);
+            }
+        });
+        return writeMetaDataOnEvent(summaryEvent, ruleEngineMeta);
+    }
+
+    private static void putOnPath(Map<String, Object> map, String key, Object value) {
+        if (!key.matches("[\\w.]+")) {
+            // not a simple path like sensu.host, keep the group_by attribute as it is
+            map.put(key, value);
+            return;
+        }
+        String[] path = key.split("\\.");
+        Map<String, Object> current = map;
+        for (int i = 0; i < path.length - 1; i++) {
+            current = (Map<String, Object>) current.computeIfAbsent(path[i], k -> new HashMap<>());
+        }
+        current.put(path[path.length - 1], value);
     }
 
     public OnceAfterDefinition(TimeAmount timeAmount, List<GroupByAttribute> groupByAttributes) {
+        this(timeAmount, groupByAttributes, null);
+    }
+
+    public OnceAfterDefinition(TimeAmount timeAmount, List<GroupByAttribute> groupByAttributes, Integer sampleSize) {
         super(timeAmount, groupByAttributes);
+        if (sampleSize != null && sampleSize < 0) {
+            throw new IllegalArgumentException(SAMPLE_SIZE + " cannot be negative: " + sampleSize);
+        }
+        this.sampleSize = sampleSize;
+    }
+
+    public boolean isAggregating() {
+        return sampleSize != null;
     }
 
     @Override
@@ -161,6 +265,12 @@ public class OnceAfterDefinition extends OnceAbstractTimeConstraint {
         ((List) facts[1]).forEach(drools::delete);
     }
 
+    @Override
+    public ViewItem processTimeConstraint(RuleGenerationContext ruleContext, ViewItem pattern) {
+        this.nativeThrottling = ruleContext.hasOption(RuleConfigurationOption.NATIVE_THROTTLING);
+        return processTimeConstraint(ruleContext.getRuleName(), pattern);
+    }
+
     @Override
     public ViewItem processTimeConstraint(String ruleName, ViewItem pattern) {
         this.ruleName = ruleName;
@@ -174,6 +284,16 @@ public class OnceAfterDefinition extends OnceAbstractTimeConstraint {
     @Override
     public Rule buildTimedRule(String ruleName, RuleItemBuilder pattern, RuleItemBuilder consequence) {
         PrototypeVariable controlVar3 = variable( controlPrototype, "c3" );
+        if (nativeThrottling) {
+            // the control events of the groups, and the one ending the window, are inserted only when the window ends
+            return rule( ruleName ).metadata(RULE_TYPE_TAG, KEYWORD)
+                    .build(
+                            protoPattern(controlVar1).expr( "end_once_after", Index.ConstraintType.EQUAL, ruleName ),
+                            accumulate( protoPattern(controlVar3).expr("drools_rule_name", Index.ConstraintType.EQUAL, ruleName ),
+                                    accFunction(org.drools.core.base.accumulators.CollectListAccumulateFunction::new, controlVar3).as(resultsVar)),
+                            consequence
+                    );
+        }
         return rule( ruleName ).metadata(RULE_TYPE_TAG, KEYWORD)
                 .build(
                         protoPattern(controlVar1).expr( "end_once_after", Index.ConstraintType.EQUAL, ruleName ),
@@ -186,6 +306,13 @@ public class OnceAfterDefinition extends OnceAbstractTimeConstraint {
 
     @Override
     public List<Rule> getControlRules(RuleGenerationContext ruleContext) {
+        if (nativeThrottling) {
+            return Collections.singletonList(
+                    rule( ruleName + "_collect" ).metadata(NATIVE_THROTTLE_TAG, this)
+                            .build( guardedPattern, execute(drools -> { }) )
+            );
+        }
+
         List<Rule> rules = new ArrayList<>();
 
         rules.add(
@@ -194,17 +321,7 @@ public class OnceAfterDefinition extends OnceAbstractTimeConstraint {
                                 guardedPattern,
                                 not( createControlPattern() ),
                                 on(getPatternVariable()).execute((drools, event) -> {
-                                    // This is a control event to carry the matched event
-                                    PrototypeEventInstance controlEvent = controlPrototype.newInstance();
-                                    for (GroupByAttribute unique : groupByAttributes) {
-                                        controlEvent.put(unique.getKey(), unique.evalExtractorOnFact(event));
-                                    }
-                                    controlEvent.put(CONTROL_NAME, ONCE_AFTER_CONTROL);
-                                    controlEvent.put("drools_rule_name", ruleName);
-                                    controlEvent.put( "event", event );
-                                    controlEvent.put( "once_after_time_window", timeAmount.toString() );
-                                    controlEvent.put( "events_in_window", 1 );
-                                    drools.insert(controlEvent);
+                                    drools.insert(createGroupControl(event, getEventTime(drools, event)));
                                     drools.delete(event);
                                 })
                         )
@@ -224,13 +341,7 @@ public class OnceAfterDefinition extends OnceAbstractTimeConstraint {
                                     drools.insert(startControlEvent);
 
                                     // This is a control event to clarify the condition to fire the main rule -- the start is expired, but the end is still present
-                                    PrototypeEventInstance endControlEvent = controlPrototype.newInstance();
-                                    endControlEvent.put(CONTROL_NAME, ONCE_AFTER_CONTROL);
-                                    endControlEvent.put( "end_once_after", ruleName );
-                                    // This control event fires the main rule, so is counted as a matched event in SessionStatsCollector.registerMatchedEvents
-                                    // Users may think that the main rule is matched with the first event (suppressing other events in the time window). All events are bound by transformTimedOutMatch method
-                                    endControlEvent.put( COUNT_AS_MATCHED_EVENT, true );
-                                    drools.insert(endControlEvent);
+                                    drools.insert(createEndControl());
 
                                     if (log.isInfoEnabled()) {
                                         log.info("Start once_after window for rule " + ruleName);
@@ -245,7 +356,7 @@ public class OnceAfterDefinition extends OnceAbstractTimeConstraint {
                                 guardedPattern,
                                 createControlPattern(),
                                 on(getPatternVariable(), getControlVariable()).execute((drools, event, control) -> {
-                                    control.put( "events_in_window", ((int) control.get("events_in_window")) + 1 );
+                                    addToGroupControl(control, event, getEventTime(drools, event));
                                     drools.delete(event);
                                     drools.update(control);
                                 })
@@ -255,16 +366,109 @@ public class OnceAfterDefinition extends OnceAbstractTimeConstraint {
         return rules;
     }
 
+    /**
+     * Creates the control event of the group of the given event, received at the given time as the first one of its group in the window
+     */
+    public PrototypeEventInstance createGroupControl(PrototypeFactInstance event, long eventTime) {
+        // This is a control event to carry the matched event
+        PrototypeEventInstance controlEvent = controlPrototype.newInstance();
+        for (GroupByAttribute unique : groupByAttributes) {
+            controlEvent.put(unique.getKey(), unique.evalExtractorOnFact(event));
+        }
+        controlEvent.put(CONTROL_NAME, ONCE_AFTER_CONTROL);
+        controlEvent.put("drools_rule_name", ruleName);
+        if (isAggregating()) {
+            controlEvent.put( FIRST_EVENT_TIME, eventTime );
+            controlEvent.put( LAST_EVENT_TIME, eventTime );
+            List<Object> sample = new ArrayList<>(sampleSize);
+            if (sampleSize > 0) {
+                sample.add( event.asMap() );
+            }
+            controlEvent.put( EVENTS_SAMPLE, sample );
+        } else {
+            controlEvent.put( "event", event );
+        }
+        controlEvent.put( TIME_WINDOW, timeAmount.toString() );
+        controlEvent.put( EVENTS_IN_WINDOW, 1 );
+        return controlEvent;
+    }
+
+    /**
+     * Adds to the given control event the given event of its group, received at the given time after the first one in the window
+     */
+    public void addToGroupControl(PrototypeFactInstance control, PrototypeFactInstance event, long eventTime) {
+        control.put( EVENTS_IN_WINDOW, ((int) control.get(EVENTS_IN_WINDOW)) + 1 );
+        if (isAggregating()) {
+            control.put( LAST_EVENT_TIME, eventTime );
+            List<Object> sample = (List<Object>) control.get(EVENTS_SAMPLE);
+            if (sample.size() < sampleSize) {
+                sample.add( event.asMap() );
+            }
+        }
+    }
+
+    /**
+     * Creates the control event firing this rule, together with the control events of the groups collected in its window
+     */
+    public PrototypeEventInstance createEndControl() {
+        PrototypeEventInstance endControlEvent = controlPrototype.newInstance();
+        endControlEvent.put(CONTROL_NAME, ONCE_AFTER_CONTROL);
+        endControlEvent.put( "end_once_after", ruleName );
+        // This control event fires the main rule, so is counted as a matched event in SessionStatsCollector.registerMatchedEvents
+        // Users may think that the main rule is matched with the first event (suppressing other events in the time window). All events are bound by transformTimedOutMatch method
+        endControlEvent.put( COUNT_AS_MATCHED_EVENT, true );
+        return endControlEvent;
+    }
+
+    /**
+     * Returns the content of the given control event of a group, with the event it carries, if any, converted into a map
+     */
+    public Map<String, Object> toControlData(PrototypeFactInstance control) {
+        Map<String, Object> controlData = new LinkedHashMap<>(control.asMap());
+        if (controlData.get("event") instanceof PrototypeFactInstance event) {
+            controlData.put("event", event.asMap());
+        }
+        return controlData;
+    }
+
+    /**
+     * Recreates the control event of a group from its content, as returned by toControlData
+     */
+    public PrototypeEventInstance restoreGroupControl(Map<String, Object> controlData) {
+        PrototypeEventInstance controlEvent = controlPrototype.newInstance();
+        controlData.forEach((key, value) -> controlEvent.put(key, "event".equals(key) && value instanceof Map ?
+                mapToFact((Map<String, Object>) value, true) : value));
+        return controlEvent;
+    }
+
+    private static long getEventTime(Drools drools, Object event) {
+        return ((DefaultEventHandle) drools.getFactHandle(event)).getStartTimestamp();
+    }
+
     @Override
     public String toString() {
         return "OnceWithinDefinition{" + " " + timeAmount + ", groupByAttributes=" + groupByAttributes + " }";
     }
 
     public static OnceAfterDefinition parseOnceAfter(String onceWithin, List<String> groupByAttributes) {
+        return parseOnceAfter(onceWithin, groupByAttributes, null);
+    }
+
+    public static OnceAfterDefinition parseOnceAfter(String onceWithin, List<String> groupByAttributes, Integer sampleSize) {
         List<GroupByAttribute> sanitizedAttributes = groupByAttributes.stream()
                 .map(OnceAbstractTimeConstraint::sanitizeAttributeName)
                 .map(GroupByAttribute::from)
                 .collect(toList());
-        return new OnceAfterDefinition(parseTimeAmount(onceWithin), sanitizedAttributes);
+        return new OnceAfterDefinition(parseTimeAmount(onceWithin), sanitizedAttributes, sampleSize);
+    }
+
+    public static Integer parseSampleSize(Object sampleSize) {
+        if (sampleSize == null) {
+            return null;
+        }
+        if (!(sampleSize instanceof Number number) || number.doubleValue() != number.intValue()) {
+            throw new IllegalArgumentException(SAMPLE_SIZE + " must be an integer number: " + sampleSize);
+        }
+        return number.intValue();
     }
 }
@@ -1,9 +1,11 @@
 package org.drools.ansible.rulebook.integration.api.domain.temporal;
 
+import org.drools.ansible.rulebook.integration.api.RuleConfigurationOption;
 import org.drools.ansible.rulebook.integration.api.domain.RuleGenerationContext;
 import org.drools.model.Drools;
 import org.drools.model.DroolsEntryPoint;
 import org.drools.model.Rule;
+import org.drools.model.RuleItemBuilder;
 import org.drools.model.Variable;
 import org.drools.model.prototype.PrototypeDSL;
 import org.drools.model.view.CombinedExprViewItem;
@@ -18,6 +20,7 @@ import java.util.Map;
 
 import static java.util.stream.Collectors.toList;
 import static org.drools.ansible.rulebook.integration.api.domain.temporal.TimeAmount.parseTimeAmount;
+import static org.drools.ansible.rulebook.integration.api.rulesengine.RegisterOnlyAgendaFilter.NATIVE_THROTTLE_TAG;
 import static org.drools.ansible.rulebook.integration.api.rulesengine.RegisterOnlyAgendaFilter.SYNTHETIC_RULE_TAG;
 import static org.drools.ansible.rulebook.integration.api.rulesmodel.PrototypeFactory.SYNTHETIC_PROTOTYPE_NAME;
 import static org.drools.ansible.rulebook.integration.api.rulesmodel.PrototypeFactory.getPrototypeEvent;
@@ -64,6 +67,11 @@ import static org.drools.model.PatternDSL.rule;
  * then
  *   delete(singleton);
  * end
+ *
+ * With the NATIVE_THROTTLING option the control events and the cleanup rule aren't generated. The rule R only has the original
+ * pattern and is tagged with this definition, so that, when R is about to fire, the agenda filter looks up the group of the
+ * matched event in the NativeGroupTable of the session: if that group already fired within the time window the
+ * activation is discarded and the event deleted, exactly as the cleanup rule would do, otherwise the group gets throttled.
  */
 public class OnceWithinDefinition extends OnceAbstractTimeConstraint {
 
@@ -71,6 +79,8 @@ public class OnceWithinDefinition extends OnceAbstractTimeConstraint {
 
     public static final String ONCE_WITHIN_CONTROL = "once_within_control";
 
+    private boolean nativeThrottling;
+
     public OnceWithinDefinition(TimeAmount timeAmount, List<GroupByAttribute> groupByAttributes) {
         super(timeAmount, groupByAttributes);
     }
@@ -87,20 +97,40 @@ public class OnceWithinDefinition extends OnceAbstractTimeConstraint {
 
     @Override
     public void executeTimeConstraintConsequence(Drools drools, Object... facts) {
+        PrototypeFactInstance fact = (PrototypeFactInstance) facts[0];
+        if (!nativeThrottling) {
+            insertControlEvent(drools, fact);
+        }
+        drools.delete(fact);
+
+        Map ruleEngineMeta = new HashMap();
+        ruleEngineMeta.put("once_within_time_window", timeAmount.toString());
+        writeMetaDataOnEvent(fact, ruleEngineMeta);
+    }
+
+    private void insertControlEvent(Drools drools, PrototypeFactInstance fact) {
         PrototypeEventInstance controlEvent = getPrototypeEvent(SYNTHETIC_PROTOTYPE_NAME).newInstance()
                 .withExpiration(timeAmount.getAmount(), timeAmount.getTimeUnit());
         controlEvent.put(CONTROL_NAME, ONCE_WITHIN_CONTROL);
-        PrototypeFactInstance fact = (PrototypeFactInstance) facts[0];
         for (GroupByAttribute unique : groupByAttributes) {
             controlEvent.put(unique.getKey(), unique.evalExtractorOnFact(fact));
         }
         controlEvent.put("drools_rule_name", ruleName);
         drools.insert(controlEvent);
-        drools.delete(fact);
+    }
 
-        Map ruleEngineMeta = new HashMap();
-        ruleEngineMeta.put("once_within_time_window", timeAmount.toString());
-        writeMetaDataOnEvent(fact, ruleEngineMeta);
+    @Override
+    public ViewItem processTimeConstraint(RuleGenerationContext ruleContext, ViewItem pattern) {
+        this.nativeThrottling = ruleContext.hasOption(RuleConfigurationOption.NATIVE_THROTTLING);
+        if (!nativeThrottling) {
+            return processTimeConstraint(ruleContext.getRuleName(), pattern);
+        }
+        this.ruleName = ruleContext.getRuleName();
+        if (guardedPattern != null) {
+            throw new IllegalStateException("Cannot process this TimeConstraint twice");
+        }
+        guardedPattern = (PrototypeDSL.PrototypePatternDef) pattern;
+        return guardedPattern;
     }
 
     @Override
@@ -113,8 +143,18 @@ public class OnceWithinDefinition extends OnceAbstractTimeConstraint {
         return new CombinedExprViewItem( org.drools.model.Condition.Type.AND, new ViewItem[] { guardedPattern, not( createControlPattern() ) } );
     }
 
+    @Override
+    public Rule buildTimedRule(String ruleName, RuleItemBuilder pattern, RuleItemBuilder consequence) {
+        return nativeThrottling ?
+                rule( ruleName ).metadata(NATIVE_THROTTLE_TAG, this).build( pattern, consequence ) :
+                super.buildTimedRule(ruleName, pattern, consequence);
+    }
+
     @Override
     public List<Rule> getControlRules(RuleGenerationContext ruleContext) {
+        if (nativeThrottling) {
+            return Collections.emptyList();
+        }
         return Collections.singletonList(
                 rule( "cleanup_" + ruleName ).metadata(SYNTHETIC_RULE_TAG, true)
                         .build( guardedPattern,
@@ -123,6 +163,10 @@ public class OnceWithinDefinition extends OnceAbstractTimeConstraint {
         );
     }
 
+    public Map<String, Object> toControlData(List<Object> groupKey) {
+        return createControlData(ONCE_WITHIN_CONTROL, groupKey);
+    }
+
     @Override
     public String toString() {
         return "OnceWithinDefinition{" + " " + timeAmount + ", groupByAttributes=" + groupByAttributes + " }";
@@ -0,0 +1,169 @@
+package org.drools.ansible.rulebook.integration.api.domain.temporal;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.drools.ansible.rulebook.integration.api.domain.RuleGenerationContext;
+import org.drools.model.Drools;
+import org.drools.model.Rule;
+import org.drools.model.RuleItemBuilder;
+import org.drools.model.Variable;
+import org.drools.model.prototype.PrototypeDSL;
+import org.drools.model.view.ViewItem;
+import org.kie.api.prototype.PrototypeFactInstance;
+
+import static org.drools.ansible.rulebook.integration.api.domain.temporal.TimeAmount.parseTimeAmount;
+import static org.drools.ansible.rulebook.integration.api.rulesengine.RegisterOnlyAgendaFilter.NATIVE_THROTTLE_TAG;
+import static org.drools.ansible.rulebook.integration.api.rulesengine.RegisterOnlyAgendaFilter.RULE_TYPE_TAG;
+import static org.drools.ansible.rulebook.integration.api.rulesmodel.RulesModelUtil.writeMetaDataOnEvent;
+import static org.drools.model.PatternDSL.rule;
+
+/**
+ * Fires a rule when the events of the same group matched within a sliding time window reach a given threshold.
+ *
+ *    e.g.:
+ *      condition:
+ *         all:
+ *           - singleton << event.sensu.process.type == "alert"
+ *         throttle:
+ *           sliding_window: 5 minutes
+ *           threshold: 10
+ *           buckets: 30
+ *           group_by_attributes:
+ *             - event.sensu.host
+ *
+ * Differently from accumulate_within, the count isn't reset when the rule fires, but continuously reflects the events of the
+ * last 5 minutes: the rule fires when the 10th event of a host arrives within that window and it doesn't fire again for that
+ * host until its count goes below the threshold, as the older events slide out of the window, and then reaches it again.
+ *
+ * This constraint doesn't have any control event or synthetic rule and is always evaluated natively by the session. The rule R
+ * only has the original pattern and is tagged with this definition, so that, when R is about to fire, the agenda filter
+ * counts the matched event in the ring of buckets of its group, kept by the SlidingWindowTable of the session: the activation
+ * is discarded and the event deleted, unless the count has just reached the threshold. The window is divided into the given
+ * number of buckets (60 by default), so each group costs a fixed amount of memory and an update costs constant time, while
+ * the events are expired with the granularity of a bucket, i.e. an event is counted until the length of the window has
+ * passed since the start of the bucket in which it arrived.
+ */
+public class SlidingWindowDefinition extends OnceAbstractTimeConstraint {
+
+    public static final String KEYWORD = "sliding_window";
+
+    public static final String BUCKETS = "buckets";
+
+    public static final String SLIDING_WINDOW_CONTROL = "sliding_window_control";
+
+    public static final int DEFAULT_BUCKETS = 60;
+
+    private final int threshold;
+
+    private final int buckets;
+
+    public SlidingWindowDefinition(TimeAmount timeAmount, int threshold, List<GroupByAttribute> groupByAttributes) {
+        this(timeAmount, threshold, DEFAULT_BUCKETS, groupByAttributes);
+    }
+
+    public SlidingWindowDefinition(TimeAmount timeAmount, int threshold, int buckets, List<GroupByAttribute> groupByAttributes) {
+        super(timeAmount, groupByAttributes);
+        if (threshold <= 0) {
+            throw new IllegalArgumentException("The threshold of " + KEYWORD + " must be positive: " + threshold);
+        }
+        if (buckets <= 0 || buckets > timeAmount.toMillis()) {
+            throw new IllegalArgumentException("The " + BUCKETS + " of " + KEYWORD + " must be between 1 and the milliseconds of its window: " + buckets);
+        }
+        this.threshold = threshold;
+        this.buckets = buckets;
+    }
+
+    @Override
+    public boolean requiresAsyncExecution() {
+        return false;
+    }
+
+    public String getKeyword() {
+        return KEYWORD;
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    public int getBuckets() {
+        return buckets;
+    }
+
+    /**
+     * Returns the length of a single bucket, rounded up so that the buckets together cover at least the whole window
+     */
+    public long getBucketMillis() {
+        return (getWindowMillis() + buckets - 1) / buckets;
+    }
+
+    @Override
+    public ViewItem processTimeConstraint(RuleGenerationContext ruleContext, ViewItem pattern) {
+        return processTimeConstraint(ruleContext.getRuleName(), pattern);
+    }
+
+    @Override
+    public ViewItem processTimeConstraint(String ruleName, ViewItem pattern) {
+        this.ruleName = ruleName;
+        if (guardedPattern != null) {
+            throw new IllegalStateException("Cannot process this TimeConstraint twice");
+        }
+        guardedPattern = (PrototypeDSL.PrototypePatternDef) pattern;
+        return guardedPattern;
+    }
+
+    @Override
+    public Rule buildTimedRule(String ruleName, RuleItemBuilder pattern, RuleItemBuilder consequence) {
+        return rule(ruleName)
+                .metadata(RULE_TYPE_TAG, KEYWORD)
+                .metadata(NATIVE_THROTTLE_TAG, this)
+                .build(pattern, consequence);
+    }
+
+    @Override
+    public Variable<?>[] getTimeConstraintConsequenceVariables() {
+        return new Variable[]{getPatternVariable()};
+    }
+
+    @Override
+    public void executeTimeConstraintConsequence(Drools drools, Object... facts) {
+        PrototypeFactInstance fact = (PrototypeFactInstance) facts[0];
+        Map<String, Object> ruleEngineMeta = new HashMap<>();
+        ruleEngineMeta.put("sliding_window_time_window", timeAmount.toString());
+        ruleEngineMeta.put("threshold", threshold);
+        writeMetaDataOnEvent(fact, ruleEngineMeta);
+
+        // the event has already been counted in its group, so it doesn't need to be retained
+        drools.delete(fact);
+    }
+
+    /**
+     * Returns the content of the control event describing the given group, as persisted for HA: the counts of its buckets,
+     * from the oldest to the one of its last event, the time of that event and whether the rule already fired for the
+     * current crossing of the threshold
+     */
+    public Map<String, Object> toControlData(List<Object> groupKey, List<Integer> bucketCounts, long lastEventTime, boolean fired) {
+        Map<String, Object> controlData = createControlData(SLIDING_WINDOW_CONTROL, groupKey);
+        controlData.put("bucket_counts", bucketCounts);
+        controlData.put("last_event_time", lastEventTime);
+        controlData.put("fired", fired);
+        return controlData;
+    }
+
+    @Override
+    public String toString() {
+        return "SlidingWindowDefinition{" +
+                "timeAmount=" + timeAmount +
+                ", threshold=" + threshold +
+                ", buckets=" + buckets +
+                ", groupByAttributes=" + groupByAttributes +
+                "}";
+    }
+
+    public static SlidingWindowDefinition parseSlidingWindow(String slidingWindow, int threshold, Integer buckets, List<String> groupByAttributes) {
+        return new SlidingWindowDefinition(parseTimeAmount(slidingWindow), threshold, buckets == null ? DEFAULT_BUCKETS : buckets,
+                                           parseGroupByAttributes(groupByAttributes));
+    }
+}
@@ -5,15 +5,25 @@ import java.util.List;
 public class Throttle {
 
     private String onceWithin;
+    private String dedupWithin;
     private String onceAfter;
     private String accumulateWithin;
+    private String slidingWindow;
     private Integer threshold;
+    private Object sampleSize;
+    private Integer buckets;
+    private Double falsePositiveRate;
+    private Integer expectedKeys;
     private List<String> groupByAttributes;
 
     public void setOnce_within(String onceWithin) {
         this.onceWithin = onceWithin;
     }
 
+    public void setDedup_within(String dedupWithin) {
+        this.dedupWithin = dedupWithin;
+    }
+
     public void setOnce_after(String onceAfter) {
         this.onceAfter = onceAfter;
     }
@@ -22,20 +32,53 @@ public class Throttle {
         this.accumulateWithin = accumulateWithin;
     }
 
+    public void setSliding_window(String slidingWindow) {
+        this.slidingWindow = slidingWindow;
+    }
+
     public void setThreshold(Integer threshold) {
         this.threshold = threshold;
     }
 
+    public void setSample_size(Object sampleSize) {
+        this.sampleSize = sampleSize;
+    }
+
+    public void setBuckets(Integer buckets) {
+        this.buckets = buckets;
+    }
+
+    public void setFalse_positive_rate(Double falsePositiveRate) {
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    public void setExpected_keys(Integer expectedKeys) {
+        this.expectedKeys = expectedKeys;
+    }
+
     public void setGroup_by_attributes(List<String> groupByAttributes) {
         this.groupByAttributes = groupByAttributes;
     }
 
     public TimeConstraint asTimeConstraint() {
+        if (sampleSize != null && onceAfter == null) {
+            throw new IllegalArgumentException(OnceAfterDefinition.SAMPLE_SIZE + " is only supported by " + OnceAfterDefinition.KEYWORD);
+        }
+        if (buckets != null && slidingWindow == null) {
+            throw new IllegalArgumentException(SlidingWindowDefinition.BUCKETS + " is only supported by " + SlidingWindowDefinition.KEYWORD);
+        }
+        if ((falsePositiveRate != null || expectedKeys != null) && dedupWithin == null) {
+            throw new IllegalArgumentException(DedupWithinDefinition.FALSE_POSITIVE_RATE + " and " + DedupWithinDefinition.EXPECTED_KEYS +
+                    " are only supported by " + DedupWithinDefinition.KEYWORD);
+        }
         if (onceWithin != null) {
             return OnceWithinDefinition.parseOnceWithin(onceWithin, groupByAttributes);
         }
+        if (dedupWithin != null) {
+            return DedupWithinDefinition.parseDedupWithin(dedupWithin, falsePositiveRate, expectedKeys, groupByAttributes);
+        }
         if (onceAfter != null) {
-            return OnceAfterDefinition.parseOnceAfter(onceAfter, groupByAttributes);
+            return OnceAfterDefinition.parseOnceAfter(onceAfter, groupByAttributes, OnceAfterDefinition.parseSampleSize(sampleSize));
         }
         if (accumulateWithin != null) {
             if (threshold == null) {
@@ -43,6 +86,12 @@ public class Throttle {
             }
             return AccumulateWithinDefinition.parseAccumulateWithin(accumulateWithin, threshold, groupByAttributes);
         }
+        if (slidingWindow != null) {
+            if (threshold == null) {
+                throw new IllegalArgumentException("threshold is required for sliding_window");
+            }
+            return SlidingWindowDefinition.parseSlidingWindow(slidingWindow, threshold, buckets, groupByAttributes);
+        }
         throw new IllegalArgumentException("Invalid throttle definition");
     }
 }
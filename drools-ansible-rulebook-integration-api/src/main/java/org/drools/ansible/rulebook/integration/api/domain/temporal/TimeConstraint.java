@@ -24,6 +24,10 @@ public interface TimeConstraint {
 
     ViewItem processTimeConstraint(String ruleName, ViewItem pattern);
 
+    default ViewItem processTimeConstraint(RuleGenerationContext ruleContext, ViewItem pattern) {
+        return processTimeConstraint(ruleContext.getRuleName(), pattern);
+    }
+
     default Variable<?>[] getTimeConstraintConsequenceVariables() {
         return null;
     }
@@ -37,4 +41,19 @@ public interface TimeConstraint {
     default List<Rule> getControlRules(RuleGenerationContext ruleContext) {
         return Collections.emptyList();
     }
+
+    /**
+     * @return true if all the events involved in this constraint are guaranteed to share the given partition key
+     */
+    default boolean isPartitionLocal(List<String> partitionKey) {
+        return false;
+    }
+
+    /**
+     * @return the time, in milliseconds after its insertion, within which an event can still take part in a new match of
+     * the rule having this constraint, or Long.MAX_VALUE if the event has to be kept until it expires
+     */
+    default long getEventsRetention() {
+        return Long.MAX_VALUE;
+    }
 }
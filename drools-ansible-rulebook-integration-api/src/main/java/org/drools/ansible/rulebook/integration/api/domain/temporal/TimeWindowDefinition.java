@@ -50,6 +50,13 @@ import static org.drools.model.prototype.PrototypeDSL.variable;
  * Note that the use of a negative range in the after constraint allows the matching of this rule also when the events arrive
  * in an order that is different from the one listed in the rule itself.
  *
+ * Since the events are inserted in chronological order, an event older than the time window can no longer satisfy the
+ * temporal constraints against any new event. For this reason, when no events TTL is configured and all the rules of a ruleset
+ * either match a single event or join events within a time window, the events are expired as soon as they get out of the
+ * longest window (see RulesSet.getEffectiveEventsTtl()), so that a new event is only joined against the candidates inside
+ * its own window instead of against all the events received during the default events TTL. The candidates inside the window
+ * are still all scanned, unless the join also has an equality constraint that Drools can index.
+ *
  * <h2>HA sentinel rules (generated only in HA mode)</h2>
  *
  * In HA mode, one sentinel rule is generated per pattern to track which events have been matched.
@@ -123,6 +130,11 @@ public class TimeWindowDefinition implements TimeConstraint {
         return protoPattern;
     }
 
+    @Override
+    public long getEventsRetention() {
+        return timeAmount.toMillis();
+    }
+
     @Override
     @SuppressWarnings({"unchecked", "rawtypes"})
     public List<Rule> getControlRules(RuleGenerationContext ruleContext) {
@@ -1,5 +1,6 @@
 package org.drools.ansible.rulebook.integration.api.domain.temporal;
 
+import org.drools.ansible.rulebook.integration.api.RuleConfigurationOption;
 import org.drools.ansible.rulebook.integration.api.domain.RuleGenerationContext;
 import org.drools.ansible.rulebook.integration.api.rulesengine.EmptyMatchDecorator;
 import org.drools.ansible.rulebook.integration.api.rulesengine.RegisterOnlyAgendaFilter;
@@ -21,6 +22,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 import static org.drools.ansible.rulebook.integration.api.domain.temporal.TimeAmount.parseTimeAmount;
+import static org.drools.ansible.rulebook.integration.api.rulesengine.RegisterOnlyAgendaFilter.NATIVE_TIMED_OUT_TAG;
+import static org.drools.ansible.rulebook.integration.api.rulesengine.RegisterOnlyAgendaFilter.PATTERN_INDEX_TAG;
 import static org.drools.ansible.rulebook.integration.api.rulesengine.RegisterOnlyAgendaFilter.RULE_TYPE_TAG;
 import static org.drools.ansible.rulebook.integration.api.rulesengine.RegisterOnlyAgendaFilter.SYNTHETIC_RULE_TAG;
 import static org.drools.ansible.rulebook.integration.api.rulesmodel.PrototypeFactory.SYNTHETIC_PROTOTYPE_NAME;
@@ -29,6 +32,7 @@ import static org.drools.model.DSL.accFunction;
 import static org.drools.model.DSL.accumulate;
 import static org.drools.model.DSL.after;
 import static org.drools.model.DSL.declarationOf;
+import static org.drools.model.DSL.execute;
 import static org.drools.model.DSL.not;
 import static org.drools.model.DSL.on;
 import static org.drools.model.PatternDSL.pattern;
@@ -150,6 +154,19 @@ import static org.drools.model.prototype.PrototypeExpression.thisPrototype;
  *    delete($start)
  *    delete($end)
  *  end
+ *
+ *  With the NATIVE_TIMED_OUT option none of those control events and cleanup rules is generated. There is still a rule for
+ *  each event, tagged with this definition and the index of its pattern, but when it is about to fire the agenda filter
+ *  discards its activation and registers the matched event in the TimedOutDeadlineTracker of the session, which keeps the
+ *  sequence in progress and its deadline. If the sequence gets completed before the deadline its events are deleted, as the
+ *  cleanupEvents rule does, otherwise, when the clock passes the deadline, the session deletes them and inserts the only
+ *  control event firing the actual rule, that is then reduced to
+ *
+ *  rule check when
+ *    $start : Control( name == "start_R" )
+ *  then
+ *    // this is the actual rule to be activated and reported to users
+ *  end
  */
 public class TimedOutDefinition implements TimeConstraint {
 
@@ -161,6 +178,10 @@ public class TimedOutDefinition implements TimeConstraint {
 
     private final List<ViewItem> patterns = new ArrayList<>();
 
+    private String ruleName;
+
+    private boolean nativeTimedOut;
+
     private final PrototypeEvent controlPrototype = getPrototypeEvent(SYNTHETIC_PROTOTYPE_NAME);
     private final PrototypeVariable controlVar1 = variable( controlPrototype, "c1" );
     private final PrototypeVariable controlVar2 = variable( controlPrototype, "c2" );
@@ -191,12 +212,45 @@ public class TimedOutDefinition implements TimeConstraint {
         return true;
     }
 
+    @Override
+    public ViewItem processTimeConstraint(RuleGenerationContext ruleContext, ViewItem pattern) {
+        this.nativeTimedOut = ruleContext.hasOption(RuleConfigurationOption.NATIVE_TIMED_OUT);
+        return processTimeConstraint(ruleContext.getRuleName(), pattern);
+    }
+
     @Override
     public ViewItem processTimeConstraint(String ruleName, ViewItem pattern) {
+        this.ruleName = ruleName;
         patterns.add(pattern);
         return pattern;
     }
 
+    public int getPatternsNumber() {
+        return patterns.size();
+    }
+
+    public String getRuleName() {
+        return ruleName;
+    }
+
+    public long getWindowMillis() {
+        return timeAmount.toMillis();
+    }
+
+    /**
+     * Creates the control event firing the rule when its sequence, started by the given event bound with the given name,
+     * times out. Used with the NATIVE_TIMED_OUT option.
+     */
+    public PrototypeEventInstance createTimedOutControl(Object firstEvent, String binding) {
+        PrototypeEventInstance controlEvent = controlPrototype.newInstance();
+        controlEvent.put( "rulename", "start_" + ruleName );
+        controlEvent.put( "event", firstEvent );
+        controlEvent.put( "binding", binding );
+        controlEvent.put( COUNT_AS_MATCHED_EVENT, true );
+        controlEvent.put( CONTROL_NAME, TIMED_OUT_CONTROL );
+        return controlEvent;
+    }
+
     @Override
     public Variable<?>[] getTimeConstraintConsequenceVariables() {
         return new Variable[] { controlVar1 };
@@ -212,6 +266,15 @@ public class TimedOutDefinition implements TimeConstraint {
         String startTag = "start_" + ruleName;
         String endTag = "end_" + ruleName;
 
+        if (nativeTimedOut) {
+            // the control event is only inserted when the deadline of the sequence has passed
+            return rule( ruleName ).metadata(RULE_TYPE_TAG, KEYWORD)
+                    .build(
+                        protoPattern(controlVar1).expr( "rulename", Index.ConstraintType.EQUAL, startTag ),
+                        consequence
+            );
+        }
+
         return rule( ruleName ).metadata(RULE_TYPE_TAG, KEYWORD)
                 .build(
                     protoPattern(controlVar1).expr( "rulename", Index.ConstraintType.EQUAL, startTag ),
@@ -224,6 +287,10 @@ public class TimedOutDefinition implements TimeConstraint {
 
     @Override
     public List<Rule> getControlRules(RuleGenerationContext ruleContext) {
+        if (nativeTimedOut) {
+            return getNativePatternRules(ruleContext);
+        }
+
         String rulePrefix = ruleContext.getRuleName() + "_";
         String startTag = "start_" + ruleContext.getRuleName();
         String endTag = "end_" + ruleContext.getRuleName();
@@ -334,4 +401,20 @@ public class TimedOutDefinition implements TimeConstraint {
 
         return rules;
     }
+
+    private List<Rule> getNativePatternRules(RuleGenerationContext ruleContext) {
+        String rulePrefix = ruleContext.getRuleName() + "_";
+        List<Rule> rules = new ArrayList<>();
+        for (int i = 0; i < patterns.size(); i++) {
+            // never fired, the agenda filter feeds the deadline tracker of the session with their activations
+            rules.add(
+                rule( rulePrefix + i ).metadata(NATIVE_TIMED_OUT_TAG, this).metadata(PATTERN_INDEX_TAG, i)
+                    .build(
+                            patterns.get(i),
+                            execute(drools -> { })
+                    )
+            );
+        }
+        return rules;
+    }
 }
\ No newline at end of file
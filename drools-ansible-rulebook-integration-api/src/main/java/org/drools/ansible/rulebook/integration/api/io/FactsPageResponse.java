@@ -0,0 +1,45 @@
+package org.drools.ansible.rulebook.integration.api.io;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A page of the facts of a session streamed on the async channel. It is a different message from the Response,
+ * whose result is read as the matches of the session, and the last page of a stream is flagged as such.
+ */
+public class FactsPageResponse {
+
+    public static final String TYPE = "FACTS_PAGE";
+
+    private final long session_id;
+    private final int page;
+    private final boolean last;
+    private final List<Map<String, Object>> facts;
+
+    public FactsPageResponse(long session_id, int page, boolean last, List<Map<String, Object>> facts) {
+        this.session_id = session_id;
+        this.page = page;
+        this.last = last;
+        this.facts = facts;
+    }
+
+    public String getType() {
+        return TYPE;
+    }
+
+    public long getSession_id() {
+        return session_id;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public boolean isLast() {
+        return last;
+    }
+
+    public List<Map<String, Object>> getFacts() {
+        return facts;
+    }
+}
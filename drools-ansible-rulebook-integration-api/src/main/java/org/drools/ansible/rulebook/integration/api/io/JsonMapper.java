@@ -1,10 +1,13 @@
 package org.drools.ansible.rulebook.integration.api.io;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.Map;
 
 import com.fasterxml.jackson.core.JacksonException;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JavaType;
@@ -21,6 +24,17 @@ public class JsonMapper {
     private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
     private static final JavaType JACKSON_RAW_LIST = OBJECT_MAPPER.getTypeFactory().constructRawCollectionLikeType(List.class);
 
+    /**
+     * Creates a generator streaming json on the given output stream, which isn't closed when the generator is closed.
+     */
+    public static JsonGenerator createGenerator(OutputStream outputStream) {
+        try {
+            return OBJECT_MAPPER.createGenerator(outputStream).disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     public static String toJson(Object object) {
         try {
             return OBJECT_MAPPER.writeValueAsString(object);
@@ -68,6 +68,14 @@ public class RuleExecutorChannel {
     }
 
     public byte[] write(Response response) {
+        return writePayload(response);
+    }
+
+    public byte[] write(FactsPageResponse response) {
+        return writePayload(response);
+    }
+
+    private byte[] writePayload(Object response) {
         try {
             String payload = toJson(response);
 
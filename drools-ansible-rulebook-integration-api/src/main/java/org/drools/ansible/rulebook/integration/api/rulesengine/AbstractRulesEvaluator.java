@@ -1,10 +1,12 @@
 package org.drools.ansible.rulebook.integration.api.rulesengine;
 
+import org.drools.ansible.rulebook.integration.api.RuleConfigurationOption;
 import org.drools.ansible.rulebook.integration.api.RulesExecutorContainer;
 import org.drools.ansible.rulebook.integration.api.domain.RuleMatch;
 import org.drools.ansible.rulebook.integration.api.io.JsonMapper;
 import org.drools.ansible.rulebook.integration.api.io.Response;
 import org.drools.ansible.rulebook.integration.api.io.RuleExecutorChannel;
+import org.drools.ansible.rulebook.integration.api.rulesengine.MicroBatchingEventQueue.BatchedEvent;
 import org.drools.core.common.DefaultEventHandle;
 import org.drools.core.common.InternalFactHandle;
 import org.drools.core.common.ReteEvaluator;
@@ -14,6 +16,7 @@ import org.kie.api.runtime.rule.Match;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -23,6 +26,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BiConsumer;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
@@ -36,15 +40,27 @@ public abstract class AbstractRulesEvaluator implements RulesEvaluator {
 
     private RulesExecutorContainer rulesExecutorContainer;
 
-    private AutomaticPseudoClock automaticClock;
+    private volatile AutomaticPseudoClock automaticClock;
 
     protected RuleExecutorChannel channel;
 
     protected AsyncExecutor asyncExecutor;
 
+    private final MicroBatchingEventQueue microBatchingEventQueue;
+
+    private final boolean singleFireMicroBatches;
+
     public AbstractRulesEvaluator(RulesExecutorSession rulesExecutorSession) {
         this.rulesExecutorSession = rulesExecutorSession;
         this.registerOnlyAgendaFilter = new RegisterOnlyAgendaFilter(rulesExecutorSession, this::isOnRecovery);
+        if (rulesExecutorSession.hasOption(RuleConfigurationOption.MICRO_BATCHING)) {
+            this.microBatchingEventQueue = new MicroBatchingEventQueue(this::evaluateEventsBatch);
+            // a batch can be evaluated with a single fire only when each match is caused by exactly one of its events
+            this.singleFireMicroBatches = rulesExecutorSession.hasOnlySinglePatternRules();
+        } else {
+            this.microBatchingEventQueue = null;
+            this.singleFireMicroBatches = false;
+        }
     }
 
     @Override
@@ -95,6 +111,24 @@ public abstract class AbstractRulesEvaluator implements RulesEvaluator {
         return rulesExecutorSession.getObjects();
     }
 
+    @Override
+    public List<Map<String, Object>> getAllFactsAsMap() {
+        return rulesExecutorSession.getObjectsAsMaps();
+    }
+
+    @Override
+    public FactsPage getFactsPage(String continuationToken, int pageSize, Map<String, Object> pathFilter) {
+        // the continuation token is the id of the fact handle of the last fact returned with the previous page
+        long afterFactHandleId = continuationToken == null ? -1 : Long.parseLong(continuationToken);
+        return readUnderLock(() -> rulesExecutorSession.getFactsPage(afterFactHandleId, pageSize, pathFilter));
+    }
+
+    @Override
+    public FactsCursor openFactsCursor(Map<String, Object> pathFilter) {
+        List<InternalFactHandle> snapshot = readUnderLock(rulesExecutorSession::getFactHandlesInInsertionOrder);
+        return new FactsCursor(snapshot.iterator(), (fhs, maxFacts) -> readUnderLock(() -> rulesExecutorSession.readFacts(fhs, maxFacts, pathFilter)));
+    }
+
     @Override
     public CompletableFuture<List<Match>> fire() {
         return engineEvaluate(() -> atomicRuleEvaluation(false, null, null));
@@ -107,6 +141,9 @@ public abstract class AbstractRulesEvaluator implements RulesEvaluator {
 
     @Override
     public CompletableFuture<List<Match>> processEvents(Map<String, Object> factMap) {
+        if (microBatchingEventQueue != null) {
+            return microBatchingEventQueue.enqueue(factMap);
+        }
         return engineEvaluate(() -> process(factMap, true));
     }
 
@@ -126,13 +163,49 @@ public abstract class AbstractRulesEvaluator implements RulesEvaluator {
         if (log.isTraceEnabled()) {
             log.trace("Automatic advance of " + (millis - currentTime) + " milliseconds" );
         }
-        List<Match> matches = internalAdvanceTime(millis - currentTime, TimeUnit.MILLISECONDS);
+        List<Match> matches = internalAdvanceTimeToMills(millis);
 
         return asyncExecutor == null || matches.isEmpty() ?
                 completeFutureOf(matches) :
                 asyncExecutor.submit(() -> onScheduledMatches(matches) );
     }
 
+    /**
+     * Catches the session clock up with the ticks from fromTick to toTick, evenly spaced by the given period, after the
+     * automatic pseudo clock diverged from the real time. The clock jumps straight to the first tick following each due job,
+     * so the timers and the expirations are processed in timestamp order, and all the jobs due by the same tick are evaluated
+     * with a single fire, exactly as if the clock had been advanced to each tick, but without an evaluation for the idle ones.
+     * The lock is held for the whole catch up, and the matches of each tick are sent in order on the async channel.
+     */
+    void scheduledCatchUpToMills(long fromTick, long toTick, long period) {
+        List<List<Match>> matchesPerTick = new ArrayList<>();
+
+        ruleEvaluationLock.lock();
+        try {
+            long nextJobTime;
+            while ((nextJobTime = rulesExecutorSession.getNextScheduledJobTime()) >= 0) {
+                // a job scheduled at the current time by the last fire is due by the next tick
+                long dueTime = Math.max(nextJobTime, getCurrentTime() + 1);
+                long dueTick = dueTime <= fromTick ? fromTick : fromTick + ((dueTime - fromTick + period - 1) / period) * period;
+                if (dueTick > toTick) {
+                    break;
+                }
+                List<Match> matches = internalAdvanceTimeToMills(dueTick);
+                if (!matches.isEmpty()) {
+                    matchesPerTick.add(matches);
+                }
+            }
+        } finally {
+            ruleEvaluationLock.unlock();
+        }
+
+        if (asyncExecutor != null) {
+            for (List<Match> matches : matchesPerTick) {
+                asyncExecutor.submit(() -> onScheduledMatches(matches));
+            }
+        }
+    }
+
     @Override
     public CompletableFuture<List<Match>> processRetractMatchingFacts(Map<String, Object> json, boolean allowPartialMatch, String... keysToExclude) {
         return engineEvaluate(() -> retractMatchingFacts(json, allowPartialMatch, keysToExclude));
@@ -149,6 +222,20 @@ public abstract class AbstractRulesEvaluator implements RulesEvaluator {
                 });
     }
 
+    @Override
+    public CompletableFuture<List<Match>> processUpdateMatchingFacts(Map<String, Object> json, Map<String, Object> patch) {
+        return engineEvaluate(() -> atomicRuleEvaluation(false, () -> rulesExecutorSession.updateAllMatchingFacts(json, patch), null));
+    }
+
+    /**
+     * Updates the facts matching the given json, retracting instead the ones that after the update don't satisfy
+     * the given predicate anymore, and adding them to the given list
+     */
+    CompletableFuture<List<Match>> processUpdateMatchingFacts(Map<String, Object> json, Map<String, Object> patch,
+                                                              Predicate<Map<String, Object>> staysInSession, List<Map<String, Object>> movedOut) {
+        return engineEvaluate(() -> atomicRuleEvaluation(false, () -> rulesExecutorSession.updateAllMatchingFacts(json, patch, staysInSession, movedOut), null));
+    }
+
     protected abstract CompletableFuture<List<Match>> engineEvaluate(Supplier<List<Match>> resultSupplier);
 
     protected List<Match> internalAdvanceTime(long amount, TimeUnit unit) {
@@ -159,6 +246,55 @@ public abstract class AbstractRulesEvaluator implements RulesEvaluator {
         return matches;
     }
 
+    private List<Match> internalAdvanceTimeToMills(long millis) {
+        List<Match> matches = atomicRuleEvaluation(false, () -> {
+            // re-read the current time under the lock, the clock may have been caught up in the meanwhile
+            long currentTime = rulesExecutorSession.getPseudoClock().getCurrentTime();
+            if (currentTime < millis) {
+                rulesExecutorSession.advanceTime(millis - currentTime, TimeUnit.MILLISECONDS);
+            }
+        });
+        if (!matches.isEmpty() && log.isInfoEnabled()) {
+            log.info("Match(es) caused by automatic clock advance: " + matches);
+        }
+        return matches;
+    }
+
+    boolean hasScheduledJobDueBy(long millis) {
+        if (!ruleEvaluationLock.tryLock()) {
+            // an evaluation is in progress, don't wait for it and conservatively assume that the clock has to be advanced
+            return true;
+        }
+        try {
+            return rulesExecutorSession.hasScheduledJobDueBy(millis);
+        } finally {
+            ruleEvaluationLock.unlock();
+        }
+    }
+
+    /**
+     * When the automatic pseudo clock ticks on demand, the session clock isn't advanced while nothing is scheduled.
+     * Before any evaluation the session clock has to be moved to the last tick, so inserted events are timestamped
+     * as if the clock had been advanced at every tick. The catch up never goes beyond a due job, which is left to
+     * the automatic clock, so it can be done in a single leap without firing anything.
+     * Must be called while holding the ruleEvaluationLock.
+     */
+    private void catchUpAutomaticPseudoClock() {
+        AutomaticPseudoClock clock = automaticClock;
+        if (clock == null) {
+            return;
+        }
+        long target = clock.getLastTick();
+        long nextJobTime = rulesExecutorSession.getNextScheduledJobTime();
+        if (nextJobTime >= 0 && nextJobTime <= target) {
+            target = nextJobTime - 1;
+        }
+        long currentTime = rulesExecutorSession.getPseudoClock().getCurrentTime();
+        if (target > currentTime) {
+            rulesExecutorSession.advanceTime(target - currentTime, TimeUnit.MILLISECONDS);
+        }
+    }
+
     @Override
     public SessionStats dispose() {
         if (rulesExecutorContainer != null) {
@@ -176,32 +312,116 @@ public abstract class AbstractRulesEvaluator implements RulesEvaluator {
     }
 
     @Override
-    public SessionStatsCollector getSessionStatsCollector() {
+    public SessionStatsView getSessionStatsView() {
         return rulesExecutorSession.getSessionStatsCollector();
     }
 
     protected List<Match> process(Map<String, Object> factMap, boolean processEventInsertion) {
         List<Match> matchList = atomicRuleEvaluation(processEventInsertion,
                                                      () -> insertFacts(factMap, processEventInsertion),
-                                                     (fhs, matches) -> {
-                                                         for (InternalFactHandle fh : fhs) {
-                                                             if (fh.isDisconnected()) {
-                                                                 if (fh instanceof DefaultEventHandle eventHandle) {
-                                                                     eventHandle.unscheduleAllJobs((ReteEvaluator) rulesExecutorSession.asKieSession());
-                                                                     rulesExecutorSession.purgeCancelledJobsIfSupported(fh);
-                                                                 }
-                                                                 if (log.isDebugEnabled()) {
-                                                                     String factAsString = fhs.size() == 1 ? JsonMapper.toJson(factMap) : JsonMapper.toJson(((PrototypeFactInstance) fh.getObject()).asMap());
-                                                                     log.debug((processEventInsertion ? "Event " : "Fact ") + factAsString + " didn't match any rule and has been immediately discarded");
-                                                                 }
-                                                                 processDiscardedFact(fh);
-                                                             }
-                                                         }
-                                                     });
+                                                     (fhs, matches) -> discardUnmatchedFacts(factMap, fhs, matches, processEventInsertion));
         rulesExecutorSession.getRulesSetEventStructure().validateRulesSetEventStructureIfRequired(matchList);
         return matchList;
     }
 
+    /**
+     * Discards the inserted facts that didn't match any rule and spills the pending events. It must be called while holding
+     * the rule evaluation lock, since the automatic clock may be firing rules over the same facts.
+     */
+    private void discardUnmatchedFacts(Map<String, Object> factMap, List<InternalFactHandle> fhs, List<Match> matches, boolean processEventInsertion) {
+        for (InternalFactHandle fh : fhs) {
+            if (fh.isDisconnected()) {
+                if (fh instanceof DefaultEventHandle eventHandle) {
+                    eventHandle.unscheduleAllJobs((ReteEvaluator) rulesExecutorSession.asKieSession());
+                }
+                rulesExecutorSession.factDiscarded(fh);
+                if (log.isDebugEnabled()) {
+                    String factAsString = fhs.size() == 1 ? JsonMapper.toJson(factMap) : JsonMapper.toJson(((PrototypeFactInstance) fh.getObject()).asMap());
+                    log.debug((processEventInsertion ? "Event " : "Fact ") + factAsString + " didn't match any rule and has been immediately discarded");
+                }
+                processDiscardedFact(fh);
+            } else if (processEventInsertion && !isMatched(fh, matches)) {
+                // the event is waiting for a partial match to be completed, while the returned matches must keep it whole
+                rulesExecutorSession.spillPendingEvent(fh);
+            }
+        }
+    }
+
+    private static boolean isMatched(InternalFactHandle fh, List<Match> matches) {
+        for (Match match : matches) {
+            if (match.getFactHandles().contains(fh)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void evaluateEventsBatch(List<BatchedEvent> batch) {
+        engineEvaluate(() -> processEventsBatch(batch));
+    }
+
+    private List<Match> processEventsBatch(List<BatchedEvent> batch) {
+        List<List<Match>> results;
+        try {
+            results = singleFireMicroBatches ? processEventsBatchWithSingleFire(batch) : processEventsBatchOneByOne(batch);
+        } catch (RuntimeException e) {
+            batch.forEach(event -> event.getResult().completeExceptionally(e));
+            throw e;
+        }
+
+        List<Match> matches = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            matches.addAll(results.get(i));
+            batch.get(i).getResult().complete(results.get(i));
+        }
+        return matches;
+    }
+
+    private List<List<Match>> processEventsBatchWithSingleFire(List<BatchedEvent> batch) {
+        List<List<InternalFactHandle>> insertedFacts = new ArrayList<>(batch.size());
+        List<List<Match>> results;
+
+        ruleEvaluationLock.lock();
+        try {
+            catchUpAutomaticPseudoClock();
+            for (BatchedEvent event : batch) {
+                insertedFacts.add(insertFacts(event.getFactMap(), true));
+            }
+            rulesExecutorSession.fireAllRulesWithoutActions(registerOnlyAgendaFilter);
+            results = registerOnlyAgendaFilter.finalizeAndGetResults(insertedFacts);
+            for (int i = 0; i < batch.size(); i++) {
+                discardUnmatchedFacts(batch.get(i).getFactMap(), insertedFacts.get(i), results.get(i), true);
+            }
+        } finally {
+            ruleEvaluationLock.unlock();
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            rulesExecutorSession.getRulesSetEventStructure().validateRulesSetEventStructureIfRequired(results.get(i));
+        }
+        return results;
+    }
+
+    private List<List<Match>> processEventsBatchOneByOne(List<BatchedEvent> batch) {
+        List<List<Match>> results = new ArrayList<>(batch.size());
+
+        // the lock is reentrant: holding it for the whole batch avoids to contend it with the automatic clock at each event
+        ruleEvaluationLock.lock();
+        try {
+            for (BatchedEvent event : batch) {
+                try {
+                    results.add(process(event.getFactMap(), true));
+                } catch (RuntimeException e) {
+                    event.getResult().completeExceptionally(e);
+                    results.add(Collections.emptyList());
+                }
+            }
+        } finally {
+            ruleEvaluationLock.unlock();
+        }
+        return results;
+    }
+
     protected void processDiscardedFact(InternalFactHandle fh) {
         // no-op for non-HA mode
     }
@@ -256,6 +476,19 @@ public abstract class AbstractRulesEvaluator implements RulesEvaluator {
         }
     }
 
+    /**
+     * Reads the session while holding the ruleEvaluationLock, so that the read can't interleave with a rule evaluation,
+     * an automatic clock advance or an eviction
+     */
+    private <T> T readUnderLock(Supplier<T> reader) {
+        ruleEvaluationLock.lock();
+        try {
+            return reader.get();
+        } finally {
+            ruleEvaluationLock.unlock();
+        }
+    }
+
     private List<Match> atomicRuleEvaluation(boolean processEventInsertion, Runnable beforeFire) {
         return atomicRuleEvaluation(processEventInsertion, () -> { beforeFire.run(); return null; }, null);
     }
@@ -266,20 +499,19 @@ public abstract class AbstractRulesEvaluator implements RulesEvaluator {
 
         ruleEvaluationLock.lock();
         try {
+            catchUpAutomaticPseudoClock();
             if (beforeFire != null) {
                 fhs = beforeFire.get();
             }
             if (fhs == null || !fhs.isEmpty()) {
-                rulesExecutorSession.setExecuteActions(false);
-                rulesExecutorSession.fireAllRules(registerOnlyAgendaFilter);
-                rulesExecutorSession.setExecuteActions(true);
+                rulesExecutorSession.fireAllRulesWithoutActions(registerOnlyAgendaFilter);
                 matches = registerOnlyAgendaFilter.finalizeAndGetResults(processEventInsertion);
             }
-        } finally {
-            ruleEvaluationLock.unlock();
             if (afterFire != null && fhs != null && !fhs.isEmpty()) {
                 afterFire.accept(fhs, matches);
             }
+        } finally {
+            ruleEvaluationLock.unlock();
         }
 
         return matches;
@@ -10,6 +10,19 @@ public class AutomaticPseudoClock {
 
     private static final Logger LOG = LoggerFactory.getLogger(AutomaticPseudoClock.class.getName());
 
+    private static final String TICK_ON_DEMAND_PROPERTY = "drools.pseudoclock.tick.on.demand";
+    private static final boolean TICK_ON_DEMAND;
+
+    static {
+        String tickOnDemandEnvValue = System.getenv("DROOLS_PSEUDOCLOCK_TICK_ON_DEMAND");
+        if (tickOnDemandEnvValue != null && !tickOnDemandEnvValue.isEmpty()) {
+            // Environment variable takes precedence over system property
+            System.setProperty(TICK_ON_DEMAND_PROPERTY, tickOnDemandEnvValue);
+        }
+        TICK_ON_DEMAND = Boolean.parseBoolean(System.getProperty(TICK_ON_DEMAND_PROPERTY, "true"));
+        LOG.info("Pseudo clock tick on demand set to {}", TICK_ON_DEMAND);
+    }
+
     private final ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, r -> {
         Thread t = new Thread(r);
         t.setDaemon(true);
@@ -37,6 +50,15 @@ public class AutomaticPseudoClock {
         return period;
     }
 
+    /**
+     * Returns the time of the last tick processed by this clock. When ticking on demand the session clock
+     * may lag behind this value because idle ticks don't advance it: in this case the session catches up
+     * with it lazily on the next real evaluation.
+     */
+    long getLastTick() {
+        return nextTick;
+    }
+
     public void shutdown() {
         timer.shutdown();
     }
@@ -47,11 +69,12 @@ public class AutomaticPseudoClock {
         if (diff > period * 2) {
             LOG.warn("Pseudo clock is diverged, the difference is {} ms. Going to sync with the real clock.", diff);
             // DROOLS-7569 : Do not rely on "catch up" mechanism of ScheduledThreadPoolExecutor.scheduleAtFixedRate().
-            // This is explicit "catch up" logic.
-            // Also do not leap to the current time at once, because it may miss some rule firings.
-            for (; nextTick < System.currentTimeMillis(); nextTick += period) {
-                rulesEvaluator.scheduledAdvanceTimeToMills(nextTick);
-            }
+            // This is explicit "catch up" logic, processing the same ticks from nextTick to the last one before the current time
+            // that the engine would have processed if it had been advanced at each period, but skipping those where nothing is due.
+            // Do not leap to the current time at once, because it may miss some rule firings.
+            long lastTick = nextTick + ((System.currentTimeMillis() - 1 - nextTick) / period) * period;
+            rulesEvaluator.scheduledCatchUpToMills(nextTick, lastTick, period);
+            nextTick = lastTick + period;
             return;
         } else if (diff < 0) {
             // This could happen when ScheduledThreadPoolExecutor piles up tasks because of the above "catch up" logic. Just ignore them.
@@ -60,6 +83,14 @@ public class AutomaticPseudoClock {
 
         // Normal case
         nextTick += period;
-        rulesEvaluator.scheduledAdvanceTimeToMills(nextTick);
+        advanceIfRequired(nextTick);
+    }
+
+    private void advanceIfRequired(long tick) {
+        // When nothing is scheduled on the session before this tick (no timer, expiration or temporal control is due)
+        // advancing the clock cannot produce any side effect, so skip it and let the session catch up lazily
+        if (!TICK_ON_DEMAND || rulesEvaluator.hasScheduledJobDueBy(tick)) {
+            rulesEvaluator.scheduledAdvanceTimeToMills(tick);
+        }
     }
 }
@@ -0,0 +1,49 @@
+package org.drools.ansible.rulebook.integration.api.rulesengine;
+
+import java.util.Collection;
+
+import org.drools.base.time.JobHandle;
+import org.drools.base.time.Trigger;
+import org.drools.core.time.InternalSchedulerService;
+import org.drools.core.time.Job;
+import org.drools.core.time.JobContext;
+import org.drools.core.time.impl.TimerJobFactoryManager;
+import org.drools.core.time.impl.TimerJobInstance;
+
+/**
+ * Decorates the TimerJobFactoryManager of a pseudo clock scheduler, which is notified when a job is cancelled,
+ * in order to remove the cancelled job from the {@link IndexedTimerJobQueue} of the scheduler right away.
+ */
+class CancellingTimerJobFactoryManager implements TimerJobFactoryManager {
+
+    private final TimerJobFactoryManager delegate;
+    private final IndexedTimerJobQueue queue;
+
+    CancellingTimerJobFactoryManager(TimerJobFactoryManager delegate, IndexedTimerJobQueue queue) {
+        this.delegate = delegate;
+        this.queue = queue;
+    }
+
+    @Override
+    public TimerJobInstance createTimerJobInstance(Job job, JobContext ctx, Trigger trigger, JobHandle handle, InternalSchedulerService scheduler) {
+        return delegate.createTimerJobInstance(job, ctx, trigger, handle, scheduler);
+    }
+
+    @Override
+    public void addTimerJobInstance(TimerJobInstance instance) {
+        delegate.addTimerJobInstance(instance);
+    }
+
+    @Override
+    public void removeTimerJobInstance(TimerJobInstance instance) {
+        delegate.removeTimerJobInstance(instance);
+        synchronized (queue) {
+            queue.remove(instance);
+        }
+    }
+
+    @Override
+    public Collection<TimerJobInstance> getTimerJobInstances() {
+        return delegate.getTimerJobInstances();
+    }
+}
@@ -0,0 +1,167 @@
+package org.drools.ansible.rulebook.integration.api.rulesengine;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.drools.ansible.rulebook.integration.api.domain.RulesSet;
+import org.drools.ansible.rulebook.integration.api.io.JsonMapper;
+import org.kie.api.event.rule.DefaultRuleRuntimeEventListener;
+import org.kie.api.event.rule.ObjectDeletedEvent;
+import org.kie.api.prototype.PrototypeFactInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.drools.ansible.rulebook.integration.api.rulesmodel.RulesModelUtil.META_FIELD;
+
+/**
+ * Moves out of the heap the payload of the events left pending in the working memory, waiting for a partial match
+ * to be completed or for their expiration. Only the top level fields whose name doesn't appear anywhere in the ruleset,
+ * and then can't be referenced by any of its rules, are spilled in the off-heap {@link PayloadSpillArena}.
+ * The spilled fields are put back in the event when it participates in a match, before its consequence is executed,
+ * while the facts read through getAllFactsAsMap or deleteAllMatchingFacts are rehydrated on a copy.
+ * The store is disabled by default and never used in HA mode, where the events are persisted as they are in the working memory.
+ */
+class EventPayloadSpillStore extends DefaultRuleRuntimeEventListener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EventPayloadSpillStore.class.getName());
+
+    private static final String EVENTS_SPILL_ENABLED_PROPERTY = "drools.events.spill.enabled";
+    static boolean EVENTS_SPILL_ENABLED; // package-private for testing
+
+    private static final String EVENTS_SPILL_MIN_SIZE_PROPERTY = "drools.events.spill.min.size";
+    private static final int DEFAULT_EVENTS_SPILL_MIN_SIZE = 4096;
+    static int EVENTS_SPILL_MIN_SIZE; // package-private for testing
+
+    static {
+        String enabledEnvValue = System.getenv("DROOLS_EVENTS_SPILL_ENABLED");
+        if (enabledEnvValue != null && !enabledEnvValue.isEmpty()) {
+            // Environment variable takes precedence over system property
+            System.setProperty(EVENTS_SPILL_ENABLED_PROPERTY, enabledEnvValue);
+        }
+        EVENTS_SPILL_ENABLED = Boolean.getBoolean(EVENTS_SPILL_ENABLED_PROPERTY);
+        LOG.info("Events payload spill enabled set to {}", EVENTS_SPILL_ENABLED);
+
+        String minSizeEnvValue = System.getenv("DROOLS_EVENTS_SPILL_MIN_SIZE");
+        if (minSizeEnvValue != null && !minSizeEnvValue.isEmpty()) {
+            // Environment variable takes precedence over system property
+            System.setProperty(EVENTS_SPILL_MIN_SIZE_PROPERTY, minSizeEnvValue);
+        }
+        EVENTS_SPILL_MIN_SIZE = Integer.getInteger(EVENTS_SPILL_MIN_SIZE_PROPERTY, DEFAULT_EVENTS_SPILL_MIN_SIZE); // bytes
+        LOG.info("Events payload spill min size set to {} bytes", EVENTS_SPILL_MIN_SIZE);
+    }
+
+    private final String rulesetSource;
+    private final int minSize;
+
+    // cache of the top level field names already checked against the ruleset source
+    private final Map<String, Boolean> referencedFields = new ConcurrentHashMap<>();
+
+    private final PayloadSpillArena arena = new PayloadSpillArena();
+
+    // guarded by this, since events can be expired by the automatic clock while the facts are read by another thread
+    private final Map<PrototypeFactInstance, PayloadSpillArena.SpilledPayload> spilledEvents = new IdentityHashMap<>();
+
+    private EventPayloadSpillStore(String rulesetSource, int minSize) {
+        this.rulesetSource = rulesetSource;
+        this.minSize = minSize;
+    }
+
+    /**
+     * Returns the store for the given ruleset or null if spilling its events isn't enabled or possible
+     */
+    static EventPayloadSpillStore create(RulesSet rulesSet) {
+        if (!EVENTS_SPILL_ENABLED || rulesSet.isHaMode() || rulesSet.getSource() == null) {
+            // the fields referenced by a programmatically created ruleset can't be found in its source
+            return null;
+        }
+        return new EventPayloadSpillStore(rulesSet.getSource(), EVENTS_SPILL_MIN_SIZE);
+    }
+
+    /**
+     * Spills the fields of the given event not referenced by the ruleset, if they are large enough to be worth it
+     *
+     * @return true if the event has been spilled
+     */
+    boolean spill(PrototypeFactInstance event) {
+        Map<String, Object> eventMap = event.asMap();
+        Map<String, Object> spillable = null;
+        long size = 0;
+        for (Map.Entry<String, Object> entry : eventMap.entrySet()) {
+            if (!isReferenced(entry.getKey())) {
+                if (spillable == null) {
+                    spillable = new HashMap<>();
+                }
+                spillable.put(entry.getKey(), entry.getValue());
+                size += SessionMemoryTracker.estimateSize(entry.getValue());
+            }
+        }
+        if (spillable == null || size < minSize) {
+            return false;
+        }
+
+        byte[] bytes = JsonMapper.toJson(spillable).getBytes(StandardCharsets.UTF_8);
+        synchronized (this) {
+            if (spilledEvents.containsKey(event)) {
+                return false;
+            }
+            spilledEvents.put(event, arena.append(bytes));
+            spillable.keySet().forEach(eventMap::remove);
+        }
+        return true;
+    }
+
+    /**
+     * Puts back in the given event the fields spilled out of it
+     *
+     * @return true if the event had been spilled
+     */
+    synchronized boolean rehydrate(Object object) {
+        PayloadSpillArena.SpilledPayload payload = spilledEvents.remove(object);
+        if (payload == null) {
+            return false;
+        }
+        ((PrototypeFactInstance) object).asMap().putAll(readPayload(payload));
+        arena.release(payload);
+        return true;
+    }
+
+    /**
+     * Returns the whole content of the given fact, rehydrating on a copy the fields spilled out of it if any
+     */
+    synchronized Map<String, Object> view(PrototypeFactInstance fact) {
+        PayloadSpillArena.SpilledPayload payload = spilledEvents.get(fact);
+        if (payload == null) {
+            return fact.asMap();
+        }
+        Map<String, Object> view = new HashMap<>(fact.asMap());
+        view.putAll(readPayload(payload));
+        return view;
+    }
+
+    /**
+     * Releases the payload spilled out of an event removed from the session
+     */
+    synchronized void release(Object object) {
+        PayloadSpillArena.SpilledPayload payload = spilledEvents.remove(object);
+        if (payload != null) {
+            arena.release(payload);
+        }
+    }
+
+    @Override
+    public void objectDeleted(ObjectDeletedEvent event) {
+        release(event.getOldObject());
+    }
+
+    private Map<String, Object> readPayload(PayloadSpillArena.SpilledPayload payload) {
+        return JsonMapper.readValueAsMapOfStringAndObject(new String(arena.read(payload), StandardCharsets.UTF_8));
+    }
+
+    private boolean isReferenced(String field) {
+        // the meta field is written by the engine itself
+        return field.equals(META_FIELD) || referencedFields.computeIfAbsent(field, rulesetSource::contains);
+    }
+}
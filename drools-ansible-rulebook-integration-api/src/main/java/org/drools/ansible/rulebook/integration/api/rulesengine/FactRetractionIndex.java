@@ -0,0 +1,217 @@
+package org.drools.ansible.rulebook.integration.api.rulesengine;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import org.drools.core.common.InternalFactHandle;
+import org.kie.api.event.rule.DefaultRuleRuntimeEventListener;
+import org.kie.api.event.rule.ObjectDeletedEvent;
+import org.kie.api.event.rule.ObjectInsertedEvent;
+import org.kie.api.event.rule.ObjectUpdatedEvent;
+import org.kie.api.prototype.PrototypeFactInstance;
+import org.kie.api.runtime.rule.FactHandle;
+
+/**
+ * Indexes the facts and events of a session by the scalar values of their top level fields, so that the facts to be
+ * retracted or updated can be looked up among a few candidates instead of comparing the content of the whole working memory.
+ * The index is built from the working memory on the first lookup, so the sessions that never retract or update a fact
+ * don't pay for it when inserting. From then on it is kept up to date by the insertions, updates and deletions notified
+ * by the session, and by the expired events.
+ * The candidates are a superset of the facts to be retracted, so they still have to be compared with the retracted content.
+ * When the content has no scalar field, or none of its fields prunes any fact, the lookup falls back to a scan of all the facts.
+ */
+class FactRetractionIndex extends DefaultRuleRuntimeEventListener {
+
+    // value recorded for the fields that are present in a fact, but aren't indexed by value
+    private static final Object NOT_INDEXED = new Object();
+
+    private final Function<PrototypeFactInstance, Map<String, Object>> factToMap;
+
+    private final Supplier<Collection<? extends FactHandle>> workingMemory;
+
+    // false until the first lookup, while the changes of the working memory are ignored
+    private boolean built;
+
+    // top level fields of each indexed fact, with their value when scalar
+    private final Map<InternalFactHandle, Map<String, Object>> indexedFacts = new HashMap<>();
+
+    // facts having a given top level field
+    private final Map<String, Set<InternalFactHandle>> factsByKey = new HashMap<>();
+
+    // facts having a given scalar value for a top level field
+    private final Map<String, Map<Object, Set<InternalFactHandle>>> factsByValue = new HashMap<>();
+
+    FactRetractionIndex(Function<PrototypeFactInstance, Map<String, Object>> factToMap, Supplier<Collection<? extends FactHandle>> workingMemory) {
+        this.factToMap = factToMap;
+        this.workingMemory = workingMemory;
+    }
+
+    @Override
+    public void objectInserted(ObjectInsertedEvent event) {
+        if (built && event.getObject() instanceof PrototypeFactInstance fact) {
+            add((InternalFactHandle) event.getFactHandle(), fact);
+        }
+    }
+
+    @Override
+    public void objectUpdated(ObjectUpdatedEvent event) {
+        if (!built) {
+            return;
+        }
+        InternalFactHandle fh = (InternalFactHandle) event.getFactHandle();
+        remove(fh);
+        if (event.getObject() instanceof PrototypeFactInstance fact) {
+            add(fh, fact);
+        }
+    }
+
+    @Override
+    public void objectDeleted(ObjectDeletedEvent event) {
+        if (built) {
+            remove((InternalFactHandle) event.getFactHandle());
+        }
+    }
+
+    void factExpired(InternalFactHandle fh) {
+        if (built) {
+            remove(fh);
+        }
+    }
+
+    /**
+     * Returns the facts that could contain all the fields of the given content, i.e. the ones having the same value
+     * for its most selective scalar field, or all the facts if the content has no scalar field.
+     */
+    List<InternalFactHandle> partialMatchCandidates(Map<String, Object> content) {
+        ensureBuilt();
+        Collection<InternalFactHandle> candidates = null;
+        for (Map.Entry<String, Object> entry : content.entrySet()) {
+            if (!isScalar(entry.getValue())) {
+                continue;
+            }
+            Set<InternalFactHandle> facts = factsWithValue(entry.getKey(), entry.getValue());
+            if (candidates == null || facts.size() < candidates.size()) {
+                candidates = facts;
+            }
+        }
+        return candidates != null ? sorted(candidates) : scanAllFacts();
+    }
+
+    /**
+     * Returns the facts whose fields, other than the ignored ones, could all be contained in the given content.
+     * A fact having a field of the content must also have the same value for it, while the facts not having that field
+     * at all are candidates anyway, so the field pruning most of the facts is used. Those facts are found by scanning
+     * all the facts, which are all returned if no field prunes any of them.
+     */
+    List<InternalFactHandle> exactMatchCandidates(Map<String, Object> content, Predicate<String> ignoredKey) {
+        ensureBuilt();
+        String bestKey = null;
+        Set<InternalFactHandle> bestFacts = null;
+        int bestCount = indexedFacts.size();
+        for (Map.Entry<String, Object> entry : content.entrySet()) {
+            if (!isScalar(entry.getValue()) || ignoredKey.test(entry.getKey())) {
+                continue;
+            }
+            Set<InternalFactHandle> facts = factsWithValue(entry.getKey(), entry.getValue());
+            int count = facts.size() + indexedFacts.size() - factsByKey.getOrDefault(entry.getKey(), Set.of()).size();
+            if (count < bestCount) {
+                bestKey = entry.getKey();
+                bestFacts = facts;
+                bestCount = count;
+            }
+        }
+        if (bestKey == null) {
+            return scanAllFacts();
+        }
+
+        if (bestCount == bestFacts.size()) {
+            return sorted(bestFacts);
+        }
+        List<InternalFactHandle> candidates = new ArrayList<>(bestFacts);
+        for (Map.Entry<InternalFactHandle, Map<String, Object>> indexedFact : indexedFacts.entrySet()) {
+            if (!indexedFact.getValue().containsKey(bestKey)) {
+                candidates.add(indexedFact.getKey());
+            }
+        }
+        return sorted(candidates);
+    }
+
+    private void ensureBuilt() {
+        if (!built) {
+            for (FactHandle fh : workingMemory.get()) {
+                if (((InternalFactHandle) fh).getObject() instanceof PrototypeFactInstance fact) {
+                    add((InternalFactHandle) fh, fact);
+                }
+            }
+            built = true;
+        }
+    }
+
+    private List<InternalFactHandle> scanAllFacts() {
+        return sorted(indexedFacts.keySet());
+    }
+
+    private Set<InternalFactHandle> factsWithValue(String key, Object value) {
+        return factsByValue.getOrDefault(key, Map.of()).getOrDefault(value, Set.of());
+    }
+
+    private void add(InternalFactHandle fh, PrototypeFactInstance fact) {
+        Map<String, Object> fields = new HashMap<>();
+        factToMap.apply(fact).forEach((key, value) -> {
+            factsByKey.computeIfAbsent(key, k -> new HashSet<>()).add(fh);
+            if (isScalar(value)) {
+                factsByValue.computeIfAbsent(key, k -> new HashMap<>()).computeIfAbsent(value, v -> new HashSet<>()).add(fh);
+                fields.put(key, value);
+            } else {
+                fields.put(key, NOT_INDEXED);
+            }
+        });
+        indexedFacts.put(fh, fields);
+    }
+
+    private void remove(InternalFactHandle fh) {
+        Map<String, Object> fields = indexedFacts.remove(fh);
+        if (fields == null) {
+            return;
+        }
+        fields.forEach((key, value) -> {
+            removeFrom(factsByKey, key, fh);
+            if (value != NOT_INDEXED) {
+                Map<Object, Set<InternalFactHandle>> factsByKeyValue = factsByValue.get(key);
+                removeFrom(factsByKeyValue, value, fh);
+                if (factsByKeyValue.isEmpty()) {
+                    factsByValue.remove(key);
+                }
+            }
+        });
+    }
+
+    private static <K> void removeFrom(Map<K, Set<InternalFactHandle>> index, K key, InternalFactHandle fh) {
+        Set<InternalFactHandle> facts = index.get(key);
+        facts.remove(fh);
+        if (facts.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    private static boolean isScalar(Object value) {
+        // the facts are only modified in place below their top level fields, so these values can't change without an update
+        return value instanceof String || value instanceof Number || value instanceof Boolean;
+    }
+
+    private static List<InternalFactHandle> sorted(Collection<InternalFactHandle> facts) {
+        // a copy in insertion order, since the facts are deleted while iterating them
+        List<InternalFactHandle> sorted = new ArrayList<>(facts);
+        sorted.sort(Comparator.comparingLong(InternalFactHandle::getId));
+        return sorted;
+    }
+}
@@ -0,0 +1,92 @@
+package org.drools.ansible.rulebook.integration.api.rulesengine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+import org.drools.core.common.InternalFactHandle;
+
+/**
+ * Cursor reading the facts of a session one page at a time, in insertion order, from a snapshot of their fact handles
+ * taken when it is opened. The snapshot is taken with a single scan of the working memory, and the facts of each page
+ * are copied while holding the lock of the session only when the page is read, so that they can be serialized after
+ * having released it. The facts deleted after the cursor has been opened are skipped, while the ones inserted after it aren't read.
+ */
+public class FactsCursor {
+
+    private final Iterator<InternalFactHandle> snapshot;
+    private final BiFunction<Iterator<InternalFactHandle>, Integer, List<Map<String, Object>>> factsReader;
+
+    // the facts already read to know if there's a further one, but not returned yet
+    private final LinkedList<Map<String, Object>> readFacts = new LinkedList<>();
+
+    /**
+     * @param snapshot the handles of the facts to be read, in insertion order
+     * @param factsReader consumes the given handles until it finds the given number of facts still in the session and
+     *                    matching the filter of the cursor, and returns a copy of them read while holding the lock of the session
+     */
+    FactsCursor(Iterator<InternalFactHandle> snapshot, BiFunction<Iterator<InternalFactHandle>, Integer, List<Map<String, Object>>> factsReader) {
+        this.snapshot = snapshot;
+        this.factsReader = factsReader;
+    }
+
+    /**
+     * Returns a cursor reading all the facts of the given cursors, one after the other
+     */
+    static FactsCursor concat(List<FactsCursor> cursors) {
+        return new ConcatenatedFactsCursor(cursors);
+    }
+
+    public boolean hasNext() {
+        if (readFacts.isEmpty() && snapshot.hasNext()) {
+            readFacts.addAll(factsReader.apply(snapshot, 1));
+        }
+        return !readFacts.isEmpty();
+    }
+
+    /**
+     * Returns at most pageSize of the facts not read yet
+     */
+    public List<Map<String, Object>> nextPage(int pageSize) {
+        List<Map<String, Object>> page = new ArrayList<>(pageSize);
+        while (page.size() < pageSize && !readFacts.isEmpty()) {
+            page.add(readFacts.poll());
+        }
+        if (page.size() < pageSize && snapshot.hasNext()) {
+            page.addAll(factsReader.apply(snapshot, pageSize - page.size()));
+        }
+        return page;
+    }
+
+    private static class ConcatenatedFactsCursor extends FactsCursor {
+
+        private final List<FactsCursor> cursors;
+        private int current;
+
+        private ConcatenatedFactsCursor(List<FactsCursor> cursors) {
+            super(Collections.emptyIterator(), (fhs, maxFacts) -> Collections.emptyList());
+            this.cursors = cursors;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (current < cursors.size() && !cursors.get(current).hasNext()) {
+                current++;
+            }
+            return current < cursors.size();
+        }
+
+        @Override
+        public List<Map<String, Object>> nextPage(int pageSize) {
+            List<Map<String, Object>> page = new ArrayList<>(pageSize);
+            while (page.size() < pageSize && hasNext()) {
+                page.addAll(cursors.get(current).nextPage(pageSize - page.size()));
+            }
+            return page;
+        }
+    }
+}
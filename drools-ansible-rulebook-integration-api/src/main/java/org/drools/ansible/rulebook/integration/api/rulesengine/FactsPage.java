@@ -0,0 +1,54 @@
+package org.drools.ansible.rulebook.integration.api.rulesengine;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A page of the facts of a session, in insertion order, together with the continuation token to be used to read the
+ * following page, which is null when there are no more facts to be read.
+ */
+public class FactsPage {
+
+    private final List<Map<String, Object>> facts;
+    private final String continuationToken;
+
+    public FactsPage(List<Map<String, Object>> facts, String continuationToken) {
+        this.facts = facts;
+        this.continuationToken = continuationToken;
+    }
+
+    public List<Map<String, Object>> getFacts() {
+        return facts;
+    }
+
+    public String getContinuationToken() {
+        return continuationToken;
+    }
+
+    public boolean hasNext() {
+        return continuationToken != null;
+    }
+
+    /**
+     * Checks if the given fact has all the values of the filter, where each key of the filter is a dotted path
+     * in the fact, like "meta.hosts". A null or empty filter accepts any fact.
+     */
+    public static boolean matchesFilter(Map<String, Object> fact, Map<String, Object> pathFilter) {
+        if (pathFilter == null) {
+            return true;
+        }
+        for (Map.Entry<String, Object> entry : pathFilter.entrySet()) {
+            Object value = fact;
+            for (String node : entry.getKey().split("\\.")) {
+                if (!(value instanceof Map<?, ?> map) || !map.containsKey(node)) {
+                    return false;
+                }
+                value = map.get(node);
+            }
+            if (entry.getValue() == null ? value != null : !entry.getValue().equals(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
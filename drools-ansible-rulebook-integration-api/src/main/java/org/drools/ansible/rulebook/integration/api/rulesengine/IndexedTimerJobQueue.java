@@ -0,0 +1,276 @@
+package org.drools.ansible.rulebook.integration.api.rulesengine;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import org.drools.core.time.impl.PseudoClockScheduler;
+import org.drools.core.time.impl.TimerJobInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Timer queue of the pseudo clock scheduler, kept as a binary heap indexed by job, so that a job can be removed
+ * in O(log n) as soon as it gets cancelled. The PseudoClockScheduler only marks the cancelled jobs and purges them
+ * from its own queue once they pile up, so until then every cancelled expiration job retains its event.
+ * <p>
+ * Drools doesn't offer any supported extension point to do this, so the queue of the scheduler is replaced via reflection:
+ * <ul>
+ *     <li>the timer service of a session is created by Drools itself, that always instantiates a PseudoClockScheduler
+ *     for the pseudo clock type, without any option to provide another implementation;</li>
+ *     <li>the TimerJobFactoryManager can be replaced through a public setter and it is notified of the cancelled jobs,
+ *     but it has no access to the queue;</li>
+ *     <li>the job instances it creates can't release the event of a cancelled job either, since the job casts its context
+ *     to the concrete Drools class when it runs, so that context can't be wrapped.</li>
+ * </ul>
+ * This is also why this class extends PriorityQueue, the declared type of the replaced field, without using any of the
+ * inherited storage. If a future version of the scheduler changes that field, install() fails and the cancelled jobs are
+ * left to the purge of the scheduler, as if this queue didn't exist.
+ */
+class IndexedTimerJobQueue extends PriorityQueue<TimerJobInstance> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IndexedTimerJobQueue.class.getName());
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private TimerJobInstance[] heap = new TimerJobInstance[INITIAL_CAPACITY];
+    private int size;
+
+    // position of each job in the heap
+    private final Map<TimerJobInstance, Integer> positions = new IdentityHashMap<>();
+
+    /**
+     * Replaces the queue of the given scheduler with an indexed one, and removes from it the jobs cancelled from now on.
+     * The scheduler doesn't allow to plug its queue, so it has to be replaced once via reflection when the session is created,
+     * and this is the only reflective access to the scheduler.
+     *
+     * @return false if the queue can't be replaced, so the cancelled jobs are left to the scheduler purge
+     */
+    static boolean install(PseudoClockScheduler scheduler) {
+        try {
+            Field queueField = PseudoClockScheduler.class.getDeclaredField("queue");
+            queueField.setAccessible(true);
+            Collection<TimerJobInstance> originalQueue = (Collection<TimerJobInstance>) queueField.get(scheduler);
+            IndexedTimerJobQueue queue = new IndexedTimerJobQueue();
+            synchronized (originalQueue) {
+                originalQueue.forEach(queue::offer);
+                queueField.set(scheduler, queue);
+            }
+            scheduler.setTimerJobFactoryManager(new CancellingTimerJobFactoryManager(scheduler.getTimerJobFactoryManager(), queue));
+            return true;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            LOG.warn("Unable to replace the pseudo clock timer queue, cancelled jobs will be purged by the scheduler", e);
+            return false;
+        }
+    }
+
+    @Override
+    public boolean add(TimerJobInstance job) {
+        return offer(job);
+    }
+
+    @Override
+    public boolean offer(TimerJobInstance job) {
+        Objects.requireNonNull(job);
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size * 2);
+        }
+        heap[size] = job;
+        positions.put(job, size);
+        siftUp(size++);
+        return true;
+    }
+
+    @Override
+    public TimerJobInstance peek() {
+        return size == 0 ? null : heap[0];
+    }
+
+    @Override
+    public TimerJobInstance poll() {
+        if (size == 0) {
+            return null;
+        }
+        TimerJobInstance first = heap[0];
+        removeAt(0);
+        return first;
+    }
+
+    @Override
+    public boolean remove(Object job) {
+        Integer position = positions.get(job);
+        if (position == null) {
+            return false;
+        }
+        removeAt(position);
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object job) {
+        return positions.containsKey(job);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(heap, 0, size, null);
+        size = 0;
+        positions.clear();
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super TimerJobInstance> filter) {
+        List<TimerJobInstance> toBeRemoved = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            if (filter.test(heap[i])) {
+                toBeRemoved.add(heap[i]);
+            }
+        }
+        toBeRemoved.forEach(this::remove);
+        return !toBeRemoved.isEmpty();
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> jobs) {
+        return removeIf(jobs::contains);
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> jobs) {
+        return removeIf(job -> !jobs.contains(job));
+    }
+
+    @Override
+    public void forEach(Consumer<? super TimerJobInstance> action) {
+        for (int i = 0; i < size; i++) {
+            action.accept(heap[i]);
+        }
+    }
+
+    @Override
+    public Object[] toArray() {
+        return Arrays.copyOf(heap, size);
+    }
+
+    @Override
+    public <T> T[] toArray(T[] array) {
+        if (array.length < size) {
+            return (T[]) Arrays.copyOf(heap, size, array.getClass());
+        }
+        System.arraycopy(heap, 0, array, 0, size);
+        if (array.length > size) {
+            array[size] = null;
+        }
+        return array;
+    }
+
+    @Override
+    public Iterator<TimerJobInstance> iterator() {
+        // iterates a snapshot, so removing through the iterator doesn't reorder the elements still to be visited
+        TimerJobInstance[] snapshot = Arrays.copyOf(heap, size);
+        return new Iterator<>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < snapshot.length;
+            }
+
+            @Override
+            public TimerJobInstance next() {
+                if (next >= snapshot.length) {
+                    throw new NoSuchElementException();
+                }
+                return snapshot[next++];
+            }
+
+            @Override
+            public void remove() {
+                if (next == 0) {
+                    throw new IllegalStateException();
+                }
+                IndexedTimerJobQueue.this.remove(snapshot[next - 1]);
+            }
+        };
+    }
+
+    @Override
+    public Spliterator<TimerJobInstance> spliterator() {
+        return Spliterators.spliterator(toArray(), Spliterator.NONNULL);
+    }
+
+    private void removeAt(int position) {
+        positions.remove(heap[position]);
+        int last = --size;
+        if (position == last) {
+            heap[last] = null;
+            return;
+        }
+        TimerJobInstance moved = heap[last];
+        heap[last] = null;
+        heap[position] = moved;
+        positions.put(moved, position);
+        siftDown(position);
+        if (heap[position] == moved) {
+            siftUp(position);
+        }
+    }
+
+    private void siftUp(int position) {
+        TimerJobInstance job = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (compare(job, heap[parent]) >= 0) {
+                break;
+            }
+            place(heap[parent], position);
+            position = parent;
+        }
+        place(job, position);
+    }
+
+    private void siftDown(int position) {
+        TimerJobInstance job = heap[position];
+        int half = size >>> 1;
+        while (position < half) {
+            int child = (position << 1) + 1;
+            int right = child + 1;
+            if (right < size && compare(heap[right], heap[child]) < 0) {
+                child = right;
+            }
+            if (compare(job, heap[child]) <= 0) {
+                break;
+            }
+            place(heap[child], position);
+            position = child;
+        }
+        place(job, position);
+    }
+
+    private void place(TimerJobInstance job, int position) {
+        heap[position] = job;
+        positions.put(job, position);
+    }
+
+    private static int compare(TimerJobInstance job1, TimerJobInstance job2) {
+        // same natural ordering of the jobs used by the queue of the scheduler
+        return ((Comparable<TimerJobInstance>) job1).compareTo(job2);
+    }
+}
@@ -1,15 +1,39 @@
 package org.drools.ansible.rulebook.integration.api.rulesengine;
 
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Guards the memory occupation of the engine, as a percentage of the max heap size. When the JVM supports it, the guard
+ * is driven by the collection usage threshold of the tenured heap pool, set to that percentage of the whole heap: the JVM
+ * notifies when the memory still used in that pool after a garbage collection is above it, so checking the memory
+ * occupation on the events ingestion path costs just the read of a volatile flag. When notified, the heap usage is checked
+ * through the MemoryMXBean. Otherwise, or if the tenured pool can't hold that percentage of the heap, it falls back to
+ * polling the used heap once every configured number of events.
+ */
 public class MemoryMonitorUtil {
 
     private static final Logger LOG = LoggerFactory.getLogger(MemoryMonitorUtil.class.getName());
 
     private static final String MEMORY_OCCUPATION_PERCENTAGE_THRESHOLD_PROPERTY = "drools.memory.occupation.percentage.threshold";
     private static final int DEFAULT_MEMORY_OCCUPATION_PERCENTAGE_THRESHOLD = 90;
-    private static final int MEMORY_OCCUPATION_PERCENTAGE_THRESHOLD;
+    static int MEMORY_OCCUPATION_PERCENTAGE_THRESHOLD; // package-private for testing
 
     private static final String MEMORY_CHECK_EVENT_COUNT_THRESHOLD_PROPERTY = "drools.memory.check.event.count.threshold";
     private static final int DEFAULT_MEMORY_CHECK_EVENT_COUNT_THRESHOLD = 64;
@@ -18,12 +42,25 @@ public class MemoryMonitorUtil {
     private static final boolean MEMORY_OCCUPATION_EXIT_ABOVE_THRESHOLD;
 
 
-    // check memory per configured number of events are consumed
-    private static final int MEMORY_CHECK_EVENT_COUNT_MASK;
-    private static int COUNTER = 0;
+    // when polling, check memory per configured number of events are consumed
+    static final int MEMORY_CHECK_EVENT_COUNT_MASK; // package-private for testing
+    private static final AtomicInteger COUNTER = new AtomicInteger();
 
     private static final long MAX_AVAILABLE_MEMORY = Runtime.getRuntime().maxMemory();
 
+    private static final MemoryMXBean MEMORY_MX_BEAN = ManagementFactory.getMemoryMXBean();
+
+    // the heap pool whose collection usage is monitored, null if not available and then polling the used memory
+    private static final MemoryPoolMXBean TENURED_POOL;
+    private static long TENURED_POOL_THRESHOLD;
+    static boolean MONITOR_COLLECTION_USAGE; // package-private for testing
+
+    // the highest heap usage seen right before a garbage collection, when the heap usage is at its local maximum
+    private static final AtomicLong PEAK_USED_MEMORY = new AtomicLong();
+
+    // set by the collection usage threshold notifications, and reset when a later collection brings the usage below the threshold
+    static volatile boolean thresholdExceeded = false; // package-private for testing
+
     static {
         String memoryThresholdEnvValue = System.getenv("DROOLS_MEMORY_THRESHOLD");
         if (memoryThresholdEnvValue != null && !memoryThresholdEnvValue.isEmpty()) {
@@ -38,11 +75,10 @@ public class MemoryMonitorUtil {
             // Environment variable takes precedence over system property
             System.setProperty(MEMORY_CHECK_EVENT_COUNT_THRESHOLD_PROPERTY, eventCountThresholdEnvValue);
         }
-        
+
         int eventCountThreshold = Integer.getInteger(MEMORY_CHECK_EVENT_COUNT_THRESHOLD_PROPERTY, DEFAULT_MEMORY_CHECK_EVENT_COUNT_THRESHOLD); // number of events
         int roundedEventCountThreshold = roundToPowerOfTwo(eventCountThreshold);
         MEMORY_CHECK_EVENT_COUNT_MASK = roundedEventCountThreshold - 1;
-        LOG.info("Memory check event count threshold set to {}", roundedEventCountThreshold);
 
         String exitAboveThresholdEnvValue = System.getenv("DROOLS_EXIT_ABOVE_MEMORY_THRESHOLD");
         if (exitAboveThresholdEnvValue != null && !exitAboveThresholdEnvValue.isEmpty()) {
@@ -51,49 +87,176 @@ public class MemoryMonitorUtil {
         }
         MEMORY_OCCUPATION_EXIT_ABOVE_THRESHOLD = Boolean.getBoolean(MEMORY_OCCUPATION_EXIT_ABOVE_THRESHOLD_PROPERTY);
         LOG.info("Exit above memory occupation threshold set to {}", MEMORY_OCCUPATION_EXIT_ABOVE_THRESHOLD);
+
+        TENURED_POOL = findTenuredPool();
+        TENURED_POOL_THRESHOLD = getTenuredPoolThreshold(MEMORY_OCCUPATION_PERCENTAGE_THRESHOLD);
+        MONITOR_COLLECTION_USAGE = TENURED_POOL != null && TENURED_POOL_THRESHOLD <= getPoolMaxMemory(TENURED_POOL) && registerCollectionUsageThreshold();
+        registerPeakUsedMemoryListener();
+        if (MONITOR_COLLECTION_USAGE) {
+            LOG.info("Memory occupation monitored on collection usage of pool {}", TENURED_POOL.getName());
+        } else {
+            LOG.info("Memory check event count threshold set to {}", roundedEventCountThreshold);
+        }
     }
 
     private MemoryMonitorUtil() {
         // do not instantiate
     }
 
-    public static void checkMemoryOccupation(SessionStatsCollector sessionStatsCollector) {
-        if ((COUNTER++ & MEMORY_CHECK_EVENT_COUNT_MASK) != 0) {
+    public static void checkMemoryOccupation(SessionStatsView sessionStats) {
+        if (MONITOR_COLLECTION_USAGE) {
+            if (thresholdExceeded) {
+                checkCollectionUsage(sessionStats);
+            }
+            return;
+        }
+        pollMemoryOccupation(sessionStats);
+    }
+
+    private static void checkCollectionUsage(SessionStatsView sessionStats) {
+        // nothing notifies when a later collection frees enough memory, so check the usage left by the last one
+        if (TENURED_POOL.getCollectionUsage().getUsed() <= TENURED_POOL_THRESHOLD) {
+            thresholdExceeded = false;
+            return;
+        }
+        long usedMemory = getUsedMemory();
+        sessionStats.updatePeakMemory(usedMemory);
+        int memoryOccupationPercentage = getPercentage(usedMemory, MAX_AVAILABLE_MEMORY);
+        if (memoryOccupationPercentage > MEMORY_OCCUPATION_PERCENTAGE_THRESHOLD) {
+            memoryThresholdReached(memoryOccupationPercentage);
+        }
+    }
+
+    private static void pollMemoryOccupation(SessionStatsView sessionStats) {
+        if ((COUNTER.getAndIncrement() & MEMORY_CHECK_EVENT_COUNT_MASK) != 0) {
             // check memory occupation only once in 64 calls
             return;
         }
-        int memoryOccupationPercentage = getMemoryOccupationPercentageAndUpdatePeakMemory(sessionStatsCollector);
+        int memoryOccupationPercentage = getMemoryOccupationPercentageAndUpdatePeakMemory(sessionStats);
         if (memoryOccupationPercentage > MEMORY_OCCUPATION_PERCENTAGE_THRESHOLD) {
             // give GC a chance to free some memory
             System.gc(); // NOSONAR
             memoryOccupationPercentage = getMemoryOccupationPercentage();
             if (memoryOccupationPercentage > MEMORY_OCCUPATION_PERCENTAGE_THRESHOLD) {
-                LOG.error("Memory occupation is above the threshold: {}% > {}%. MaxMemory = {}, UsedMemory = {}",
-                        memoryOccupationPercentage, MEMORY_OCCUPATION_PERCENTAGE_THRESHOLD, Runtime.getRuntime().maxMemory(), getUsedMemory());
-                try {
-                    throw new MemoryThresholdReachedException(MEMORY_OCCUPATION_PERCENTAGE_THRESHOLD, memoryOccupationPercentage);
-                } finally {
-                    if (MEMORY_OCCUPATION_EXIT_ABOVE_THRESHOLD) {
-                        System.exit(1);
+                memoryThresholdReached(memoryOccupationPercentage);
+            }
+        }
+    }
+
+    private static void memoryThresholdReached(int memoryOccupationPercentage) {
+        LOG.error("Memory occupation is above the threshold: {}% > {}%. MaxMemory = {}, UsedMemory = {}",
+                memoryOccupationPercentage, MEMORY_OCCUPATION_PERCENTAGE_THRESHOLD, Runtime.getRuntime().maxMemory(), getUsedMemory());
+        try {
+            throw new MemoryThresholdReachedException(MEMORY_OCCUPATION_PERCENTAGE_THRESHOLD, memoryOccupationPercentage);
+        } finally {
+            if (MEMORY_OCCUPATION_EXIT_ABOVE_THRESHOLD) {
+                System.exit(1);
+            }
+        }
+    }
+
+    /**
+     * Changes the memory occupation threshold, also on the collection usage of the tenured pool when it is monitored.
+     * Package-private for testing.
+     */
+    static void setMemoryOccupationPercentageThreshold(int percentage) {
+        MEMORY_OCCUPATION_PERCENTAGE_THRESHOLD = percentage;
+        TENURED_POOL_THRESHOLD = getTenuredPoolThreshold(percentage);
+        if (TENURED_POOL != null && TENURED_POOL.getCollectionUsageThreshold() > 0) {
+            TENURED_POOL.setCollectionUsageThreshold(TENURED_POOL_THRESHOLD);
+        }
+        thresholdExceeded = false;
+    }
+
+    private static long getTenuredPoolThreshold(int percentage) {
+        // a zero threshold would disable the notifications
+        return Math.max(1, MAX_AVAILABLE_MEMORY * percentage / 100);
+    }
+
+    private static MemoryPoolMXBean findTenuredPool() {
+        // the tenured pool is the only heap pool supporting both usage and collection usage thresholds
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isUsageThresholdSupported() && pool.isCollectionUsageThresholdSupported()) {
+                return pool;
+            }
+        }
+        return null;
+    }
+
+    private static long getPoolMaxMemory(MemoryPoolMXBean pool) {
+        long max = pool.getUsage().getMax();
+        return max > 0 ? max : MAX_AVAILABLE_MEMORY;
+    }
+
+    private static boolean registerCollectionUsageThreshold() {
+        if (!(ManagementFactory.getMemoryMXBean() instanceof NotificationEmitter emitter)) {
+            return false;
+        }
+        emitter.addNotificationListener((notification, handback) -> {
+            if (MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(notification.getType())) {
+                MemoryNotificationInfo info = MemoryNotificationInfo.from((CompositeData) notification.getUserData());
+                if (TENURED_POOL.getName().equals(info.getPoolName())) {
+                    thresholdExceeded = true;
+                    if (LOG.isDebugEnabled()) {
+                        MemoryUsage usage = info.getUsage();
+                        LOG.debug("Collection usage of pool {} exceeded the threshold: used {} of {} heap", info.getPoolName(), usage.getUsed(), MAX_AVAILABLE_MEMORY);
                     }
                 }
             }
+        }, null, null);
+        TENURED_POOL.setCollectionUsageThreshold(TENURED_POOL_THRESHOLD);
+        return true;
+    }
+
+    private static void registerPeakUsedMemoryListener() {
+        Set<String> heapPools = new HashSet<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                heapPools.add(pool.getName());
+            }
+        }
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (collector instanceof NotificationEmitter emitter) {
+                emitter.addNotificationListener((notification, handback) -> {
+                    if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                        // the usages of all the pools before a collection are taken at the same time, so their sum is the heap usage at that time
+                        GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                        long usedBeforeGc = info.getGcInfo().getMemoryUsageBeforeGc().entrySet().stream()
+                                .filter(pool -> heapPools.contains(pool.getKey()))
+                                .mapToLong(pool -> pool.getValue().getUsed())
+                                .sum();
+                        PEAK_USED_MEMORY.accumulateAndGet(usedBeforeGc, Math::max);
+                    }
+                }, null, null);
+            }
         }
     }
 
     // Not calling getMemoryOccupationPercentage to reduce the number of calls to getUsedMemory()
-    private static int getMemoryOccupationPercentageAndUpdatePeakMemory(SessionStatsCollector sessionStatsCollector) {
+    private static int getMemoryOccupationPercentageAndUpdatePeakMemory(SessionStatsView sessionStats) {
         long usedMemory = getUsedMemory();
-        sessionStatsCollector.updatePeakMemory(usedMemory);
-        return (int) ((100 * usedMemory) / MAX_AVAILABLE_MEMORY);
+        sessionStats.updatePeakMemory(usedMemory);
+        return getPercentage(usedMemory, MAX_AVAILABLE_MEMORY);
     }
 
     private static int getMemoryOccupationPercentage() {
-        return (int) ((100 * getUsedMemory()) / MAX_AVAILABLE_MEMORY);
+        return getPercentage(getUsedMemory(), MAX_AVAILABLE_MEMORY);
+    }
+
+    private static int getPercentage(long usedMemory, long maxMemory) {
+        return (int) ((100 * usedMemory) / maxMemory);
     }
 
     public static long getUsedMemory() {
-        return Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+        return MEMORY_MX_BEAN.getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * Returns the highest heap occupation seen by the JVM, without any sampling on the events ingestion path: the heap
+     * usage reaches its local maxima right before the garbage collections, when it is recorded as a whole.
+     */
+    public static long getPeakUsedMemory() {
+        return Math.max(PEAK_USED_MEMORY.get(), getUsedMemory());
     }
 
     public static long getMaxAvailableMemory() {
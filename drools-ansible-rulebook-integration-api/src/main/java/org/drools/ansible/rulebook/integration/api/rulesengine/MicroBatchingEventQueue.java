@@ -0,0 +1,150 @@
+package org.drools.ansible.rulebook.integration.api.rulesengine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import org.kie.api.runtime.rule.Match;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Queue of the events sent to a session using the MICRO_BATCHING option. Producers never block on each other:
+ * they enqueue their event and the first one finding no batch in progress becomes the drainer of the queue,
+ * evaluating at once all the events enqueued in the meanwhile, up to a maximum batch size. By default a batch is made of
+ * the events enqueued while the former one was evaluated, so a lone event is evaluated without any delay. Optionally the
+ * drainer can wait, parked, up to a maximum delay for the batch to fill up.
+ */
+class MicroBatchingEventQueue {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MicroBatchingEventQueue.class.getName());
+
+    private static final String MAX_BATCH_SIZE_PROPERTY = "drools.microbatch.max.size";
+    private static final int DEFAULT_MAX_BATCH_SIZE = 128;
+    private static final int MAX_BATCH_SIZE;
+
+    private static final String MAX_BATCH_DELAY_MICROS_PROPERTY = "drools.microbatch.max.delay.micros";
+    private static final long DEFAULT_MAX_BATCH_DELAY_MICROS = 0;
+    private static final long MAX_BATCH_DELAY_NANOS;
+
+    static {
+        String maxBatchSizeEnvValue = System.getenv("DROOLS_MICROBATCH_MAX_SIZE");
+        if (maxBatchSizeEnvValue != null && !maxBatchSizeEnvValue.isEmpty()) {
+            // Environment variable takes precedence over system property
+            System.setProperty(MAX_BATCH_SIZE_PROPERTY, maxBatchSizeEnvValue);
+        }
+        MAX_BATCH_SIZE = Math.max(1, Integer.getInteger(MAX_BATCH_SIZE_PROPERTY, DEFAULT_MAX_BATCH_SIZE));
+        LOG.info("Micro-batching max size set to {}", MAX_BATCH_SIZE);
+
+        String maxBatchDelayEnvValue = System.getenv("DROOLS_MICROBATCH_MAX_DELAY_MICROS");
+        if (maxBatchDelayEnvValue != null && !maxBatchDelayEnvValue.isEmpty()) {
+            // Environment variable takes precedence over system property
+            System.setProperty(MAX_BATCH_DELAY_MICROS_PROPERTY, maxBatchDelayEnvValue);
+        }
+        long maxBatchDelayMicros = Math.max(0, Long.getLong(MAX_BATCH_DELAY_MICROS_PROPERTY, DEFAULT_MAX_BATCH_DELAY_MICROS));
+        MAX_BATCH_DELAY_NANOS = TimeUnit.MICROSECONDS.toNanos(maxBatchDelayMicros);
+        LOG.info("Micro-batching max delay set to {} microseconds", maxBatchDelayMicros);
+    }
+
+    private final Queue<BatchedEvent> queue = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger queueSize = new AtomicInteger();
+
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    private volatile Thread drainer;
+
+    private final Consumer<List<BatchedEvent>> batchEvaluator;
+
+    MicroBatchingEventQueue(Consumer<List<BatchedEvent>> batchEvaluator) {
+        this.batchEvaluator = batchEvaluator;
+    }
+
+    CompletableFuture<List<Match>> enqueue(Map<String, Object> factMap) {
+        BatchedEvent event = new BatchedEvent(factMap);
+        queue.offer(event);
+        if (queueSize.incrementAndGet() >= MAX_BATCH_SIZE) {
+            // the batch is full, the drainer doesn't have to wait any longer
+            Thread waitingDrainer = drainer;
+            if (waitingDrainer != null) {
+                LockSupport.unpark(waitingDrainer);
+            }
+        }
+        drainIfIdle();
+        return event.getResult();
+    }
+
+    private void drainIfIdle() {
+        // re-check the queue after releasing the drainer role, an event may have been enqueued while the last batch was evaluated
+        while (!queue.isEmpty() && draining.compareAndSet(false, true)) {
+            try {
+                drainer = Thread.currentThread();
+                awaitBatchFilling();
+                drainer = null;
+                List<BatchedEvent> batch = pollBatch();
+                if (!batch.isEmpty()) {
+                    evaluate(batch);
+                }
+            } finally {
+                drainer = null;
+                draining.set(false);
+            }
+        }
+    }
+
+    private void awaitBatchFilling() {
+        if (MAX_BATCH_DELAY_NANOS == 0) {
+            return;
+        }
+        long deadline = System.nanoTime() + MAX_BATCH_DELAY_NANOS;
+        long remainingNanos;
+        while (queueSize.get() < MAX_BATCH_SIZE && (remainingNanos = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(this, remainingNanos);
+        }
+    }
+
+    private List<BatchedEvent> pollBatch() {
+        List<BatchedEvent> batch = new ArrayList<>(Math.min(queueSize.get(), MAX_BATCH_SIZE));
+        BatchedEvent event;
+        while (batch.size() < MAX_BATCH_SIZE && (event = queue.poll()) != null) {
+            queueSize.decrementAndGet();
+            batch.add(event);
+        }
+        return batch;
+    }
+
+    private void evaluate(List<BatchedEvent> batch) {
+        try {
+            batchEvaluator.accept(batch);
+        } catch (RuntimeException e) {
+            // no-op for the events of the batch that have already been completed
+            batch.forEach(event -> event.getResult().completeExceptionally(e));
+        }
+    }
+
+    static class BatchedEvent {
+
+        private final Map<String, Object> factMap;
+        private final CompletableFuture<List<Match>> result = new CompletableFuture<>();
+
+        private BatchedEvent(Map<String, Object> factMap) {
+            this.factMap = factMap;
+        }
+
+        Map<String, Object> getFactMap() {
+            return factMap;
+        }
+
+        CompletableFuture<List<Match>> getResult() {
+            return result;
+        }
+    }
+}
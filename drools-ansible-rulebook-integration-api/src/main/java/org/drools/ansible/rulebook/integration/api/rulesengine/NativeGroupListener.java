@@ -0,0 +1,16 @@
+package org.drools.ansible.rulebook.integration.api.rulesengine;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Notified when a group throttled or accumulated by a session evaluated with the NATIVE_THROTTLING option, or counted
+ * in the sliding window of a sliding_window rule, changes.
+ * The state of a group is described with the same content of the control event that would have been used without that option.
+ */
+public interface NativeGroupListener {
+
+    void groupChanged(String ruleName, List<Object> groupKey, Map<String, Object> controlData, long windowStart, long windowMillis);
+
+    void groupClosed(String ruleName, List<Object> groupKey);
+}
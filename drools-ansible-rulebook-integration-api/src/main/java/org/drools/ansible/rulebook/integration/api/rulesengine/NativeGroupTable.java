@@ -0,0 +1,166 @@
+package org.drools.ansible.rulebook.integration.api.rulesengine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.kie.api.prototype.PrototypeEventInstance;
+
+/**
+ * Keeps, for each once_within, accumulate_within and once_after rule of a session evaluated with the NATIVE_THROTTLING option,
+ * the groups having an open time window, together with the time when that window ends and the number of events
+ * accumulated in it, or, for once_after, the control event collecting them. It replaces the synthetic control events,
+ * and the joins against them, with a hash lookup done when the rule is about to fire, so the memory used by a rule is
+ * bounded by the number of its open groups.
+ * Since all the groups of the same rule share the same window length, or, for once_after, the same window end, the order
+ * in which they have been opened is also the order in which they expire, so the expired groups are always at the head of
+ * the map of their rule and can be purged in constant time without any timer.
+ */
+class NativeGroupTable {
+
+    private final Map<String, LinkedHashMap<List<Object>, Group>> groupsByRule = new HashMap<>();
+
+    // the control events of the once_after groups whose window ended, waiting to be inserted into the session
+    private final List<PrototypeEventInstance> expiredControls = new ArrayList<>();
+
+    private NativeGroupListener listener;
+
+    void setListener(NativeGroupListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Returns the open window of the given group for the given rule at the given time, or null if there isn't any.
+     */
+    Group get(String ruleName, List<Object> groupKey, long now) {
+        purgeExpired(now);
+        LinkedHashMap<List<Object>, Group> groups = groupsByRule.get(ruleName);
+        return groups == null ? null : groups.get(groupKey);
+    }
+
+    /**
+     * Returns the first opened among the open windows of the groups of the given rule at the given time, or null if there isn't any.
+     */
+    Group getFirst(String ruleName, long now) {
+        purgeExpired(now);
+        LinkedHashMap<List<Object>, Group> groups = groupsByRule.get(ruleName);
+        return groups == null ? null : groups.values().iterator().next();
+    }
+
+    /**
+     * Returns the time when the first of the open windows of the once_after groups ends, or -1 if there isn't any.
+     */
+    long getNextControlWindowEnd() {
+        long nextWindowEnd = -1;
+        for (LinkedHashMap<List<Object>, Group> groups : groupsByRule.values()) {
+            Group first = groups.values().iterator().next();
+            if (first.getControl() != null && (nextWindowEnd < 0 || first.getWindowEnd() < nextWindowEnd)) {
+                nextWindowEnd = first.getWindowEnd();
+            }
+        }
+        return nextWindowEnd;
+    }
+
+    /**
+     * Opens a window for the given group of the given rule, starting at the given time. The group must not have an open window.
+     */
+    Group open(String ruleName, List<Object> groupKey, long windowStart, long windowMillis) {
+        Group group = new Group(windowStart, windowStart + windowMillis);
+        groupsByRule.computeIfAbsent(ruleName, r -> new LinkedHashMap<>()).put(groupKey, group);
+        return group;
+    }
+
+    void close(String ruleName, List<Object> groupKey) {
+        LinkedHashMap<List<Object>, Group> groups = groupsByRule.get(ruleName);
+        if (groups != null && groups.remove(groupKey) != null) {
+            if (groups.isEmpty()) {
+                groupsByRule.remove(ruleName);
+            }
+            notifyClosed(ruleName, groupKey);
+        }
+    }
+
+    void notifyChanged(String ruleName, List<Object> groupKey, Group group, Map<String, Object> controlData) {
+        if (listener != null) {
+            listener.groupChanged(ruleName, groupKey, controlData, group.getWindowStart(), group.getWindowEnd() - group.getWindowStart());
+        }
+    }
+
+    void purgeExpired(long now) {
+        for (Iterator<Map.Entry<String, LinkedHashMap<List<Object>, Group>>> rulesIterator = groupsByRule.entrySet().iterator(); rulesIterator.hasNext();) {
+            Map.Entry<String, LinkedHashMap<List<Object>, Group>> ruleGroups = rulesIterator.next();
+            for (Iterator<Map.Entry<List<Object>, Group>> groupsIterator = ruleGroups.getValue().entrySet().iterator(); groupsIterator.hasNext();) {
+                Map.Entry<List<Object>, Group> group = groupsIterator.next();
+                if (group.getValue().getWindowEnd() > now) {
+                    break;
+                }
+                groupsIterator.remove();
+                if (group.getValue().getControl() != null) {
+                    expiredControls.add(group.getValue().getControl());
+                }
+                notifyClosed(ruleGroups.getKey(), group.getKey());
+            }
+            if (ruleGroups.getValue().isEmpty()) {
+                rulesIterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Returns, and forgets, the control events of the once_after groups whose window ended since the last invocation
+     */
+    List<PrototypeEventInstance> pollExpiredControls() {
+        if (expiredControls.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<PrototypeEventInstance> polled = new ArrayList<>(expiredControls);
+        expiredControls.clear();
+        return polled;
+    }
+
+    private void notifyClosed(String ruleName, List<Object> groupKey) {
+        if (listener != null) {
+            listener.groupClosed(ruleName, groupKey);
+        }
+    }
+
+    static class Group {
+        private final long windowStart;
+        private final long windowEnd;
+        private int count;
+        private PrototypeEventInstance control;
+
+        private Group(long windowStart, long windowEnd) {
+            this.windowStart = windowStart;
+            this.windowEnd = windowEnd;
+        }
+
+        long getWindowStart() {
+            return windowStart;
+        }
+
+        long getWindowEnd() {
+            return windowEnd;
+        }
+
+        int getCount() {
+            return count;
+        }
+
+        void setCount(int count) {
+            this.count = count;
+        }
+
+        PrototypeEventInstance getControl() {
+            return control;
+        }
+
+        void setControl(PrototypeEventInstance control) {
+            this.control = control;
+        }
+    }
+}
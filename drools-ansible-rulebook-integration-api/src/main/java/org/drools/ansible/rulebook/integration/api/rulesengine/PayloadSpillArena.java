@@ -0,0 +1,138 @@
+package org.drools.ansible.rulebook.integration.api.rulesengine;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only arena of off-heap segments holding the serialized payloads spilled out of the events.
+ * Payloads are always appended to the current segment, and a segment is dropped when all its payloads have been released.
+ * Since the events of a session mostly expire in the same order they have been inserted, segments typically die as a whole,
+ * while the few payloads still alive in a mostly released segment are compacted by moving them to the current one.
+ */
+class PayloadSpillArena {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PayloadSpillArena.class.getName());
+
+    static final int DEFAULT_SEGMENT_SIZE = 4 * 1024 * 1024;
+
+    // a segment other than the current one is compacted when less than this fraction of it is still alive
+    private static final double COMPACTION_THRESHOLD = 0.25;
+
+    private final int segmentSize;
+
+    private Segment current;
+
+    private long allocatedBytes;
+
+    PayloadSpillArena() {
+        this(DEFAULT_SEGMENT_SIZE);
+    }
+
+    PayloadSpillArena(int segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    static class SpilledPayload {
+        private Segment segment;
+        private int offset;
+        private final int length;
+
+        private SpilledPayload(int length) {
+            this.length = length;
+        }
+    }
+
+    private static class Segment {
+        private final ByteBuffer buffer;
+        private int position;
+        private int liveBytes;
+        private final Set<SpilledPayload> payloads = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        private Segment(int size) {
+            this.buffer = ByteBuffer.allocateDirect(size);
+        }
+
+        private int remaining() {
+            return buffer.capacity() - position;
+        }
+    }
+
+    synchronized SpilledPayload append(byte[] bytes) {
+        SpilledPayload payload = new SpilledPayload(bytes.length);
+        write(payload, bytes);
+        return payload;
+    }
+
+    synchronized byte[] read(SpilledPayload payload) {
+        byte[] bytes = new byte[payload.length];
+        payload.segment.buffer.get(payload.offset, bytes);
+        return bytes;
+    }
+
+    synchronized void release(SpilledPayload payload) {
+        Segment segment = payload.segment;
+        if (segment == null || !segment.payloads.remove(payload)) {
+            return;
+        }
+        segment.liveBytes -= payload.length;
+        payload.segment = null;
+
+        if (segment == current) {
+            return;
+        }
+        if (segment.payloads.isEmpty()) {
+            allocatedBytes -= segment.buffer.capacity();
+        } else if (segment.liveBytes < segment.buffer.capacity() * COMPACTION_THRESHOLD) {
+            compact(segment);
+        }
+    }
+
+    private void compact(Segment segment) {
+        for (SpilledPayload payload : new ArrayList<>(segment.payloads)) {
+            byte[] bytes = new byte[payload.length];
+            segment.buffer.get(payload.offset, bytes);
+            write(payload, bytes);
+        }
+        // the segment isn't referenced anymore and its off-heap memory is freed when it gets garbage collected
+        allocatedBytes -= segment.buffer.capacity();
+    }
+
+    private void write(SpilledPayload payload, byte[] bytes) {
+        Segment segment = segmentFor(bytes.length);
+        segment.buffer.put(segment.position, bytes);
+        payload.segment = segment;
+        payload.offset = segment.position;
+        segment.position += bytes.length;
+        segment.liveBytes += bytes.length;
+        segment.payloads.add(payload);
+    }
+
+    private Segment segmentFor(int length) {
+        if (length > segmentSize) {
+            // a payload larger than a segment gets a dedicated one, leaving the current segment untouched
+            return allocate(length);
+        }
+        if (current == null || current.remaining() < length) {
+            Segment previous = current;
+            current = allocate(segmentSize);
+            if (previous != null && previous.payloads.isEmpty()) {
+                allocatedBytes -= previous.buffer.capacity();
+            }
+        }
+        return current;
+    }
+
+    private Segment allocate(int size) {
+        allocatedBytes += size;
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Allocated spill segment of {} bytes, off-heap memory used by the arena is now {} bytes", size, allocatedBytes);
+        }
+        return new Segment(size);
+    }
+}
@@ -1,7 +1,15 @@
 package org.drools.ansible.rulebook.integration.api.rulesengine;
 
 import org.drools.ansible.rulebook.integration.api.domain.RuleMatch;
+import org.drools.ansible.rulebook.integration.api.domain.temporal.AccumulateWithinDefinition;
+import org.drools.ansible.rulebook.integration.api.domain.temporal.DedupWithinDefinition;
+import org.drools.ansible.rulebook.integration.api.domain.temporal.OnceAbstractTimeConstraint;
+import org.drools.ansible.rulebook.integration.api.domain.temporal.OnceAfterDefinition;
+import org.drools.ansible.rulebook.integration.api.domain.temporal.OnceWithinDefinition;
+import org.drools.ansible.rulebook.integration.api.domain.temporal.SlidingWindowDefinition;
+import org.drools.ansible.rulebook.integration.api.domain.temporal.TimedOutDefinition;
 import org.drools.core.common.InternalFactHandle;
+import org.kie.api.prototype.PrototypeFactInstance;
 import org.kie.api.runtime.rule.AgendaFilter;
 import org.kie.api.runtime.rule.FactHandle;
 import org.kie.api.runtime.rule.Match;
@@ -26,6 +34,9 @@ public class RegisterOnlyAgendaFilter implements AgendaFilter {
 
     public static final String SYNTHETIC_RULE_TAG = "SYNTHETIC_RULE";
     public static final String RULE_TYPE_TAG = "RULE_TYPE";
+    public static final String NATIVE_THROTTLE_TAG = "NATIVE_THROTTLE";
+    public static final String NATIVE_TIMED_OUT_TAG = "NATIVE_TIMED_OUT";
+    public static final String PATTERN_INDEX_TAG = "PATTERN_INDEX";
     public static final Map<String, Function<Match, Match>> matchTransformers = new HashMap<>();
 
     private final RulesExecutorSession rulesExecutorSession;
@@ -34,6 +45,10 @@ public class RegisterOnlyAgendaFilter implements AgendaFilter {
 
     private final Set<FactHandle> matchedEvents = Collections.newSetFromMap(new IdentityHashMap<>());
 
+    // events discarded because their group is throttled or still accumulating, see OnceWithinDefinition, AccumulateWithinDefinition
+    // and OnceAfterDefinition, or because they completed a timed_out sequence, see TimedOutDefinition
+    private final Set<FactHandle> throttledEvents = Collections.newSetFromMap(new IdentityHashMap<>());
+
     private final Supplier<Boolean> recoverySupplier;
 
     public RegisterOnlyAgendaFilter(RulesExecutorSession rulesExecutorSession) {
@@ -54,6 +69,9 @@ public class RegisterOnlyAgendaFilter implements AgendaFilter {
         boolean validMatch = isValidMatch(fhs);
 
         if (validMatch) {
+            // the consequence, and whoever reads the match, expect the whole events
+            rulesExecutorSession.rehydrateMatchedEvents(fhs);
+
             if (log.isDebugEnabled()) {
                 log.debug(matchToString(match));
             }
@@ -63,6 +81,25 @@ public class RegisterOnlyAgendaFilter implements AgendaFilter {
                 return true;
             }
 
+            if ( metadata.get(NATIVE_THROTTLE_TAG) instanceof OnceAbstractTimeConstraint throttle && isThrottled(match, throttle) ) {
+                // same outcome of the synthetic rules used when the throttle is implemented with control events
+                for (InternalFactHandle fh : fhs) {
+                    if (fh.isEvent()) {
+                        throttledEvents.add(fh);
+                    }
+                }
+                return false;
+            }
+
+            if ( metadata.get(NATIVE_TIMED_OUT_TAG) instanceof TimedOutDefinition timedOut ) {
+                // the activations of the pattern rules only feed the deadline tracker of the session, which keeps
+                // a single sequence for all the patterns of the timed_out rule
+                InternalFactHandle event = fhs.get(0);
+                throttledEvents.addAll(rulesExecutorSession.timedOutPatternMatched(timedOut.getRuleName(), timedOut,
+                        (Integer) metadata.get(PATTERN_INDEX_TAG), match.getDeclarationIds().get(0), event));
+                return false;
+            }
+
             matchedRules.add( matchTransformers.getOrDefault(metadata.get(RULE_TYPE_TAG), Function.identity()).apply(match) );
         }
 
@@ -76,6 +113,56 @@ public class RegisterOnlyAgendaFilter implements AgendaFilter {
     }
 
     public List<Match> finalizeAndGetResults(boolean event) {
+        consumeMatchedEvents();
+
+        List<Match> matches = new ArrayList<>( matchedRules );
+        matchedRules.clear();
+
+        matches = selectMatches(matches, event);
+        matches.forEach(rulesExecutorSession::registerMatch);
+        return matches;
+    }
+
+    /**
+     * Finalizes a fire following the insertion of a batch of events, where each event is represented by the fact handles
+     * it has been inserted with. Each match is attributed to the event of the batch owning one of its fact handles,
+     * or to the first one when caused by none of them, and then the matches of each event are selected as if it had been
+     * evaluated alone. This is correct only when each match is caused by at most one event, i.e. without joins among events.
+     */
+    public List<List<Match>> finalizeAndGetResults(List<? extends List<? extends FactHandle>> eventsFactHandles) {
+        consumeMatchedEvents();
+
+        Map<FactHandle, Integer> eventIndexes = new IdentityHashMap<>();
+        List<List<Match>> results = new ArrayList<>(eventsFactHandles.size());
+        for (int i = 0; i < eventsFactHandles.size(); i++) {
+            for (FactHandle fh : eventsFactHandles.get(i)) {
+                eventIndexes.put(fh, i);
+            }
+            results.add(new ArrayList<>());
+        }
+
+        for (Match match : matchedRules) {
+            int eventIndex = 0;
+            for (FactHandle fh : match.getFactHandles()) {
+                Integer index = eventIndexes.get(fh);
+                if (index != null) {
+                    eventIndex = index;
+                    break;
+                }
+            }
+            results.get(eventIndex).add(match);
+        }
+        matchedRules.clear();
+
+        for (int i = 0; i < results.size(); i++) {
+            List<Match> matches = selectMatches(results.get(i), true);
+            matches.forEach(rulesExecutorSession::registerMatch);
+            results.set(i, matches);
+        }
+        return results;
+    }
+
+    private void consumeMatchedEvents() {
         rulesExecutorSession.registerMatchedEvents(matchedEvents);
         if (!rulesExecutorSession.isMatchMultipleRules()) {
             for (FactHandle toBeDeleted : matchedEvents) {
@@ -84,15 +171,38 @@ public class RegisterOnlyAgendaFilter implements AgendaFilter {
         }
         matchedEvents.clear();
 
-        List<Match> matches = new ArrayList<>( matchedRules );
-        matchedRules.clear();
+        // the throttled events are always removed, as the cleanup rule does, even when they can match other rules
+        for (FactHandle throttled : throttledEvents) {
+            rulesExecutorSession.delete(throttled);
+        }
+        throttledEvents.clear();
+    }
 
+    private boolean isThrottled(Match match, OnceAbstractTimeConstraint throttle) {
+        if (throttle instanceof OnceAfterDefinition onceAfter) {
+            // the event is always collected in its group, the once_after rule fires only at the end of the window
+            rulesExecutorSession.collectOnceAfter(onceAfter, (InternalFactHandle) match.getFactHandles().get(0));
+            return true;
+        }
+        PrototypeFactInstance event = (PrototypeFactInstance) match.getDeclarationValue(throttle.getGroupedEventBinding());
+        String ruleName = match.getRule().getName();
+        if (throttle instanceof AccumulateWithinDefinition accumulateWithin) {
+            return !rulesExecutorSession.accumulateWithin(ruleName, accumulateWithin, event);
+        }
+        if (throttle instanceof DedupWithinDefinition dedupWithin) {
+            return !rulesExecutorSession.acquireDedupWithin(ruleName, dedupWithin, event);
+        }
+        if (throttle instanceof SlidingWindowDefinition slidingWindow) {
+            return !rulesExecutorSession.countInSlidingWindow(ruleName, slidingWindow, event);
+        }
+        return !rulesExecutorSession.acquireOnceWithinThrottle(ruleName, (OnceWithinDefinition) throttle, event);
+    }
+
+    private List<Match> selectMatches(List<Match> matches, boolean event) {
         if (event && matches.size() > 1 && !rulesExecutorSession.isMatchMultipleRules()) {
             String firstMatchedRuleName = matches.get(0).getRule().getName();
-            matches = matches.stream().takeWhile(match -> match.getRule().getName().equals(firstMatchedRuleName)).collect(Collectors.toList());
+            return matches.stream().takeWhile(match -> match.getRule().getName().equals(firstMatchedRuleName)).collect(Collectors.toList());
         }
-
-        matches.forEach(rulesExecutorSession::registerMatch);
         return matches;
     }
 
@@ -0,0 +1,158 @@
+package org.drools.ansible.rulebook.integration.api.rulesengine;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import org.drools.ansible.rulebook.integration.api.domain.temporal.DedupWithinDefinition;
+
+/**
+ * Remembers the group keys seen by a dedup_within rule during its time window with a fixed amount of memory, regardless
+ * of the number of distinct keys. The window is covered by a few Bloom filters, each one receiving the keys seen during
+ * a slice of the window: when a slice ends the oldest filter is cleared and reused for the next one, so a key is
+ * remembered for at least the whole window and at most one slice more. A key never seen is reported as seen with a
+ * probability bounded by the false positive rate of the rule, for which each filter is sized considering that a key is
+ * looked up in all of them.
+ */
+class RotatingBloomFilter {
+
+    static final int GENERATIONS = 4;
+
+    private static final byte NULL_VALUE = 0;
+    private static final byte SCALAR_VALUE = 1;
+    private static final byte LIST_VALUE = 2;
+    private static final byte MAP_VALUE = 3;
+
+    private final long[][] generations;
+    private final int bitsPerGeneration;
+    private final int hashFunctions;
+    private final long sliceMillis;
+
+    private long currentSlice;
+
+    RotatingBloomFilter(DedupWithinDefinition dedupWithin, long now) {
+        double falsePositiveRate = dedupWithin.getFalsePositiveRate() / GENERATIONS;
+        long expectedKeys = dedupWithin.getExpectedKeys();
+        long bits = (long) Math.ceil(-expectedKeys * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bitsPerGeneration = (int) Math.min(Math.max(bits, Long.SIZE), Integer.MAX_VALUE - Long.SIZE);
+        this.hashFunctions = Math.max(1, (int) Math.round((double) bitsPerGeneration / expectedKeys * Math.log(2)));
+        this.generations = new long[GENERATIONS][(bitsPerGeneration + Long.SIZE - 1) / Long.SIZE];
+        this.sliceMillis = Math.max(1, dedupWithin.getWindowMillis() / (GENERATIONS - 1));
+        this.currentSlice = now / sliceMillis;
+    }
+
+    /**
+     * Returns true and remembers the given key if it hasn't been seen within the window at the given time, or false if
+     * it has been seen, possibly because of a false positive.
+     */
+    boolean add(List<Object> groupKey, long now) {
+        rotate(now);
+        long hash = hash(groupKey);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (long[] generation : generations) {
+            if (contains(generation, h1, h2)) {
+                return false;
+            }
+        }
+        long[] current = generations[indexOf(currentSlice)];
+        for (int i = 0; i < hashFunctions; i++) {
+            int bit = bitIndex(h1, h2, i);
+            current[bit >>> 6] |= 1L << bit;
+        }
+        return true;
+    }
+
+    private boolean contains(long[] generation, int h1, int h2) {
+        for (int i = 0; i < hashFunctions; i++) {
+            int bit = bitIndex(h1, h2, i);
+            if ((generation[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // clears the filters of the slices that ended since the last access, reusing them for the following ones
+    private void rotate(long now) {
+        long slice = now / sliceMillis;
+        long elapsedSlices = Math.min(slice - currentSlice, GENERATIONS);
+        for (long s = 1; s <= elapsedSlices; s++) {
+            Arrays.fill(generations[indexOf(currentSlice + s)], 0L);
+        }
+        if (slice > currentSlice) {
+            currentSlice = slice;
+        }
+    }
+
+    private int indexOf(long slice) {
+        return (int) Math.floorMod(slice, (long) GENERATIONS);
+    }
+
+    // combines 2 hashes as described by Kirsch and Mitzenmacher to simulate the needed number of hash functions
+    private int bitIndex(int h1, int h2, int i) {
+        int combined = h1 + i * h2;
+        return Math.floorMod(combined, bitsPerGeneration);
+    }
+
+    // 64 bit FNV-1a of the elements of the key, followed by the finalizer of MurmurHash3 to spread its bits
+    private static long hash(List<Object> groupKey) {
+        long hash = hashValue(0xcbf29ce484222325L, groupKey);
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    // each value is hashed together with its kind, type and length, so that values having the same textual form, like
+    // ["a, b"] and ["a", "b"] or 1 and "1", don't collide
+    private static long hashValue(long hash, Object value) {
+        if (value == null) {
+            return hashByte(hash, NULL_VALUE);
+        }
+        if (value instanceof List<?> list) {
+            hash = hashInt(hashByte(hash, LIST_VALUE), list.size());
+            for (Object element : list) {
+                hash = hashValue(hash, element);
+            }
+            return hash;
+        }
+        if (value instanceof Map<?, ?> map) {
+            hash = hashInt(hashByte(hash, MAP_VALUE), map.size());
+            // equal maps have to get the same hash regardless of the order of their entries
+            List<Map.Entry<?, ?>> entries = new ArrayList<>(map.entrySet());
+            entries.sort(Comparator.comparing(entry -> String.valueOf(entry.getKey())));
+            for (Map.Entry<?, ?> entry : entries) {
+                hash = hashValue(hashValue(hash, entry.getKey()), entry.getValue());
+            }
+            return hash;
+        }
+        hash = hashString(hashByte(hash, SCALAR_VALUE), value.getClass().getName());
+        return hashString(hash, value.toString());
+    }
+
+    private static long hashString(long hash, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        hash = hashInt(hash, bytes.length);
+        for (byte b : bytes) {
+            hash = hashByte(hash, b);
+        }
+        return hash;
+    }
+
+    private static long hashInt(long hash, int value) {
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            hash = hashByte(hash, (byte) (value >>> shift));
+        }
+        return hash;
+    }
+
+    private static long hashByte(long hash, byte b) {
+        return (hash ^ (b & 0xff)) * 0x100000001b3L;
+    }
+}
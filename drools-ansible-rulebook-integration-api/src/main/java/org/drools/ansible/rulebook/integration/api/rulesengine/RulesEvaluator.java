@@ -5,6 +5,7 @@ import org.kie.api.runtime.KieSession;
 import org.kie.api.runtime.rule.Match;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
@@ -20,6 +21,12 @@ public interface RulesEvaluator {
 
     Collection<?> getAllFacts();
 
+    List<Map<String, Object>> getAllFactsAsMap();
+
+    FactsPage getFactsPage(String continuationToken, int pageSize, Map<String, Object> pathFilter);
+
+    FactsCursor openFactsCursor(Map<String, Object> pathFilter);
+
     CompletableFuture<List<Match>> advanceTime(long amount, TimeUnit unit);
 
     CompletableFuture<Integer> executeFacts(Map<String, Object> factMap);
@@ -32,6 +39,8 @@ public interface RulesEvaluator {
 
     CompletableFuture<List<Match>> processRetractMatchingFacts(Map<String, Object> json, boolean allowPartialMatch, String... keysToExclude);
 
+    CompletableFuture<List<Match>> processUpdateMatchingFacts(Map<String, Object> json, Map<String, Object> patch);
+
     void setRulesExecutorContainer(RulesExecutorContainer rulesExecutorContainer);
 
     void startAutomaticPseudoClock(long period, TimeUnit unit);
@@ -41,7 +50,7 @@ public interface RulesEvaluator {
 
     SessionStats dispose();
 
-    SessionStatsCollector getSessionStatsCollector();
+    SessionStatsView getSessionStatsView();
 
     static RulesEvaluator createRulesEvaluator( RulesExecutorSession rulesExecutorSession, boolean async ) {
         return async ? new AsyncRulesEvaluator(rulesExecutorSession) : new SyncRulesEvaluator(rulesExecutorSession);
@@ -49,5 +58,9 @@ public interface RulesEvaluator {
 
     KieSession asKieSession();
 
+    default List<KieSession> asKieSessions() {
+        return Collections.singletonList(asKieSession());
+    }
+
     void stashFirstEventJsonForValidation(String json);
 }
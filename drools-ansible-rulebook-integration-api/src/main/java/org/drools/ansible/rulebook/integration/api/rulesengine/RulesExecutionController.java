@@ -1,5 +1,7 @@
 package org.drools.ansible.rulebook.integration.api.rulesengine;
 
+import java.util.function.IntSupplier;
+
 public class RulesExecutionController {
 
     public volatile boolean executeActions = true;
@@ -11,4 +13,13 @@ public class RulesExecutionController {
     public void setExecuteActions(boolean executeActions) {
         this.executeActions = executeActions;
     }
-}
\ No newline at end of file
+
+    int fireWithoutActions(IntSupplier fire) {
+        setExecuteActions(false);
+        try {
+            return fire.getAsInt();
+        } finally {
+            setExecuteActions(true);
+        }
+    }
+}
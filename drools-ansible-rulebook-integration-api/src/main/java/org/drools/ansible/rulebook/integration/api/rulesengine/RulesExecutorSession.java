@@ -1,10 +1,24 @@
 package org.drools.ansible.rulebook.integration.api.rulesengine;
 
+import org.drools.ansible.rulebook.integration.api.KieBaseCache;
+import org.drools.ansible.rulebook.integration.api.RuleConfigurationOption;
 import org.drools.ansible.rulebook.integration.api.domain.RulesSet;
+import org.drools.ansible.rulebook.integration.api.domain.temporal.AccumulateWithinDefinition;
+import org.drools.ansible.rulebook.integration.api.domain.temporal.DedupWithinDefinition;
+import org.drools.ansible.rulebook.integration.api.domain.temporal.OnceAbstractTimeConstraint;
+import org.drools.ansible.rulebook.integration.api.domain.temporal.OnceAfterDefinition;
+import org.drools.ansible.rulebook.integration.api.domain.temporal.OnceWithinDefinition;
+import org.drools.ansible.rulebook.integration.api.domain.temporal.SlidingWindowDefinition;
+import org.drools.ansible.rulebook.integration.api.domain.temporal.TimeAmount;
+import org.drools.ansible.rulebook.integration.api.domain.temporal.TimedOutDefinition;
+import org.drools.core.common.DefaultEventHandle;
 import org.drools.core.common.InternalFactHandle;
 import org.drools.core.common.ReteEvaluator;
+import org.drools.core.impl.WorkingMemoryReteExpireAction;
 import org.drools.core.time.TimerService;
 import org.drools.core.time.impl.PseudoClockScheduler;
+import org.kie.api.KieBase;
+import org.kie.api.definition.KiePackage;
 import org.kie.api.prototype.PrototypeEventInstance;
 import org.kie.api.prototype.PrototypeFactInstance;
 import org.kie.api.runtime.KieSession;
@@ -16,15 +30,21 @@ import org.kie.api.time.SessionPseudoClock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BiPredicate;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import static org.drools.ansible.rulebook.integration.api.rulesmodel.RulesModelUtil.mapToFact;
@@ -33,22 +53,6 @@ import static org.drools.ansible.rulebook.integration.api.rulesmodel.RulesModelU
 public class RulesExecutorSession {
 
     private static final Logger log = LoggerFactory.getLogger(RulesExecutorSession.class);
-    private static final String PURGE_CANCELLED_JOB_EVENT_COUNT_THRESHOLD_PROPERTY = "drools.purge.cancelled.job.event.count.threshold";
-    private static final int DEFAULT_PURGE_CANCELLED_JOB_EVENT_COUNT_THRESHOLD = 10;
-    private static final int PURGE_CANCELLED_JOB_EVENT_COUNT_THRESHOLD;
-
-    static {
-        String purgeThresholdEnvValue = System.getenv("DROOLS_PURGE_CANCELLED_JOB_EVENT_COUNT_THRESHOLD");
-        if (purgeThresholdEnvValue != null && !purgeThresholdEnvValue.isEmpty()) {
-            System.setProperty(PURGE_CANCELLED_JOB_EVENT_COUNT_THRESHOLD_PROPERTY, purgeThresholdEnvValue);
-        }
-        PURGE_CANCELLED_JOB_EVENT_COUNT_THRESHOLD = Integer.getInteger(PURGE_CANCELLED_JOB_EVENT_COUNT_THRESHOLD_PROPERTY,
-                                                                       DEFAULT_PURGE_CANCELLED_JOB_EVENT_COUNT_THRESHOLD);
-        if (PURGE_CANCELLED_JOB_EVENT_COUNT_THRESHOLD <= 0) {
-            throw new IllegalArgumentException("Cancelled pseudo-clock job purge threshold must be > 0");
-        }
-        log.info("Cancelled pseudo-clock job purge threshold set to {}", PURGE_CANCELLED_JOB_EVENT_COUNT_THRESHOLD);
-    }
 
     protected final RulesSet rulesSet;
 
@@ -60,8 +64,21 @@ public class RulesExecutorSession {
 
     private final SessionStatsCollector sessionStatsCollector;
 
+    private final SessionMemoryTracker sessionMemoryTracker;
+
+    private final EventPayloadSpillStore eventPayloadSpillStore;
+
+    private final FactRetractionIndex factRetractionIndex;
+
+    private final NativeGroupTable nativeGroupTable = new NativeGroupTable();
+
+    private final SlidingWindowTable slidingWindowTable = new SlidingWindowTable();
+
+    private final Map<String, RotatingBloomFilter> dedupFilters = new HashMap<>();
+
+    private final TimedOutDeadlineTracker timedOutDeadlineTracker = new TimedOutDeadlineTracker();
+
     private final RulesSetEventStructure rulesSetEventStructure;
-    private int purgeCancelledJobCounter = 0;
 
     public RulesExecutorSession(RulesSet rulesSet, KieSession kieSession, RulesExecutionController rulesExecutionController, long id) {
         this.rulesSet = rulesSet;
@@ -69,8 +86,28 @@ public class RulesExecutorSession {
         this.rulesExecutionController = rulesExecutionController;
         this.id = id;
         this.sessionStatsCollector = new SessionStatsCollector(id);
+        this.sessionMemoryTracker = new SessionMemoryTracker(sessionStatsCollector);
+        this.eventPayloadSpillStore = EventPayloadSpillStore.create(rulesSet);
+        this.factRetractionIndex = new FactRetractionIndex(this::factToMap, kieSession::getFactHandles);
         this.rulesSetEventStructure = new RulesSetEventStructure(rulesSet);
 
+        kieSession.addEventListener(sessionMemoryTracker);
+        if (eventPayloadSpillStore != null) {
+            kieSession.addEventListener(eventPayloadSpillStore);
+        }
+        kieSession.addEventListener(factRetractionIndex);
+        // Drools doesn't fire objectDeleted for the expired events, so they are notified through the working memory actions
+        ((ReteEvaluator) kieSession).setWorkingMemoryActionListener(entry -> {
+            if (entry instanceof WorkingMemoryReteExpireAction expireAction) {
+                onEventExpired(expireAction.getFactHandle());
+            }
+        });
+
+        if (((ReteEvaluator) kieSession).getTimerService() instanceof PseudoClockScheduler scheduler) {
+            // remove the cancelled jobs, like the expirations of the deleted events, as soon as they get cancelled
+            IndexedTimerJobQueue.install(scheduler);
+        }
+
         this.sessionStatsCollector.registerBaseLevelMemory(); // initial used memory after kbase/ksession creation
         initClock();
     }
@@ -99,10 +136,147 @@ public class RulesExecutorSession {
         return sessionStatsCollector;
     }
 
+    long getRetainedMemory() {
+        return sessionMemoryTracker.getRetainedMemory();
+    }
+
+    /**
+     * Invoked when an event of this session expires
+     */
+    protected void onEventExpired(DefaultEventHandle eventHandle) {
+        sessionMemoryTracker.factRemoved(eventHandle);
+        factRetractionIndex.factExpired(eventHandle);
+        if (eventPayloadSpillStore != null) {
+            eventPayloadSpillStore.release(eventHandle.getObject());
+        }
+    }
+
+    void factDiscarded(InternalFactHandle fh) {
+        sessionMemoryTracker.factRemoved(fh);
+    }
+
+    /**
+     * Spills the payload of an event left pending in the working memory after the evaluation of its insertion
+     */
+    void spillPendingEvent(InternalFactHandle fh) {
+        if (eventPayloadSpillStore == null || !(fh.getObject() instanceof PrototypeFactInstance event)) {
+            return;
+        }
+        if (eventPayloadSpillStore.spill(event)) {
+            sessionMemoryTracker.factChanged(fh);
+        }
+    }
+
+    /**
+     * Puts back in the events of the given match the payload spilled out of them, before the match is fired
+     */
+    void rehydrateMatchedEvents(List<InternalFactHandle> fhs) {
+        if (eventPayloadSpillStore == null) {
+            return;
+        }
+        for (InternalFactHandle fh : fhs) {
+            if (fh.isEvent()) {
+                rehydrate(fh);
+            }
+        }
+    }
+
+    private void rehydrate(InternalFactHandle fh) {
+        if (eventPayloadSpillStore.rehydrate(fh.getObject())) {
+            sessionMemoryTracker.factChanged(fh);
+        }
+    }
+
+    /**
+     * Returns the whole content of the given fact, including the payload that could have been spilled out of it
+     */
+    Map<String, Object> factToMap(PrototypeFactInstance fact) {
+        return eventPayloadSpillStore == null ? fact.asMap() : eventPayloadSpillStore.view(fact);
+    }
+
+    List<Map<String, Object>> getObjectsAsMaps() {
+        return getObjects(PrototypeFactInstance.class::isInstance).stream()
+                .map(PrototypeFactInstance.class::cast)
+                .map(this::factToMap)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns, in insertion order, at most pageSize of the facts inserted after the one with the given fact handle id
+     * and matching the given path filter. Only the facts of the requested page are retained while scanning the working memory.
+     */
+    FactsPage getFactsPage(long afterFactHandleId, int pageSize, Map<String, Object> pathFilter) {
+        // max-heap on the fact handle id, keeping one more fact than the page size to know if there's a further page
+        PriorityQueue<InternalFactHandle> page = new PriorityQueue<>(pageSize + 1, Comparator.comparingLong(InternalFactHandle::getId).reversed());
+        for (FactHandle factHandle : kieSession.getFactHandles(PrototypeFactInstance.class::isInstance)) {
+            InternalFactHandle fh = (InternalFactHandle) factHandle;
+            if (fh.getId() <= afterFactHandleId || (page.size() > pageSize && fh.getId() > page.peek().getId())) {
+                continue;
+            }
+            if (FactsPage.matchesFilter(factToMap((PrototypeFactInstance) fh.getObject()), pathFilter)) {
+                page.add(fh);
+                if (page.size() > pageSize + 1) {
+                    page.poll();
+                }
+            }
+        }
+
+        boolean hasNext = page.size() > pageSize;
+        if (hasNext) {
+            page.poll();
+        }
+        List<InternalFactHandle> fhs = new ArrayList<>(page);
+        fhs.sort(Comparator.comparingLong(InternalFactHandle::getId));
+        List<Map<String, Object>> facts = fhs.stream()
+                .map(fh -> factCopy((PrototypeFactInstance) fh.getObject()))
+                .collect(Collectors.toList());
+        return new FactsPage(facts, hasNext ? String.valueOf(fhs.get(fhs.size() - 1).getId()) : null);
+    }
+
+    /**
+     * Returns the handles of the facts currently in the session, in insertion order
+     */
+    List<InternalFactHandle> getFactHandlesInInsertionOrder() {
+        List<InternalFactHandle> fhs = new ArrayList<>();
+        for (FactHandle factHandle : kieSession.getFactHandles(PrototypeFactInstance.class::isInstance)) {
+            fhs.add((InternalFactHandle) factHandle);
+        }
+        fhs.sort(Comparator.comparingLong(InternalFactHandle::getId));
+        return fhs;
+    }
+
+    /**
+     * Returns a copy of at most maxFacts of the facts of the given handles matching the given path filter, skipping
+     * the ones already deleted. The handles are consumed only until enough facts have been found.
+     */
+    List<Map<String, Object>> readFacts(Iterator<InternalFactHandle> fhs, int maxFacts, Map<String, Object> pathFilter) {
+        List<Map<String, Object>> facts = new ArrayList<>();
+        while (facts.size() < maxFacts && fhs.hasNext()) {
+            InternalFactHandle fh = fhs.next();
+            if (fh.isValid()) {
+                Map<String, Object> fact = factCopy((PrototypeFactInstance) fh.getObject());
+                if (FactsPage.matchesFilter(fact, pathFilter)) {
+                    facts.add(fact);
+                }
+            }
+        }
+        return facts;
+    }
+
+    /**
+     * Returns a copy of the whole content of the given fact, that can be read after having released the ruleEvaluationLock.
+     * Copying the first level is enough, since the nested objects are never modified in place, but replaced when patched.
+     */
+    private Map<String, Object> factCopy(PrototypeFactInstance fact) {
+        return new LinkedHashMap<>(factToMap(fact));
+    }
+
     protected InternalFactHandle insert(Map<String, Object> factMap, boolean event) {
         PrototypeFactInstance fact = mapToFact(factMap, event);
+        sessionMemoryTracker.ensureQuota(this, fact);
         if (event) {
-            ((PrototypeEventInstance) fact).withExpiration(rulesSet.getEventsTtl().getAmount(), rulesSet.getEventsTtl().getTimeUnit());
+            TimeAmount eventsTtl = rulesSet.getEffectiveEventsTtl();
+            ((PrototypeEventInstance) fact).withExpiration(eventsTtl.getAmount(), eventsTtl.getTimeUnit());
         }
         InternalFactHandle fh = (InternalFactHandle) kieSession.insert(fact);
         if (event) {
@@ -113,33 +287,27 @@ public class RulesExecutorSession {
 
     protected void delete(FactHandle fh) {
         kieSession.delete(fh);
-        purgeCancelledJobsIfSupported(fh instanceof InternalFactHandle internalFactHandle ? internalFactHandle : null);
     }
 
-    /*
-     * This method is a temporal workaround to call purgeCancelledJob with reflection
-     * to reduce the memory consumption by retained jobs
-     * This can be removed when the upstream drools-core is fixed (currently it's not purged until 1000 canceled jobs exist)
+    /**
+     * Returns the pseudo clock time at which the next job (timer, event expiration, temporal control) is scheduled
+     * or -1 if there isn't any scheduled job.
      */
-    void purgeCancelledJobsIfSupported(InternalFactHandle fh) {
-        if (fh == null || !fh.isEvent()) {
-            return;
-        }
-        purgeCancelledJobCounter++;
-        if (purgeCancelledJobCounter < PURGE_CANCELLED_JOB_EVENT_COUNT_THRESHOLD) {
-            return;
-        }
-        purgeCancelledJobCounter = 0;
-        try {
-            TimerService timerService = ((ReteEvaluator) kieSession).getTimerService();
-            if (timerService instanceof PseudoClockScheduler scheduler) {
-                Method purgeCancelledJob = PseudoClockScheduler.class.getDeclaredMethod("purgeCancelledJob");
-                purgeCancelledJob.setAccessible(true);
-                purgeCancelledJob.invoke(scheduler);
-            }
-        } catch (ReflectiveOperationException e) {
-            log.warn("Unable to purge cancelled pseudo-clock jobs after deleting event {}", fh.getId(), e);
+    long getNextScheduledJobTime() {
+        TimerService timerService = ((ReteEvaluator) kieSession).getTimerService();
+        long timeToNextJob = timerService.getTimeToNextJob();
+        long nextJobTime = timeToNextJob < 0 ? -1 : timerService.getCurrentTime() + timeToNextJob;
+        long nextDeadline = timedOutDeadlineTracker.getNextExpirationTime();
+        if (nextDeadline >= 0 && (nextJobTime < 0 || nextDeadline < nextJobTime)) {
+            nextJobTime = nextDeadline;
         }
+        long nextWindowEnd = nativeGroupTable.getNextControlWindowEnd();
+        return nextWindowEnd >= 0 && (nextJobTime < 0 || nextWindowEnd < nextJobTime) ? nextWindowEnd : nextJobTime;
+    }
+
+    boolean hasScheduledJobDueBy(long millis) {
+        long nextJobTime = getNextScheduledJobTime();
+        return nextJobTime >= 0 && nextJobTime <= millis;
     }
 
     List<InternalFactHandle> deleteAllMatchingFacts(Map<String, Object> toBeRetracted, boolean allowPartialMatch, String... keysToExclude) {
@@ -147,8 +315,85 @@ public class RulesExecutorSession {
                 (wmFact, retract) -> wmFact.entrySet().containsAll(retract.entrySet()) :
                 (wmFact, retract) -> areFactsEqual(wmFact, retract, keysToExclude);
 
-        Collection<FactHandle> fhs = kieSession.getFactHandles(o -> o instanceof PrototypeFactInstance && factsComparator.test( ((PrototypeFactInstance) o).asMap(), toBeRetracted ) );
-        return new ArrayList<>( fhs ).stream().peek( kieSession::delete ).map( InternalFactHandle.class::cast ).collect(Collectors.toList());
+        // only the candidates looked up from the index are compared with the fact to be retracted
+        List<InternalFactHandle> candidates = allowPartialMatch ?
+                factRetractionIndex.partialMatchCandidates(toBeRetracted) :
+                factRetractionIndex.exactMatchCandidates(toBeRetracted, key -> isKeyToBeIgnored(key, keysToExclude));
+        List<InternalFactHandle> fhs = candidates.stream().filter( fh -> factsComparator.test( factToMap((PrototypeFactInstance) fh.getObject()), toBeRetracted ) ).collect(Collectors.toList());
+        return fhs.stream().peek( this::rehydrateBeforeDelete ).peek( kieSession::delete ).collect(Collectors.toList());
+    }
+
+    /**
+     * Applies the given patch to the facts containing all the fields of the given match, notifying the session only of
+     * the modified top level fields. Following the JSON merge patch semantic, nested objects are merged and a null value
+     * removes the field.
+     *
+     * @return the handles of the facts that have been actually modified
+     */
+    List<InternalFactHandle> updateAllMatchingFacts(Map<String, Object> toBeMatched, Map<String, Object> patch) {
+        return updateAllMatchingFacts(toBeMatched, patch, fact -> true, null);
+    }
+
+    /**
+     * Applies the given patch as updateAllMatchingFacts(toBeMatched, patch) does, but deleting from the session the modified
+     * facts that don't satisfy the given predicate anymore and adding them to the given list
+     */
+    List<InternalFactHandle> updateAllMatchingFacts(Map<String, Object> toBeMatched, Map<String, Object> patch,
+                                                    Predicate<Map<String, Object>> staysInSession, List<Map<String, Object>> movedOut) {
+        List<InternalFactHandle> fhs = factRetractionIndex.partialMatchCandidates(toBeMatched).stream()
+                .filter( fh -> factToMap((PrototypeFactInstance) fh.getObject()).entrySet().containsAll(toBeMatched.entrySet()) )
+                .collect(Collectors.toList());
+
+        List<InternalFactHandle> updated = new ArrayList<>();
+        for (InternalFactHandle fh : fhs) {
+            PrototypeFactInstance fact = (PrototypeFactInstance) fh.getObject();
+            if (eventPayloadSpillStore != null) {
+                rehydrate(fh);
+            }
+            // the update is notified to the session, which lets the memory tracker re-estimate the fact
+            String[] modifiedFields = mergePatch(fact.asMap(), patch);
+            if (modifiedFields.length > 0) {
+                if (staysInSession.test(fact.asMap())) {
+                    kieSession.update(fh, fact, modifiedFields);
+                } else {
+                    kieSession.delete(fh);
+                    movedOut.add(fact.asMap());
+                }
+                updated.add(fh);
+            }
+        }
+        return updated;
+    }
+
+    private static String[] mergePatch(Map<String, Object> target, Map<String, Object> patch) {
+        List<String> modifiedFields = new ArrayList<>();
+        for (Map.Entry<String, Object> entry : patch.entrySet()) {
+            Object oldValue = target.get(entry.getKey());
+            Object newValue = entry.getValue();
+            if (newValue instanceof Map && oldValue instanceof Map) {
+                // the nested object is copied, since it could be shared with a match already returned
+                Map<String, Object> merged = new LinkedHashMap<>((Map<String, Object>) oldValue);
+                mergePatch(merged, (Map<String, Object>) newValue);
+                newValue = merged;
+            }
+            if (newValue == null) {
+                if (target.containsKey(entry.getKey())) {
+                    target.remove(entry.getKey());
+                    modifiedFields.add(entry.getKey());
+                }
+            } else if (!newValue.equals(oldValue)) {
+                target.put(entry.getKey(), newValue);
+                modifiedFields.add(entry.getKey());
+            }
+        }
+        return modifiedFields.toArray(new String[0]);
+    }
+
+    private void rehydrateBeforeDelete(InternalFactHandle fh) {
+        // the retracted facts are returned with the matches, so they have to be whole
+        if (eventPayloadSpillStore != null) {
+            rehydrate(fh);
+        }
     }
 
     private static boolean areFactsEqual(Map<String, Object> wmFact, Map<String, Object> retract, String... keysToExclude) {
@@ -178,13 +423,15 @@ public class RulesExecutorSession {
         return kieSession.fireAllRules();
     }
 
-    int fireAllRules(AgendaFilter agendaFilter) {
-        return kieSession.fireAllRules(agendaFilter);
+    int fireAllRulesWithoutActions(AgendaFilter agendaFilter) {
+        return rulesExecutionController.fireWithoutActions(() -> kieSession.fireAllRules(agendaFilter));
     }
 
     SessionStats dispose() {
         SessionStats stats = getSessionStats(true);
+        KieBase kieBase = kieSession.getKieBase();
         kieSession.dispose();
+        KieBaseCache.get().release(kieBase);
         return stats;
     }
 
@@ -215,6 +462,10 @@ public class RulesExecutorSession {
     void advanceTime( long amount, TimeUnit unit ) {
         SessionPseudoClock clock = getPseudoClock();
         clock.advanceTime(amount, unit);
+        nativeGroupTable.purgeExpired(clock.getCurrentTime());
+        endOnceAfterWindows();
+        slidingWindowTable.purgeExpired(clock.getCurrentTime());
+        expireTimedOutSequences(clock.getCurrentTime());
         sessionStatsCollector.registerClockAdvance(amount, unit);
     }
 
@@ -222,8 +473,175 @@ public class RulesExecutorSession {
         return kieSession.getSessionClock();
     }
 
-    void setExecuteActions(boolean executeActions) {
-        rulesExecutionController.setExecuteActions(executeActions);
+    /**
+     * Returns true if the group of the given event can fire the given once_within rule now, throttling it for the
+     * rest of the time window, or false if it already fired within that window.
+     */
+    boolean acquireOnceWithinThrottle(String ruleName, OnceWithinDefinition onceWithin, PrototypeFactInstance event) {
+        List<Object> groupKey = onceWithin.getGroupKey(event);
+        long now = getPseudoClock().getCurrentTime();
+        if (nativeGroupTable.get(ruleName, groupKey, now) != null) {
+            return false;
+        }
+        NativeGroupTable.Group group = nativeGroupTable.open(ruleName, groupKey, now, onceWithin.getWindowMillis());
+        nativeGroupTable.notifyChanged(ruleName, groupKey, group, onceWithin.toControlData(groupKey));
+        return true;
+    }
+
+    /**
+     * Accumulates the given event in its group for the given accumulate_within rule, opening a new time window
+     * if the group doesn't have one. Returns true if the threshold has been reached, so the rule can fire and the
+     * accumulation starts again, or false if the event has just been counted.
+     */
+    boolean accumulateWithin(String ruleName, AccumulateWithinDefinition accumulateWithin, PrototypeFactInstance event) {
+        List<Object> groupKey = accumulateWithin.getGroupKey(event);
+        long now = getPseudoClock().getCurrentTime();
+        NativeGroupTable.Group group = nativeGroupTable.get(ruleName, groupKey, now);
+        if (group == null) {
+            group = nativeGroupTable.open(ruleName, groupKey, now, accumulateWithin.getWindowMillis());
+        }
+        group.setCount(group.getCount() + 1);
+        if (group.getCount() >= accumulateWithin.getThreshold()) {
+            nativeGroupTable.close(ruleName, groupKey);
+            return true;
+        }
+        nativeGroupTable.notifyChanged(ruleName, groupKey, group, accumulateWithin.toControlData(groupKey, group.getCount()));
+        return false;
+    }
+
+    /**
+     * Collects the given event in its group for the given once_after rule, opening the window of the rule if it doesn't
+     * have one. All the groups of the rule share that window: when it ends their control events are inserted to fire the rule.
+     */
+    void collectOnceAfter(OnceAfterDefinition onceAfter, InternalFactHandle eventHandle) {
+        String ruleName = onceAfter.getRuleName();
+        PrototypeFactInstance event = (PrototypeFactInstance) eventHandle.getObject();
+        long eventTime = ((DefaultEventHandle) eventHandle).getStartTimestamp();
+        List<Object> groupKey = onceAfter.getGroupKey(event);
+        long now = getPseudoClock().getCurrentTime();
+        NativeGroupTable.Group group = nativeGroupTable.get(ruleName, groupKey, now);
+        if (group != null) {
+            onceAfter.addToGroupControl(group.getControl(), event, eventTime);
+        } else {
+            NativeGroupTable.Group first = nativeGroupTable.getFirst(ruleName, now);
+            if (first == null) {
+                log.info("Start once_after window for rule " + ruleName);
+            }
+            long windowEnd = first == null ? now + onceAfter.getWindowMillis() : first.getWindowEnd();
+            group = nativeGroupTable.open(ruleName, groupKey, now, windowEnd - now);
+            group.setControl(onceAfter.createGroupControl(event, eventTime));
+        }
+        nativeGroupTable.notifyChanged(ruleName, groupKey, group, onceAfter.toControlData(group.getControl()));
+    }
+
+    private void endOnceAfterWindows() {
+        Set<String> endedRules = new LinkedHashSet<>();
+        for (PrototypeEventInstance control : nativeGroupTable.pollExpiredControls()) {
+            kieSession.insert(control);
+            endedRules.add((String) control.get("drools_rule_name"));
+        }
+        for (String ruleName : endedRules) {
+            // fires the once_after rule, accumulating the control events of all the groups collected in its window
+            kieSession.insert(((OnceAfterDefinition) findNativeThrottle(ruleName)).createEndControl());
+        }
+    }
+
+    /**
+     * Returns true if the group of the given event hasn't been seen by the given dedup_within rule within its time window,
+     * remembering it for the rest of that window, or false if it has been seen or if it is reported as such by a false positive.
+     */
+    boolean acquireDedupWithin(String ruleName, DedupWithinDefinition dedupWithin, PrototypeFactInstance event) {
+        long now = getPseudoClock().getCurrentTime();
+        return dedupFilters.computeIfAbsent(ruleName, r -> new RotatingBloomFilter(dedupWithin, now)).add(dedupWithin.getGroupKey(event), now);
+    }
+
+    /**
+     * Counts the given event in the sliding window of its group for the given sliding_window rule. Returns true if the
+     * events of the group within the window have just reached the threshold, so the rule can fire, or false otherwise.
+     */
+    boolean countInSlidingWindow(String ruleName, SlidingWindowDefinition slidingWindow, PrototypeFactInstance event) {
+        return slidingWindowTable.count(ruleName, slidingWindow, slidingWindow.getGroupKey(event), getPseudoClock().getCurrentTime());
+    }
+
+    /**
+     * Registers the event matching the pattern with the given index of the given timed_out rule, starting a new sequence
+     * if that rule doesn't have one in progress. Returns the events to be deleted if this completes the sequence in time.
+     */
+    List<InternalFactHandle> timedOutPatternMatched(String ruleName, TimedOutDefinition timedOut, int patternIndex, String binding, InternalFactHandle event) {
+        return timedOutDeadlineTracker.patternMatched(ruleName, timedOut, patternIndex, binding, event, getPseudoClock().getCurrentTime());
+    }
+
+    /**
+     * Returns, for each timed_out rule with a sequence in progress, the time after which that sequence expires.
+     * Used to recover the session, since with the NATIVE_TIMED_OUT option those sequences aren't persisted as control events.
+     */
+    public Map<String, Long> getTimedOutDeadlines() {
+        return timedOutDeadlineTracker.getDeadlinesByRule();
+    }
+
+    private void expireTimedOutSequences(long now) {
+        for (TimedOutDeadlineTracker.Sequence sequence : timedOutDeadlineTracker.expire(now)) {
+            for (InternalFactHandle event : sequence.getEvents()) {
+                // the events may have been already deleted by other rules or expired
+                if (event.isValid()) {
+                    kieSession.delete(event);
+                }
+            }
+            kieSession.insert(sequence.getTimedOut().createTimedOutControl(sequence.getFirstEvent().getObject(), sequence.getFirstBinding()));
+        }
+    }
+
+    /**
+     * Restores a group throttled or accumulated natively by this session, as described by the content of its control
+     * event, whose window started at the given time. Used to recover the session when the groups have been persisted
+     * through a NativeGroupListener.
+     */
+    public void restoreNativeGroup(Map<String, Object> controlData, long windowStart, long windowMillis) {
+        String ruleName = (String) controlData.get("drools_rule_name");
+        OnceAbstractTimeConstraint throttle = findNativeThrottle(ruleName);
+        if (throttle == null) {
+            log.warn("Cannot restore the group {} of rule {} not throttled by the session", controlData, ruleName);
+            return;
+        }
+        List<Object> groupKey = throttle.getGroupKey(controlData);
+        if (throttle instanceof SlidingWindowDefinition slidingWindow) {
+            slidingWindowTable.restore(ruleName, slidingWindow, groupKey, controlData);
+            return;
+        }
+        NativeGroupTable.Group group = nativeGroupTable.open(ruleName, groupKey, windowStart, windowMillis);
+        if (throttle instanceof OnceAfterDefinition onceAfter) {
+            group.setControl(onceAfter.restoreGroupControl(controlData));
+        }
+        Object currentCount = controlData.get("current_count");
+        if (currentCount instanceof Number count) {
+            group.setCount(count.intValue());
+        }
+        nativeGroupTable.notifyChanged(ruleName, groupKey, group, controlData);
+    }
+
+    private OnceAbstractTimeConstraint findNativeThrottle(String ruleName) {
+        for (KiePackage kiePackage : kieSession.getKieBase().getKiePackages()) {
+            for (org.kie.api.definition.rule.Rule rule : kiePackage.getRules()) {
+                // the events of a once_after rule are collected by its R_collect rule, tagged in its place
+                if (rule.getMetaData().get(RegisterOnlyAgendaFilter.NATIVE_THROTTLE_TAG) instanceof OnceAbstractTimeConstraint throttle && throttle.getRuleName().equals(ruleName)) {
+                    return throttle;
+                }
+            }
+        }
+        return null;
+    }
+
+    public void setNativeGroupListener(NativeGroupListener listener) {
+        nativeGroupTable.setListener(listener);
+        slidingWindowTable.setListener(listener);
+    }
+
+    boolean hasOption(RuleConfigurationOption option) {
+        return rulesSet.hasOption(option);
+    }
+
+    boolean hasOnlySinglePatternRules() {
+        return rulesSet.hasOnlySinglePatternRules();
     }
 
     public boolean isMatchMultipleRules() {
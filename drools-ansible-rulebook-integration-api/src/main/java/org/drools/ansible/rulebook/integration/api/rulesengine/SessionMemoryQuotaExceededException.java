@@ -0,0 +1,19 @@
+package org.drools.ansible.rulebook.integration.api.rulesengine;
+
+public class SessionMemoryQuotaExceededException extends RuntimeException {
+
+    private final String ruleSetName;
+    private final long quota;
+    private final long required;
+
+    public SessionMemoryQuotaExceededException(String ruleSetName, long quota, long required) {
+        this.ruleSetName = ruleSetName;
+        this.quota = quota;
+        this.required = required;
+    }
+
+    @Override
+    public String getMessage() {
+        return "Memory quota of session for ruleset " + ruleSetName + " exceeded: " + required + " bytes > " + quota + " bytes";
+    }
+}
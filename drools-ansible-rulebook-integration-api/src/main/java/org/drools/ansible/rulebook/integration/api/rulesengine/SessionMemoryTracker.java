@@ -0,0 +1,241 @@
+package org.drools.ansible.rulebook.integration.api.rulesengine;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+import org.drools.core.common.DefaultEventHandle;
+import org.drools.core.common.InternalFactHandle;
+import org.kie.api.event.rule.DefaultRuleRuntimeEventListener;
+import org.kie.api.event.rule.ObjectDeletedEvent;
+import org.kie.api.event.rule.ObjectInsertedEvent;
+import org.kie.api.event.rule.ObjectUpdatedEvent;
+import org.kie.api.prototype.PrototypeEventInstance;
+import org.kie.api.prototype.PrototypeFactInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.drools.ansible.rulebook.integration.api.rulesmodel.PrototypeFactory.SYNTHETIC_PROTOTYPE_NAME;
+
+/**
+ * Incrementally accounts the memory retained by the facts and events of a session, estimating it from their payload
+ * plus the overhead of the structures holding them, and enforces the optional per-session memory quota.
+ * The estimated size of each fact is kept, so that the accounting is updated exactly by the insertions, updates and deletions
+ * notified by the session, by the expired or discarded events and by the facts changed without notifying it, like the
+ * spilled and rehydrated events. When the quota is enforced by evicting events, these are also kept ordered by their
+ * expiration, so that making room for a new fact costs only the eviction of the events that would expire first.
+ */
+class SessionMemoryTracker extends DefaultRuleRuntimeEventListener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SessionMemoryTracker.class.getName());
+
+    private static final String SESSION_MEMORY_QUOTA_PROPERTY = "drools.session.memory.quota";
+    static long SESSION_MEMORY_QUOTA; // package-private for testing
+
+    private static final String SESSION_MEMORY_QUOTA_POLICY_PROPERTY = "drools.session.memory.quota.policy";
+    static QuotaPolicy SESSION_MEMORY_QUOTA_POLICY; // package-private for testing
+
+    /**
+     * What to do when inserting a fact or an event would exceed the memory quota of the session
+     */
+    enum QuotaPolicy {
+        // reject the insertion with a SessionMemoryQuotaExceededException
+        REJECT,
+        // evict the events that would expire first, rejecting the insertion only if this isn't enough
+        EVICT
+    }
+
+    static {
+        String quotaEnvValue = System.getenv("DROOLS_SESSION_MEMORY_QUOTA");
+        if (quotaEnvValue != null && !quotaEnvValue.isEmpty()) {
+            // Environment variable takes precedence over system property
+            System.setProperty(SESSION_MEMORY_QUOTA_PROPERTY, quotaEnvValue);
+        }
+        SESSION_MEMORY_QUOTA = Long.getLong(SESSION_MEMORY_QUOTA_PROPERTY, 0L); // bytes, 0 means no quota
+        LOG.info("Session memory quota set to {} bytes", SESSION_MEMORY_QUOTA);
+
+        String policyEnvValue = System.getenv("DROOLS_SESSION_MEMORY_QUOTA_POLICY");
+        if (policyEnvValue != null && !policyEnvValue.isEmpty()) {
+            // Environment variable takes precedence over system property
+            System.setProperty(SESSION_MEMORY_QUOTA_POLICY_PROPERTY, policyEnvValue);
+        }
+        SESSION_MEMORY_QUOTA_POLICY = QuotaPolicy.valueOf(System.getProperty(SESSION_MEMORY_QUOTA_POLICY_PROPERTY, QuotaPolicy.REJECT.name()).toUpperCase());
+        LOG.info("Session memory quota policy set to {}", SESSION_MEMORY_QUOTA_POLICY);
+    }
+
+    // rough shallow sizes on a 64-bit JVM with compressed oops
+    private static final int FACT_OVERHEAD = 160; // fact handle, prototype instance, expiration job
+    private static final int MAP_OVERHEAD = 64;
+    private static final int MAP_ENTRY_OVERHEAD = 40;
+    private static final int LIST_OVERHEAD = 40;
+    private static final int REFERENCE_SIZE = 8;
+    private static final int STRING_OVERHEAD = 40;
+    private static final int BOXED_NUMBER_SIZE = 24;
+    private static final int OBJECT_SIZE = 16;
+
+    private final SessionStatsCollector sessionStatsCollector;
+
+    private final long quota;
+    private final QuotaPolicy quotaPolicy;
+
+    // the facts of the session by fact handle id, with their estimated size
+    private final Map<Long, TrackedFact> trackedFacts = new HashMap<>();
+
+    // the events that can be evicted, in expiration order, maintained only when the quota is enforced by evicting them
+    private final NavigableSet<TrackedFact> evictableEvents;
+
+    // updated while holding the lock on this tracker, but read without it by the thread generating the stats
+    private volatile long retainedMemory;
+
+    SessionMemoryTracker(SessionStatsCollector sessionStatsCollector) {
+        this.sessionStatsCollector = sessionStatsCollector;
+        this.quota = SESSION_MEMORY_QUOTA;
+        this.quotaPolicy = SESSION_MEMORY_QUOTA_POLICY;
+        this.evictableEvents = quota > 0 && quotaPolicy == QuotaPolicy.EVICT ?
+                new TreeSet<>(Comparator.comparingLong(TrackedFact::expiration).thenComparingLong(TrackedFact::id)) :
+                null;
+    }
+
+    long getRetainedMemory() {
+        return retainedMemory;
+    }
+
+    @Override
+    public void objectInserted(ObjectInsertedEvent event) {
+        factChanged((InternalFactHandle) event.getFactHandle());
+    }
+
+    @Override
+    public void objectUpdated(ObjectUpdatedEvent event) {
+        factChanged((InternalFactHandle) event.getFactHandle());
+    }
+
+    @Override
+    public void objectDeleted(ObjectDeletedEvent event) {
+        factRemoved((InternalFactHandle) event.getFactHandle());
+    }
+
+    /**
+     * Accounts the memory of a fact inserted or changed, also without notifying its update like a spilled or a rehydrated event
+     */
+    synchronized void factChanged(InternalFactHandle fh) {
+        if (!(fh.getObject() instanceof PrototypeFactInstance fact)) {
+            return;
+        }
+        untrack(fh.getId());
+        long expiration = fh instanceof DefaultEventHandle eventHandle ? eventHandle.getExpirationTimeStamp() : Long.MAX_VALUE;
+        TrackedFact trackedFact = new TrackedFact(fh.getId(), fh, estimateRetainedMemory(fact), expiration);
+        trackedFacts.put(trackedFact.id(), trackedFact);
+        if (evictableEvents != null && isEvictable(fact)) {
+            evictableEvents.add(trackedFact);
+        }
+        retainedMemory += trackedFact.size();
+    }
+
+    /**
+     * Releases the memory of a fact removed, also without notifying its deletion like an expired or a discarded event
+     */
+    synchronized void factRemoved(InternalFactHandle fh) {
+        untrack(fh.getId());
+    }
+
+    private void untrack(long id) {
+        TrackedFact trackedFact = trackedFacts.remove(id);
+        if (trackedFact != null) {
+            if (evictableEvents != null) {
+                evictableEvents.remove(trackedFact);
+            }
+            retainedMemory -= trackedFact.size();
+        }
+    }
+
+    private static boolean isEvictable(PrototypeFactInstance fact) {
+        return fact instanceof PrototypeEventInstance event && !SYNTHETIC_PROTOTYPE_NAME.equals(event.getPrototype().getName());
+    }
+
+    /**
+     * Checks that the given fact can be inserted in the session without exceeding its memory quota, evicting the events
+     * that would expire first if so configured.
+     *
+     * @throws SessionMemoryQuotaExceededException if the fact doesn't fit in the quota
+     */
+    synchronized void ensureQuota(RulesExecutorSession session, PrototypeFactInstance fact) {
+        if (quota <= 0) {
+            return;
+        }
+        long size = estimateRetainedMemory(fact);
+        if (retainedMemory + size <= quota) {
+            return;
+        }
+
+        if (evictableEvents != null) {
+            int evicted = evictOldestExpiringEvents(session, retainedMemory + size - quota);
+            sessionStatsCollector.registerEvictedEvents(evicted);
+            if (evicted > 0) {
+                LOG.warn("Evicted {} events from session of ruleset {} to keep it within its memory quota of {} bytes", evicted, session.getRuleSetName(), quota);
+            }
+            if (retainedMemory + size <= quota) {
+                return;
+            }
+        }
+
+        throw new SessionMemoryQuotaExceededException(session.getRuleSetName(), quota, retainedMemory + size);
+    }
+
+    /**
+     * Deletes from the session the events, other than the synthetic control ones, that would expire first until
+     * the estimated retained memory has been reduced by at least the given amount of bytes.
+     *
+     * @return the number of evicted events
+     */
+    private int evictOldestExpiringEvents(RulesExecutorSession session, long bytesToFree) {
+        long target = retainedMemory - bytesToFree;
+        int evicted = 0;
+        while (retainedMemory > target && !evictableEvents.isEmpty()) {
+            TrackedFact oldest = evictableEvents.first();
+            untrack(oldest.id());
+            if (oldest.fh().isValid()) {
+                session.delete(oldest.fh());
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    static long estimateRetainedMemory(PrototypeFactInstance fact) {
+        return FACT_OVERHEAD + estimateSize(fact.asMap());
+    }
+
+    static long estimateSize(Object value) {
+        if (value == null || value instanceof Boolean) {
+            return 0;
+        }
+        if (value instanceof String s) {
+            return STRING_OVERHEAD + s.length();
+        }
+        if (value instanceof Number) {
+            return BOXED_NUMBER_SIZE;
+        }
+        if (value instanceof Map<?, ?> map) {
+            long size = MAP_OVERHEAD;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                size += MAP_ENTRY_OVERHEAD + estimateSize(entry.getKey()) + estimateSize(entry.getValue());
+            }
+            return size;
+        }
+        if (value instanceof List<?> list) {
+            long size = LIST_OVERHEAD;
+            for (Object item : list) {
+                size += REFERENCE_SIZE + estimateSize(item);
+            }
+            return size;
+        }
+        return OBJECT_SIZE;
+    }
+
+    private record TrackedFact(long id, InternalFactHandle fh, long size, long expiration) {
+    }
+}
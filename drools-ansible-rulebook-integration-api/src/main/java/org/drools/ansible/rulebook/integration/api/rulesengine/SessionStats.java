@@ -8,6 +8,7 @@ import org.kie.api.prototype.PrototypeFactInstance;
 
 import java.time.Instant;
 import java.util.Collection;
+import java.util.List;
 import java.util.stream.Stream;
 
 @JsonInclude(JsonInclude.Include.NON_NULL)
@@ -44,6 +45,9 @@ public class SessionStats {
     private final long baseLevelMemory;
     private final long peakMemory;
 
+    private final long retainedMemory;
+    private final int eventsEvicted;
+
     public SessionStats(SessionStatsCollector stats, RulesExecutorSession session, boolean disposing) {
         this.start = stats.getStart().toString();
         this.end = disposing ? Instant.now().toString() : null;
@@ -70,6 +74,8 @@ public class SessionStats {
         this.lastEventReceivedAt = stats.getLastEventReceivedTime() < 0 ? null : Instant.ofEpochMilli(stats.getLastEventReceivedTime()).toString();
         this.baseLevelMemory = stats.getBaseLevelMemory();
         this.peakMemory = stats.getPeakMemory();
+        this.retainedMemory = session.getRetainedMemory();
+        this.eventsEvicted = stats.getEvictedEvents();
     }
 
     // required for JSON deserialization in HA
@@ -83,7 +89,8 @@ public class SessionStats {
                         @JsonProperty("bytesSentOnAsync") int bytesSentOnAsync, @JsonProperty("sessionId") long sessionId, 
                         @JsonProperty("ruleSetName") String ruleSetName, @JsonProperty("lastRuleFired") String lastRuleFired, 
                         @JsonProperty("lastRuleFiredAt") String lastRuleFiredAt, @JsonProperty("lastEventReceivedAt") String lastEventReceivedAt, 
-                        @JsonProperty("baseLevelMemory") long baseLevelMemory, @JsonProperty("peakMemory") long peakMemory) {
+                        @JsonProperty("baseLevelMemory") long baseLevelMemory, @JsonProperty("peakMemory") long peakMemory,
+                        @JsonProperty("retainedMemory") long retainedMemory, @JsonProperty("eventsEvicted") int eventsEvicted) {
         this.start = start;
         this.end = end;
         this.lastClockTime = lastClockTime;
@@ -105,6 +112,8 @@ public class SessionStats {
         this.lastEventReceivedAt = lastEventReceivedAt;
         this.baseLevelMemory = baseLevelMemory;
         this.peakMemory = peakMemory;
+        this.retainedMemory = retainedMemory;
+        this.eventsEvicted = eventsEvicted;
     }
 
     @Override
@@ -133,6 +142,8 @@ public class SessionStats {
                 ", usedMemory='" + getUsedMemory() + '\'' +
                 ", peakMemory='" + getPeakMemory() + '\'' +
                 ", maxAvailableMemory='" + getMaxAvailableMemory() + '\'' +
+                ", retainedMemory='" + retainedMemory + '\'' +
+                ", eventsEvicted=" + eventsEvicted +
                 '}';
     }
 
@@ -229,6 +240,17 @@ public class SessionStats {
         return Math.max(peakMemory, MemoryMonitorUtil.getUsedMemory());
     }
 
+    /**
+     * Returns the memory retained by the facts and events of the session, as estimated from their payloads
+     */
+    public long getRetainedMemory() {
+        return retainedMemory;
+    }
+
+    public int getEventsEvicted() {
+        return eventsEvicted;
+    }
+
     public static SessionStats aggregate(SessionStats stats1, SessionStats stats2) {
         String lastRuleFired = null;
         String lastRuleFiredAt = null;
@@ -264,7 +286,43 @@ public class SessionStats {
                 lastRuleFiredAt,
                 isInstant1Last(stats1.getLastEventReceivedAt(), stats2.getLastEventReceivedAt()) ? stats1.getLastEventReceivedAt() : stats2.getLastEventReceivedAt(),
                 Math.max(stats1.baseLevelMemory, stats2.baseLevelMemory),
-                Math.max(stats1.getPeakMemory(), stats2.getPeakMemory())
+                Math.max(stats1.getPeakMemory(), stats2.getPeakMemory()),
+                stats1.retainedMemory + stats2.retainedMemory,
+                stats1.eventsEvicted + stats2.eventsEvicted
+        );
+    }
+
+    /**
+     * Aggregates the stats of the shards evaluating the same ruleset: the session and its rules are the same for all
+     * the shards, so they are taken from the first one, while all the other stats are aggregated as usual.
+     */
+    public static SessionStats aggregateShards(List<SessionStats> shardsStats) {
+        SessionStats first = shardsStats.get(0);
+        SessionStats aggregated = shardsStats.stream().reduce(SessionStats::aggregate).get();
+        return new SessionStats(
+                aggregated.start,
+                aggregated.end,
+                aggregated.lastClockTime,
+                aggregated.clockAdvanceCount,
+                first.numberOfRules,
+                first.numberOfDisabledRules,
+                aggregated.rulesTriggered,
+                aggregated.eventsProcessed,
+                aggregated.eventsMatched,
+                aggregated.eventsSuppressed,
+                aggregated.permanentStorageCount,
+                aggregated.permanentStorageSize,
+                aggregated.asyncResponses,
+                aggregated.bytesSentOnAsync,
+                first.sessionId,
+                first.ruleSetName,
+                aggregated.lastRuleFired,
+                aggregated.lastRuleFiredAt,
+                aggregated.lastEventReceivedAt,
+                aggregated.baseLevelMemory,
+                aggregated.peakMemory,
+                aggregated.retainedMemory,
+                aggregated.eventsEvicted
         );
     }
 
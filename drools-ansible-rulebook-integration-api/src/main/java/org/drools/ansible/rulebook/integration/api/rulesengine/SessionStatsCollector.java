@@ -13,7 +13,7 @@ import java.util.concurrent.TimeUnit;
 import static org.drools.ansible.rulebook.integration.api.domain.temporal.TimeConstraint.COUNT_AS_MATCHED_EVENT;
 import static org.drools.ansible.rulebook.integration.api.rulesmodel.PrototypeFactory.SYNTHETIC_PROTOTYPE_NAME;
 
-public class SessionStatsCollector {
+public class SessionStatsCollector implements SessionStatsView {
 
     private static final Logger LOG = LoggerFactory.getLogger(SessionStatsCollector.class.getName());
 
@@ -38,6 +38,8 @@ public class SessionStatsCollector {
 
     private int clockAdvanceCount;
 
+    private int evictedEvents;
+
     private long baseLevelMemory;
     private long peakMemory = -1;
 
@@ -58,54 +60,72 @@ public class SessionStatsCollector {
         return new SessionStats(this, session, disposing);
     }
 
+    @Override
     public Instant getStart() {
         return start;
     }
 
+    @Override
     public int getRulesTriggered() {
         return rulesTriggered;
     }
 
+    @Override
     public int getTotalEvents() {
         return totalEvents;
     }
 
+    @Override
     public int getMatchedEvents() {
         return matchedEvents;
     }
 
+    @Override
     public int getAsyncResponses() {
         return asyncResponses;
     }
 
+    @Override
     public int getBytesSentOnAsync() {
         return bytesSentOnAsync;
     }
 
+    @Override
     public String getLastRuleFired() {
         return lastRuleFired;
     }
 
+    @Override
     public long getLastRuleFiredTime() {
         return lastRuleFiredTime;
     }
 
+    @Override
     public long getLastEventReceivedTime() {
         return lastEventReceivedTime;
     }
 
+    @Override
     public int getClockAdvanceCount() {
         return clockAdvanceCount;
     }
 
+    @Override
+    public int getEvictedEvents() {
+        return evictedEvents;
+    }
+
+    @Override
     public long getBaseLevelMemory() {
         return baseLevelMemory;
     }
 
+    @Override
     public long getPeakMemory() {
-        return peakMemory;
+        return Math.max(peakMemory, MemoryMonitorUtil.getPeakUsedMemory());
     }
 
+    @Override
     public void updatePeakMemory(long usedMemory) {
         peakMemory = Math.max(peakMemory, usedMemory);
     }
@@ -155,6 +175,10 @@ public class SessionStatsCollector {
         clockAdvanceCount++;
     }
 
+    public void registerEvictedEvents(int count) {
+        evictedEvents += count;
+    }
+
     public void registerBaseLevelMemory() {
         System.gc(); // NOSONAR
         this.baseLevelMemory = MemoryMonitorUtil.getUsedMemory();
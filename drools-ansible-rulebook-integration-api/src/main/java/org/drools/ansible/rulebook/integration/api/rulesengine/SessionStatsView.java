@@ -0,0 +1,41 @@
+package org.drools.ansible.rulebook.integration.api.rulesengine;
+
+import java.time.Instant;
+
+/**
+ * The stats collected while a session is running, as exposed by its RulesEvaluator. They can be read, and sampled
+ * with the heap usage observed while the session is running, but they are registered only by the session itself.
+ */
+public interface SessionStatsView {
+
+    Instant getStart();
+
+    int getRulesTriggered();
+
+    int getTotalEvents();
+
+    int getMatchedEvents();
+
+    int getAsyncResponses();
+
+    int getBytesSentOnAsync();
+
+    String getLastRuleFired();
+
+    long getLastRuleFiredTime();
+
+    long getLastEventReceivedTime();
+
+    int getClockAdvanceCount();
+
+    int getEvictedEvents();
+
+    long getBaseLevelMemory();
+
+    long getPeakMemory();
+
+    /**
+     * Samples the heap usage observed while the session is running, updating its peak memory if higher
+     */
+    void updatePeakMemory(long usedMemory);
+}
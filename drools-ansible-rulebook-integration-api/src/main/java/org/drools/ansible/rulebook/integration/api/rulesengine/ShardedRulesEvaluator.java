@@ -0,0 +1,247 @@
+package org.drools.ansible.rulebook.integration.api.rulesengine;
+
+import org.drools.ansible.rulebook.integration.api.RulesExecutorContainer;
+import org.drools.ansible.rulebook.integration.api.domain.temporal.OnceAbstractTimeConstraint.GroupByAttribute;
+import org.kie.api.runtime.KieSession;
+import org.kie.api.runtime.rule.Match;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Evaluates a ruleset on multiple sessions (shards), each of them with its own lock and automatic clock, routing
+ * facts and events by the hash of their partition key. This is correct only for rulesets whose rules never match
+ * facts or events having different partition keys, as checked by RulesSet.checkPartitionLocalRules().
+ * All the shards share the same session id, so they are seen as a single session from the outside.
+ */
+public class ShardedRulesEvaluator implements RulesEvaluator {
+
+    private final List<RulesEvaluator> shards;
+
+    private final List<GroupByAttribute> partitionKey;
+
+    private final SessionStatsView sessionStatsView;
+
+    public ShardedRulesEvaluator(List<RulesEvaluator> shards, List<GroupByAttribute> partitionKey) {
+        this.shards = shards;
+        this.partitionKey = partitionKey;
+        this.sessionStatsView = new ShardedSessionStatsView(shards.stream().map(RulesEvaluator::getSessionStatsView).collect(Collectors.toList()));
+    }
+
+    @Override
+    public long getSessionId() {
+        return shards.get(0).getSessionId();
+    }
+
+    @Override
+    public String getRuleSetName() {
+        return shards.get(0).getRuleSetName();
+    }
+
+    @Override
+    public int rulesCount() {
+        return shards.get(0).rulesCount();
+    }
+
+    @Override
+    public Collection<?> getAllFacts() {
+        return shards.stream().flatMap(shard -> shard.getAllFacts().stream()).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Map<String, Object>> getAllFactsAsMap() {
+        return shards.stream().flatMap(shard -> shard.getAllFactsAsMap().stream()).collect(Collectors.toList());
+    }
+
+    @Override
+    public FactsPage getFactsPage(String continuationToken, int pageSize, Map<String, Object> pathFilter) {
+        // the continuation token is prefixed by the index of the shard to be read next
+        int shardIndex = 0;
+        String shardToken = null;
+        if (continuationToken != null) {
+            int separator = continuationToken.indexOf(':');
+            shardIndex = Integer.parseInt(continuationToken.substring(0, separator));
+            shardToken = separator < continuationToken.length() - 1 ? continuationToken.substring(separator + 1) : null;
+        }
+
+        List<Map<String, Object>> facts = new ArrayList<>();
+        for (; shardIndex < shards.size(); shardIndex++, shardToken = null) {
+            FactsPage shardPage = shards.get(shardIndex).getFactsPage(shardToken, pageSize - facts.size(), pathFilter);
+            facts.addAll(shardPage.getFacts());
+            if (shardPage.hasNext()) {
+                return new FactsPage(facts, shardIndex + ":" + shardPage.getContinuationToken());
+            }
+            if (facts.size() == pageSize) {
+                return new FactsPage(facts, shardIndex + 1 < shards.size() ? (shardIndex + 1) + ":" : null);
+            }
+        }
+        return new FactsPage(facts, null);
+    }
+
+    @Override
+    public FactsCursor openFactsCursor(Map<String, Object> pathFilter) {
+        return FactsCursor.concat(shards.stream().map(shard -> shard.openFactsCursor(pathFilter)).collect(Collectors.toList()));
+    }
+
+    @Override
+    public CompletableFuture<List<Match>> advanceTime(long amount, TimeUnit unit) {
+        return onAllShards(shard -> shard.advanceTime(amount, unit));
+    }
+
+    @Override
+    public CompletableFuture<Integer> executeFacts(Map<String, Object> factMap) {
+        return shardOf(factMap).executeFacts(factMap);
+    }
+
+    @Override
+    public CompletableFuture<List<Match>> processFacts(Map<String, Object> factMap) {
+        return routeToShards(factMap, "facts", RulesEvaluator::processFacts);
+    }
+
+    @Override
+    public CompletableFuture<List<Match>> processEvents(Map<String, Object> factMap) {
+        return routeToShards(factMap, "events", RulesEvaluator::processEvents);
+    }
+
+    @Override
+    public CompletableFuture<List<Match>> fire() {
+        return onAllShards(RulesEvaluator::fire);
+    }
+
+    @Override
+    public CompletableFuture<List<Match>> processRetractMatchingFacts(Map<String, Object> json, boolean allowPartialMatch, String... keysToExclude) {
+        return onAllShards(shard -> shard.processRetractMatchingFacts(json, allowPartialMatch, keysToExclude));
+    }
+
+    @Override
+    public CompletableFuture<List<Match>> processUpdateMatchingFacts(Map<String, Object> json, Map<String, Object> patch) {
+        if (!changesPartitionKey(patch)) {
+            return onAllShards(shard -> shard.processUpdateMatchingFacts(json, patch));
+        }
+
+        // the updated facts whose partition key has changed are retracted from their shard and inserted into the one of the new key
+        List<List<Map<String, Object>>> movedFacts = new ArrayList<>();
+        List<CompletableFuture<List<Match>>> results = new ArrayList<>();
+        for (int i = 0; i < shards.size(); i++) {
+            int shardIndex = i;
+            List<Map<String, Object>> moved = new ArrayList<>();
+            movedFacts.add(moved);
+            results.add(((AbstractRulesEvaluator) shards.get(i)).processUpdateMatchingFacts(json, patch, fact -> shardIndexOf(fact) == shardIndex, moved));
+        }
+        return combine(results).thenCompose(matches -> {
+            List<CompletableFuture<List<Match>>> insertions = new ArrayList<>();
+            insertions.add(CompletableFuture.completedFuture(matches));
+            movedFacts.stream().flatMap(List::stream).forEach(fact -> insertions.add(shardOf(fact).processFacts(fact)));
+            return combine(insertions);
+        });
+    }
+
+    @Override
+    public void setRulesExecutorContainer(RulesExecutorContainer rulesExecutorContainer) {
+        shards.forEach(shard -> shard.setRulesExecutorContainer(rulesExecutorContainer));
+    }
+
+    @Override
+    public void startAutomaticPseudoClock(long period, TimeUnit unit) {
+        shards.forEach(shard -> shard.startAutomaticPseudoClock(period, unit));
+    }
+
+    @Override
+    public long getAutomaticPseudoClockPeriod() {
+        return shards.get(0).getAutomaticPseudoClockPeriod();
+    }
+
+    @Override
+    public SessionStats getSessionStats() {
+        return SessionStats.aggregateShards(shards.stream().map(RulesEvaluator::getSessionStats).collect(Collectors.toList()));
+    }
+
+    @Override
+    public SessionStats dispose() {
+        return SessionStats.aggregateShards(shards.stream().map(RulesEvaluator::dispose).collect(Collectors.toList()));
+    }
+
+    @Override
+    public SessionStatsView getSessionStatsView() {
+        return sessionStatsView;
+    }
+
+    /**
+     * Returns the KieSession of the first shard, sharing the KieBase of all the others and driven by a clock advanced
+     * as theirs. It holds only the facts of its partitions: use asKieSessions() to access the ones of all the shards.
+     */
+    @Override
+    public KieSession asKieSession() {
+        return shards.get(0).asKieSession();
+    }
+
+    @Override
+    public List<KieSession> asKieSessions() {
+        return shards.stream().map(RulesEvaluator::asKieSession).collect(Collectors.toList());
+    }
+
+    @Override
+    public void stashFirstEventJsonForValidation(String json) {
+        shards.get(0).stashFirstEventJsonForValidation(json);
+    }
+
+    private RulesEvaluator shardOf(Map<String, Object> factMap) {
+        return shards.get(shardIndexOf(factMap));
+    }
+
+    private boolean changesPartitionKey(Map<String, Object> patch) {
+        for (GroupByAttribute key : partitionKey) {
+            // the patch is applied to the top level fields, so the partition key changes if its root field is patched
+            String rootField = key.getKey().split("[.\\[]", 2)[0];
+            if (patch.containsKey(rootField)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int shardIndexOf(Map<String, Object> factMap) {
+        int hash = 1;
+        for (GroupByAttribute key : partitionKey) {
+            hash = 31 * hash + Objects.hashCode(key.evalExtractorOnMap(factMap));
+        }
+        return Math.floorMod(hash, shards.size());
+    }
+
+    private CompletableFuture<List<Match>> routeToShards(Map<String, Object> factMap, String key,
+                                                         BiFunction<RulesEvaluator, Map<String, Object>, CompletableFuture<List<Match>>> evaluation) {
+        if (factMap.size() == 1 && factMap.get(key) instanceof List<?> facts) {
+            // a list of facts or events may have to be split among different shards
+            Map<Integer, List<Object>> factsByShard = new TreeMap<>();
+            for (Object fact : facts) {
+                factsByShard.computeIfAbsent(shardIndexOf((Map<String, Object>) fact), i -> new ArrayList<>()).add(fact);
+            }
+            List<CompletableFuture<List<Match>>> results = new ArrayList<>();
+            factsByShard.forEach((shardIndex, shardFacts) -> results.add(evaluation.apply(shards.get(shardIndex), Collections.<String, Object>singletonMap(key, shardFacts))));
+            return combine(results);
+        }
+        return evaluation.apply(shardOf(factMap), factMap);
+    }
+
+    private CompletableFuture<List<Match>> onAllShards(Function<RulesEvaluator, CompletableFuture<List<Match>>> evaluation) {
+        return combine(shards.stream().map(evaluation).collect(Collectors.toList()));
+    }
+
+    private static CompletableFuture<List<Match>> combine(List<CompletableFuture<List<Match>>> results) {
+        if (results.size() == 1) {
+            return results.get(0);
+        }
+        return CompletableFuture.allOf(results.toArray(new CompletableFuture[0]))
+                .thenApply(v -> results.stream().flatMap(result -> result.join().stream()).collect(Collectors.toList()));
+    }
+}
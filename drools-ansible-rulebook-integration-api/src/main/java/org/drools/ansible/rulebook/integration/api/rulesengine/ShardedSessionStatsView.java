@@ -0,0 +1,99 @@
+package org.drools.ansible.rulebook.integration.api.rulesengine;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * View aggregating the stats of all the shards of a sharded session. The counters are summed, while the times and
+ * the memory levels are the maximum among the shards, consistently with SessionStats.aggregate().
+ * The events and the matches are registered by the collector of the shard evaluating them.
+ */
+class ShardedSessionStatsView implements SessionStatsView {
+
+    private final List<SessionStatsView> shardCollectors;
+
+    ShardedSessionStatsView(List<SessionStatsView> shardCollectors) {
+        this.shardCollectors = shardCollectors;
+    }
+
+    @Override
+    public Instant getStart() {
+        return shardCollectors.stream().map(SessionStatsView::getStart).min(Comparator.naturalOrder()).get();
+    }
+
+    @Override
+    public int getRulesTriggered() {
+        return sum(SessionStatsView::getRulesTriggered);
+    }
+
+    @Override
+    public int getTotalEvents() {
+        return sum(SessionStatsView::getTotalEvents);
+    }
+
+    @Override
+    public int getMatchedEvents() {
+        return sum(SessionStatsView::getMatchedEvents);
+    }
+
+    @Override
+    public int getAsyncResponses() {
+        return sum(SessionStatsView::getAsyncResponses);
+    }
+
+    @Override
+    public int getBytesSentOnAsync() {
+        return sum(SessionStatsView::getBytesSentOnAsync);
+    }
+
+    @Override
+    public String getLastRuleFired() {
+        return shardCollectors.stream().max(Comparator.comparingLong(SessionStatsView::getLastRuleFiredTime)).get().getLastRuleFired();
+    }
+
+    @Override
+    public long getLastRuleFiredTime() {
+        return max(SessionStatsView::getLastRuleFiredTime);
+    }
+
+    @Override
+    public long getLastEventReceivedTime() {
+        return max(SessionStatsView::getLastEventReceivedTime);
+    }
+
+    @Override
+    public int getClockAdvanceCount() {
+        return sum(SessionStatsView::getClockAdvanceCount);
+    }
+
+    @Override
+    public int getEvictedEvents() {
+        return sum(SessionStatsView::getEvictedEvents);
+    }
+
+    @Override
+    public long getBaseLevelMemory() {
+        return max(SessionStatsView::getBaseLevelMemory);
+    }
+
+    @Override
+    public long getPeakMemory() {
+        return max(SessionStatsView::getPeakMemory);
+    }
+
+    @Override
+    public void updatePeakMemory(long usedMemory) {
+        shardCollectors.forEach(collector -> collector.updatePeakMemory(usedMemory));
+    }
+
+    private int sum(ToIntFunction<SessionStatsView> counter) {
+        return shardCollectors.stream().mapToInt(counter).sum();
+    }
+
+    private long max(ToLongFunction<SessionStatsView> value) {
+        return shardCollectors.stream().mapToLong(value).max().getAsLong();
+    }
+}
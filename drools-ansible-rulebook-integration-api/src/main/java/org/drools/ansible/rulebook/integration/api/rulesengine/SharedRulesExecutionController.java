@@ -0,0 +1,28 @@
+package org.drools.ansible.rulebook.integration.api.rulesengine;
+
+import java.util.function.IntSupplier;
+
+/**
+ * Controller embedded in a KieBase whose sessions can fire their rules at the same time on different threads, like the
+ * shards of a sharded ruleset. Each session disables the actions only for the thread firing its rules, while the public
+ * flag still disables them for all the sessions, regardless of the thread setting it.
+ */
+public class SharedRulesExecutionController extends RulesExecutionController {
+
+    private final ThreadLocal<Boolean> actionsDisabledOnThread = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    @Override
+    public boolean executeActions() {
+        return executeActions && !actionsDisabledOnThread.get();
+    }
+
+    @Override
+    int fireWithoutActions(IntSupplier fire) {
+        actionsDisabledOnThread.set(true);
+        try {
+            return fire.getAsInt();
+        } finally {
+            actionsDisabledOnThread.set(false);
+        }
+    }
+}
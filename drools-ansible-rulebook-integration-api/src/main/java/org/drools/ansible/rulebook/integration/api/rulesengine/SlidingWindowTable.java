@@ -0,0 +1,189 @@
+package org.drools.ansible.rulebook.integration.api.rulesengine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.drools.ansible.rulebook.integration.api.domain.temporal.SlidingWindowDefinition;
+
+/**
+ * Keeps, for each sliding_window rule of a session, the groups having events within the window, each one with a fixed-size
+ * ring of buckets counting the events arrived in consecutive slices of the window. Counting an event only clears the
+ * buckets that slid out of the window since the former event of the same group and increments the current one, so it costs
+ * a constant time regardless of the number of counted events. The groups of each rule are ordered by the time of their
+ * last event, so the ones whose buckets are all out of the window are always at the head of the map of their rule and
+ * can be purged without any timer.
+ */
+class SlidingWindowTable {
+
+    private final Map<String, LinkedHashMap<List<Object>, Ring>> ringsByRule = new HashMap<>();
+
+    private NativeGroupListener listener;
+
+    void setListener(NativeGroupListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Counts an event of the given group for the given rule at the given time. Returns true if the count of the group
+     * within the window has just reached the threshold, so that the rule can fire, or false if it is still below the
+     * threshold or if the rule already fired since the group reached it.
+     */
+    boolean count(String ruleName, SlidingWindowDefinition slidingWindow, List<Object> groupKey, long now) {
+        purgeExpired(now);
+        LinkedHashMap<List<Object>, Ring> rings = ringsByRule.computeIfAbsent(ruleName, r -> new LinkedHashMap<>());
+        // removed and put back to keep the rings ordered by the time of their last event
+        Ring ring = rings.remove(groupKey);
+        if (ring == null) {
+            ring = new Ring(slidingWindow.getBuckets(), slidingWindow.getBucketMillis(), now);
+        }
+        rings.put(groupKey, ring);
+
+        ring.slideTo(now);
+        if (ring.getTotal() < slidingWindow.getThreshold()) {
+            ring.setFired(false);
+        }
+        ring.increment(now);
+        boolean fire = !ring.isFired() && ring.getTotal() >= slidingWindow.getThreshold();
+        if (fire) {
+            ring.setFired(true);
+        }
+        notifyChanged(ruleName, slidingWindow, groupKey, ring);
+        return fire;
+    }
+
+    /**
+     * Restores the ring of the given group, as described by the content of its control event
+     */
+    void restore(String ruleName, SlidingWindowDefinition slidingWindow, List<Object> groupKey, Map<String, Object> controlData) {
+        List<Number> bucketCounts = (List<Number>) controlData.get("bucket_counts");
+        if (bucketCounts.size() != slidingWindow.getBuckets()) {
+            throw new IllegalStateException("Cannot restore " + bucketCounts.size() + " buckets in a " + SlidingWindowDefinition.KEYWORD +
+                    " of " + slidingWindow.getBuckets() + " buckets for rule " + ruleName);
+        }
+        long lastEventTime = ((Number) controlData.get("last_event_time")).longValue();
+        Ring ring = new Ring(slidingWindow.getBuckets(), slidingWindow.getBucketMillis(), lastEventTime);
+        ring.restore(bucketCounts, Boolean.TRUE.equals(controlData.get("fired")));
+        LinkedHashMap<List<Object>, Ring> rings = ringsByRule.computeIfAbsent(ruleName, r -> new LinkedHashMap<>());
+        rings.remove(groupKey);
+        rings.put(groupKey, ring);
+        notifyChanged(ruleName, slidingWindow, groupKey, ring);
+    }
+
+    void purgeExpired(long now) {
+        for (Iterator<Map.Entry<String, LinkedHashMap<List<Object>, Ring>>> rulesIterator = ringsByRule.entrySet().iterator(); rulesIterator.hasNext();) {
+            Map.Entry<String, LinkedHashMap<List<Object>, Ring>> ruleRings = rulesIterator.next();
+            for (Iterator<Map.Entry<List<Object>, Ring>> ringsIterator = ruleRings.getValue().entrySet().iterator(); ringsIterator.hasNext();) {
+                Map.Entry<List<Object>, Ring> ring = ringsIterator.next();
+                if (ring.getValue().getExpirationTime() > now) {
+                    break;
+                }
+                ringsIterator.remove();
+                if (listener != null) {
+                    listener.groupClosed(ruleRings.getKey(), ring.getKey());
+                }
+            }
+            if (ruleRings.getValue().isEmpty()) {
+                rulesIterator.remove();
+            }
+        }
+    }
+
+    private void notifyChanged(String ruleName, SlidingWindowDefinition slidingWindow, List<Object> groupKey, Ring ring) {
+        if (listener != null) {
+            Map<String, Object> controlData = slidingWindow.toControlData(groupKey, ring.getBucketCounts(), ring.getLastEventTime(), ring.isFired());
+            listener.groupChanged(ruleName, groupKey, controlData, ring.getLastEventTime(), slidingWindow.getWindowMillis());
+        }
+    }
+
+    static class Ring {
+        private final int[] counts;
+        private final long bucketMillis;
+        private long lastBucket;
+        private long lastEventTime;
+        private int total;
+        private boolean fired;
+
+        private Ring(int buckets, long bucketMillis, long now) {
+            this.counts = new int[buckets];
+            this.bucketMillis = bucketMillis;
+            this.lastBucket = now / bucketMillis;
+            this.lastEventTime = now;
+        }
+
+        // clears the buckets that slid out of the window since the last event, making the one of the given time the current one
+        private void slideTo(long now) {
+            long bucket = now / bucketMillis;
+            long elapsedBuckets = bucket - lastBucket;
+            if (elapsedBuckets <= 0) {
+                return;
+            }
+            if (elapsedBuckets >= counts.length) {
+                Arrays.fill(counts, 0);
+                total = 0;
+            } else {
+                for (long b = lastBucket + 1; b <= bucket; b++) {
+                    int index = indexOf(b);
+                    total -= counts[index];
+                    counts[index] = 0;
+                }
+            }
+            lastBucket = bucket;
+        }
+
+        private void increment(long now) {
+            counts[indexOf(lastBucket)]++;
+            total++;
+            lastEventTime = now;
+        }
+
+        private void restore(List<Number> bucketCounts, boolean fired) {
+            for (int i = 0; i < counts.length; i++) {
+                int count = bucketCounts.get(i).intValue();
+                counts[indexOf(lastBucket - counts.length + 1 + i)] = count;
+                total += count;
+            }
+            this.fired = fired;
+        }
+
+        private int indexOf(long bucket) {
+            return (int) Math.floorMod(bucket, (long) counts.length);
+        }
+
+        // from the oldest bucket to the current one
+        List<Integer> getBucketCounts() {
+            List<Integer> bucketCounts = new ArrayList<>(counts.length);
+            for (long b = lastBucket - counts.length + 1; b <= lastBucket; b++) {
+                bucketCounts.add(counts[indexOf(b)]);
+            }
+            return bucketCounts;
+        }
+
+        /**
+         * Returns the time when the current bucket slides out of the window, leaving all the buckets empty
+         */
+        long getExpirationTime() {
+            return (lastBucket + counts.length) * bucketMillis;
+        }
+
+        long getLastEventTime() {
+            return lastEventTime;
+        }
+
+        int getTotal() {
+            return total;
+        }
+
+        boolean isFired() {
+            return fired;
+        }
+
+        void setFired(boolean fired) {
+            this.fired = fired;
+        }
+    }
+}
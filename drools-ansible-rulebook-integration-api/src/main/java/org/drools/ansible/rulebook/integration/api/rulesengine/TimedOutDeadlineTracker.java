@@ -0,0 +1,137 @@
+package org.drools.ansible.rulebook.integration.api.rulesengine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.drools.ansible.rulebook.integration.api.domain.temporal.TimedOutDefinition;
+import org.drools.core.common.InternalFactHandle;
+
+/**
+ * Keeps, for each timed_out rule of a session evaluated with the NATIVE_TIMED_OUT option, the sequence of events
+ * in progress, i.e. which patterns of the rule have been matched by which events since the first of them, together
+ * with the deadline by which all the patterns have to be matched. The deadlines are kept in a priority queue, so the
+ * session can find the next one to be scheduled and the expired ones in logarithmic time. A sequence completed before
+ * its deadline is removed from the queue, which holds at most one sequence per timed_out rule, so its head is always
+ * the next deadline to be scheduled.
+ */
+class TimedOutDeadlineTracker {
+
+    private final Map<String, Sequence> sequencesByRule = new HashMap<>();
+
+    private final PriorityQueue<Sequence> deadlines = new PriorityQueue<>(Comparator.comparingLong(Sequence::getDeadline));
+
+    /**
+     * Registers the event matching the pattern with the given index of the given rule, starting a new sequence if there
+     * isn't one in progress. Returns the events of the sequence if this completes it, or an empty list otherwise.
+     */
+    List<InternalFactHandle> patternMatched(String ruleName, TimedOutDefinition timedOut, int patternIndex, String binding, InternalFactHandle event, long now) {
+        Sequence sequence = sequencesByRule.get(ruleName);
+        if (sequence == null) {
+            sequence = new Sequence(ruleName, timedOut, now + timedOut.getWindowMillis(), binding, event);
+            sequencesByRule.put(ruleName, sequence);
+            deadlines.add(sequence);
+        }
+        if (!sequence.match(patternIndex, event)) {
+            return Collections.emptyList();
+        }
+        sequencesByRule.remove(ruleName);
+        deadlines.remove(sequence);
+        return sequence.getEvents();
+    }
+
+    /**
+     * Removes and returns the sequences whose deadline has passed at the given time without being completed.
+     */
+    List<Sequence> expire(long now) {
+        List<Sequence> expired = new ArrayList<>();
+        Sequence head;
+        while ((head = deadlines.peek()) != null && head.getDeadline() < now) {
+            deadlines.poll();
+            sequencesByRule.remove(head.getRuleName());
+            expired.add(head);
+        }
+        return expired;
+    }
+
+    /**
+     * Returns the first time at which a sequence in progress expires, or -1 if there isn't any.
+     */
+    long getNextExpirationTime() {
+        Sequence head = deadlines.peek();
+        return head == null ? -1 : head.getDeadline() + 1;
+    }
+
+    /**
+     * Returns the deadline of the sequence in progress of each timed_out rule, sorted by deadline.
+     */
+    Map<String, Long> getDeadlinesByRule() {
+        Map<String, Long> deadlinesByRule = new LinkedHashMap<>();
+        deadlines.stream().sorted(deadlines.comparator())
+                .forEach(sequence -> deadlinesByRule.put(sequence.getRuleName(), sequence.getDeadline()));
+        return deadlinesByRule;
+    }
+
+    static class Sequence {
+        private final String ruleName;
+        private final TimedOutDefinition timedOut;
+        private final long deadline;
+        private final String firstBinding;
+        private final InternalFactHandle firstEvent;
+        private final InternalFactHandle[] matchedEvents;
+        private int matchedPatterns;
+
+        private Sequence(String ruleName, TimedOutDefinition timedOut, long deadline, String firstBinding, InternalFactHandle firstEvent) {
+            this.ruleName = ruleName;
+            this.timedOut = timedOut;
+            this.deadline = deadline;
+            this.firstBinding = firstBinding;
+            this.firstEvent = firstEvent;
+            this.matchedEvents = new InternalFactHandle[timedOut.getPatternsNumber()];
+        }
+
+        // returns true if all the patterns have been matched, an event matching an already matched pattern is ignored
+        private boolean match(int patternIndex, InternalFactHandle event) {
+            if (matchedEvents[patternIndex] == null) {
+                matchedEvents[patternIndex] = event;
+                matchedPatterns++;
+            }
+            return matchedPatterns == matchedEvents.length;
+        }
+
+        String getRuleName() {
+            return ruleName;
+        }
+
+        TimedOutDefinition getTimedOut() {
+            return timedOut;
+        }
+
+        long getDeadline() {
+            return deadline;
+        }
+
+        String getFirstBinding() {
+            return firstBinding;
+        }
+
+        InternalFactHandle getFirstEvent() {
+            return firstEvent;
+        }
+
+        List<InternalFactHandle> getEvents() {
+            List<InternalFactHandle> events = new ArrayList<>(matchedPatterns);
+            for (InternalFactHandle event : matchedEvents) {
+                if (event != null) {
+                    events.add(event);
+                }
+            }
+            return events;
+        }
+    }
+}
@@ -673,4 +673,86 @@ public class AccumulateWithinTest {
         List<Match> matchedRules = rulesExecutor.processEvents(payload).join();
         assertEquals(expectedFires, matchedRules.size());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testNativeAccumulateWithin() {
+        String json =
+                """
+                        {
+                           "rules":[
+                              {
+                                 "Rule":{
+                                    "condition":{
+                                       "AllCondition":[
+                                          {
+                                             "EqualsExpression":{
+                                                "lhs":{
+                                                   "Event":"sensu.process.type"
+                                                },
+                                                "rhs":{
+                                                   "String":"alert"
+                                                }
+                                             }
+                                          }
+                                       ]
+                                    },
+                                    "action":{
+                                       "assert_fact":{
+                                          "ruleset":"Test rules4",
+                                          "fact":{
+                                             "j":1
+                                          }
+                                       }
+                                    },
+                                    "throttle": {
+                                       "group_by_attributes": [
+                                          "event.sensu.host",
+                                          "event.sensu.process.type"
+                                       ],
+                                       "accumulate_within": "10 seconds",
+                                       "threshold": 3
+                                    }
+                                 }
+                              }
+                           ],
+                           "native_throttling": true
+                        }
+                        """;
+
+        RulesExecutor rulesExecutor = RulesExecutorFactory.createFromJson(RuleNotation.CoreNotation.INSTANCE.withOptions(RuleConfigurationOption.USE_PSEUDO_CLOCK), json);
+
+        for (int i = 0; i < 100; i++) {
+            List<Match> matchedRules = rulesExecutor.processEvents("{ \"sensu\": { \"process\": { \"type\":\"alert\" }, \"host\":\"h" + i + "\" } }").join();
+            assertEquals(0, matchedRules.size());
+        }
+        // the accumulated events are discarded and the counters are kept outside the working memory
+        assertThat(rulesExecutor.getAllFacts()).isEmpty();
+
+        // Advance time beyond window - should silently discard accumulated events
+        rulesExecutor.advanceTime(11, TimeUnit.SECONDS);
+
+        List<Match> matchedRules = rulesExecutor.processEvents("{ \"sensu\": { \"process\": { \"type\":\"alert\" }, \"host\":\"h1\" } }").join();
+        assertEquals(0, matchedRules.size());
+        matchedRules = rulesExecutor.processEvents("{ \"sensu\": { \"process\": { \"type\":\"alert\" }, \"host\":\"h1\" } }").join();
+        assertEquals(0, matchedRules.size());
+
+        // Third event in new window - threshold met, should fire
+        matchedRules = rulesExecutor.processEvents("{ \"sensu\": { \"process\": { \"type\":\"alert\" }, \"host\":\"h1\" }, \"sequence\": 3 }").join();
+        assertEquals(1, matchedRules.size());
+        assertThat(matchedRules.get(0).getDeclarationIds()).containsExactly("m");
+        PrototypeFactInstance fact = (PrototypeFactInstance) matchedRules.get(0).getDeclarationValue("m");
+        assertEquals(3, fact.asMap().get("sequence"));
+
+        // the accumulation starts again after the rule fired
+        matchedRules = rulesExecutor.processEvents("{ \"sensu\": { \"process\": { \"type\":\"alert\" }, \"host\":\"h1\" } }").join();
+        assertEquals(0, matchedRules.size());
+
+        SessionStats stats = rulesExecutor.getSessionStats();
+        assertEquals(1, stats.getEventsMatched());
+        assertEquals(104, stats.getEventsProcessed());
+        assertEquals(103, stats.getEventsSuppressed());
+        assertEquals(0, stats.getPermanentStorageCount());
+
+        rulesExecutor.dispose();
+    }
+}
@@ -0,0 +1,63 @@
+package org.drools.ansible.rulebook.integration.api;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.drools.ansible.rulebook.integration.api.rulesengine.SessionStats;
+import org.junit.jupiter.api.Test;
+import org.kie.api.runtime.rule.Match;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AutomaticPseudoClockTest {
+
+    private static final String JSON =
+            """
+            {
+               "rules":[
+                  {
+                     "Rule":{
+                        "condition":{
+                           "AllCondition":[
+                              {
+                                 "EqualsExpression":{
+                                    "lhs":{
+                                       "Event":"i"
+                                    },
+                                    "rhs":{
+                                       "Integer":2
+                                    }
+                                 }
+                              }
+                           ]
+                        },
+                        "enabled":true,
+                        "name":"r_0"
+                     }
+                  }
+               ]
+            }
+            """;
+
+    @Test
+    void testIdleSessionIsNotAdvanced() throws InterruptedException {
+        RulesExecutor rulesExecutor = RulesExecutorFactory.createFromJson(JSON);
+        try {
+            long start = System.currentTimeMillis();
+            Thread.sleep(1000);
+
+            // nothing is scheduled on the session, so the automatic clock has nothing to advance
+            assertThat(rulesExecutor.getSessionStats().getClockAdvanceCount()).isZero();
+
+            List<Match> matchedRules = rulesExecutor.processEvents("{ \"i\": 2 }").join();
+            assertThat(matchedRules).hasSize(1);
+
+            // the skipped time is caught up before the event insertion
+            SessionStats stats = rulesExecutor.getSessionStats();
+            assertThat(Instant.parse(stats.getLastClockTime()).toEpochMilli()).isGreaterThanOrEqualTo(start + 800);
+            assertThat(Instant.parse(stats.getLastEventReceivedAt()).toEpochMilli()).isGreaterThanOrEqualTo(start + 800);
+        } finally {
+            rulesExecutor.dispose();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package org.drools.ansible.rulebook.integration.api;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.drools.ansible.rulebook.integration.api.domain.temporal.TimeAmount;
+import org.drools.ansible.rulebook.integration.api.rulesengine.SessionStats;
+import org.drools.ansible.rulebook.integration.api.rulesmodel.RulesModelUtil;
+import org.junit.jupiter.api.Test;
+import org.kie.api.prototype.PrototypeFactInstance;
+import org.kie.api.runtime.rule.Match;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class DedupWithinTest {
+
+    private static final String JSON =
+            """
+                    {
+                       "rules":[
+                          {
+                             "Rule":{
+                                "condition":{
+                                   "AllCondition":[
+                                      {
+                                         "EqualsExpression":{
+                                            "lhs":{
+                                               "Event":"sensu.process.type"
+                                            },
+                                            "rhs":{
+                                               "String":"alert"
+                                            }
+                                         }
+                                      }
+                                   ]
+                                },
+                                "action":{
+                                   "assert_fact":{
+                                      "ruleset":"Test rules4",
+                                      "fact":{
+                                         "j":1
+                                      }
+                                   }
+                                },
+                                "throttle": {
+                                   "group_by_attributes": [
+                                      "event.sensu.host",
+                                      "event.sensu.process.type"
+                                   ],
+                                   "dedup_within": "10 minutes",
+                                   "false_positive_rate": 0.001,
+                                   "expected_keys": 10000
+                                }
+                             }
+                          }
+                       ]
+                    }
+                    """;
+
+    @Test
+    void testDedupWithin() {
+        RulesExecutor rulesExecutor = RulesExecutorFactory.createFromJson(RuleNotation.CoreNotation.INSTANCE.withOptions(RuleConfigurationOption.USE_PSEUDO_CLOCK), JSON);
+
+        List<Match> matchedRules = rulesExecutor.processEvents("{ \"sensu\": { \"process\": { \"type\":\"alert\" }, \"host\":\"h1\" } }").join();
+        assertEquals(1, matchedRules.size());
+
+        PrototypeFactInstance fact = (PrototypeFactInstance) matchedRules.get(0).getDeclarationValue("m");
+        Map ruleEngineMeta = (Map) ((Map) fact.asMap().get(RulesModelUtil.META_FIELD)).get(RulesModelUtil.RULE_ENGINE_META_FIELD);
+        assertEquals(new TimeAmount(10, TimeUnit.MINUTES).toString(), ruleEngineMeta.get("dedup_within_time_window"));
+
+        rulesExecutor.advanceTime(5, TimeUnit.MINUTES).join();
+        matchedRules = rulesExecutor.processEvents("{ \"sensu\": { \"process\": { \"type\":\"alert\" }, \"host\":\"h1\" } }").join();
+        assertEquals(0, matchedRules.size());
+
+        matchedRules = rulesExecutor.processEvents("{ \"sensu\": { \"process\": { \"type\":\"alert\" }, \"host\":\"h2\" } }").join();
+        assertEquals(1, matchedRules.size());
+
+        rulesExecutor.advanceTime(4, TimeUnit.MINUTES).join();
+        matchedRules = rulesExecutor.processEvents("{ \"sensu\": { \"process\": { \"type\":\"alert\" }, \"host\":\"h1\" } }").join();
+        assertEquals(0, matchedRules.size());
+
+        // the window of h1 is certainly over after a third more of it
+        rulesExecutor.advanceTime(5, TimeUnit.MINUTES).join();
+        matchedRules = rulesExecutor.processEvents("{ \"sensu\": { \"process\": { \"type\":\"alert\" }, \"host\":\"h1\" } }").join();
+        assertEquals(1, matchedRules.size());
+
+        // the duplicated events aren't retained by the session
+        assertThat(rulesExecutor.getAllFacts()).isEmpty();
+
+        SessionStats stats = rulesExecutor.getSessionStats();
+        assertEquals(3, stats.getEventsMatched());
+        assertEquals(5, stats.getEventsProcessed());
+        assertEquals(2, stats.getEventsSuppressed());
+
+        rulesExecutor.dispose();
+    }
+
+    @Test
+    void testDedupWithinManyDistinctKeys() {
+        RulesExecutor rulesExecutor = RulesExecutorFactory.createFromJson(RuleNotation.CoreNotation.INSTANCE.withOptions(RuleConfigurationOption.USE_PSEUDO_CLOCK), JSON);
+
+        int keys = 10000;
+        int matched = 0;
+        for (int i = 0; i < keys; i++) {
+            matched += rulesExecutor.processEvents("{ \"sensu\": { \"process\": { \"type\":\"alert\" }, \"host\":\"h" + i + "\" } }").join().size();
+        }
+        // a few distinct keys can be dropped because of false positives, but definitely not more than 1%
+        assertThat(matched).isGreaterThan(keys * 99 / 100);
+
+        // while all the duplicates are dropped
+        for (int i = 0; i < keys; i++) {
+            assertThat(rulesExecutor.processEvents("{ \"sensu\": { \"process\": { \"type\":\"alert\" }, \"host\":\"h" + i + "\" } }").join()).isEmpty();
+        }
+
+        rulesExecutor.dispose();
+    }
+}
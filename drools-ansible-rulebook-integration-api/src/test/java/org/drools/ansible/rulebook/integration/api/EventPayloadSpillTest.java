@@ -0,0 +1,247 @@
+package org.drools.ansible.rulebook.integration.api;
+
+import java.util.List;
+import java.util.Map;
+
+import org.drools.ansible.rulebook.integration.api.rulesengine.RuleEngineTestUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.kie.api.prototype.PrototypeFactInstance;
+import org.kie.api.runtime.rule.Match;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EventPayloadSpillTest {
+
+    private static final String JSON =
+            """
+            {
+               "rules":[
+                  {
+                     "Rule":{
+                        "condition":{
+                           "AllCondition":[
+                              {
+                                 "EqualsExpression":{
+                                    "lhs":{
+                                       "Event":"i"
+                                    },
+                                    "rhs":{
+                                       "Integer":2
+                                    }
+                                 }
+                              },
+                              {
+                                 "EqualsExpression":{
+                                    "lhs":{
+                                       "Event":"j"
+                                    },
+                                    "rhs":{
+                                       "Event":"m_0.i"
+                                    }
+                                 }
+                              }
+                           ]
+                        },
+                        "enabled":true,
+                        "name":"r_0"
+                     }
+                  }
+               ]
+            }
+            """;
+
+    private static final String MATCH_MULTIPLE_RULES_JSON =
+            """
+            {
+               "match_multiple_rules":true,
+               "rules":[
+                  {
+                     "Rule":{
+                        "condition":{
+                           "AllCondition":[
+                              {
+                                 "EqualsExpression":{
+                                    "lhs":{
+                                       "Event":"i"
+                                    },
+                                    "rhs":{
+                                       "Integer":2
+                                    }
+                                 }
+                              },
+                              {
+                                 "EqualsExpression":{
+                                    "lhs":{
+                                       "Event":"j"
+                                    },
+                                    "rhs":{
+                                       "Event":"m_0.i"
+                                    }
+                                 }
+                              }
+                           ]
+                        },
+                        "enabled":true,
+                        "name":"r_0"
+                     }
+                  },
+                  {
+                     "Rule":{
+                        "condition":{
+                           "AllCondition":[
+                              {
+                                 "EqualsExpression":{
+                                    "lhs":{
+                                       "Event":"j"
+                                    },
+                                    "rhs":{
+                                       "Integer":2
+                                    }
+                                 }
+                              }
+                           ]
+                        },
+                        "enabled":true,
+                        "name":"r_1"
+                     }
+                  }
+               ]
+            }
+            """;
+
+    private static final String TIME_WINDOW_JSON =
+            """
+            {
+               "rules":[
+                  {
+                     "Rule":{
+                        "condition":{
+                           "AllCondition":[
+                              {
+                                 "EqualsExpression":{
+                                    "lhs":{
+                                       "Event":"i"
+                                    },
+                                    "rhs":{
+                                       "Integer":2
+                                    }
+                                 }
+                              },
+                              {
+                                 "EqualsExpression":{
+                                    "lhs":{
+                                       "Event":"j"
+                                    },
+                                    "rhs":{
+                                       "Event":"m_0.i"
+                                    }
+                                 }
+                              }
+                           ],
+                           "timeout":"50 milliseconds"
+                        },
+                        "enabled":true,
+                        "name":"r_0"
+                     }
+                  }
+               ]
+            }
+            """;
+
+    private static final String PAYLOAD = "x".repeat(1000);
+
+    @BeforeEach
+    void setUp() {
+        RuleEngineTestUtils.setEventsSpill(true, 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        RuleEngineTestUtils.setEventsSpill(false, 4096);
+    }
+
+    @Test
+    void testPendingEventIsSpilledAndRehydratedOnMatch() {
+        RulesExecutor rulesExecutor = RulesExecutorFactory.createFromJson(JSON);
+
+        rulesExecutor.processEvents("{ \"j\": 2, \"payload\": \"" + PAYLOAD + "\" }").join();
+
+        // the field not referenced by the rules is kept off-heap
+        Map<String, Object> onHeap = ((PrototypeFactInstance) rulesExecutor.getAllFacts().iterator().next()).asMap();
+        assertThat(onHeap).containsEntry("j", 2).doesNotContainKey("payload");
+        assertThat(rulesExecutor.getAllFactsAsMap().get(0)).containsEntry("j", 2).containsEntry("payload", PAYLOAD);
+
+        List<Match> matchedRules = rulesExecutor.processEvents("{ \"i\": 2 }").join();
+        assertThat(matchedRules).hasSize(1);
+        PrototypeFactInstance matchedEvent = (PrototypeFactInstance) matchedRules.get(0).getDeclarationValue("m_1");
+        assertThat(matchedEvent.asMap()).containsEntry("j", 2).containsEntry("payload", PAYLOAD);
+
+        rulesExecutor.dispose();
+    }
+
+    @Test
+    void testSmallPayloadIsNotSpilled() {
+        RulesExecutor rulesExecutor = RulesExecutorFactory.createFromJson(JSON);
+
+        rulesExecutor.processEvents("{ \"j\": 2, \"payload\": \"small\" }").join();
+
+        Map<String, Object> onHeap = ((PrototypeFactInstance) rulesExecutor.getAllFacts().iterator().next()).asMap();
+        assertThat(onHeap).containsEntry("payload", "small");
+
+        rulesExecutor.dispose();
+    }
+
+    @Test
+    void testRetractSpilledEvent() {
+        RulesExecutor rulesExecutor = RulesExecutorFactory.createFromJson(JSON);
+
+        rulesExecutor.processEvents("{ \"j\": 3, \"payload\": \"" + PAYLOAD + "\" }").join();
+
+        List<Match> matchedRules = rulesExecutor.processRetractMatchingFacts("{ \"j\": 3, \"payload\": \"" + PAYLOAD + "\" }", false).join();
+        assertThat(rulesExecutor.getAllFacts()).isEmpty();
+        assertThat(matchedRules).allSatisfy(match -> assertThat((Map<String, Object>) match.getDeclarationValue("m")).containsEntry("payload", PAYLOAD));
+
+        rulesExecutor.dispose();
+    }
+
+    @Test
+    void testEventReturnedInMatchIsNotSpilled() {
+        RulesExecutor rulesExecutor = RulesExecutorFactory.createFromJson(MATCH_MULTIPLE_RULES_JSON);
+
+        // the event matches r_1 and stays in the working memory waiting to complete r_0
+        List<Match> matchedRules = rulesExecutor.processEvents("{ \"j\": 2, \"payload\": \"" + PAYLOAD + "\" }").join();
+        assertThat(matchedRules).hasSize(1);
+        PrototypeFactInstance matchedEvent = (PrototypeFactInstance) matchedRules.get(0).getDeclarationValue("m");
+        assertThat(matchedEvent.asMap()).containsEntry("j", 2).containsEntry("payload", PAYLOAD);
+
+        Map<String, Object> onHeap = ((PrototypeFactInstance) rulesExecutor.getAllFacts().iterator().next()).asMap();
+        assertThat(onHeap).containsEntry("payload", PAYLOAD);
+
+        rulesExecutor.dispose();
+    }
+
+    @Test
+    void testSpillConcurrentWithAutomaticClock() throws InterruptedException {
+        RulesExecutor rulesExecutor = RulesExecutorFactory.createFromJson(TIME_WINDOW_JSON);
+        try {
+            // the pending events are spilled while the automatic clock expires the former ones out of the time window
+            long end = System.currentTimeMillis() + 1000;
+            int completed = 0;
+            while (System.currentTimeMillis() < end) {
+                rulesExecutor.processEvents("{ \"j\": 2, \"payload\": \"" + PAYLOAD + "\" }").join();
+                if (completed % 10 == 0) {
+                    Thread.sleep(10);
+                }
+                List<Match> matchedRules = rulesExecutor.processEvents("{ \"i\": 2 }").join();
+                assertThat(matchedRules).allSatisfy(match -> assertThat(((PrototypeFactInstance) match.getDeclarationValue("m_1")).asMap())
+                        .containsEntry("j", 2).containsEntry("payload", PAYLOAD));
+                completed++;
+            }
+            assertThat(completed).isPositive();
+        } finally {
+            rulesExecutor.dispose();
+        }
+    }
+}
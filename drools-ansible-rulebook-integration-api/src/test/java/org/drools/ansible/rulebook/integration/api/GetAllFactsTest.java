@@ -1,11 +1,22 @@
 package org.drools.ansible.rulebook.integration.api;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
+import org.drools.ansible.rulebook.integration.api.io.JsonMapper;
+import org.drools.ansible.rulebook.integration.api.rulesengine.FactsCursor;
+import org.drools.ansible.rulebook.integration.api.rulesengine.FactsPage;
 import org.junit.jupiter.api.Test;
 import org.kie.api.runtime.rule.Match;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class GetAllFactsTest {
 
@@ -122,4 +133,82 @@ public class GetAllFactsTest {
 
         rulesExecutor.dispose();
     }
+
+    @Test
+    void testFactsPages() {
+        String json =
+                """
+                {
+                    "rules": [
+                        {
+                            "Rule": {
+                                "name": "r1",
+                                "condition": {
+                                    "AllCondition": [
+                                        {
+                                            "EqualsExpression": {
+                                                "lhs": {
+                                                    "Fact": "id"
+                                                },
+                                                "rhs": {
+                                                    "Integer": -1
+                                                }
+                                            }
+                                        }
+                                    ]
+                                },
+                                "enabled": true
+                            }
+                        }
+                    ]
+                }
+                """;
+
+        RulesExecutor rulesExecutor = RulesExecutorFactory.createFromJson(json);
+        for (int i = 0; i < 25; i++) {
+            rulesExecutor.processFacts("{ \"id\": " + i + ", \"meta\": { \"host\": \"h" + (i % 2) + "\" } }").join();
+        }
+
+        List<Object> ids = new ArrayList<>();
+        String continuationToken = null;
+        int pages = 0;
+        do {
+            FactsPage page = rulesExecutor.getFactsPage(continuationToken, 10, null);
+            assertTrue(page.getFacts().size() <= 10);
+            page.getFacts().forEach(fact -> ids.add(fact.get("id")));
+            continuationToken = page.getContinuationToken();
+            pages++;
+        } while (continuationToken != null);
+        assertEquals(3, pages);
+        assertEquals(IntStream.range(0, 25).boxed().collect(Collectors.toList()), ids);
+
+        FactsPage filtered = rulesExecutor.getFactsPage(null, 100, Map.of("meta.host", "h1"));
+        assertEquals(12, filtered.getFacts().size());
+        assertNull(filtered.getContinuationToken());
+        assertEquals(0, rulesExecutor.getFactsPage(null, 100, Map.of("meta.rack", "r1")).getFacts().size());
+
+        FactsCursor cursor = rulesExecutor.openFactsCursor(Map.of("meta.host", "h0"));
+        assertEquals(List.of(0, 2, 4, 6, 8), cursor.nextPage(5).stream().map(fact -> fact.get("id")).collect(Collectors.toList()));
+        // facts deleted while the cursor is open are skipped, the ones inserted aren't read
+        rulesExecutor.processRetractMatchingFacts("{ \"id\": 10, \"meta\": { \"host\": \"h0\" } }", false).join();
+        rulesExecutor.processFacts("{ \"id\": 26, \"meta\": { \"host\": \"h0\" } }").join();
+        List<Object> cursorIds = new ArrayList<>();
+        while (cursor.hasNext()) {
+            cursor.nextPage(5).forEach(fact -> cursorIds.add(fact.get("id")));
+        }
+        assertEquals(List.of(12, 14, 16, 18, 20, 22, 24), cursorIds);
+
+        // the facts of a page are copies, not affected by the updates made after it has been read
+        Map<String, Object> fact = rulesExecutor.getFactsPage(null, 1, null).getFacts().get(0);
+        rulesExecutor.processUpdateMatchingFacts("{ \"id\": 0 }", "{ \"rack\": \"r0\" }").join();
+        assertNull(fact.get("rack"));
+        assertEquals("r0", rulesExecutor.getFactsPage(null, 1, null).getFacts().get(0).get("rack"));
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        rulesExecutor.writeAllFactsAsJson(outputStream, null);
+        assertEquals(rulesExecutor.getAllFactsAsJson().length(), outputStream.size());
+        assertEquals(25, JsonMapper.readValueAsListOfMapOfStringAndObject(outputStream.toString(StandardCharsets.UTF_8)).size());
+
+        rulesExecutor.dispose();
+    }
 }
@@ -0,0 +1,80 @@
+package org.drools.ansible.rulebook.integration.api;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.kie.api.runtime.rule.Match;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class KieBaseCacheTest {
+
+    private static final String JSON =
+            """
+            {
+               "name":"cached",
+               "rules":[
+                  {
+                     "Rule":{
+                        "condition":{
+                           "AllCondition":[
+                              {
+                                 "EqualsExpression":{
+                                    "lhs":{
+                                       "Event":"i"
+                                    },
+                                    "rhs":{
+                                       "Integer":3
+                                    }
+                                 }
+                              }
+                           ]
+                        },
+                        "action":{
+                           "assert_fact":{
+                              "ruleset":"cached",
+                              "fact":{
+                                 "j":1
+                              }
+                           }
+                        },
+                        "enabled":true,
+                        "name":"r_0"
+                     }
+                  }
+               ]
+            }
+            """;
+
+    @Test
+    void testIdenticalRulesetsShareKieBase() {
+        int initialSize = KieBaseCache.get().size();
+
+        RulesExecutor rulesExecutor1 = RulesExecutorFactory.createFromJson(JSON);
+        RulesExecutor rulesExecutor2 = RulesExecutorFactory.createFromJson(JSON);
+        RulesExecutor rulesExecutor3 = RulesExecutorFactory.createFromJson(RuleNotation.CoreNotation.INSTANCE.withOptions(RuleConfigurationOption.FULLY_MANUAL_PSEUDOCLOCK), JSON);
+
+        assertThat(rulesExecutor1.asKieSession().getKieBase()).isSameAs(rulesExecutor2.asKieSession().getKieBase());
+        assertThat(rulesExecutor1.asKieSession()).isNotSameAs(rulesExecutor2.asKieSession());
+        // different options require a different KieBase
+        assertThat(rulesExecutor1.asKieSession().getKieBase()).isNotSameAs(rulesExecutor3.asKieSession().getKieBase());
+        assertThat(KieBaseCache.get().size()).isEqualTo(initialSize + 2);
+
+        // sessions sharing the same KieBase are independent
+        List<Match> matchedRules = rulesExecutor1.processEvents("{ \"i\": 3 }").join();
+        assertThat(matchedRules).hasSize(1);
+        assertThat(rulesExecutor1.getAllFacts()).isEmpty();
+        assertThat(rulesExecutor2.getAllFacts()).isEmpty();
+        assertThat(rulesExecutor2.executeFacts("{ \"i\": 3 }").join()).isEqualTo(1);
+        assertThat(rulesExecutor2.getAllFacts()).hasSize(2);
+        assertThat(rulesExecutor1.getAllFacts()).isEmpty();
+        assertThat(rulesExecutor1.getSessionStats().getNumberOfRules()).isEqualTo(1);
+        assertThat(rulesExecutor2.getSessionStats().getNumberOfRules()).isEqualTo(1);
+
+        rulesExecutor1.dispose();
+        assertThat(KieBaseCache.get().size()).isEqualTo(initialSize + 2);
+        rulesExecutor2.dispose();
+        rulesExecutor3.dispose();
+        assertThat(KieBaseCache.get().size()).isEqualTo(initialSize);
+    }
+}
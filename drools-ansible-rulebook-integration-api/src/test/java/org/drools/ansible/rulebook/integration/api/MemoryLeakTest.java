@@ -151,6 +151,83 @@ public class MemoryLeakTest {
         }
     }
 
+    public static final String JSON_JOIN_TTL =
+            """
+                    {
+                        "rules": [
+                                {
+                                    "Rule": {
+                                        "condition": {
+                                            "AllCondition": [
+                                                {
+                                                    "EqualsExpression": {
+                                                        "lhs": {
+                                                            "Event": "i"
+                                                        },
+                                                        "rhs": {
+                                                            "Integer": 1
+                                                        }
+                                                    }
+                                                },
+                                                {
+                                                    "EqualsExpression": {
+                                                        "lhs": {
+                                                            "Event": "j"
+                                                        },
+                                                        "rhs": {
+                                                            "Event": "m_0.i"
+                                                        }
+                                                    }
+                                                }
+                                            ]
+                                        },
+                                        "enabled": true,
+                                        "name": null
+                                    }
+                                }
+                            ],
+                        "default_events_ttl" : "50000 seconds"
+                    }
+                    """;
+
+    @Test
+    @Timeout(120)
+    public void testMemoryLeakWithCancelledExpirationJobs() {
+        // each pair of events waits in the working memory and is then consumed by the match, cancelling its expiration jobs
+        RulesExecutor rulesExecutor = RulesExecutorFactory.createFromJson(JSON_JOIN_TTL);
+        String payload = "x".repeat(1000);
+        System.gc();
+        long baseMemory = rulesExecutor.getSessionStats().getUsedMemory();
+        System.out.println("BaseMemory = " + baseMemory);
+        try {
+            for (int i = 0; i < 100000; i++) {
+                List<Match> matches = rulesExecutor.processEvents("{\"j\":1, \"payload\":\"" + payload + "\"}").join();
+                assertThat(matches).isEmpty();
+                matches = rulesExecutor.processEvents("{\"i\":1, \"payload\":\"" + payload + "\"}").join();
+                assertThat(matches).hasSize(1);
+
+                if (i % 5000 == 0) {
+                    System.gc();
+                    System.out.println("  UsedMemory = " + rulesExecutor.getSessionStats().getUsedMemory());
+                    try {
+                        Thread.sleep(100);
+                    } catch (InterruptedException e) {
+                        // ignore
+                    }
+                }
+            }
+
+            // Allow some memory for the processing overhead
+            // The acceptableMemoryOverhead may not be a critical threshold. If the test fails, you may consider increasing it unless it's not a memory leak.
+            long acceptableMemoryOverhead = 10 * 1000 * 1024; // 10 MB
+            System.gc();
+            long usedMemory = rulesExecutor.getSessionStats().getUsedMemory();
+            assertThat(usedMemory).isLessThan(baseMemory + acceptableMemoryOverhead);
+        } finally {
+            rulesExecutor.dispose();
+        }
+    }
+
     public static final String JSON_ACCUMULATE_WITHIN =
             """
                     {
@@ -0,0 +1,145 @@
+package org.drools.ansible.rulebook.integration.api;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.Test;
+import org.kie.api.runtime.rule.Match;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MicroBatchingTest {
+
+    private static final String SINGLE_PATTERN_JSON =
+            """
+            {
+               "rules":[
+                  {
+                     "Rule":{
+                        "condition":{
+                           "AllCondition":[
+                              {
+                                 "EqualsExpression":{
+                                    "lhs":{
+                                       "Event":"i"
+                                    },
+                                    "rhs":{
+                                       "Integer":2
+                                    }
+                                 }
+                              }
+                           ]
+                        },
+                        "enabled":true,
+                        "name":"r_0"
+                     }
+                  },
+                  {
+                     "Rule":{
+                        "condition":{
+                           "AllCondition":[
+                              {
+                                 "GreaterThanExpression":{
+                                    "lhs":{
+                                       "Event":"i"
+                                    },
+                                    "rhs":{
+                                       "Integer":2
+                                    }
+                                 }
+                              }
+                           ]
+                        },
+                        "enabled":true,
+                        "name":"r_1"
+                     }
+                  }
+               ]
+            }
+            """;
+
+    private static final String JOIN_JSON =
+            """
+            {
+               "rules":[
+                  {
+                     "Rule":{
+                        "condition":{
+                           "AllCondition":[
+                              {
+                                 "EqualsExpression":{
+                                    "lhs":{
+                                       "Event":"i"
+                                    },
+                                    "rhs":{
+                                       "Integer":1
+                                    }
+                                 }
+                              },
+                              {
+                                 "EqualsExpression":{
+                                    "lhs":{
+                                       "Event":"j"
+                                    },
+                                    "rhs":{
+                                       "Integer":2
+                                    }
+                                 }
+                              }
+                           ]
+                        },
+                        "enabled":true,
+                        "name":"r_0"
+                     }
+                  }
+               ]
+            }
+            """;
+
+    @Test
+    void testConcurrentEventsWithSinglePatternRules() {
+        RulesExecutor rulesExecutor = RulesExecutorFactory.createFromJson(RuleNotation.CoreNotation.INSTANCE.withOptions(RuleConfigurationOption.MICRO_BATCHING), SINGLE_PATTERN_JSON);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<CompletableFuture<List<Match>>> results = new ArrayList<>();
+            for (int n = 0; n < 600; n++) {
+                int i = n % 3 + 1;
+                results.add(CompletableFuture.supplyAsync(() -> rulesExecutor.processEvents("{ \"i\": " + i + " }").join(), executor));
+            }
+
+            for (int n = 0; n < results.size(); n++) {
+                List<Match> matchedRules = results.get(n).join();
+                switch (n % 3 + 1) {
+                    case 1 -> assertThat(matchedRules).isEmpty();
+                    case 2 -> assertThat(matchedRules).singleElement().extracting(m -> m.getRule().getName()).isEqualTo("r_0");
+                    case 3 -> assertThat(matchedRules).singleElement().extracting(m -> m.getRule().getName()).isEqualTo("r_1");
+                }
+            }
+
+            // matched events are consumed and unmatched ones are immediately discarded
+            assertThat(rulesExecutor.getAllFacts()).isEmpty();
+            assertThat(rulesExecutor.getSessionStats().getRulesTriggered()).isEqualTo(400);
+        } finally {
+            executor.shutdownNow();
+            rulesExecutor.dispose();
+        }
+    }
+
+    @Test
+    void testJoinIsEvaluatedEventByEvent() {
+        RulesExecutor rulesExecutor = RulesExecutorFactory.createFromJson(RuleNotation.CoreNotation.INSTANCE.withOptions(RuleConfigurationOption.MICRO_BATCHING), JOIN_JSON);
+        try {
+            List<Match> matchedRules = rulesExecutor.processEvents("{ \"i\": 1 }").join();
+            assertThat(matchedRules).isEmpty();
+
+            matchedRules = rulesExecutor.processEvents("{ \"j\": 2 }").join();
+            assertThat(matchedRules).hasSize(1);
+            assertThat(matchedRules.get(0).getFactHandles()).hasSize(2);
+        } finally {
+            rulesExecutor.dispose();
+        }
+    }
+}
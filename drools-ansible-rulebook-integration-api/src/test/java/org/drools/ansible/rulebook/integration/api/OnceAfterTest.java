@@ -15,6 +15,7 @@ import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -77,7 +78,12 @@ public class OnceAfterTest {
                 }
                 """;
 
-        RulesExecutor rulesExecutor = RulesExecutorFactory.createFromJson(RuleNotation.CoreNotation.INSTANCE.withOptions(RuleConfigurationOption.USE_PSEUDO_CLOCK), json);
+        onceAfterWithOrTest(json, false);
+        onceAfterWithOrTest(json, true);
+    }
+
+    private void onceAfterWithOrTest(String json, boolean nativeThrottling) {
+        RulesExecutor rulesExecutor = RulesExecutorFactory.createFromJson(createNotation(nativeThrottling), json);
 
         List<Match> matchedRules = rulesExecutor.processEvents("{ \"meta\": { \"hosts\":\"h1\" }, \"alert\": { \"level\":\"error\" } }").join();
         assertEquals(0, matchedRules.size());
@@ -154,6 +160,223 @@ public class OnceAfterTest {
         rulesExecutor.dispose();
     }
 
+    @Test
+    void testOnceAfterAggregation() {
+        String json =
+                """
+                {
+                    "rules": [
+                        {
+                            "Rule": {
+                                "name": "r1",
+                                "condition": {
+                                    "AllCondition": [
+                                        {
+                                            "EqualsExpression": {
+                                                "lhs": {
+                                                    "Event": "alert.level"
+                                                },
+                                                "rhs": {
+                                                    "String": "error"
+                                                }
+                                            }
+                                        }
+                                    ]
+                                },
+                                "action": {
+                                    "Action": {
+                                        "action": "print_event",
+                                        "action_args": {}
+                                    }
+                                },
+                                "enabled": true,
+                                "throttle": {
+                                    "group_by_attributes": [
+                                        "event.meta.hosts"
+                                    ],
+                                    "once_after": "10 seconds",
+                                    "sample_size": 2
+                                }
+                            }
+                        }
+                    ]
+                }
+                """;
+
+        onceAfterAggregationTest(json, false);
+        onceAfterAggregationTest(json, true);
+    }
+
+    private void onceAfterAggregationTest(String json, boolean nativeThrottling) {
+        RulesExecutor rulesExecutor = RulesExecutorFactory.createFromJson(createNotation(nativeThrottling), json);
+
+        for (int i = 0; i < 3; i++) {
+            List<Match> matchedRules = rulesExecutor.processEvents("{ \"meta\": { \"hosts\":\"h1\" }, \"alert\": { \"level\":\"error\", \"i\":" + i + " } }").join();
+            assertEquals(0, matchedRules.size());
+            matchedRules = rulesExecutor.advanceTime(2, TimeUnit.SECONDS).join();
+            assertEquals(0, matchedRules.size());
+        }
+
+        List<Match> matchedRules = rulesExecutor.processEvents("{ \"meta\": { \"hosts\":\"h2\" }, \"alert\": { \"level\":\"error\", \"i\":3 } }").join();
+        assertEquals(0, matchedRules.size());
+
+        matchedRules = rulesExecutor.advanceTime(5, TimeUnit.SECONDS).join();
+        assertEquals(1, matchedRules.size());
+        assertThat(matchedRules.get(0).getDeclarationIds()).containsExactlyInAnyOrder("m_0", "m_1");
+
+        Map<String, Map> ruleEngineMetaByHost = new HashMap<>();
+        for (int i = 0; i < 2; i++) {
+            PrototypeFactInstance fact = (PrototypeFactInstance) matchedRules.get(0).getDeclarationValue("m_" + i);
+            // the summary event only carries the group, not the content of the grouped events
+            assertThat(evalAgainstFact(fact, "alert")).isNull();
+            Map ruleEngineMeta = (Map) ((Map) fact.asMap().get(RulesModelUtil.META_FIELD)).get(RulesModelUtil.RULE_ENGINE_META_FIELD);
+            assertEquals( new TimeAmount(10, TimeUnit.SECONDS).toString(), ruleEngineMeta.get("once_after_time_window") );
+            ruleEngineMetaByHost.put(evalAgainstFact(fact, "meta.hosts").toString(), ruleEngineMeta);
+        }
+
+        Map h1Meta = ruleEngineMetaByHost.get("h1");
+        assertEquals( 3, h1Meta.get("events_in_window") );
+        assertEquals( 4000L, (long) h1Meta.get("last_event_time") - (long) h1Meta.get("first_event_time") );
+        List<Map> h1Sample = (List<Map>) h1Meta.get("events_sample");
+        assertThat(h1Sample).hasSize(2);
+        assertEquals( 0, ((Map) h1Sample.get(0).get("alert")).get("i") );
+        assertEquals( 1, ((Map) h1Sample.get(1).get("alert")).get("i") );
+
+        Map h2Meta = ruleEngineMetaByHost.get("h2");
+        assertEquals( 1, h2Meta.get("events_in_window") );
+        assertEquals( h2Meta.get("first_event_time"), h2Meta.get("last_event_time") );
+        assertThat((List) h2Meta.get("events_sample")).hasSize(1);
+
+        SessionStats stats = rulesExecutor.getSessionStats();
+        assertEquals(4, stats.getEventsProcessed());
+        assertEquals(0, stats.getPermanentStorageCount());
+
+        rulesExecutor.dispose();
+    }
+
+    @Test
+    void testSampleSizeIsOnlySupportedByOnceAfter() {
+        String onceWithin = """
+                "once_within": "10 seconds",
+                "sample_size": 2
+                """;
+        assertInvalidThrottle(ruleWithThrottle(onceWithin), "sample_size is only supported by once_after");
+        assertInvalidThrottle(ruleWithConditionThrottle(onceWithin), "sample_size is only supported by once_after");
+
+        String accumulateWithin = """
+                "accumulate_within": "10 seconds",
+                "threshold": 3,
+                "sample_size": 2
+                """;
+        assertInvalidThrottle(ruleWithThrottle(accumulateWithin), "sample_size is only supported by once_after");
+        assertInvalidThrottle(ruleWithConditionThrottle(accumulateWithin), "sample_size is only supported by once_after");
+    }
+
+    @Test
+    void testSampleSizeMustBeAnIntegerNumber() {
+        for (String sampleSize : List.of("\"2\"", "2.5")) {
+            String onceAfter = """
+                    "once_after": "10 seconds",
+                    "sample_size": %s
+                    """.formatted(sampleSize);
+            assertInvalidThrottle(ruleWithThrottle(onceAfter), "sample_size must be an integer number");
+            assertInvalidThrottle(ruleWithConditionThrottle(onceAfter), "sample_size must be an integer number");
+        }
+    }
+
+    private static void assertInvalidThrottle(String json, String expectedMessage) {
+        assertThatThrownBy(() -> RulesExecutorFactory.createFromJson(RuleNotation.CoreNotation.INSTANCE.withOptions(RuleConfigurationOption.USE_PSEUDO_CLOCK), json))
+                .hasStackTraceContaining(expectedMessage);
+    }
+
+    private static String ruleWithThrottle(String throttleAttributes) {
+        return """
+                {
+                    "rules": [
+                        {
+                            "Rule": {
+                                "name": "r1",
+                                "condition": {
+                                    "AllCondition": [
+                                        {
+                                            "EqualsExpression": {
+                                                "lhs": {
+                                                    "Event": "alert.level"
+                                                },
+                                                "rhs": {
+                                                    "String": "error"
+                                                }
+                                            }
+                                        }
+                                    ]
+                                },
+                                "action": {
+                                    "Action": {
+                                        "action": "print_event",
+                                        "action_args": {}
+                                    }
+                                },
+                                "enabled": true,
+                                "throttle": {
+                                    "group_by_attributes": [
+                                        "event.meta.hosts"
+                                    ],
+                                    %s
+                                }
+                            }
+                        }
+                    ]
+                }
+                """.formatted(throttleAttributes);
+    }
+
+    private static String ruleWithConditionThrottle(String throttleAttributes) {
+        return """
+                {
+                    "rules": [
+                        {
+                            "Rule": {
+                                "name": "r1",
+                                "condition": {
+                                    "AllCondition": [
+                                        {
+                                            "EqualsExpression": {
+                                                "lhs": {
+                                                    "Event": "alert.level"
+                                                },
+                                                "rhs": {
+                                                    "String": "error"
+                                                }
+                                            }
+                                        }
+                                    ],
+                                    "throttle": {
+                                        "group_by_attributes": [
+                                            "event.meta.hosts"
+                                        ],
+                                        %s
+                                    }
+                                },
+                                "action": {
+                                    "Action": {
+                                        "action": "print_event",
+                                        "action_args": {}
+                                    }
+                                },
+                                "enabled": true
+                            }
+                        }
+                    ]
+                }
+                """.formatted(throttleAttributes);
+    }
+
+    private static RuleNotation createNotation(boolean nativeThrottling) {
+        return nativeThrottling ?
+                RuleNotation.CoreNotation.INSTANCE.withOptions(RuleConfigurationOption.USE_PSEUDO_CLOCK, RuleConfigurationOption.NATIVE_THROTTLING) :
+                RuleNotation.CoreNotation.INSTANCE.withOptions(RuleConfigurationOption.USE_PSEUDO_CLOCK);
+    }
+
     private static Object evalAgainstFact(PrototypeFactInstance fact, String expr) {
         return ExtractorUtils.getValueFrom(ExtractorParser.parse(expr), fact.asMap());
     }
@@ -66,7 +66,8 @@ public class OnceWithinTest {
                 }
                 """;
 
-        onceWithinTest(json);
+        onceWithinTest(json, false);
+        onceWithinTest(json, true);
     }
 
     @Test
@@ -119,11 +120,15 @@ public class OnceWithinTest {
                 }
                 """;
 
-        onceWithinTest(json);
+        onceWithinTest(json, false);
+        onceWithinTest(json, true);
     }
 
-    private void onceWithinTest(String json) {
-        RulesExecutor rulesExecutor = RulesExecutorFactory.createFromJson(RuleNotation.CoreNotation.INSTANCE.withOptions(RuleConfigurationOption.USE_PSEUDO_CLOCK), json);
+    private void onceWithinTest(String json, boolean nativeThrottling) {
+        RuleNotation notation = nativeThrottling ?
+                RuleNotation.CoreNotation.INSTANCE.withOptions(RuleConfigurationOption.USE_PSEUDO_CLOCK, RuleConfigurationOption.NATIVE_THROTTLING) :
+                RuleNotation.CoreNotation.INSTANCE.withOptions(RuleConfigurationOption.USE_PSEUDO_CLOCK);
+        RulesExecutor rulesExecutor = RulesExecutorFactory.createFromJson(notation, json);
         List<Match> matchedRules = rulesExecutor.processEvents("{ \"sensu\": { \"process\": { \"type\":\"alert\" }, \"host\":\"h1\" } }").join();
         assertEquals(1, matchedRules.size());
 
@@ -158,7 +163,8 @@ public class OnceWithinTest {
         assertEquals(3, stats.getEventsMatched());
         assertEquals(5, stats.getEventsProcessed());
         assertEquals(2, stats.getEventsSuppressed());
-        assertEquals(2, stats.getPermanentStorageCount()); // 2 control events still exist
+        // 2 control events still exist, unless the groups are throttled natively by the session
+        assertEquals(nativeThrottling ? 0 : 2, stats.getPermanentStorageCount());
 
         rulesExecutor.advanceTime(20, TimeUnit.SECONDS);
         stats = rulesExecutor.getSessionStats();
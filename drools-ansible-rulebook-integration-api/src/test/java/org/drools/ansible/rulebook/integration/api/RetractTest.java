@@ -248,4 +248,70 @@ public class RetractTest {
 
         rulesExecutor.dispose();
     }
+
+    @Test
+    void testRetractAmongManyFacts() {
+        String JSON1 =
+                """
+                {
+                           "rules": [
+                            {
+                                "Rule": {
+                                    "condition": {
+                                        "AllCondition": [
+                                            {
+                                                "EqualsExpression": {
+                                                    "lhs": {
+                                                        "Fact": "status"
+                                                    },
+                                                    "rhs": {
+                                                        "String": "never"
+                                                    }
+                                                }
+                                            }
+                                        ]
+                                    },
+                                    "enabled": true,
+                                    "name": null
+                                }
+                            }
+                        ]
+                }
+                """;
+
+        RulesExecutor rulesExecutor = RulesExecutorFactory.createFromJson(JSON1);
+
+        for (int i = 0; i < 1000; i++) {
+            rulesExecutor.processFacts( "{ \"id\" : " + i + ", \"status\" : \"" + (i % 2 == 0 ? "up" : "down") + "\", \"tags\" : { \"n\" : " + i + " } }" ).join();
+        }
+        rulesExecutor.processFacts( "{ \"status\" : \"up\" }" ).join();
+        assertEquals( 1001, rulesExecutor.getAllFacts().size() );
+
+        // exact match, the fact having only some of the retracted fields is retracted as well
+        rulesExecutor.processRetractMatchingFacts( "{ \"id\" : 10, \"status\" : \"up\", \"tags\" : { \"n\" : 10 } }", false ).join();
+        assertEquals( 999, rulesExecutor.getAllFacts().size() );
+
+        // exact match with a different nested value
+        rulesExecutor.processRetractMatchingFacts( "{ \"id\" : 12, \"status\" : \"up\", \"tags\" : { \"n\" : 13 } }", false ).join();
+        assertEquals( 999, rulesExecutor.getAllFacts().size() );
+
+        // exact match ignoring the nested field
+        rulesExecutor.processRetractMatchingFacts( "{ \"id\" : 12, \"status\" : \"up\" }", false, "tags" ).join();
+        assertEquals( 998, rulesExecutor.getAllFacts().size() );
+
+        rulesExecutor.processRetractMatchingFacts( "{ \"id\" : 11 }", true ).join();
+        assertEquals( 997, rulesExecutor.getAllFacts().size() );
+
+        rulesExecutor.processRetractMatchingFacts( "{ \"status\" : \"down\", \"tags\" : { \"n\" : 13 } }", true ).join();
+        assertEquals( 996, rulesExecutor.getAllFacts().size() );
+
+        rulesExecutor.processRetractMatchingFacts( "{ \"status\" : \"down\" }", true ).join();
+        assertEquals( 498, rulesExecutor.getAllFacts().size() );
+
+        // the index is kept up to date by the retractions
+        rulesExecutor.processRetractMatchingFacts( "{ \"id\" : 13 }", true ).join();
+        assertEquals( 498, rulesExecutor.getAllFacts().size() );
+
+        rulesExecutor.dispose();
+    }
 }
@@ -0,0 +1,142 @@
+package org.drools.ansible.rulebook.integration.api;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.drools.ansible.rulebook.integration.api.domain.RulesSet;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RulesetArtifactStoreTest {
+
+    private static final String JSON =
+            """
+            {
+               "name":"stored",
+               "rules":[
+                  {
+                     "Rule":{
+                        "condition":{
+                           "AllCondition":[
+                              {
+                                 "EqualsExpression":{
+                                    "lhs":{
+                                       "Event":"i"
+                                    },
+                                    "rhs":{
+                                       "Integer":%d
+                                    }
+                                 }
+                              }
+                           ]
+                        },
+                        "enabled":true,
+                        "name":"r_0"
+                     }
+                  }
+               ]
+            }
+            """;
+
+    private static final String KEY = Base64.getEncoder().encodeToString("0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.UTF_8));
+    private static final String OTHER_KEY = Base64.getEncoder().encodeToString("fedcba9876543210fedcba9876543210".getBytes(StandardCharsets.UTF_8));
+
+    @TempDir
+    Path artifactsDir;
+
+    @Test
+    void testStoreAndLoad() {
+        RulesetArtifactStore store = new RulesetArtifactStore(artifactsDir, 16, KEY);
+
+        RulesSet rulesSet = RuleNotation.CoreNotation.INSTANCE.withOptions(RuleConfigurationOption.USE_PSEUDO_CLOCK).toRulesSet(RuleFormat.JSON, JSON.formatted(1));
+        rulesSet.setHaMode(true);
+        String key = KieBaseCache.cacheKey(rulesSet);
+        store.store(key, rulesSet);
+        // storing the same ruleset again doesn't create another artifact
+        store.store(key, rulesSet);
+        assertThat(artifacts()).hasSize(1);
+
+        List<RulesSet> loaded = store.load();
+        assertThat(loaded).hasSize(1);
+        RulesSet loadedRulesSet = loaded.get(0);
+        assertThat(loadedRulesSet.getName()).isEqualTo("stored");
+        assertThat(loadedRulesSet.isHaMode()).isTrue();
+        assertThat(loadedRulesSet.hasOption(RuleConfigurationOption.USE_PSEUDO_CLOCK)).isTrue();
+        assertThat(KieBaseCache.cacheKey(loadedRulesSet)).isEqualTo(key);
+    }
+
+    @Test
+    void testArtifactsAreEncrypted() throws IOException {
+        RulesetArtifactStore store = new RulesetArtifactStore(artifactsDir, 16, KEY);
+
+        RulesSet rulesSet = RuleNotation.CoreNotation.INSTANCE.toRulesSet(RuleFormat.JSON, JSON.formatted(1));
+        store.store(KieBaseCache.cacheKey(rulesSet), rulesSet);
+        assertThat(Files.readString(artifacts().get(0))).doesNotContain("stored").doesNotContain("EqualsExpression");
+
+        // an artifact that can't be decrypted with the configured key is deleted
+        assertThat(new RulesetArtifactStore(artifactsDir, 16, OTHER_KEY).load()).isEmpty();
+        assertThat(artifacts()).isEmpty();
+    }
+
+    @Test
+    void testStoreIsDisabledWithoutKey() {
+        RulesetArtifactStore store = new RulesetArtifactStore(artifactsDir, 16, null);
+        assertThat(store.isEnabled()).isFalse();
+
+        RulesSet rulesSet = RuleNotation.CoreNotation.INSTANCE.toRulesSet(RuleFormat.JSON, JSON.formatted(1));
+        store.store(KieBaseCache.cacheKey(rulesSet), rulesSet);
+        assertThat(artifacts()).isEmpty();
+    }
+
+    @Test
+    void testOutdatedAndUnreadableArtifactsAreDeleted() throws Exception {
+        RulesetArtifactStore store = new RulesetArtifactStore(artifactsDir, 16, KEY);
+
+        RulesSet rulesSet = RuleNotation.CoreNotation.INSTANCE.toRulesSet(RuleFormat.JSON, JSON.formatted(1));
+        store.store(KieBaseCache.cacheKey(rulesSet), rulesSet);
+        Path artifact = artifacts().get(0);
+        Files.writeString(artifact, store.encrypt(store.decrypt(Files.readString(artifact)).replace(RulesetArtifactStore.currentVersion(), "0:old")));
+        Files.writeString(artifactsDir.resolve("broken.ruleset.json"), "{ \"version\": ");
+
+        assertThat(store.load()).isEmpty();
+        assertThat(artifacts()).isEmpty();
+    }
+
+    @Test
+    void testOldestArtifactsArePruned() {
+        RulesetArtifactStore store = new RulesetArtifactStore(artifactsDir, 2, KEY);
+
+        for (int i = 0; i < 4; i++) {
+            RulesSet rulesSet = RuleNotation.CoreNotation.INSTANCE.toRulesSet(RuleFormat.JSON, JSON.formatted(i));
+            store.store(KieBaseCache.cacheKey(rulesSet), rulesSet);
+        }
+
+        assertThat(artifacts()).hasSize(2);
+    }
+
+    @Test
+    void testProgrammaticRulesetsAreNotStored() {
+        RulesetArtifactStore store = new RulesetArtifactStore(artifactsDir, 16, KEY);
+
+        RulesSet rulesSet = new RulesSet();
+        rulesSet.setName("programmatic");
+        store.store("key", rulesSet);
+
+        assertThat(artifacts()).isEmpty();
+    }
+
+    private List<Path> artifacts() {
+        try (Stream<Path> files = Files.list(artifactsDir)) {
+            return files.toList();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package org.drools.ansible.rulebook.integration.api;
+
+import java.util.List;
+
+import org.drools.ansible.rulebook.integration.api.rulesengine.RuleEngineTestUtils;
+import org.drools.ansible.rulebook.integration.api.rulesengine.SessionMemoryQuotaExceededException;
+import org.drools.ansible.rulebook.integration.api.rulesengine.SessionStats;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.kie.api.runtime.rule.Match;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SessionMemoryQuotaTest {
+
+    private static final String JSON =
+            """
+            {
+               "rules":[
+                  {
+                     "Rule":{
+                        "condition":{
+                           "AllCondition":[
+                              {
+                                 "EqualsExpression":{
+                                    "lhs":{
+                                       "Event":"i"
+                                    },
+                                    "rhs":{
+                                       "Integer":2
+                                    }
+                                 }
+                              },
+                              {
+                                 "EqualsExpression":{
+                                    "lhs":{
+                                       "Event":"j"
+                                    },
+                                    "rhs":{
+                                       "Event":"m_0.i"
+                                    }
+                                 }
+                              }
+                           ]
+                        },
+                        "enabled":true,
+                        "name":"r_0"
+                     }
+                  }
+               ]
+            }
+            """;
+
+    private static final String PAYLOAD = "x".repeat(1000);
+
+    @AfterEach
+    void tearDown() {
+        RuleEngineTestUtils.resetSessionMemoryQuota();
+    }
+
+    @Test
+    void testRetainedMemoryAccounting() {
+        RulesExecutor rulesExecutor = RulesExecutorFactory.createFromJson(JSON);
+        assertThat(rulesExecutor.getSessionStats().getRetainedMemory()).isZero();
+
+        rulesExecutor.processEvents("{ \"j\": 2, \"payload\": \"" + PAYLOAD + "\" }").join();
+        long retainedMemory = rulesExecutor.getSessionStats().getRetainedMemory();
+        assertThat(retainedMemory).isGreaterThan(PAYLOAD.length());
+
+        // an event not matching anything is discarded
+        rulesExecutor.processEvents("{ \"k\": 1 }").join();
+        assertThat(rulesExecutor.getSessionStats().getRetainedMemory()).isEqualTo(retainedMemory);
+
+        // the rule firing consumes both events
+        List<Match> matchedRules = rulesExecutor.processEvents("{ \"i\": 2 }").join();
+        assertThat(matchedRules).hasSize(1);
+        assertThat(rulesExecutor.getSessionStats().getRetainedMemory()).isZero();
+
+        rulesExecutor.dispose();
+    }
+
+    @Test
+    void testRejectWhenQuotaExceeded() {
+        RuleEngineTestUtils.setSessionMemoryQuota(2500, false);
+        RulesExecutor rulesExecutor = RulesExecutorFactory.createFromJson(JSON);
+
+        rulesExecutor.processEvents("{ \"j\": 1, \"payload\": \"" + PAYLOAD + "\" }").join();
+        assertThrows(SessionMemoryQuotaExceededException.class,
+                () -> rulesExecutor.processEvents("{ \"j\": 2, \"payload\": \"" + PAYLOAD + "\" }").join());
+        assertThat(rulesExecutor.getAllFacts()).hasSize(1);
+
+        rulesExecutor.dispose();
+    }
+
+    @Test
+    void testEvictWhenQuotaExceeded() {
+        RuleEngineTestUtils.setSessionMemoryQuota(2500, true);
+        RulesExecutor rulesExecutor = RulesExecutorFactory.createFromJson(JSON);
+
+        rulesExecutor.processEvents("{ \"j\": 1, \"payload\": \"" + PAYLOAD + "\" }").join();
+        rulesExecutor.processEvents("{ \"j\": 2, \"payload\": \"" + PAYLOAD + "\" }").join();
+
+        // the first event has been evicted to make room for the second one
+        assertThat(rulesExecutor.getAllFacts()).hasSize(1);
+        assertThat(rulesExecutor.getAllFactsAsMap().get(0)).containsEntry("j", 2);
+        SessionStats stats = rulesExecutor.getSessionStats();
+        assertThat(stats.getEventsEvicted()).isEqualTo(1);
+        assertThat(stats.getRetainedMemory()).isLessThanOrEqualTo(2500);
+
+        rulesExecutor.dispose();
+    }
+
+    @Test
+    void testUpdatedFactIsReestimated() {
+        RulesExecutor rulesExecutor = RulesExecutorFactory.createFromJson(JSON);
+
+        rulesExecutor.processFacts("{ \"j\": 5 }").join();
+        long retainedMemory = rulesExecutor.getSessionStats().getRetainedMemory();
+
+        rulesExecutor.processUpdateMatchingFacts("{ \"j\": 5 }", "{ \"payload\": \"" + PAYLOAD + "\" }").join();
+        assertThat(rulesExecutor.getSessionStats().getRetainedMemory()).isGreaterThan(retainedMemory + PAYLOAD.length());
+
+        rulesExecutor.processUpdateMatchingFacts("{ \"j\": 5 }", "{ \"payload\": null }").join();
+        assertThat(rulesExecutor.getSessionStats().getRetainedMemory()).isEqualTo(retainedMemory);
+
+        rulesExecutor.dispose();
+    }
+
+    @Test
+    void testEvictInExpirationOrderAtSteadyState() {
+        // room for 2 events with the payload
+        RuleEngineTestUtils.setSessionMemoryQuota(3500, true);
+        RulesExecutor rulesExecutor = RulesExecutorFactory.createFromJson(JSON);
+
+        for (int i = 0; i < 20; i++) {
+            rulesExecutor.processEvents("{ \"j\": " + (100 + i) + ", \"payload\": \"" + PAYLOAD + "\" }").join();
+        }
+
+        // each insertion at the quota evicts only the event that would expire first
+        assertThat(rulesExecutor.getAllFactsAsMap()).extracting(fact -> fact.get("j")).containsExactlyInAnyOrder(118, 119);
+        SessionStats stats = rulesExecutor.getSessionStats();
+        assertThat(stats.getEventsEvicted()).isEqualTo(18);
+        assertThat(stats.getRetainedMemory()).isLessThanOrEqualTo(3500);
+
+        rulesExecutor.dispose();
+    }
+}
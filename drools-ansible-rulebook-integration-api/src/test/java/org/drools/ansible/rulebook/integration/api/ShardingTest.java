@@ -0,0 +1,226 @@
+package org.drools.ansible.rulebook.integration.api;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.drools.ansible.rulebook.integration.api.rulesengine.SessionStats;
+import org.junit.jupiter.api.Test;
+import org.kie.api.prototype.PrototypeFactInstance;
+import org.kie.api.runtime.KieSession;
+import org.kie.api.runtime.rule.Match;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ShardingTest {
+
+    @Test
+    void testOnceWithinOnShards() {
+        String json =
+                """
+                {
+                   "name":"sharded",
+                   "shards":4,
+                   "partition_key":[
+                      "event.sensu.host"
+                   ],
+                   "rules":[
+                      {
+                         "Rule":{
+                            "name":"r1",
+                            "condition":{
+                               "AllCondition":[
+                                  {
+                                     "EqualsExpression":{
+                                        "lhs":{
+                                           "Event":"sensu.process.type"
+                                        },
+                                        "rhs":{
+                                           "String":"alert"
+                                        }
+                                     }
+                                  }
+                               ]
+                            },
+                            "throttle":{
+                               "group_by_attributes":[
+                                  "event.sensu.host",
+                                  "event.sensu.process.type"
+                               ],
+                               "once_within":"10 seconds"
+                            }
+                         }
+                      },
+                      {
+                         "Rule":{
+                            "name":"r2",
+                            "condition":{
+                               "AllCondition":[
+                                  {
+                                     "EqualsExpression":{
+                                        "lhs":{
+                                           "Event":"sensu.process.type"
+                                        },
+                                        "rhs":{
+                                           "String":"info"
+                                        }
+                                     }
+                                  }
+                               ]
+                            }
+                         }
+                      }
+                   ]
+                }
+                """;
+
+        RulesExecutor rulesExecutor = RulesExecutorFactory.createFromJson(RuleNotation.CoreNotation.INSTANCE.withOptions(RuleConfigurationOption.USE_PSEUDO_CLOCK), json);
+
+        for (int i = 0; i < 8; i++) {
+            List<Match> matchedRules = rulesExecutor.processEvents("{ \"sensu\": { \"process\": { \"type\":\"alert\" }, \"host\":\"h" + i + "\" } }").join();
+            assertEquals(1, matchedRules.size());
+        }
+
+        rulesExecutor.advanceTime(3, TimeUnit.SECONDS);
+
+        for (int i = 0; i < 8; i++) {
+            List<Match> matchedRules = rulesExecutor.processEvents("{ \"sensu\": { \"process\": { \"type\":\"alert\" }, \"host\":\"h" + i + "\" } }").join();
+            assertEquals(0, matchedRules.size());
+        }
+
+        List<Match> matchedRules = rulesExecutor.processEvents("{ \"events\": [ " +
+                "{ \"sensu\": { \"process\": { \"type\":\"info\" }, \"host\":\"h1\" } }, " +
+                "{ \"sensu\": { \"process\": { \"type\":\"info\" }, \"host\":\"h2\" } }, " +
+                "{ \"sensu\": { \"process\": { \"type\":\"info\" }, \"host\":\"h3\" } } ] }").join();
+        assertThat(matchedRules).hasSize(3).allMatch(m -> m.getRule().getName().equals("r2"));
+
+        SessionStats stats = rulesExecutor.getSessionStats();
+        assertEquals(2, stats.getNumberOfRules());
+        assertEquals(19, stats.getEventsProcessed());
+        assertEquals(11, stats.getEventsMatched());
+        assertEquals(8, stats.getPermanentStorageCount()); // a control event for each host
+        assertEquals(rulesExecutor.getId(), stats.getSessionId());
+
+        rulesExecutor.advanceTime(10, TimeUnit.SECONDS);
+
+        for (int i = 0; i < 8; i++) {
+            matchedRules = rulesExecutor.processEvents("{ \"sensu\": { \"process\": { \"type\":\"alert\" }, \"host\":\"h" + i + "\" } }").join();
+            assertEquals(1, matchedRules.size());
+        }
+
+        rulesExecutor.dispose();
+    }
+
+    @Test
+    void testUpdateMovesFactToShardOfNewKey() {
+        String json =
+                """
+                {
+                   "name":"sharded",
+                   "shards":4,
+                   "partition_key":[
+                      "fact.host"
+                   ],
+                   "rules":[
+                      {
+                         "Rule":{
+                            "name":"r1",
+                            "condition":{
+                               "AllCondition":[
+                                  {
+                                     "EqualsExpression":{
+                                        "lhs":{
+                                           "Fact":"status"
+                                        },
+                                        "rhs":{
+                                           "String":"down"
+                                        }
+                                     }
+                                  }
+                               ]
+                            }
+                         }
+                      }
+                   ]
+                }
+                """;
+
+        RulesExecutor rulesExecutor = RulesExecutorFactory.createFromJson(RuleNotation.CoreNotation.INSTANCE.withOptions(RuleConfigurationOption.USE_PSEUDO_CLOCK), json);
+        // the KieSession of a sharded session is the one of its first shard
+        assertThat(rulesExecutor.asKieSession()).isSameAs(rulesExecutor.asKieSessions().get(0));
+
+        for (int i = 0; i < 8; i++) {
+            rulesExecutor.processFacts("{ \"host\":\"h" + i + "\", \"status\":\"up\" }").join();
+        }
+
+        // a host is renamed, so the fact has to be moved to the shard of the new name
+        List<Match> matchedRules = rulesExecutor.processUpdateMatchingFacts("{ \"host\": \"h1\" }", "{ \"host\": \"h9\", \"status\": \"down\" }").join();
+        assertThat(matchedRules).hasSize(1).allMatch(m -> m.getRule().getName().equals("r1"));
+        assertEquals(8, rulesExecutor.getAllFacts().size());
+
+        rulesExecutor.processFacts("{ \"host\":\"h9\", \"status\":\"probe\" }").join();
+        List<KieSession> shardsWithH9 = rulesExecutor.asKieSessions().stream()
+                .filter(kieSession -> kieSession.getObjects().stream()
+                        .anyMatch(fact -> "h9".equals(((PrototypeFactInstance) fact).get("host"))))
+                .toList();
+        assertThat(shardsWithH9).hasSize(1);
+        assertEquals(2, shardsWithH9.get(0).getObjects().stream()
+                .filter(fact -> "h9".equals(((PrototypeFactInstance) fact).get("host")))
+                .count());
+
+        matchedRules = rulesExecutor.processUpdateMatchingFacts("{ \"host\": \"h9\", \"status\": \"down\" }", "{ \"status\": \"up\" }").join();
+        assertThat(matchedRules).isEmpty();
+
+        rulesExecutor.dispose();
+    }
+
+    @Test
+    void testJoinIsNotAllowedOnShards() {
+        String json =
+                """
+                {
+                   "name":"sharded",
+                   "shards":2,
+                   "partition_key":[
+                      "event.host"
+                   ],
+                   "rules":[
+                      {
+                         "Rule":{
+                            "name":"r1",
+                            "condition":{
+                               "AllCondition":[
+                                  {
+                                     "EqualsExpression":{
+                                        "lhs":{
+                                           "Event":"i"
+                                        },
+                                        "rhs":{
+                                           "Integer":1
+                                        }
+                                     }
+                                  },
+                                  {
+                                     "EqualsExpression":{
+                                        "lhs":{
+                                           "Event":"j"
+                                        },
+                                        "rhs":{
+                                           "Integer":2
+                                        }
+                                     }
+                                  }
+                               ]
+                            }
+                         }
+                      }
+                   ]
+                }
+                """;
+
+        assertThatThrownBy(() -> RulesExecutorFactory.createFromJson(json))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("r1");
+    }
+}
@@ -0,0 +1,129 @@
+package org.drools.ansible.rulebook.integration.api;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.drools.ansible.rulebook.integration.api.domain.temporal.TimeAmount;
+import org.drools.ansible.rulebook.integration.api.rulesengine.SessionStats;
+import org.drools.ansible.rulebook.integration.api.rulesmodel.RulesModelUtil;
+import org.junit.jupiter.api.Test;
+import org.kie.api.prototype.PrototypeFactInstance;
+import org.kie.api.runtime.rule.Match;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class SlidingWindowTest {
+
+    private static final String JSON =
+            """
+                    {
+                       "rules":[
+                          {
+                             "Rule":{
+                                "condition":{
+                                   "AllCondition":[
+                                      {
+                                         "EqualsExpression":{
+                                            "lhs":{
+                                               "Event":"sensu.process.type"
+                                            },
+                                            "rhs":{
+                                               "String":"alert"
+                                            }
+                                         }
+                                      }
+                                   ]
+                                },
+                                "action":{
+                                   "assert_fact":{
+                                      "ruleset":"Test rules4",
+                                      "fact":{
+                                         "j":1
+                                      }
+                                   }
+                                },
+                                "throttle": {
+                                   "group_by_attributes": [
+                                      "event.sensu.host"
+                                   ],
+                                   "sliding_window": "10 seconds",
+                                   "threshold": 3,
+                                   "buckets": 10
+                                }
+                             }
+                          }
+                       ]
+                    }
+                    """;
+
+    @Test
+    void testSlidingWindowThresholdMet() {
+        RulesExecutor rulesExecutor = RulesExecutorFactory.createFromJson(RuleNotation.CoreNotation.INSTANCE.withOptions(RuleConfigurationOption.USE_PSEUDO_CLOCK), JSON);
+
+        List<Match> matchedRules = rulesExecutor.processEvents("{ \"sensu\": { \"process\": { \"type\":\"alert\" }, \"host\":\"h1\" }, \"sequence\": 1 }").join();
+        assertEquals(0, matchedRules.size());
+
+        rulesExecutor.advanceTime(1, TimeUnit.SECONDS).join();
+        matchedRules = rulesExecutor.processEvents("{ \"sensu\": { \"process\": { \"type\":\"alert\" }, \"host\":\"h1\" }, \"sequence\": 2 }").join();
+        assertEquals(0, matchedRules.size());
+
+        // another host is counted separately
+        matchedRules = rulesExecutor.processEvents("{ \"sensu\": { \"process\": { \"type\":\"alert\" }, \"host\":\"h2\" }, \"sequence\": 3 }").join();
+        assertEquals(0, matchedRules.size());
+
+        rulesExecutor.advanceTime(1, TimeUnit.SECONDS).join();
+        matchedRules = rulesExecutor.processEvents("{ \"sensu\": { \"process\": { \"type\":\"alert\" }, \"host\":\"h1\" }, \"sequence\": 4 }").join();
+        assertEquals(1, matchedRules.size());
+        assertThat(matchedRules.get(0).getDeclarationIds()).containsExactly("m");
+
+        PrototypeFactInstance fact = (PrototypeFactInstance) matchedRules.get(0).getDeclarationValue("m");
+        assertEquals(4, fact.asMap().get("sequence"));
+        Map ruleEngineMeta = (Map) ((Map) fact.asMap().get(RulesModelUtil.META_FIELD)).get(RulesModelUtil.RULE_ENGINE_META_FIELD);
+        assertEquals(new TimeAmount(10, TimeUnit.SECONDS).toString(), ruleEngineMeta.get("sliding_window_time_window"));
+        assertEquals(3, ruleEngineMeta.get("threshold"));
+
+        // the count doesn't reset after firing, but the rule doesn't fire again while the count stays above the threshold
+        rulesExecutor.advanceTime(1, TimeUnit.SECONDS).join();
+        matchedRules = rulesExecutor.processEvents("{ \"sensu\": { \"process\": { \"type\":\"alert\" }, \"host\":\"h1\" }, \"sequence\": 5 }").join();
+        assertEquals(0, matchedRules.size());
+
+        // the first 2 events of h1 slid out of the window, so its count went below the threshold and now reaches it again
+        rulesExecutor.advanceTime(8, TimeUnit.SECONDS).join();
+        matchedRules = rulesExecutor.processEvents("{ \"sensu\": { \"process\": { \"type\":\"alert\" }, \"host\":\"h1\" }, \"sequence\": 6 }").join();
+        assertEquals(1, matchedRules.size());
+        fact = (PrototypeFactInstance) matchedRules.get(0).getDeclarationValue("m");
+        assertEquals(6, fact.asMap().get("sequence"));
+
+        // the counted events aren't retained by the session
+        assertThat(rulesExecutor.getAllFacts()).isEmpty();
+
+        SessionStats stats = rulesExecutor.getSessionStats();
+        assertEquals(2, stats.getEventsMatched());
+        assertEquals(6, stats.getEventsProcessed());
+        assertEquals(4, stats.getEventsSuppressed());
+
+        rulesExecutor.dispose();
+    }
+
+    @Test
+    void testSlidingWindowEventsSpreadOverTheWindow() {
+        RulesExecutor rulesExecutor = RulesExecutorFactory.createFromJson(RuleNotation.CoreNotation.INSTANCE.withOptions(RuleConfigurationOption.USE_PSEUDO_CLOCK), JSON);
+
+        // 3 events 6 seconds apart from each other are never more than 2 within 10 seconds
+        for (int i = 0; i < 3; i++) {
+            List<Match> matchedRules = rulesExecutor.processEvents("{ \"sensu\": { \"process\": { \"type\":\"alert\" }, \"host\":\"h1\" } }").join();
+            assertEquals(0, matchedRules.size());
+            rulesExecutor.advanceTime(6, TimeUnit.SECONDS).join();
+        }
+
+        // while 2 more events arriving together reach the threshold with the last one of them
+        List<Match> matchedRules = rulesExecutor.processEvents("{ \"sensu\": { \"process\": { \"type\":\"alert\" }, \"host\":\"h1\" } }").join();
+        assertEquals(0, matchedRules.size());
+        matchedRules = rulesExecutor.processEvents("{ \"sensu\": { \"process\": { \"type\":\"alert\" }, \"host\":\"h1\" } }").join();
+        assertEquals(1, matchedRules.size());
+
+        rulesExecutor.dispose();
+    }
+}
@@ -140,4 +140,121 @@ public class TimeWindowTest {
 
         rulesExecutor.dispose();
     }
+
+    @Test
+    void testEventsExpireAfterTimeWindow() {
+        String json =
+                """
+                {
+                   "rules":[
+                      {
+                         "Rule":{
+                            "condition":{
+                               "AllCondition":[
+                                  {
+                                     "EqualsExpression":{
+                                        "lhs":{
+                                           "Event":"ping.timeout"
+                                        },
+                                        "rhs":{
+                                           "Boolean":true
+                                        }
+                                     }
+                                  },
+                                  {
+                                     "EqualsExpression":{
+                                        "lhs":{
+                                           "Event":"sensu.process.status"
+                                        },
+                                        "rhs":{
+                                           "String":"stopped"
+                                        }
+                                     }
+                                  }
+                               ],
+                               "timeout":"10 seconds"
+                            }
+                         }
+                      }
+                   ]
+                }
+                """;
+
+        RulesExecutor rulesExecutor = RulesExecutorFactory.createFromJson(RuleNotation.CoreNotation.INSTANCE.withOptions(RuleConfigurationOption.USE_PSEUDO_CLOCK), json);
+        List<Match> matchedRules = rulesExecutor.processEvents( "{ \"sensu\": { \"process\": { \"status\":\"stopped\" } } }" ).join();
+        assertEquals( 0, matchedRules.size() );
+        assertEquals( 1, rulesExecutor.getAllFacts().size() );
+
+        // the event can still match another one received exactly at the end of the window
+        rulesExecutor.advanceTime( 10, TimeUnit.SECONDS );
+        assertEquals( 1, rulesExecutor.getAllFacts().size() );
+
+        // after the window the event can no longer be joined, so it expires well before the default events TTL
+        rulesExecutor.advanceTime( 1, TimeUnit.SECONDS );
+        assertEquals( 0, rulesExecutor.getAllFacts().size() );
+
+        matchedRules = rulesExecutor.processEvents( "{ \"ping\": { \"timeout\": true } }" ).join();
+        assertEquals( 0, matchedRules.size() );
+
+        rulesExecutor.advanceTime( 9, TimeUnit.SECONDS );
+
+        matchedRules = rulesExecutor.processEvents( "{ \"sensu\": { \"process\": { \"status\":\"stopped\" } } }" ).join();
+        assertEquals( 1, matchedRules.size() );
+
+        rulesExecutor.dispose();
+    }
+
+    @Test
+    void testConfiguredEventsTtlIsHonored() {
+        String json =
+                """
+                {
+                   "rules":[
+                      {
+                         "Rule":{
+                            "condition":{
+                               "AllCondition":[
+                                  {
+                                     "EqualsExpression":{
+                                        "lhs":{
+                                           "Event":"ping.timeout"
+                                        },
+                                        "rhs":{
+                                           "Boolean":true
+                                        }
+                                     }
+                                  },
+                                  {
+                                     "EqualsExpression":{
+                                        "lhs":{
+                                           "Event":"sensu.process.status"
+                                        },
+                                        "rhs":{
+                                           "String":"stopped"
+                                        }
+                                     }
+                                  }
+                               ],
+                               "timeout":"10 seconds"
+                            }
+                         }
+                      }
+                   ],
+                   "default_events_ttl":"1 minutes"
+                }
+                """;
+
+        RulesExecutor rulesExecutor = RulesExecutorFactory.createFromJson(RuleNotation.CoreNotation.INSTANCE.withOptions(RuleConfigurationOption.USE_PSEUDO_CLOCK), json);
+        List<Match> matchedRules = rulesExecutor.processEvents( "{ \"sensu\": { \"process\": { \"status\":\"stopped\" } } }" ).join();
+        assertEquals( 0, matchedRules.size() );
+
+        // the events TTL configured on the ruleset isn't shortened to the time window
+        rulesExecutor.advanceTime( 30, TimeUnit.SECONDS );
+        assertEquals( 1, rulesExecutor.getAllFacts().size() );
+
+        rulesExecutor.advanceTime( 31, TimeUnit.SECONDS );
+        assertEquals( 0, rulesExecutor.getAllFacts().size() );
+
+        rulesExecutor.dispose();
+    }
 }
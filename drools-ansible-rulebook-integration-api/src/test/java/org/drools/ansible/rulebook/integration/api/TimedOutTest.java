@@ -16,6 +16,7 @@ import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import static org.drools.ansible.rulebook.integration.api.RulesExecutorFactory.DEFAULT_AUTOMATIC_TICK_PERIOD_IN_MILLIS;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -24,6 +25,15 @@ public class TimedOutTest {
 
     @Test
     void timedOutTest() {
+        timedOutTest(false);
+    }
+
+    @Test
+    void nativeTimedOutTest() {
+        timedOutTest(true);
+    }
+
+    private void timedOutTest(boolean nativeTimedOut) {
         String json =
                 """
                 {
@@ -78,7 +88,10 @@ public class TimedOutTest {
                 }
                 """;
 
-        RulesExecutor rulesExecutor = RulesExecutorFactory.createFromJson(RuleNotation.CoreNotation.INSTANCE.withOptions(RuleConfigurationOption.USE_PSEUDO_CLOCK), json);
+        RuleNotation notation = nativeTimedOut ?
+                RuleNotation.CoreNotation.INSTANCE.withOptions(RuleConfigurationOption.USE_PSEUDO_CLOCK, RuleConfigurationOption.NATIVE_TIMED_OUT) :
+                RuleNotation.CoreNotation.INSTANCE.withOptions(RuleConfigurationOption.USE_PSEUDO_CLOCK);
+        RulesExecutor rulesExecutor = RulesExecutorFactory.createFromJson(notation, json);
 
         // using a rule with a timed_out option automatically starts the scheduled pseudo clock
         assertEquals(DEFAULT_AUTOMATIC_TICK_PERIOD_IN_MILLIS, rulesExecutor.getAutomaticPseudoClockPeriod());
@@ -101,6 +114,10 @@ public class TimedOutTest {
         assertEquals( 0, matchedRules.size() );
 
         assertEquals( 0, rulesExecutor.getSessionStats().getPermanentStorageCount() );
+        if (nativeTimedOut) {
+            // neither the events of the completed sequence nor any control event are left in the session
+            assertThat( rulesExecutor.getAllFacts() ).isEmpty();
+        }
 
         // --- second round
 
@@ -0,0 +1,71 @@
+package org.drools.ansible.rulebook.integration.api;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.kie.api.prototype.PrototypeFactInstance;
+import org.kie.api.runtime.rule.Match;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class UpdateFactTest {
+
+    private static final String JSON =
+            """
+            {
+                "rules": [
+                    {
+                        "Rule": {
+                            "name": "r1",
+                            "condition": {
+                                "AllCondition": [
+                                    {
+                                        "EqualsExpression": {
+                                            "lhs": {
+                                                "Fact": "status"
+                                            },
+                                            "rhs": {
+                                                "String": "down"
+                                            }
+                                        }
+                                    }
+                                ]
+                            },
+                            "enabled": true
+                        }
+                    }
+                ]
+            }
+            """;
+
+    @Test
+    void testUpdateFact() {
+        RulesExecutor rulesExecutor = RulesExecutorFactory.createFromJson(JSON);
+
+        List<Match> matchedRules = rulesExecutor.processFacts("{ \"host\": \"h1\", \"status\": \"up\", \"labels\": { \"zone\": \"a\", \"tier\": \"db\" } }").join();
+        assertThat(matchedRules).isEmpty();
+        rulesExecutor.processFacts("{ \"host\": \"h2\", \"status\": \"up\" }").join();
+
+        matchedRules = rulesExecutor.processUpdateMatchingFacts("{ \"host\": \"h1\" }", "{ \"status\": \"down\", \"labels\": { \"tier\": null, \"rack\": 3 } }").join();
+        assertThat(matchedRules).hasSize(1);
+        assertThat(matchedRules.get(0).getRule().getName()).isEqualTo("r1");
+
+        // the fact has been modified in place and not re-inserted
+        assertThat(rulesExecutor.getAllFacts()).hasSize(2);
+        Map<String, Object> updated = ((PrototypeFactInstance) matchedRules.get(0).getDeclarationValue("m")).asMap();
+        assertThat(updated).containsEntry("host", "h1")
+                .containsEntry("status", "down")
+                .containsEntry("labels", Map.of("zone", "a", "rack", 3));
+
+        // a patch not changing anything doesn't cause any re-evaluation
+        matchedRules = rulesExecutor.processUpdateMatchingFacts("{ \"host\": \"h1\" }", "{ \"status\": \"down\" }").join();
+        assertThat(matchedRules).isEmpty();
+
+        // the updated fact can be retracted with its new content
+        rulesExecutor.processRetractMatchingFacts("{ \"status\": \"down\" }", true).join();
+        assertThat(rulesExecutor.getAllFactsAsMap()).containsExactly(Map.of("host", "h2", "status", "up"));
+
+        rulesExecutor.dispose();
+    }
+}
@@ -0,0 +1,99 @@
+package org.drools.ansible.rulebook.integration.api.rulesengine;
+
+import java.util.concurrent.TimeUnit;
+
+import org.drools.ansible.rulebook.integration.api.KieBaseCache;
+import org.drools.ansible.rulebook.integration.api.RuleConfigurationOption;
+import org.drools.ansible.rulebook.integration.api.RuleFormat;
+import org.drools.ansible.rulebook.integration.api.RuleNotation;
+import org.drools.ansible.rulebook.integration.api.domain.RulesSet;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.drools.ansible.rulebook.integration.api.rulesmodel.RulesModelUtil.asFactMap;
+
+public class AutomaticPseudoClockCatchUpTest {
+
+    private static final String JSON =
+            """
+            {
+                "rules": [
+                    {
+                        "Rule": {
+                            "name": "r1",
+                            "condition": {
+                                "AllCondition": [
+                                    {
+                                        "EqualsExpression": {
+                                            "lhs": {
+                                                "Event": "alert.level"
+                                            },
+                                            "rhs": {
+                                                "String": "error"
+                                            }
+                                        }
+                                    }
+                                ]
+                            },
+                            "enabled": true,
+                            "throttle": {
+                                "group_by_attributes": [
+                                    "event.meta.host"
+                                ],
+                                "once_after": "10 seconds"
+                            }
+                        }
+                    }
+                ],
+                "default_events_ttl": "25 seconds"
+            }
+            """;
+
+    private static final long PERIOD = 100;
+
+    @Test
+    void testCatchUpIsEquivalentToStepwiseAdvance() {
+        AbstractRulesEvaluator stepwise = createEvaluator();
+        AbstractRulesEvaluator catchUp = createEvaluator();
+        try {
+            long stepwiseStart = insertEvents(stepwise);
+            for (long tick = stepwiseStart; tick <= stepwiseStart + 60_000; tick += PERIOD) {
+                stepwise.scheduledAdvanceTimeToMills(tick).join();
+            }
+
+            long catchUpStart = insertEvents(catchUp);
+            catchUp.scheduledCatchUpToMills(catchUpStart, catchUpStart + 60_000, PERIOD);
+
+            SessionStats stepwiseStats = stepwise.getSessionStats();
+            SessionStats catchUpStats = catchUp.getSessionStats();
+            assertThat(catchUpStats.getRulesTriggered()).isEqualTo(stepwiseStats.getRulesTriggered()).isEqualTo(2);
+            assertThat(catchUpStats.getEventsMatched()).isEqualTo(stepwiseStats.getEventsMatched());
+            assertThat(catchUpStats.getEventsSuppressed()).isEqualTo(stepwiseStats.getEventsSuppressed());
+            assertThat(catchUpStats.getPermanentStorageCount()).isEqualTo(stepwiseStats.getPermanentStorageCount());
+            assertThat(catchUp.getAllFacts()).hasSameSizeAs(stepwise.getAllFacts());
+
+            // only the ticks where something was due have been evaluated
+            assertThat(catchUpStats.getClockAdvanceCount()).isLessThan(10);
+            assertThat(stepwiseStats.getClockAdvanceCount()).isGreaterThan(500);
+        } finally {
+            stepwise.dispose();
+            catchUp.dispose();
+        }
+    }
+
+    private static long insertEvents(AbstractRulesEvaluator evaluator) {
+        long start = evaluator.getCurrentTime();
+        evaluator.processEvents(asFactMap("{ \"meta\": { \"host\":\"h1\" }, \"alert\": { \"level\":\"error\" } }")).join();
+        evaluator.processEvents(asFactMap("{ \"meta\": { \"host\":\"h2\" }, \"alert\": { \"level\":\"error\" } }")).join();
+        evaluator.advanceTime(15, TimeUnit.SECONDS).join();
+        evaluator.processEvents(asFactMap("{ \"meta\": { \"host\":\"h1\" }, \"alert\": { \"level\":\"error\" } }")).join();
+        return start + 15_000;
+    }
+
+    private static AbstractRulesEvaluator createEvaluator() {
+        RulesSet rulesSet = RuleNotation.CoreNotation.INSTANCE.withOptions(RuleConfigurationOption.USE_PSEUDO_CLOCK).toRulesSet(RuleFormat.JSON, JSON);
+        KieBaseCache.CachedKieBase kieBase = KieBaseCache.get().acquire(rulesSet);
+        RulesExecutorSession session = new RulesExecutorSession(kieBase.getRulesSet(), kieBase.newKieSession(), kieBase.getRulesExecutionController(), -1);
+        return (AbstractRulesEvaluator) RulesEvaluator.createRulesEvaluator(session, false);
+    }
+}
@@ -0,0 +1,122 @@
+package org.drools.ansible.rulebook.integration.api.rulesengine;
+
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class MemoryMonitorUtilTest {
+
+    private static final int BLOCK_SIZE = 32 * 1024 * 1024;
+
+    private int memoryOccupationThreshold;
+    private boolean monitorCollectionUsage;
+
+    @BeforeEach
+    void saveConfiguration() {
+        memoryOccupationThreshold = MemoryMonitorUtil.MEMORY_OCCUPATION_PERCENTAGE_THRESHOLD;
+        monitorCollectionUsage = MemoryMonitorUtil.MONITOR_COLLECTION_USAGE;
+    }
+
+    @AfterEach
+    void restoreConfiguration() {
+        MemoryMonitorUtil.MONITOR_COLLECTION_USAGE = monitorCollectionUsage;
+        MemoryMonitorUtil.setMemoryOccupationPercentageThreshold(memoryOccupationThreshold);
+    }
+
+    @Test
+    void testCollectionUsageThresholdNotification() throws InterruptedException {
+        assumeTrue(MemoryMonitorUtil.MONITOR_COLLECTION_USAGE, "The collection usage of the tenured pool can't be monitored on this JVM");
+
+        // until notified the memory occupation isn't checked at all
+        PeakMemoryUpdatesCounter stats = new PeakMemoryUpdatesCounter();
+        MemoryMonitorUtil.checkMemoryOccupation(stats);
+        assertThat(stats.peakMemoryUpdates).isZero();
+
+        // sets the collection usage threshold of the tenured pool to its minimum
+        MemoryMonitorUtil.setMemoryOccupationPercentageThreshold(0);
+        System.gc();
+        awaitUntil(() -> MemoryMonitorUtil.thresholdExceeded);
+
+        // once notified the heap usage is checked at each call
+        MemoryMonitorUtil.MEMORY_OCCUPATION_PERCENTAGE_THRESHOLD = 100;
+        MemoryMonitorUtil.checkMemoryOccupation(stats);
+        MemoryMonitorUtil.checkMemoryOccupation(stats);
+        assertThat(stats.peakMemoryUpdates).isEqualTo(2);
+        assertThat(MemoryMonitorUtil.thresholdExceeded).isTrue();
+
+        MemoryMonitorUtil.MEMORY_OCCUPATION_PERCENTAGE_THRESHOLD = -1;
+        assertThatThrownBy(() -> MemoryMonitorUtil.checkMemoryOccupation(stats))
+                .isInstanceOf(MemoryThresholdReachedException.class);
+    }
+
+    @Test
+    void testPollingFallback() {
+        MemoryMonitorUtil.MONITOR_COLLECTION_USAGE = false;
+        MemoryMonitorUtil.MEMORY_OCCUPATION_PERCENTAGE_THRESHOLD = 100;
+        int checkInterval = MemoryMonitorUtil.MEMORY_CHECK_EVENT_COUNT_MASK + 1;
+
+        // the used heap is polled only once every checkInterval calls
+        PeakMemoryUpdatesCounter stats = new PeakMemoryUpdatesCounter();
+        for (int i = 0; i < checkInterval; i++) {
+            MemoryMonitorUtil.checkMemoryOccupation(stats);
+        }
+        assertThat(stats.peakMemoryUpdates).isEqualTo(1);
+        for (int i = 0; i < checkInterval; i++) {
+            MemoryMonitorUtil.checkMemoryOccupation(stats);
+        }
+        assertThat(stats.peakMemoryUpdates).isEqualTo(2);
+
+        MemoryMonitorUtil.MEMORY_OCCUPATION_PERCENTAGE_THRESHOLD = -1;
+        assertThatThrownBy(() -> {
+            for (int i = 0; i < checkInterval; i++) {
+                MemoryMonitorUtil.checkMemoryOccupation(stats);
+            }
+        }).isInstanceOf(MemoryThresholdReachedException.class);
+        assertThat(stats.peakMemoryUpdates).isEqualTo(3);
+    }
+
+    @Test
+    void testPeakMemoryBeforeGarbageCollection() throws InterruptedException {
+        SessionStatsCollector stats = new SessionStatsCollector(1);
+
+        System.gc();
+        byte[] block = new byte[BLOCK_SIZE];
+        long usedWithBlock = MemoryMonitorUtil.getUsedMemory();
+        assertThat(block).hasSize(BLOCK_SIZE);
+        block = null;
+        System.gc();
+
+        // the peak is recorded from the heap usage before the collection, even if the stats have never been updated
+        awaitUntil(() -> stats.getPeakMemory() >= usedWithBlock);
+        assertThat(stats.getPeakMemory()).isGreaterThan(MemoryMonitorUtil.getUsedMemory());
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).as("Condition not met within 10 seconds").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private static class PeakMemoryUpdatesCounter extends SessionStatsCollector {
+
+        private int peakMemoryUpdates;
+
+        private PeakMemoryUpdatesCounter() {
+            super(1);
+        }
+
+        @Override
+        public void updatePeakMemory(long usedMemory) {
+            peakMemoryUpdates++;
+            super.updatePeakMemory(usedMemory);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.drools.ansible.rulebook.integration.api.rulesengine;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.drools.ansible.rulebook.integration.api.domain.temporal.DedupWithinDefinition;
+import org.drools.ansible.rulebook.integration.api.domain.temporal.TimeAmount;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RotatingBloomFilterTest {
+
+    private static RotatingBloomFilter newFilter() {
+        // a very low false positive rate, so that any key reported as seen is a collision of the hashes
+        DedupWithinDefinition dedupWithin = new DedupWithinDefinition(new TimeAmount(10, TimeUnit.MINUTES), 0.000001, 1000, Collections.emptyList());
+        return new RotatingBloomFilter(dedupWithin, 0);
+    }
+
+    @Test
+    void testKeysWithSameTextualFormAreDistinct() {
+        RotatingBloomFilter filter = newFilter();
+
+        // all these keys are printed as [a, b]
+        assertThat(filter.add(List.of("a, b"), 0)).isTrue();
+        assertThat(filter.add(List.of("a", "b"), 0)).isTrue();
+        assertThat(filter.add(List.of(List.of("a", "b")), 0)).isTrue();
+
+        // all these keys are printed as [1]
+        assertThat(filter.add(List.of(1), 0)).isTrue();
+        assertThat(filter.add(List.of("1"), 0)).isTrue();
+        assertThat(filter.add(List.of(1L), 0)).isTrue();
+
+        // all these keys are printed as [null]
+        assertThat(filter.add(Arrays.asList((Object) null), 0)).isTrue();
+        assertThat(filter.add(List.of("null"), 0)).isTrue();
+
+        assertThat(filter.add(List.of("a, b"), 0)).isFalse();
+        assertThat(filter.add(List.of("a", "b"), 0)).isFalse();
+        assertThat(filter.add(List.of(1), 0)).isFalse();
+        assertThat(filter.add(List.of("1"), 0)).isFalse();
+        assertThat(filter.add(Arrays.asList((Object) null), 0)).isFalse();
+    }
+
+    @Test
+    void testEqualMapsInDifferentOrderAreTheSameKey() {
+        RotatingBloomFilter filter = newFilter();
+
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("host", "h1");
+        map.put("rack", "r1");
+        Map<String, Object> reversed = new LinkedHashMap<>();
+        reversed.put("rack", "r1");
+        reversed.put("host", "h1");
+
+        assertThat(filter.add(List.of(map), 0)).isTrue();
+        assertThat(filter.add(List.of(reversed), 0)).isFalse();
+    }
+}
@@ -13,4 +13,18 @@ public class RuleEngineTestUtils {
     public static void disableEventStructureSuggestion() {
         RulesSetEventStructure.EVENT_STRUCTURE_SUGGESTION_ENABLED = false;
     }
+
+    public static void setSessionMemoryQuota(long quota, boolean evict) {
+        SessionMemoryTracker.SESSION_MEMORY_QUOTA = quota;
+        SessionMemoryTracker.SESSION_MEMORY_QUOTA_POLICY = evict ? SessionMemoryTracker.QuotaPolicy.EVICT : SessionMemoryTracker.QuotaPolicy.REJECT;
+    }
+
+    public static void resetSessionMemoryQuota() {
+        setSessionMemoryQuota(0, false);
+    }
+
+    public static void setEventsSpill(boolean enabled, int minSize) {
+        EventPayloadSpillStore.EVENTS_SPILL_ENABLED = enabled;
+        EventPayloadSpillStore.EVENTS_SPILL_MIN_SIZE = minSize;
+    }
 }
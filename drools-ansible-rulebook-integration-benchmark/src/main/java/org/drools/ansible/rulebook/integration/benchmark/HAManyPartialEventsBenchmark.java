@@ -0,0 +1,150 @@
+package org.drools.ansible.rulebook.integration.benchmark;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.drools.ansible.rulebook.integration.api.RuleConfigurationOption;
+import org.drools.ansible.rulebook.integration.core.jpy.AstRulesEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static org.drools.ansible.rulebook.integration.api.io.JsonMapper.readValueAsMapOfStringAndObject;
+import static org.drools.ansible.rulebook.integration.api.io.JsonMapper.toJson;
+
+/**
+ * Measures the response time of the HA pipeline on an H2 database while the leader retains many partial events, that is
+ * events matching only the first condition of a rule. The per-event work on the retained event records (manifest and
+ * state SHA) is expected to be independent of their number, so the time per operation should be about the same for all
+ * the numbers of retained events. Each iteration measures the time needed to assert a batch of 500 partial events on top
+ * of the retained ones.
+ * Run with -p retainedEvents=50000 to reproduce the size of a large leader.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, batchSize = 500)
+@Measurement(iterations = 5, batchSize = 500)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(2)
+public class HAManyPartialEventsBenchmark {
+
+    private static final String PARTIAL_EVENTS_RULE =
+            """
+            {
+                "name": "Many Partial Events Ruleset",
+                "rules": [
+                    {"Rule": {
+                        "name": "many_partial_events_rule",
+                        "condition": {
+                            "AllCondition": [
+                                {
+                                    "EqualsExpression": {
+                                        "lhs": {
+                                            "Event": "phase"
+                                        },
+                                        "rhs": {
+                                            "String": "partial"
+                                        }
+                                    }
+                                },
+                                {
+                                    "EqualsExpression": {
+                                        "lhs": {
+                                            "Event": "complete"
+                                        },
+                                        "rhs": {
+                                            "Boolean": true
+                                        }
+                                    }
+                                }
+                            ]
+                        },
+                        "action": {
+                            "run_playbook": [
+                                {
+                                    "name": "noop.yml"
+                                }
+                            ]
+                        }
+                    }}
+                ]
+            }
+            """;
+
+    @Param({"1000", "10000"})
+    private int retainedEvents;
+
+    private Path dbDir;
+    private AstRulesEngine rulesEngine;
+    private Socket asyncClientSocket;
+    private long sessionId;
+    private int sequence;
+
+    @Setup(Level.Iteration)
+    public void setup() throws IOException {
+        dbDir = Files.createTempDirectory("ha-benchmark");
+        rulesEngine = new AstRulesEngine();
+        // the HA leader requires a connected async client
+        asyncClientSocket = new Socket("localhost", rulesEngine.port());
+
+        rulesEngine.initializeHA("many-partial-events-benchmark", "worker-1",
+                toJson(Map.of("db_type", "h2", "db_file_path", dbDir.resolve("eda_ha").toString())),
+                toJson(Map.of("write_after", 1)));
+        sessionId = rulesEngine.createRuleset(PARTIAL_EVENTS_RULE, RuleConfigurationOption.FULLY_MANUAL_PSEUDOCLOCK);
+        rulesEngine.enableLeader();
+
+        sequence = 0;
+        for (int i = 0; i < retainedEvents; i++) {
+            assertPartialEvent();
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        Object partialEvents = readValueAsMapOfStringAndObject(rulesEngine.getHAStats()).get("partial_events_in_memory");
+        System.out.println("Partial events retained at the end of the iteration: " + partialEvents);
+
+        asyncClientSocket.close();
+        rulesEngine.dispose(sessionId);
+        rulesEngine.close();
+        try (Stream<Path> files = Files.walk(dbDir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(HAManyPartialEventsBenchmark::delete);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    public String benchmark() {
+        return assertPartialEvent();
+    }
+
+    private String assertPartialEvent() {
+        String event = "{ \"meta\": { \"uuid\": \"" + UUID.randomUUID() + "\" }, \"phase\": \"partial\", \"sequence\": " + sequence++ + " }";
+        return rulesEngine.assertEvent(sessionId, event);
+    }
+
+    private static void delete(Path path) {
+        try {
+            Files.delete(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
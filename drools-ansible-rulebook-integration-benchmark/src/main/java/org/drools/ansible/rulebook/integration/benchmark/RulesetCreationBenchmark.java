@@ -0,0 +1,79 @@
+package org.drools.ansible.rulebook.integration.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.drools.ansible.rulebook.integration.api.RulesExecutor;
+import org.drools.ansible.rulebook.integration.api.RulesExecutorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time needed to create many sessions from the same ruleset, with and without the KieBase cache,
+ * and prints the Metaspace growth caused by them.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(2)
+public class RulesetCreationBenchmark {
+
+    @Param({"true", "false"})
+    private boolean kieBaseCacheEnabled;
+
+    @Param({"10", "100"})
+    private int rulesetsNr;
+
+    private final List<RulesExecutor> rulesExecutors = new ArrayList<>();
+
+    private long initialMetaspace;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // the property is read only once, so it has to be set before the first ruleset is created in this fork
+        System.setProperty("drools.kiebase.cache.enabled", String.valueOf(kieBaseCacheEnabled));
+        initialMetaspace = usedMetaspace();
+    }
+
+    @TearDown(Level.Iteration)
+    public void disposeRulesets() {
+        rulesExecutors.forEach(RulesExecutor::dispose);
+        rulesExecutors.clear();
+    }
+
+    @TearDown(Level.Trial)
+    public void printMetaspace() {
+        System.out.println("Metaspace growth with KieBase cache " + (kieBaseCacheEnabled ? "enabled" : "disabled") +
+                ": " + ((usedMetaspace() - initialMetaspace) / 1024) + " KB");
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public int benchmark() {
+        for (int i = 0; i < rulesetsNr; i++) {
+            rulesExecutors.add(RulesExecutorFactory.createFromJson(DroolsBenchmark.JSON_RULE));
+        }
+        return rulesExecutors.size();
+    }
+
+    private static long usedMetaspace() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getName().equals("Metaspace"))
+                .mapToLong(pool -> pool.getUsage().getUsed())
+                .sum();
+    }
+}
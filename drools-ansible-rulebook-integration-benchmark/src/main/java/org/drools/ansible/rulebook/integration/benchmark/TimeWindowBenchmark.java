@@ -0,0 +1,197 @@
+package org.drools.ansible.rulebook.integration.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.drools.ansible.rulebook.integration.api.RuleConfigurationOption;
+import org.drools.ansible.rulebook.integration.api.RuleNotation;
+import org.drools.ansible.rulebook.integration.api.RulesExecutor;
+import org.drools.ansible.rulebook.integration.api.RulesExecutorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time needed to evaluate a rule joining 2 events within a time window of 30 minutes, while receiving 1000
+ * events per minute on a pseudo clock, and prints the number of events retained by the session at the end of each iteration.
+ * Only one alert every 10 gets recovered, so most of them remain candidates of the join until they expire. The join is
+ * either an equality on the host, or a range on the alert id that Drools can't index.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(2)
+public class TimeWindowBenchmark {
+
+    // the join on the host is hash indexed by Drools
+    static final String EQUALITY_JOIN_RULE =
+            """
+            {
+               "rules":[
+                  {
+                     "Rule":{
+                        "name":"R1",
+                        "condition":{
+                           "AllCondition":[
+                              {
+                                 "EqualsExpression":{
+                                    "lhs":{
+                                       "Event":"type"
+                                    },
+                                    "rhs":{
+                                       "String":"alert"
+                                    }
+                                 }
+                              },
+                              {
+                                 "AndExpression":{
+                                    "lhs":{
+                                       "EqualsExpression":{
+                                          "lhs":{
+                                             "Event":"type"
+                                          },
+                                          "rhs":{
+                                             "String":"recovery"
+                                          }
+                                       }
+                                    },
+                                    "rhs":{
+                                       "EqualsExpression":{
+                                          "lhs":{
+                                             "Event":"host"
+                                          },
+                                          "rhs":{
+                                             "Events":"m_0.host"
+                                          }
+                                       }
+                                    }
+                                 }
+                              }
+                           ],
+                           "timeout":"30 minutes"
+                        }
+                     }
+                  }
+               ]
+            }
+            """;
+
+    // the join on the id range can't be indexed, so every recovery is compared with all the alerts retained by the session
+    static final String RANGE_JOIN_RULE =
+            """
+            {
+               "rules":[
+                  {
+                     "Rule":{
+                        "name":"R1",
+                        "condition":{
+                           "AllCondition":[
+                              {
+                                 "EqualsExpression":{
+                                    "lhs":{
+                                       "Event":"type"
+                                    },
+                                    "rhs":{
+                                       "String":"alert"
+                                    }
+                                 }
+                              },
+                              {
+                                 "AndExpression":{
+                                    "lhs":{
+                                       "EqualsExpression":{
+                                          "lhs":{
+                                             "Event":"type"
+                                          },
+                                          "rhs":{
+                                             "String":"recovery"
+                                          }
+                                       }
+                                    },
+                                    "rhs":{
+                                       "AndExpression":{
+                                          "lhs":{
+                                             "LessThanExpression":{
+                                                "lhs":{
+                                                   "Event":"from"
+                                                },
+                                                "rhs":{
+                                                   "Events":"m_0.id"
+                                                }
+                                             }
+                                          },
+                                          "rhs":{
+                                             "GreaterThanExpression":{
+                                                "lhs":{
+                                                   "Event":"to"
+                                                },
+                                                "rhs":{
+                                                   "Events":"m_0.id"
+                                                }
+                                             }
+                                          }
+                                       }
+                                    }
+                                 }
+                              }
+                           ],
+                           "timeout":"30 minutes"
+                        }
+                     }
+                  }
+               ]
+            }
+            """;
+
+    private static final int EVENTS_PER_MINUTE = 1000;
+
+    @Param({"60", "180"})
+    private int minutes;
+
+    @Param({"equality", "range"})
+    private String join;
+
+    private RulesExecutor rulesExecutor;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        rulesExecutor = RulesExecutorFactory.createFromJson(RuleNotation.CoreNotation.INSTANCE.withOptions(RuleConfigurationOption.USE_PSEUDO_CLOCK),
+                join.equals("range") ? RANGE_JOIN_RULE : EQUALITY_JOIN_RULE);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        System.out.println("Events retained after " + minutes + " minutes: " + rulesExecutor.getAllFacts().size());
+        rulesExecutor.dispose();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public int benchmark() {
+        int eventsNr = minutes * EVENTS_PER_MINUTE;
+        long millisBetweenEvents = TimeUnit.MINUTES.toMillis(1) / EVENTS_PER_MINUTE;
+        int count = 0;
+        for (int i = 0; i < eventsNr; i++) {
+            String event = i % 10 == 9 ?
+                    "{ \"type\": \"recovery\", \"host\": \"host" + (i - 9) + "\", \"from\": " + (i - 10) + ", \"to\": " + (i - 8) + " }" :
+                    "{ \"type\": \"alert\", \"host\": \"host" + i + "\", \"id\": " + i + " }";
+            count += rulesExecutor.processEvents(event).join().size();
+            rulesExecutor.advanceTime(millisBetweenEvents, TimeUnit.MILLISECONDS).join();
+        }
+        int expected = eventsNr / 10;
+        if (count != expected) {
+            throw new IllegalStateException("Matched " + count + " rules, expected " + expected);
+        }
+        return count;
+    }
+}
@@ -9,6 +9,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
+import org.drools.ansible.rulebook.integration.api.RuleConfigurationOption;
 import org.drools.ansible.rulebook.integration.api.RulesExecutor;
 import org.drools.ansible.rulebook.integration.api.io.JsonMapper;
 import org.drools.ansible.rulebook.integration.ha.model.EventRecord;
@@ -182,6 +183,9 @@ public abstract class AbstractHAStateManager implements HAStateManager {
             // pre-scan for expired time_window sentinel controls to log WARN
             logExpiredTimeWindowControls(currentTimeAtNewNode, partialEvents);
 
+            boolean nativeThrottling = rulesExecutor.getRulesSet().hasOption(RuleConfigurationOption.NATIVE_THROTTLING);
+            boolean nativeTimedOut = rulesExecutor.getRulesSet().hasOption(RuleConfigurationOption.NATIVE_TIMED_OUT);
+
             for (EventRecord eventRecord : partialEvents) {
                 rulesExecutor.advanceTime(eventRecord.getInsertedAt() - currentTime, java.util.concurrent.TimeUnit.MILLISECONDS);
                 RecordType recordType = eventRecord.getRecordType();
@@ -203,6 +207,17 @@ public abstract class AbstractHAStateManager implements HAStateManager {
                     } else {
                         LOG.debug("  * Recovered CONTROL_TIMED_OUT at time {}, no expiration : {}", eventRecord.getInsertedAt(), controlEvent);
                     }
+                } else if (nativeThrottling && (recordType == RecordType.CONTROL_ONCE_WITHIN || recordType == RecordType.CONTROL_ACCUMULATE_WITHIN
+                        || recordType == RecordType.CONTROL_ONCE_AFTER)) {
+                    // With NATIVE_THROTTLING these groups are kept by the session instead of control events, see HANativeGroupTracker
+                    Map<String, Object> controlData = JsonMapper.readValueAsMapOfStringAndObject(eventRecord.getEventJson());
+                    rulesExecutor.restoreNativeGroup(controlData, eventRecord.getInsertedAt(), eventRecord.getExpirationDuration());
+                    LOG.debug("  * Recovered native group at time {}, window: {} ms : {}", eventRecord.getInsertedAt(), eventRecord.getExpirationDuration(), controlData);
+                } else if (recordType == RecordType.CONTROL_SLIDING_WINDOW) {
+                    // sliding_window groups are always kept by the session, their buckets are restored as they have been persisted
+                    Map<String, Object> controlData = JsonMapper.readValueAsMapOfStringAndObject(eventRecord.getEventJson());
+                    rulesExecutor.restoreNativeGroup(controlData, eventRecord.getInsertedAt(), eventRecord.getExpirationDuration());
+                    LOG.debug("  * Recovered sliding window group at time {} : {}", eventRecord.getInsertedAt(), controlData);
                 } else if (recordType.isSynthetic()) {
                     // How time constraints are handled??
                     // OnceWithin : If a control event exists (= not yet expired), an event is discarded without firing the rule. [on recover]-> Inserting the control event back is sufficient.
@@ -237,6 +252,12 @@ public abstract class AbstractHAStateManager implements HAStateManager {
                 currentTime = eventRecord.getInsertedAt();
             }
 
+            if (nativeTimedOut) {
+                // With NATIVE_TIMED_OUT there are no CONTROL_TIMED_OUT records: the replay of the events has rebuilt the
+                // sequences in progress, so their deadlines are the expiry times of the timed_out windows
+                addExpiredNativeTimedOutSequences(currentTimeAtNewNode, rulesExecutor.getTimedOutDeadlines(), ruleExpiryTimes);
+            }
+
             // Advance clock to persisted time and then to current node time, capturing matches
             List<Match> catchUpMatches = rulesExecutor.advanceTime(sessionState.getPersistedTime() - currentTime, java.util.concurrent.TimeUnit.MILLISECONDS).join();
             List<Match> nodeTimeMatches = Collections.emptyList();
@@ -282,6 +303,20 @@ public abstract class AbstractHAStateManager implements HAStateManager {
         return ruleExpiryTimes;
     }
 
+    private static void addExpiredNativeTimedOutSequences(long currentTimeAtNewNode, Map<String, Long> timedOutDeadlines, Map<String, Long> ruleExpiryTimes) {
+        List<String> expiredRules = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : timedOutDeadlines.entrySet()) {
+            // a sequence expires when the clock passes its deadline
+            if (entry.getValue() < currentTimeAtNewNode) {
+                ruleExpiryTimes.merge(entry.getKey(), entry.getValue(), Math::max);
+                expiredRules.add(entry.getKey());
+            }
+        }
+        if (!expiredRules.isEmpty()) {
+            LOG.info("Recovery found {} native timed_out rules with expired windows: {}", expiredRules.size(), expiredRules);
+        }
+    }
+
     private void logExpiredAccumulateWithinControls(long currentTimeAtNewNode, List<EventRecord> partialEvents) {
         for (EventRecord er : partialEvents) {
             if (er.getRecordType() == RecordType.CONTROL_ACCUMULATE_WITHIN
@@ -420,7 +455,7 @@ public abstract class AbstractHAStateManager implements HAStateManager {
 
     /**
      * Extract the user rule name from a grace-eligible control event record.
-     * For CONTROL_ONCE_AFTER: looks for "start_once_after" field in the event JSON.
+     * For CONTROL_ONCE_AFTER: looks for "start_once_after" field in the event JSON, or for the "drools_rule_name" of a native group.
      * For CONTROL_TIMED_OUT: looks for "rulename" field with "start_" prefix.
      * Returns null if the rule name cannot be extracted (safe fallback — event is skipped).
      */
@@ -428,7 +463,8 @@ public abstract class AbstractHAStateManager implements HAStateManager {
         try {
             Map<String, Object> data = JsonMapper.readValueAsMapOfStringAndObject(er.getEventJson());
             if (er.getRecordType() == RecordType.CONTROL_ONCE_AFTER) {
-                Object val = data.get("start_once_after");
+                // with NATIVE_THROTTLING the groups are persisted with the end of the window of the rule, instead of its start control
+                Object val = data.containsKey("start_once_after") ? data.get("start_once_after") : data.get("drools_rule_name");
                 return val instanceof String ? (String) val : null;
             } else if (er.getRecordType() == RecordType.CONTROL_TIMED_OUT) {
                 Object val = data.get("rulename");
@@ -519,6 +555,18 @@ public abstract class AbstractHAStateManager implements HAStateManager {
 
         boolean valid = storedSHA.equals(recalculatedSHA);
 
+        if (!valid && sessionState.getLegacyEventRecordsManifestSHA() != null) {
+            // persisted before the manifest was incrementally maintained: verify it with the former manifest, the
+            // recovered session will then persist its state with the current one
+            String manifestSHA = sessionState.getEventRecordsManifestSHA();
+            sessionState.setEventRecordsManifestSHA(sessionState.getLegacyEventRecordsManifestSHA());
+            valid = storedSHA.equals(HAUtils.calculateStateSHA(sessionState));
+            sessionState.setEventRecordsManifestSHA(manifestSHA);
+            if (valid) {
+                LOG.info("SessionState of {} verified with the legacy event records manifest", sessionState.getRuleSetName());
+            }
+        }
+
         if (!valid) {
             LOG.error("SessionState integrity check FAILED! Stored SHA: {}, Recalculated SHA: {}",
                       storedSHA, recalculatedSHA);
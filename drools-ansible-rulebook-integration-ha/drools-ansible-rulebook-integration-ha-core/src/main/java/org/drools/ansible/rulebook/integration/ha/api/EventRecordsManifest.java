@@ -0,0 +1,51 @@
+package org.drools.ansible.rulebook.integration.ha.api;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+import java.util.List;
+
+import org.drools.ansible.rulebook.integration.api.io.JsonMapper;
+
+/**
+ * Order independent digest of the EventRecords retained by a session, used as the manifest folded into the state SHA.
+ * Each record contributes the SHA256 of its identifier, sequence and content SHA, and the contributions are combined with
+ * XOR, so a record can be added, replaced or removed in constant time without rehashing all the others, while a full
+ * recomputation over the persisted records, done at recovery time, gives the same result regardless of their order.
+ */
+public class EventRecordsManifest {
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final byte[] digest = new byte[32];
+
+    private long recordsCount;
+
+    public void add(String identifier, long recordSequence, String eventRecordSHA) {
+        xor(identifier, recordSequence, eventRecordSHA);
+        recordsCount++;
+    }
+
+    public void remove(String identifier, long recordSequence, String eventRecordSHA) {
+        xor(identifier, recordSequence, eventRecordSHA);
+        recordsCount--;
+    }
+
+    public long getRecordsCount() {
+        return recordsCount;
+    }
+
+    /**
+     * @return the SHA256 hex string of the number of records and of their combined digest
+     */
+    public String toSHA() {
+        return HAUtils.sha256(recordsCount + ":" + HEX.formatHex(digest));
+    }
+
+    private void xor(String identifier, long recordSequence, String eventRecordSHA) {
+        String recordContent = JsonMapper.toJson(List.of(identifier, recordSequence, eventRecordSHA));
+        byte[] recordDigest = HAUtils.sha256(recordContent.getBytes(StandardCharsets.UTF_8));
+        for (int i = 0; i < digest.length; i++) {
+            digest[i] ^= recordDigest[i];
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package org.drools.ansible.rulebook.integration.ha.api;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.drools.ansible.rulebook.integration.ha.model.EventRecord;
+import org.drools.ansible.rulebook.integration.ha.model.EventRecordChange;
+import org.drools.ansible.rulebook.integration.ha.model.EventRecordEntry;
+import org.drools.ansible.rulebook.integration.ha.model.HAStats;
+import org.drools.ansible.rulebook.integration.ha.model.MatchingEvent;
+import org.drools.ansible.rulebook.integration.ha.model.SessionState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Write-behind persistence of the leader state, used with the batched durability instead of persisting the state
+ * in a transaction for each processed event. The processing threads enqueue a snapshot of the state changed by each
+ * event and a writer thread commits them in batches, every given interval or as soon as enough of them are pending.
+ * The deltas of the same ruleset within a batch are coalesced, keeping its last SessionState, together with the HA stats
+ * as they were when it was enqueued, and the last change of each EventRecord, and persisted with their matching events
+ * in a single transaction.
+ *
+ * The deltas are committed in the order they have been enqueued, so when a delta is durable all the former ones are
+ * durable as well: a caller which has to hand out matching events waits for its delta with {@link #awaitDurable(long)},
+ * while the other callers can return immediately, accepting to lose the state of the last interval on a crash.
+ * If a batch fails, the failure is reported to all the callers waiting for it and to the following ones, since the
+ * state of the leader can't be persisted anymore without the lost deltas.
+ */
+public class HAGroupCommitWriter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HAGroupCommitWriter.class);
+
+    public static final long DEFAULT_INTERVAL_MS = 10;
+
+    public static final int DEFAULT_MAX_BATCH_SIZE = 100;
+
+    private final HAStateManager haStateManager;
+    private final long intervalNanos;
+    private final int maxBatchSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition pendingChanged = lock.newCondition();
+    private final Condition batchCommitted = lock.newCondition();
+
+    private final Deque<PendingDelta> pendingDeltas = new ArrayDeque<>();
+
+    // sequences of the deltas, which are committed in the same order they are enqueued
+    private long enqueuedSequence = 0L;
+    private long committedSequence = 0L;
+    private long flushRequestedSequence = 0L;
+
+    private RuntimeException failure;
+    private boolean closed;
+
+    private final Thread writerThread;
+
+    public HAGroupCommitWriter(HAStateManager haStateManager, long intervalMs, int maxBatchSize) {
+        if (intervalMs <= 0) {
+            throw new IllegalArgumentException("The group commit interval must be positive: " + intervalMs);
+        }
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("The group commit max batch size must be positive: " + maxBatchSize);
+        }
+        this.haStateManager = haStateManager;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMs);
+        this.maxBatchSize = maxBatchSize;
+        this.writerThread = new Thread(this::writeBatches, "ha-group-commit-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+        LOG.info("HA group commit enabled with interval {}ms and max batch size {}", intervalMs, maxBatchSize);
+    }
+
+    /**
+     * Enqueues the state of a ruleset changed by a processed event, together with the HA stats updated by it, its EventRecord
+     * changes and matching events. The SessionState, the HA stats and the upserted EventRecords are copied, so that the
+     * session can keep changing them while the writer persists this snapshot.
+     *
+     * @return the sequence of the enqueued delta, to be passed to {@link #awaitDurable(long)}
+     */
+    public long enqueue(SessionState sessionState, HAStats haStats, List<EventRecordChange> eventRecordChanges, List<MatchingEvent> matchingEvents) {
+        PendingDelta delta = new PendingDelta(sessionState.copy(), haStats.copy(), copyEventRecordChanges(eventRecordChanges),
+                                              new ArrayList<>(matchingEvents), System.nanoTime());
+        lock.lock();
+        try {
+            checkWritable();
+            pendingDeltas.addLast(delta);
+            if (pendingDeltas.size() == 1 || pendingDeltas.size() >= maxBatchSize) {
+                pendingChanged.signalAll();
+            }
+            return ++enqueuedSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Blocks until the delta with the given sequence, and then all the ones enqueued before it, has been committed.
+     *
+     * @throws IllegalStateException if the batch of the delta, or a former one, failed
+     */
+    public void awaitDurable(long sequence) {
+        lock.lock();
+        try {
+            while (committedSequence < sequence) {
+                if (failure != null) {
+                    throw new IllegalStateException("HA group commit failed, the state of the leader isn't durable", failure);
+                }
+                batchCommitted.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the HA group commit", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Commits all the pending deltas without waiting for the end of the interval, and blocks until they are durable.
+     */
+    public void flush() {
+        long sequence;
+        lock.lock();
+        try {
+            sequence = enqueuedSequence;
+            if (committedSequence >= sequence) {
+                return;
+            }
+            flushRequestedSequence = sequence;
+            pendingChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        awaitDurable(sequence);
+    }
+
+    /**
+     * Flushes the pending deltas and stops the writer thread. Nothing can be enqueued after this.
+     * A failed batch is only logged, so that the caller can go on releasing its resources.
+     */
+    public void close() {
+        try {
+            flush();
+        } catch (IllegalStateException e) {
+            LOG.error("Closing the HA group commit writer without persisting {} pending state changes", getPendingCount(), e);
+        } finally {
+            lock.lock();
+            try {
+                closed = true;
+                pendingChanged.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            try {
+                writerThread.join(TimeUnit.NANOSECONDS.toMillis(intervalNanos) + 5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public int getPendingCount() {
+        lock.lock();
+        try {
+            return pendingDeltas.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void checkWritable() {
+        if (failure != null) {
+            throw new IllegalStateException("HA group commit failed, the state of the leader can't be persisted anymore", failure);
+        }
+        if (closed) {
+            throw new IllegalStateException("HA group commit writer is closed");
+        }
+    }
+
+    private void writeBatches() {
+        while (true) {
+            List<PendingDelta> batch;
+            lock.lock();
+            try {
+                batch = nextBatch();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+            if (batch == null) {
+                return;
+            }
+
+            try {
+                commit(batch);
+            } catch (RuntimeException e) {
+                LOG.error("Failed to commit a batch of {} HA state changes", batch.size(), e);
+                lock.lock();
+                try {
+                    failure = e;
+                    batchCommitted.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            }
+
+            lock.lock();
+            try {
+                committedSequence += batch.size();
+                batchCommitted.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // waits until a batch is due, i.e. the oldest pending delta is older than the interval, enough deltas are pending or a flush
+    // has been requested, then removes it from the pending ones; returns null when closed with nothing left to commit
+    private List<PendingDelta> nextBatch() throws InterruptedException {
+        while (pendingDeltas.isEmpty()) {
+            if (closed) {
+                return null;
+            }
+            pendingChanged.await();
+        }
+        long deadline = pendingDeltas.peekFirst().enqueuedAtNanos() + intervalNanos;
+        while (pendingDeltas.size() < maxBatchSize && !closed && flushRequestedSequence <= committedSequence) {
+            long remainingNanos = deadline - System.nanoTime();
+            if (remainingNanos <= 0) {
+                break;
+            }
+            pendingChanged.awaitNanos(remainingNanos);
+        }
+        List<PendingDelta> batch = new ArrayList<>(Math.min(pendingDeltas.size(), maxBatchSize));
+        while (!pendingDeltas.isEmpty() && batch.size() < maxBatchSize) {
+            batch.add(pendingDeltas.pollFirst());
+        }
+        return batch;
+    }
+
+    private void commit(List<PendingDelta> batch) {
+        Map<String, CoalescedDelta> deltasByRuleSet = new LinkedHashMap<>();
+        for (PendingDelta delta : batch) {
+            deltasByRuleSet.computeIfAbsent(delta.sessionState().getRuleSetName(), ignored -> new CoalescedDelta()).add(delta);
+        }
+        for (CoalescedDelta delta : deltasByRuleSet.values()) {
+            haStateManager.persistSessionStateStatsEventRecordsAndMatchingEvents(delta.sessionState,
+                                                                                 delta.haStats,
+                                                                                 new ArrayList<>(delta.eventRecordChanges.values()),
+                                                                                 delta.matchingEvents);
+        }
+        LOG.debug("Committed a batch of {} HA state changes for {} rulesets", batch.size(), deltasByRuleSet.size());
+    }
+
+    private static List<EventRecordChange> copyEventRecordChanges(List<EventRecordChange> eventRecordChanges) {
+        List<EventRecordChange> copies = new ArrayList<>(eventRecordChanges.size());
+        for (EventRecordChange change : eventRecordChanges) {
+            if (change.getType() == EventRecordChange.Type.UPSERT) {
+                // the json of a tracked EventRecord is updated in place, so it has to be copied together with the SHA calculated on it
+                EventRecordEntry entry = change.getEntry();
+                EventRecord record = entry.getRecord();
+                EventRecord recordCopy = new EventRecord(record.getEventJson(), record.getInsertedAt(), record.getRecordType(), record.getExpirationDuration());
+                copies.add(EventRecordChange.upsert(new EventRecordEntry(entry.getRecordIdentifier(), entry.getRecordSequence(), recordCopy, entry.getEventRecordSHA())));
+            } else {
+                copies.add(change);
+            }
+        }
+        return copies;
+    }
+
+    private record PendingDelta(SessionState sessionState, HAStats haStats, List<EventRecordChange> eventRecordChanges,
+                                List<MatchingEvent> matchingEvents, long enqueuedAtNanos) {
+    }
+
+    private static class CoalescedDelta {
+
+        private SessionState sessionState;
+
+        private HAStats haStats;
+
+        // only the last change of each EventRecord matters, since it replaces or deletes its row
+        private final Map<String, EventRecordChange> eventRecordChanges = new LinkedHashMap<>();
+
+        private final List<MatchingEvent> matchingEvents = new ArrayList<>();
+
+        private void add(PendingDelta delta) {
+            sessionState = delta.sessionState();
+            haStats = delta.haStats();
+            for (EventRecordChange change : delta.eventRecordChanges()) {
+                eventRecordChanges.remove(change.getRecordIdentifier());
+                eventRecordChanges.put(change.getRecordIdentifier(), change);
+            }
+            matchingEvents.addAll(delta.matchingEvents());
+        }
+    }
+}
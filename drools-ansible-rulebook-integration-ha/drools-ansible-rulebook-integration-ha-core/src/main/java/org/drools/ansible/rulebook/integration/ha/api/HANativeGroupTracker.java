@@ -0,0 +1,48 @@
+package org.drools.ansible.rulebook.integration.ha.api;
+
+import java.util.List;
+import java.util.Map;
+
+import org.drools.ansible.rulebook.integration.api.domain.temporal.TimeConstraint;
+import org.drools.ansible.rulebook.integration.api.io.JsonMapper;
+import org.drools.ansible.rulebook.integration.api.rulesengine.NativeGroupListener;
+import org.drools.ansible.rulebook.integration.ha.model.EventRecord;
+
+/**
+ * Tracks the groups throttled or accumulated natively by a session evaluated with the NATIVE_THROTTLING option.
+ * Each group is persisted as a single control record, with the same content and expiration of the control event
+ * that would have been used without that option, so its state costs one record per group regardless of the
+ * number of accumulated events, and it is restored into the session on recovery. The groups of the sliding_window
+ * rules, which are always kept by the session, are persisted in the same way together with the counts of their buckets.
+ * A once_after group is persisted with the events collected in its control event, and expires at the end of the window
+ * shared by all the groups of its rule, so the rule fires on recovery when that window has ended in the meanwhile.
+ */
+public class HANativeGroupTracker implements NativeGroupListener {
+
+    private static final String NATIVE_GROUP_PREFIX = "native_group:";
+
+    private final HASessionContext haSessionContext;
+
+    public HANativeGroupTracker(HASessionContext haSessionContext) {
+        this.haSessionContext = haSessionContext;
+    }
+
+    @Override
+    public void groupChanged(String ruleName, List<Object> groupKey, Map<String, Object> controlData, long windowStart, long windowMillis) {
+        String identifier = toIdentifier(ruleName, groupKey);
+        String json = JsonMapper.toJson(controlData);
+        if (!haSessionContext.updateTrackedRecord(identifier, json)) {
+            EventRecord.RecordType recordType = EventRecord.RecordType.getByControlName((String) controlData.get(TimeConstraint.CONTROL_NAME));
+            haSessionContext.addTrackedRecord(identifier, new EventRecord(json, windowStart, recordType, windowMillis), null);
+        }
+    }
+
+    @Override
+    public void groupClosed(String ruleName, List<Object> groupKey) {
+        haSessionContext.removeTrackedRecord(toIdentifier(ruleName, groupKey));
+    }
+
+    private static String toIdentifier(String ruleName, List<Object> groupKey) {
+        return NATIVE_GROUP_PREFIX + ruleName + ":" + JsonMapper.toJson(groupKey);
+    }
+}
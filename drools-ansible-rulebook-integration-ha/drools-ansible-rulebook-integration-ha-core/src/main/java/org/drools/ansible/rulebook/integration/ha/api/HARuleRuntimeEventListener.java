@@ -152,19 +152,21 @@ public class HARuleRuntimeEventListener extends DefaultRuleRuntimeEventListener
     public void objectUpdated(ObjectUpdatedEvent event) {
         try {
             PrototypeFactInstance protoFact = toPrototypeFactOrNull(event.getObject());
-            if (protoFact == null || !isSyntheticControlEvent(protoFact)) {
+            if (protoFact == null) {
                 return;
             }
 
+            // control events are updated by the temporal operators, user facts by updateFact
             InternalFactHandle factHandle = (InternalFactHandle) event.getFactHandle();
-            String updatedJson = JsonMapper.toJson(flattenPrototypeFact(protoFact));
+            boolean isSynthetic = isSyntheticControlEvent(protoFact);
+            String updatedJson = isSynthetic ? JsonMapper.toJson(flattenPrototypeFact(protoFact)) : JsonMapper.toJson(protoFact.asMap());
 
             // Only the JSON content changes on update; expirationDuration remains unchanged
             haSessionContext.updateTrackedRecordByFactHandle(factHandle.getId(), updatedJson);
 
-            logger.debug("Updated control event with fact handle ID: {}", factHandle.getId());
+            logger.debug("Updated {} with fact handle ID: {}", isSynthetic ? "control event" : "fact", factHandle.getId());
             if (logger.isTraceEnabled()) {
-                logger.trace("Updated control event JSON: {}", updatedJson);
+                logger.trace("Updated JSON: {}", updatedJson);
             }
         } catch (Exception e) {
             logger.warn("Failed to track update in HA context", e);
@@ -109,6 +109,14 @@ public class HARulesEvaluator extends SyncRulesEvaluator {
         return ((HARulesExecutorSession) rulesExecutorSession).getHaSessionContext();
     }
 
+    public void restoreNativeGroup(Map<String, Object> controlData, long windowStart, long windowMillis) {
+        rulesExecutorSession.restoreNativeGroup(controlData, windowStart, windowMillis);
+    }
+
+    public Map<String, Long> getTimedOutDeadlines() {
+        return rulesExecutorSession.getTimedOutDeadlines();
+    }
+
     public void setScheduledMatchCallback(Function<List<Match>, List<Map<String, Object>>> callback) {
         this.scheduledMatchCallback = callback;
     }
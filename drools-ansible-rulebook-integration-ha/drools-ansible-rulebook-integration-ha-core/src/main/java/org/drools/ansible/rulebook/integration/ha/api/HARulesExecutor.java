@@ -82,7 +82,7 @@ public class HARulesExecutor extends RulesExecutor {
 
     @Override
     public CompletableFuture<List<Match>> processEvents(String json) {
-        MemoryMonitorUtil.checkMemoryOccupation(rulesEvaluator.getSessionStatsCollector());
+        MemoryMonitorUtil.checkMemoryOccupation(rulesEvaluator.getSessionStatsView());
         rulesEvaluator.stashFirstEventJsonForValidation(json);
 
         Map<String, Object> eventMap = asFactMap(json);
@@ -108,11 +108,25 @@ public class HARulesExecutor extends RulesExecutor {
 
     @Override
     public CompletableFuture<List<Match>> processFacts(String json) {
-        MemoryMonitorUtil.checkMemoryOccupation(rulesEvaluator.getSessionStatsCollector());
+        MemoryMonitorUtil.checkMemoryOccupation(rulesEvaluator.getSessionStatsView());
         getHaSessionContext().preparePendingRecord(UUID.randomUUID().toString(), json, EventRecord.RecordType.FACT);
         return rulesEvaluator.processFacts(asFactMap(json));
     }
 
+    /**
+     * Restores a group throttled or accumulated natively by the session, see HANativeGroupTracker
+     */
+    public void restoreNativeGroup(Map<String, Object> controlData, long windowStart, long windowMillis) {
+        ((HARulesEvaluator) rulesEvaluator).restoreNativeGroup(controlData, windowStart, windowMillis);
+    }
+
+    /**
+     * Returns the deadlines of the timed_out sequences kept by the session with the NATIVE_TIMED_OUT option
+     */
+    public Map<String, Long> getTimedOutDeadlines() {
+        return ((HARulesEvaluator) rulesEvaluator).getTimedOutDeadlines();
+    }
+
     public HASessionContext getHaSessionContext() {
         return ((HARulesEvaluator) rulesEvaluator).getHaSessionContext();
     }
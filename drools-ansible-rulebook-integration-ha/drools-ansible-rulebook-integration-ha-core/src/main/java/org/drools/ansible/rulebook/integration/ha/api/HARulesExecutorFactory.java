@@ -2,14 +2,14 @@ package org.drools.ansible.rulebook.integration.ha.api;
 
 import java.util.function.Consumer;
 
+import org.drools.ansible.rulebook.integration.api.KieBaseCache;
+import org.drools.ansible.rulebook.integration.api.RuleConfigurationOption;
 import org.drools.ansible.rulebook.integration.api.RuleFormat;
 import org.drools.ansible.rulebook.integration.api.RuleNotation;
 import org.drools.ansible.rulebook.integration.api.RulesExecutor;
 import org.drools.ansible.rulebook.integration.api.RulesExecutorFactory;
 import org.drools.ansible.rulebook.integration.api.domain.RulesSet;
-import org.drools.ansible.rulebook.integration.api.rulesengine.RulesExecutionController;
 import org.drools.ansible.rulebook.integration.api.rulesengine.RulesExecutorSession;
-import org.kie.api.runtime.KieSession;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -18,6 +18,13 @@ public class HARulesExecutorFactory extends RulesExecutorFactory {
     private static final Logger LOG = LoggerFactory.getLogger(HARulesExecutorFactory.class);
 
     public static RulesExecutor createRulesExecutor(RulesSet rulesSet, String rulesetString) {
+        if (rulesSet.getShards() > 1) {
+            throw new UnsupportedOperationException("Ruleset " + rulesSet.getName() + " cannot be evaluated on multiple shards in HA mode");
+        }
+        if (rulesSet.hasOption(RuleConfigurationOption.MICRO_BATCHING)) {
+            // the state of the session is persisted once per processed event, which can't be done for a batch of them
+            throw new UnsupportedOperationException("Ruleset " + rulesSet.getName() + " cannot be evaluated in micro-batches in HA mode");
+        }
         RulesExecutor rulesExecutor = new HARulesExecutor(createRulesExecutorSession(rulesSet), rulesetString);
         configurePseudoClock(rulesSet, rulesExecutor);
         return rulesExecutor;
@@ -38,8 +45,7 @@ public class HARulesExecutorFactory extends RulesExecutorFactory {
     }
 
     protected static RulesExecutorSession createRulesExecutorSession(RulesSet rulesSet) {
-        RulesExecutionController rulesExecutionController = new RulesExecutionController();
-        KieSession kieSession = createKieSession(rulesSet, rulesExecutionController);
-        return new HARulesExecutorSession(rulesSet, kieSession, rulesExecutionController, ID_GENERATOR.getAndIncrement());
+        KieBaseCache.CachedKieBase kieBase = KieBaseCache.get().acquire(rulesSet);
+        return new HARulesExecutorSession(kieBase.getRulesSet(), kieBase.newKieSession(), kieBase.getRulesExecutionController(), ID_GENERATOR.getAndIncrement());
     }
 }
@@ -4,8 +4,6 @@ import org.drools.ansible.rulebook.integration.api.domain.RulesSet;
 import org.drools.ansible.rulebook.integration.api.rulesengine.RulesExecutionController;
 import org.drools.ansible.rulebook.integration.api.rulesengine.RulesExecutorSession;
 import org.drools.core.common.DefaultEventHandle;
-import org.drools.core.common.ReteEvaluator;
-import org.drools.core.impl.WorkingMemoryReteExpireAction;
 import org.kie.api.runtime.KieSession;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,17 +25,17 @@ public class HARulesExecutorSession extends RulesExecutorSession {
 
         // Register listener to track ALL insertions/deletions (including control events)
         kieSession.addEventListener(eventListener);
+        // the groups throttled without control events are tracked as if they were control events
+        setNativeGroupListener(new HANativeGroupTracker(haSessionContext));
+    }
 
-        // Register working memory action listener to detect event expirations.
-        // Drools does NOT fire objectDeleted for TTL-expired events, so we use this hook
-        // (the same mechanism used by drools-reliability) to clean up trackedRecords.
-        ((ReteEvaluator) kieSession).setWorkingMemoryActionListener(entry -> {
-            if (entry instanceof WorkingMemoryReteExpireAction) {
-                DefaultEventHandle factHandle = ((WorkingMemoryReteExpireAction) entry).getFactHandle();
-                haSessionContext.removeTrackedRecordByFactHandle(factHandle.getId());
-                LOG.debug("Removed expired event from trackedRecords: factHandleId={}", factHandle.getId());
-            }
-        });
+    // Drools does NOT fire objectDeleted for TTL-expired events, so the expirations are detected through
+    // the working memory action listener (the same mechanism used by drools-reliability) to clean up trackedRecords.
+    @Override
+    protected void onEventExpired(DefaultEventHandle factHandle) {
+        super.onEventExpired(factHandle);
+        haSessionContext.removeTrackedRecordByFactHandle(factHandle.getId());
+        LOG.debug("Removed expired event from trackedRecords: factHandleId={}", factHandle.getId());
     }
 
     public RulesSet getRulesSet() {
@@ -1,12 +1,16 @@
 package org.drools.ansible.rulebook.integration.ha.api;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 import org.drools.ansible.rulebook.integration.ha.model.EventRecord;
 import org.drools.ansible.rulebook.integration.ha.model.EventRecordChange;
@@ -20,19 +24,25 @@ public class HASessionContext {
 
     // No concurrency expected, AbstractRulesEvaluator.atomicRuleEvaluation ensures synchronized access
 
-    // Track events/facts existing in the session. Eventually persisted as SessionState.partialEvents
-    private final LinkedHashMap<String, EventRecord> trackedRecords = new LinkedHashMap<>();
+    // Track events/facts existing in the session, together with their sequence and SHA. Eventually persisted as SessionState.partialEvents.
+    // A sequence is assigned when a record is tracked for the first time and kept while it is updated, so the map, preserving the
+    // insertion order, is always ordered by sequence and can be snapshotted in recovery order without sorting or rehashing.
+    private final LinkedHashMap<String, EventRecordEntry> trackedEntries = new LinkedHashMap<>();
+
+    private final List<EventRecord> trackedRecordsView = new TrackedRecordsView();
 
     // Associate factHandleIds to identifiers for efficient lookup during updates/deletions
     private final Map<Long, String> factHandleIndex = new HashMap<>();
 
-    // Stable per-record sequence for deterministic row-backed recovery ordering
-    private final Map<String, Long> recordSequenceIndex = new HashMap<>();
+    // Reverse of factHandleIndex, to unlink a record from its fact handle without scanning all of them
+    private final Map<String, Long> identifierFactHandleIndex = new HashMap<>();
 
-    private final Map<String, String> eventRecordShaIndex = new HashMap<>();
+    // Digest of all the tracked records, updated as they change, see EventRecordsManifest
+    private final EventRecordsManifest eventRecordsManifest = new EventRecordsManifest();
 
     private final List<EventRecordChange> pendingEventRecordChanges = new ArrayList<>();
 
+    // Stable per-record sequence for deterministic row-backed recovery ordering
     private long nextRecordSequence = 0L;
 
     // Circular buffer of processed event IDs for duplicate detection
@@ -45,8 +55,20 @@ public class HASessionContext {
     // Used to distinguish user events/facts from synthetic control events.
     private PendingRecord pendingRecord;
 
-    public LinkedHashMap<String, EventRecord> getTrackedRecords() {
-        return trackedRecords;
+    /**
+     * @return the tracked records, ordered by sequence
+     */
+    public Collection<EventRecordEntry> getTrackedEntries() {
+        return Collections.unmodifiableCollection(trackedEntries.values());
+    }
+
+    /**
+     * @return an unmodifiable view of the tracked records, ordered by sequence, reflecting their following changes.
+     * It is handed to the SessionState after each event without copying the records, which are only iterated
+     * when they are persisted, so it has to be copied to keep its current content.
+     */
+    public List<EventRecord> getTrackedRecords() {
+        return trackedRecordsView;
     }
 
     public void addTrackedRecord(String identifier, EventRecord eventRecord, Long factHandleId) {
@@ -55,14 +77,12 @@ public class HASessionContext {
         }
 
         removeFactHandleIndexForIdentifier(identifier);
-        trackedRecords.put(identifier, eventRecord);
-        long recordSequence = recordSequenceIndex.computeIfAbsent(identifier, ignored -> nextRecordSequence++);
-        EventRecordEntry entry = new EventRecordEntry(identifier, recordSequence, eventRecord);
-        String eventRecordSHA = HAUtils.calculateEventRecordSHA(entry);
-        eventRecordShaIndex.put(identifier, eventRecordSHA);
-        pendingEventRecordChanges.add(EventRecordChange.upsert(new EventRecordEntry(identifier, recordSequence, eventRecord, eventRecordSHA)));
+        EventRecordEntry previousEntry = trackedEntries.get(identifier);
+        long recordSequence = previousEntry != null ? previousEntry.getRecordSequence() : nextRecordSequence++;
+        pendingEventRecordChanges.add(EventRecordChange.upsert(track(identifier, recordSequence, eventRecord, previousEntry)));
         if (factHandleId != null) {
             factHandleIndex.put(factHandleId, identifier);
+            identifierFactHandleIndex.put(identifier, factHandleId);
         }
     }
 
@@ -70,10 +90,10 @@ public class HASessionContext {
         if (identifier == null) {
             return;
         }
-        if (trackedRecords.remove(identifier) != null) {
+        EventRecordEntry entry = trackedEntries.remove(identifier);
+        if (entry != null) {
             removeFactHandleIndexForIdentifier(identifier);
-            recordSequenceIndex.remove(identifier);
-            eventRecordShaIndex.remove(identifier);
+            eventRecordsManifest.remove(identifier, entry.getRecordSequence(), entry.getEventRecordSHA());
             pendingEventRecordChanges.add(EventRecordChange.delete(identifier));
         }
     }
@@ -90,24 +110,26 @@ public class HASessionContext {
         if (identifier == null) {
             return;
         }
-        if (trackedRecords.remove(identifier) != null) {
+        EventRecordEntry entry = trackedEntries.remove(identifier);
+        if (entry != null) {
             removeFactHandleIndexForIdentifier(identifier);
-            recordSequenceIndex.remove(identifier);
-            eventRecordShaIndex.remove(identifier);
+            eventRecordsManifest.remove(identifier, entry.getRecordSequence(), entry.getEventRecordSHA());
             pendingEventRecordChanges.removeIf(change -> identifier.equals(change.getRecordIdentifier()));
         }
     }
 
     public void removeTrackedRecordByFactHandle(long factHandleId) {
-        String identifier = factHandleIndex.remove(factHandleId);
+        String identifier = factHandleIndex.get(factHandleId);
         if (identifier != null) {
+            removeFactHandleIndexForIdentifier(identifier);
             removeTrackedRecord(identifier);
         }
     }
 
     public void discardTrackedRecordByFactHandle(long factHandleId) {
-        String identifier = factHandleIndex.remove(factHandleId);
+        String identifier = factHandleIndex.get(factHandleId);
         if (identifier != null) {
+            removeFactHandleIndexForIdentifier(identifier);
             discardTrackedRecord(identifier);
         }
     }
@@ -122,14 +144,7 @@ public class HASessionContext {
     public void updateTrackedRecordByFactHandle(long factHandleId, String updatedJson) {
         String identifier = factHandleIndex.get(factHandleId);
         if (identifier != null) {
-            EventRecord eventRecord = trackedRecords.get(identifier);
-            if (eventRecord != null) {
-                eventRecord.setEventJson(updatedJson);
-                long recordSequence = recordSequenceIndex.computeIfAbsent(identifier, ignored -> nextRecordSequence++);
-                EventRecordEntry entry = new EventRecordEntry(identifier, recordSequence, eventRecord);
-                String eventRecordSHA = HAUtils.calculateEventRecordSHA(entry);
-                eventRecordShaIndex.put(identifier, eventRecordSHA);
-                pendingEventRecordChanges.add(EventRecordChange.upsert(new EventRecordEntry(identifier, recordSequence, eventRecord, eventRecordSHA)));
+            if (updateTrackedRecord(identifier, updatedJson)) {
                 logger.debug("Updated EventRecord for identifier: {}, factHandleId: {}", identifier, factHandleId);
             } else {
                 logger.warn("No EventRecord found for identifier: {} during update", identifier);
@@ -139,6 +154,22 @@ public class HASessionContext {
         }
     }
 
+    /**
+     * Updates the JSON content of the EventRecord with the given identifier, if tracked.
+     *
+     * @return true if the record has been found and updated
+     */
+    public boolean updateTrackedRecord(String identifier, String updatedJson) {
+        EventRecordEntry previousEntry = trackedEntries.get(identifier);
+        if (previousEntry == null) {
+            return false;
+        }
+        EventRecord eventRecord = previousEntry.getRecord();
+        eventRecord.setEventJson(updatedJson);
+        pendingEventRecordChanges.add(EventRecordChange.upsert(track(identifier, previousEntry.getRecordSequence(), eventRecord, previousEntry)));
+        return true;
+    }
+
     public void preparePendingRecord(String identifier, String json, EventRecord.RecordType type) {
         if (identifier == null || json == null || type == null) {
             throw new IllegalArgumentException("Invalid arguments passed to preparePendingRecord : " +
@@ -188,19 +219,69 @@ public class HASessionContext {
     }
 
     public List<EventRecordEntry> snapshotEventRecordEntries() {
-        List<EventRecordEntry> entries = new ArrayList<>(trackedRecords.size());
-        for (Map.Entry<String, EventRecord> entry : trackedRecords.entrySet()) {
-            String identifier = entry.getKey();
-            long recordSequence = recordSequenceIndex.computeIfAbsent(identifier, ignored -> nextRecordSequence++);
-            String eventRecordSHA = eventRecordShaIndex.computeIfAbsent(identifier,
-                    ignored -> HAUtils.calculateEventRecordSHA(new EventRecordEntry(identifier, recordSequence, entry.getValue())));
-            entries.add(new EventRecordEntry(identifier, recordSequence, entry.getValue(), eventRecordSHA));
+        return new ArrayList<>(trackedEntries.values());
+    }
+
+    /**
+     * Returns the manifest of the tracked records, as calculated from scratch by HAUtils.calculateEventRecordsManifestSHA,
+     * without rehashing them.
+     */
+    public String getEventRecordsManifestSHA() {
+        return eventRecordsManifest.toSHA();
+    }
+
+    // hashes the given record, replacing the entry of its former content, if any, both in the tracked entries and in the manifest
+    private EventRecordEntry track(String identifier, long recordSequence, EventRecord eventRecord, EventRecordEntry previousEntry) {
+        String eventRecordSHA = HAUtils.calculateEventRecordSHA(new EventRecordEntry(identifier, recordSequence, eventRecord));
+        EventRecordEntry entry = new EventRecordEntry(identifier, recordSequence, eventRecord, eventRecordSHA);
+        trackedEntries.put(identifier, entry);
+        if (previousEntry != null) {
+            eventRecordsManifest.remove(identifier, previousEntry.getRecordSequence(), previousEntry.getEventRecordSHA());
         }
-        return entries;
+        eventRecordsManifest.add(identifier, recordSequence, eventRecordSHA);
+        return entry;
     }
 
     private void removeFactHandleIndexForIdentifier(String identifier) {
-        factHandleIndex.entrySet().removeIf(entry -> identifier.equals(entry.getValue()));
+        Long factHandleId = identifierFactHandleIndex.remove(identifier);
+        if (factHandleId != null) {
+            factHandleIndex.remove(factHandleId);
+        }
+    }
+
+    // the records are meant to be iterated, getting one by index requires walking the entries up to it
+    private class TrackedRecordsView extends AbstractList<EventRecord> {
+
+        @Override
+        public EventRecord get(int index) {
+            Objects.checkIndex(index, size());
+            Iterator<EventRecord> records = iterator();
+            for (int i = 0; i < index; i++) {
+                records.next();
+            }
+            return records.next();
+        }
+
+        @Override
+        public int size() {
+            return trackedEntries.size();
+        }
+
+        @Override
+        public Iterator<EventRecord> iterator() {
+            Iterator<EventRecordEntry> entries = trackedEntries.values().iterator();
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return entries.hasNext();
+                }
+
+                @Override
+                public EventRecord next() {
+                    return entries.next().getRecord();
+                }
+            };
+        }
     }
 
     public static final class PendingRecord {
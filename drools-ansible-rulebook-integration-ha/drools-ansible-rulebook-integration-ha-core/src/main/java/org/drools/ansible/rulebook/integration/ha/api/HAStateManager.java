@@ -222,6 +222,16 @@ public interface HAStateManager {
                                                                List<EventRecordChange> eventRecordChanges,
                                                                List<MatchingEvent> matchingEvents);
 
+    /**
+     * Same as {@link #persistSessionStateStatsEventRecordsAndMatchingEvents(SessionState, List, List)}, but persisting
+     * the given snapshot of the HA stats, taken together with the session state, instead of their current values.
+     * Used when the state is persisted by a different thread while the session keeps updating the stats.
+     */
+    void persistSessionStateStatsEventRecordsAndMatchingEvents(SessionState sessionState,
+                                                               HAStats haStatsSnapshot,
+                                                               List<EventRecordChange> eventRecordChanges,
+                                                               List<MatchingEvent> matchingEvents);
+
     /**
      * Persist session state, HA stats, a full retained EventRecord row snapshot,
      * and matching events in a single transaction.
@@ -89,7 +89,27 @@ public class HAUtils {
         return sha256(toEventRecordHashableContent(entry));
     }
 
+    /**
+     * Calculate the manifest of the given EventRecords from scratch, as it is incrementally maintained by the
+     * EventRecordsManifest of the HASessionContext while the records change.
+     */
     public static String calculateEventRecordsManifestSHA(List<EventRecordEntry> entries) {
+        EventRecordsManifest manifest = new EventRecordsManifest();
+        if (entries != null) {
+            for (EventRecordEntry entry : entries) {
+                manifest.add(entry.getRecordIdentifier(), entry.getRecordSequence(), entry.getEventRecordSHA() != null
+                        ? entry.getEventRecordSHA()
+                        : calculateEventRecordSHA(entry));
+            }
+        }
+        return manifest.toSHA();
+    }
+
+    /**
+     * Calculate the manifest of the given EventRecords as the SHA of their sorted list, as done before the manifest was
+     * incrementally maintained. Only used to verify the states persisted with that format.
+     */
+    public static String calculateLegacyEventRecordsManifestSHA(List<EventRecordEntry> entries) {
         if (entries == null) {
             return sha256("[]");
         }
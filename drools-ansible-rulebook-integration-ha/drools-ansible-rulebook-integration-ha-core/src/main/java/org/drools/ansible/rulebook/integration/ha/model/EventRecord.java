@@ -3,6 +3,7 @@ package org.drools.ansible.rulebook.integration.ha.model;
 import org.drools.ansible.rulebook.integration.api.domain.temporal.AccumulateWithinDefinition;
 import org.drools.ansible.rulebook.integration.api.domain.temporal.OnceAfterDefinition;
 import org.drools.ansible.rulebook.integration.api.domain.temporal.OnceWithinDefinition;
+import org.drools.ansible.rulebook.integration.api.domain.temporal.SlidingWindowDefinition;
 import org.drools.ansible.rulebook.integration.api.domain.temporal.TimedOutDefinition;
 import org.drools.ansible.rulebook.integration.api.domain.temporal.TimeWindowDefinition;
 
@@ -15,7 +16,8 @@ public class EventRecord {
         CONTROL_ACCUMULATE_WITHIN(true, AccumulateWithinDefinition.ACCUMULATE_WITHIN_CONTROL),
         CONTROL_ONCE_AFTER(true, OnceAfterDefinition.ONCE_AFTER_CONTROL),
         CONTROL_TIMED_OUT(true, TimedOutDefinition.TIMED_OUT_CONTROL),
-        CONTROL_TIME_WINDOW(true, TimeWindowDefinition.TIME_WINDOW_CONTROL);
+        CONTROL_TIME_WINDOW(true, TimeWindowDefinition.TIME_WINDOW_CONTROL),
+        CONTROL_SLIDING_WINDOW(true, SlidingWindowDefinition.SLIDING_WINDOW_CONTROL);
 
         private final boolean synthetic;
 
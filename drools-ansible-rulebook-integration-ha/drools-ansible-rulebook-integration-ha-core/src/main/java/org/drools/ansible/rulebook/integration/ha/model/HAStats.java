@@ -11,6 +11,10 @@ import org.drools.ansible.rulebook.integration.api.rulesengine.SessionStats;
 /**
  * High Availability statistics for tracking leader status, transitions, and processing metrics.
  * Based on the HA Stats specification from the EDA HA documentation.
+ *
+ * The stats are updated by the thread processing the events, while they can be read and persisted by others, like the
+ * writer of the group commit, so all their accessors are synchronized and a consistent snapshot of them can be taken
+ * with {@link #copy()}.
  */
 public class HAStats implements Serializable {
 
@@ -27,6 +31,8 @@ public class HAStats implements Serializable {
     private int partialFulfilledRules;
     private SessionStats globalSessionStats;
     private Long sessionStateSize;  // Size in bytes of the latest SessionState record
+    private int commitsInTerm;  // Transactions persisting the state of a processed event
+    private long commitRoundTripsInTerm;  // Database round trips of those transactions, including their commit
 
     // Extensibility columns for future use without schema migration
     private Map<String, Object> metadata = new HashMap<>();
@@ -60,7 +66,7 @@ public class HAStats implements Serializable {
      *
      * @return HA UUID
      */
-    public String getHaUuid() {
+    public synchronized String getHaUuid() {
         return haUuid;
     }
 
@@ -69,7 +75,7 @@ public class HAStats implements Serializable {
      *
      * @param haUuid HA UUID
      */
-    public void setHaUuid(String haUuid) {
+    public synchronized void setHaUuid(String haUuid) {
         this.haUuid = haUuid;
     }
 
@@ -78,7 +84,7 @@ public class HAStats implements Serializable {
      *
      * @return current leader name
      */
-    public String getCurrentLeader() {
+    public synchronized String getCurrentLeader() {
         return currentLeader;
     }
 
@@ -87,7 +93,7 @@ public class HAStats implements Serializable {
      *
      * @param currentLeader leader name
      */
-    public void setCurrentLeader(String currentLeader) {
+    public synchronized void setCurrentLeader(String currentLeader) {
         if (!Objects.equals(this.currentLeader, currentLeader)) {
             this.currentLeader = currentLeader;
             this.currentTermStartedAt = Instant.now().toString();
@@ -95,6 +101,8 @@ public class HAStats implements Serializable {
             // Reset term counters when leader changes
             this.eventsProcessedInTerm = 0;
             this.actionsProcessedInTerm = 0;
+            this.commitsInTerm = 0;
+            this.commitRoundTripsInTerm = 0;
         }
     }
 
@@ -103,11 +111,11 @@ public class HAStats implements Serializable {
      *
      * @return number of leader switches
      */
-    public int getLeaderSwitches() {
+    public synchronized int getLeaderSwitches() {
         return leaderSwitches;
     }
 
-    public void setLeaderSwitches(int leaderSwitches) {
+    public synchronized void setLeaderSwitches(int leaderSwitches) {
         this.leaderSwitches = leaderSwitches;
     }
 
@@ -116,11 +124,11 @@ public class HAStats implements Serializable {
      *
      * @return current term start time
      */
-    public String getCurrentTermStartedAt() {
+    public synchronized String getCurrentTermStartedAt() {
         return currentTermStartedAt;
     }
 
-    public void setCurrentTermStartedAt(String currentTermStartedAt) {
+    public synchronized void setCurrentTermStartedAt(String currentTermStartedAt) {
         this.currentTermStartedAt = currentTermStartedAt;
     }
 
@@ -129,18 +137,18 @@ public class HAStats implements Serializable {
      *
      * @return events processed count
      */
-    public int getEventsProcessedInTerm() {
+    public synchronized int getEventsProcessedInTerm() {
         return eventsProcessedInTerm;
     }
 
-    public void setEventsProcessedInTerm(int eventsProcessedInTerm) {
+    public synchronized void setEventsProcessedInTerm(int eventsProcessedInTerm) {
         this.eventsProcessedInTerm = eventsProcessedInTerm;
     }
 
     /**
      * Increments the events processed counter for the current term
      */
-    public void incrementEventsProcessed() {
+    public synchronized void incrementEventsProcessed() {
         this.eventsProcessedInTerm++;
     }
 
@@ -149,18 +157,18 @@ public class HAStats implements Serializable {
      *
      * @return actions processed count
      */
-    public int getActionsProcessedInTerm() {
+    public synchronized int getActionsProcessedInTerm() {
         return actionsProcessedInTerm;
     }
 
-    public void setActionsProcessedInTerm(int actionsProcessedInTerm) {
+    public synchronized void setActionsProcessedInTerm(int actionsProcessedInTerm) {
         this.actionsProcessedInTerm = actionsProcessedInTerm;
     }
 
     /**
      * Increments the actions processed counter for the current term
      */
-    public void incrementActionsProcessed() {
+    public synchronized void incrementActionsProcessed() {
         this.actionsProcessedInTerm++;
     }
 
@@ -169,7 +177,7 @@ public class HAStats implements Serializable {
      *
      * @return pending matching events count
      */
-    public int getIncompleteMatchingEvents() {
+    public synchronized int getIncompleteMatchingEvents() {
         return incompleteMatchingEvents;
     }
 
@@ -178,7 +186,7 @@ public class HAStats implements Serializable {
      *
      * @param incompleteMatchingEvents pending matching events count
      */
-    public void setIncompleteMatchingEvents(int incompleteMatchingEvents) {
+    public synchronized void setIncompleteMatchingEvents(int incompleteMatchingEvents) {
         this.incompleteMatchingEvents = incompleteMatchingEvents;
     }
 
@@ -187,7 +195,7 @@ public class HAStats implements Serializable {
      *
      * @return partial events in memory count
      */
-    public int getPartialEventsInMemory() {
+    public synchronized int getPartialEventsInMemory() {
         return partialEventsInMemory;
     }
 
@@ -196,7 +204,7 @@ public class HAStats implements Serializable {
      *
      * @param partialEventsInMemory partial events in memory count
      */
-    public void setPartialEventsInMemory(int partialEventsInMemory) {
+    public synchronized void setPartialEventsInMemory(int partialEventsInMemory) {
         this.partialEventsInMemory = partialEventsInMemory;
     }
 
@@ -205,7 +213,7 @@ public class HAStats implements Serializable {
      *
      * @return partial fulfilled rules count
      */
-    public int getPartialFulfilledRules() {
+    public synchronized int getPartialFulfilledRules() {
         return partialFulfilledRules;
     }
 
@@ -214,7 +222,7 @@ public class HAStats implements Serializable {
      *
      * @param partialFulfilledRules partial fulfilled rules count
      */
-    public void setPartialFulfilledRules(int partialFulfilledRules) {
+    public synchronized void setPartialFulfilledRules(int partialFulfilledRules) {
         this.partialFulfilledRules = partialFulfilledRules;
     }
 
@@ -223,7 +231,7 @@ public class HAStats implements Serializable {
      *
      * @return global session stats
      */
-    public SessionStats getGlobalSessionStats() {
+    public synchronized SessionStats getGlobalSessionStats() {
         return globalSessionStats;
     }
 
@@ -232,7 +240,7 @@ public class HAStats implements Serializable {
      *
      * @param globalSessionStats aggregated session stats
      */
-    public void setGlobalSessionStats(SessionStats globalSessionStats) {
+    public synchronized void setGlobalSessionStats(SessionStats globalSessionStats) {
         this.globalSessionStats = globalSessionStats;
     }
 
@@ -241,7 +249,7 @@ public class HAStats implements Serializable {
      *
      * @return session state size in bytes
      */
-    public Long getSessionStateSize() {
+    public synchronized Long getSessionStateSize() {
         return sessionStateSize;
     }
 
@@ -250,39 +258,109 @@ public class HAStats implements Serializable {
      *
      * @param sessionStateSize size in bytes
      */
-    public void setSessionStateSize(Long sessionStateSize) {
+    public synchronized void setSessionStateSize(Long sessionStateSize) {
         this.sessionStateSize = sessionStateSize;
     }
 
-    public Map<String, Object> getMetadata() {
+    /**
+     * Gets the number of transactions persisting the state of a processed event in the current leader term
+     *
+     * @return commits count
+     */
+    public synchronized int getCommitsInTerm() {
+        return commitsInTerm;
+    }
+
+    public synchronized void setCommitsInTerm(int commitsInTerm) {
+        this.commitsInTerm = commitsInTerm;
+    }
+
+    /**
+     * Gets the number of database round trips of the transactions counted by {@link #getCommitsInTerm()}
+     *
+     * @return round trips count
+     */
+    public synchronized long getCommitRoundTripsInTerm() {
+        return commitRoundTripsInTerm;
+    }
+
+    public synchronized void setCommitRoundTripsInTerm(long commitRoundTripsInTerm) {
+        this.commitRoundTripsInTerm = commitRoundTripsInTerm;
+    }
+
+    /**
+     * Records a transaction persisting the state of a processed event
+     *
+     * @param roundTrips database round trips of the transaction, including its commit
+     */
+    public synchronized void recordCommit(int roundTrips) {
+        this.commitsInTerm++;
+        this.commitRoundTripsInTerm += roundTrips;
+    }
+
+    /**
+     * Gets the average number of database round trips per transaction in the current leader term
+     *
+     * @return round trips per commit, 0 if nothing has been committed yet
+     */
+    public synchronized double getRoundTripsPerCommit() {
+        return commitsInTerm == 0 ? 0 : (double) commitRoundTripsInTerm / commitsInTerm;
+    }
+
+    /**
+     * Returns a copy of these stats which isn't affected by their following changes, e.g. to persist them from a
+     * different thread together with the SessionState they have been updated with.
+     */
+    public synchronized HAStats copy() {
+        HAStats copy = new HAStats(haUuid);
+        copy.currentLeader = currentLeader;
+        copy.leaderSwitches = leaderSwitches;
+        copy.currentTermStartedAt = currentTermStartedAt;
+        copy.eventsProcessedInTerm = eventsProcessedInTerm;
+        copy.actionsProcessedInTerm = actionsProcessedInTerm;
+        copy.incompleteMatchingEvents = incompleteMatchingEvents;
+        copy.partialEventsInMemory = partialEventsInMemory;
+        copy.partialFulfilledRules = partialFulfilledRules;
+        copy.globalSessionStats = globalSessionStats;
+        copy.sessionStateSize = sessionStateSize;
+        copy.commitsInTerm = commitsInTerm;
+        copy.commitRoundTripsInTerm = commitRoundTripsInTerm;
+        copy.metadata = new HashMap<>(metadata);
+        copy.properties = new HashMap<>(properties);
+        copy.settings = new HashMap<>(settings);
+        copy.ext = new HashMap<>(ext);
+        return copy;
+    }
+
+    public synchronized Map<String, Object> getMetadata() {
         return metadata;
     }
 
-    public void setMetadata(Map<String, Object> metadata) {
+    public synchronized void setMetadata(Map<String, Object> metadata) {
         this.metadata = metadata != null ? metadata : new HashMap<>();
     }
 
-    public Map<String, Object> getProperties() {
+    public synchronized Map<String, Object> getProperties() {
         return properties;
     }
 
-    public void setProperties(Map<String, Object> properties) {
+    public synchronized void setProperties(Map<String, Object> properties) {
         this.properties = properties != null ? properties : new HashMap<>();
     }
 
-    public Map<String, Object> getSettings() {
+    public synchronized Map<String, Object> getSettings() {
         return settings;
     }
 
-    public void setSettings(Map<String, Object> settings) {
+    public synchronized void setSettings(Map<String, Object> settings) {
         this.settings = settings != null ? settings : new HashMap<>();
     }
 
-    public Map<String, Object> getExt() {
+    public synchronized Map<String, Object> getExt() {
         return ext;
     }
 
-    public void setExt(Map<String, Object> ext) {
+    public synchronized void setExt(Map<String, Object> ext) {
         this.ext = ext != null ? ext : new HashMap<>();
     }
 
@@ -301,6 +379,8 @@ public class HAStats implements Serializable {
                 incompleteMatchingEvents == haStats.incompleteMatchingEvents &&
                 partialEventsInMemory == haStats.partialEventsInMemory &&
                 partialFulfilledRules == haStats.partialFulfilledRules &&
+                commitsInTerm == haStats.commitsInTerm &&
+                commitRoundTripsInTerm == haStats.commitRoundTripsInTerm &&
                 Objects.equals(globalSessionStats, haStats.globalSessionStats) &&
                 Objects.equals(haUuid, haStats.haUuid) &&
                 Objects.equals(currentLeader, haStats.currentLeader) &&
@@ -317,6 +397,7 @@ public class HAStats implements Serializable {
         return Objects.hash(haUuid, currentLeader, leaderSwitches, currentTermStartedAt,
                             eventsProcessedInTerm, actionsProcessedInTerm, incompleteMatchingEvents,
                             partialEventsInMemory, partialFulfilledRules, globalSessionStats, sessionStateSize,
+                            commitsInTerm, commitRoundTripsInTerm,
                             metadata, properties, settings, ext);
     }
 
@@ -334,6 +415,8 @@ public class HAStats implements Serializable {
                 ", partialFulfilledRules=" + partialFulfilledRules +
                 ", globalSessionStats=" + globalSessionStats +
                 ", sessionStateSize=" + sessionStateSize +
+                ", commitsInTerm=" + commitsInTerm +
+                ", commitRoundTripsInTerm=" + commitRoundTripsInTerm +
                 ", metadata=" + metadata +
                 ", properties=" + properties +
                 ", settings=" + settings +
@@ -1,6 +1,7 @@
 package org.drools.ansible.rulebook.integration.ha.model;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -37,6 +38,12 @@ public class SessionState {
      */
     private String eventRecordsManifestSHA;
 
+    /*
+     * Transient manifest of the same rows, calculated as the SHA of their sorted list, to verify the states
+     * persisted before the manifest was incrementally maintained. Never folded into a new currentStateSHA.
+     */
+    private String legacyEventRecordsManifestSHA;
+
     // Extensibility columns for future use without schema migration
     private Map<String, Object> metadata = new HashMap<>();
     private Map<String, Object> properties = new HashMap<>();
@@ -127,6 +134,14 @@ public class SessionState {
         this.eventRecordsManifestSHA = eventRecordsManifestSHA;
     }
 
+    public String getLegacyEventRecordsManifestSHA() {
+        return legacyEventRecordsManifestSHA;
+    }
+
+    public void setLegacyEventRecordsManifestSHA(String legacyEventRecordsManifestSHA) {
+        this.legacyEventRecordsManifestSHA = legacyEventRecordsManifestSHA;
+    }
+
     public Map<String, Object> getMetadata() {
         return metadata;
     }
@@ -159,6 +174,33 @@ public class SessionState {
         this.ext = ext != null ? ext : new HashMap<>();
     }
 
+    /**
+     * Returns a copy of this SessionState which isn't affected by the following changes of this one,
+     * e.g. to persist it from a different thread while the session keeps processing events.
+     * The EventRecords themselves are shared, since a SessionState only replaces its list of them. When the state is
+     * backed by the event record rows, i.e. it has an eventRecordsManifestSHA, the list of the partial events isn't
+     * persisted with it, so it is shared too instead of being copied at each event.
+     */
+    public SessionState copy() {
+        SessionState copy = new SessionState();
+        copy.haUuid = haUuid;
+        copy.ruleSetName = ruleSetName;
+        copy.rulebookHash = rulebookHash;
+        copy.partialEvents = partialEvents != null && eventRecordsManifestSHA == null ? new ArrayList<>(partialEvents) : partialEvents;
+        copy.processedEventIds = processedEventIds != null ? new ArrayList<>(processedEventIds) : null;
+        copy.createdTime = createdTime;
+        copy.persistedTime = persistedTime;
+        copy.leaderId = leaderId;
+        copy.currentStateSHA = currentStateSHA;
+        copy.eventRecordsManifestSHA = eventRecordsManifestSHA;
+        copy.legacyEventRecordsManifestSHA = legacyEventRecordsManifestSHA;
+        copy.metadata = new HashMap<>(metadata);
+        copy.properties = new HashMap<>(properties);
+        copy.settings = new HashMap<>(settings);
+        copy.ext = new HashMap<>(ext);
+        return copy;
+    }
+
     /**
      * Returns a canonical representation of this SessionState for SHA calculation.
      * Excludes fields that are not part of the semantic working memory state:
@@ -181,7 +223,7 @@ public class SessionState {
             // Do not parse eventJson into Map<String, Object> or re-serialize it here;
             // JSON numeric type drift or map ordering changes could otherwise create
             // false SHA mismatches after recovery.
-            contentMap.put("partialEvents", partialEvents);
+            contentMap.put("partialEvents", partialEvents != null ? new ArrayList<>(partialEvents) : null);
         }
         contentMap.put("processedEventIds", processedEventIds);
         contentMap.put("createdTime", createdTime);
@@ -7,6 +7,7 @@ import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -55,6 +56,11 @@ public class H2StateManager extends AbstractHAStateManager {
         void execute(Connection conn) throws SQLException;
     }
 
+    @FunctionalInterface
+    private interface SqlWorkWithResult<T> {
+        T execute(Connection conn) throws SQLException;
+    }
+
     private HikariDataSource dataSource;
     private String leaderId;
     private boolean isLeader = false;
@@ -80,7 +86,7 @@ public class H2StateManager extends AbstractHAStateManager {
         }
     }
 
-    // ── Transaction helper ──────────────────────────────────────────────
+    // ── Transaction helpers ─────────────────────────────────────────────
 
     private void executeInTransaction(String errorMessage, SqlWork work) {
         try (Connection conn = dataSource.getConnection()) {
@@ -98,6 +104,23 @@ public class H2StateManager extends AbstractHAStateManager {
         }
     }
 
+    private <T> T executeInTransactionWithResult(String errorMessage, SqlWorkWithResult<T> work) {
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                T result = work.execute(conn);
+                conn.commit();
+                return result;
+            } catch (Exception e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            logger.error(errorMessage, e);
+            throw new RuntimeException(errorMessage, e);
+        }
+    }
+
     // ── Initialization ──────────────────────────────────────────────────
 
     @Override
@@ -230,6 +253,7 @@ public class H2StateManager extends AbstractHAStateManager {
                                                           .map(EventRecordEntry::getRecord)
                                                           .toList());
                     sessionState.setEventRecordsManifestSHA(HAUtils.calculateEventRecordsManifestSHA(eventRecordEntries));
+                    sessionState.setLegacyEventRecordsManifestSHA(HAUtils.calculateLegacyEventRecordsManifestSHA(eventRecordEntries));
                 } else {
                     String encryptedPartialEvents = rs.getString("partial_matching_events");
                     if (encryptedPartialEvents != null) {
@@ -244,6 +268,7 @@ public class H2StateManager extends AbstractHAStateManager {
                     } else {
                         sessionState.setPartialEvents(new ArrayList<>());
                         sessionState.setEventRecordsManifestSHA(HAUtils.calculateEventRecordsManifestSHA(List.of()));
+                        sessionState.setLegacyEventRecordsManifestSHA(HAUtils.calculateLegacyEventRecordsManifestSHA(List.of()));
                     }
                 }
 
@@ -402,9 +427,7 @@ public class H2StateManager extends AbstractHAStateManager {
             doSessionStateUpsert(conn, sessionState, finalEncryptedPartialEvents);
             doHAStatsUpsert(conn);
 
-            for (int i = 0; i < matchingEvents.size(); i++) {
-                doMatchingEventInsert(conn, matchingEvents.get(i), encryptedEventDataList.get(i));
-            }
+            doMatchingEventInserts(conn, matchingEvents, encryptedEventDataList);
         });
 
         logger.debug("Persisted SessionState, HAStats, and {} matching events in single transaction for haUuid: {}",
@@ -415,15 +438,24 @@ public class H2StateManager extends AbstractHAStateManager {
     public void persistSessionStateStatsEventRecordsAndMatchingEvents(SessionState sessionState,
                                                                       List<EventRecordChange> eventRecordChanges,
                                                                       List<MatchingEvent> matchingEvents) {
+        persistSessionStateStatsEventRecordsAndMatchingEvents(sessionState, haStats != null ? haStats.copy() : null,
+                                                              eventRecordChanges, matchingEvents);
+    }
+
+    @Override
+    public void persistSessionStateStatsEventRecordsAndMatchingEvents(SessionState sessionState,
+                                                                      HAStats haStatsSnapshot,
+                                                                      List<EventRecordChange> eventRecordChanges,
+                                                                      List<MatchingEvent> matchingEvents) {
         validateForPersist(sessionState);
 
-        if (haStats == null) {
+        if (haStatsSnapshot == null) {
             persistSessionStateEventRecordsAndMatchingEvents(sessionState, eventRecordChanges, matchingEvents);
             return;
         }
 
         ensureVersionInMetadata(sessionState.getMetadata());
-        prepareHAStatsForPersist();
+        prepareHAStatsForPersist(haStatsSnapshot);
 
         List<PreparedEventRecordChange> preparedEventRecordChanges = prepareEventRecordChanges(eventRecordChanges);
         List<String> encryptedEventDataList = new ArrayList<>();
@@ -434,17 +466,22 @@ public class H2StateManager extends AbstractHAStateManager {
             }
         }
 
-        executeInTransaction("Failed to persist SessionState, HAStats, EventRecord changes, and matching events", conn -> {
+        int roundTrips = executeInTransactionWithResult("Failed to persist SessionState, HAStats, EventRecord changes, and matching events", conn -> {
             doSessionStateUpsert(conn, sessionState, null);
-            doHAStatsUpsert(conn);
-            applyEventRecordChanges(conn, sessionState.getRuleSetName(), preparedEventRecordChanges);
+            int statements = 1 + applyEventRecordChanges(conn, sessionState.getRuleSetName(), preparedEventRecordChanges);
 
             if (matchingEvents != null) {
-                for (int i = 0; i < matchingEvents.size(); i++) {
-                    doMatchingEventInsert(conn, matchingEvents.get(i), encryptedEventDataList.get(i));
-                }
+                statements += doMatchingEventInserts(conn, matchingEvents, encryptedEventDataList);
             }
+
+            // the HA stats are upserted last, so that the persisted ones already count this transaction
+            int transactionRoundTrips = statements + 2; // the HA stats upsert and the commit
+            haStatsSnapshot.setCommitsInTerm(haStats.getCommitsInTerm() + 1);
+            haStatsSnapshot.setCommitRoundTripsInTerm(haStats.getCommitRoundTripsInTerm() + transactionRoundTrips);
+            doHAStatsUpsert(conn, haStatsSnapshot);
+            return transactionRoundTrips;
         });
+        haStats.recordCommit(roundTrips);
 
         logger.debug("Persisted SessionState, HAStats, {} EventRecord changes, and {} matching events in single transaction for haUuid: {}",
                      eventRecordChanges != null ? eventRecordChanges.size() : 0,
@@ -481,9 +518,7 @@ public class H2StateManager extends AbstractHAStateManager {
             replaceEventRecordEntries(conn, sessionState.getRuleSetName(), preparedEventRecordEntries);
 
             if (matchingEvents != null) {
-                for (int i = 0; i < matchingEvents.size(); i++) {
-                    doMatchingEventInsert(conn, matchingEvents.get(i), encryptedEventDataList.get(i));
-                }
+                doMatchingEventInserts(conn, matchingEvents, encryptedEventDataList);
             }
         });
     }
@@ -493,10 +528,14 @@ public class H2StateManager extends AbstractHAStateManager {
     }
 
     private void prepareHAStatsForPersist() {
-        if (haStats.getHaUuid() == null) {
-            haStats.setHaUuid(haUuid);
+        prepareHAStatsForPersist(haStats);
+    }
+
+    private void prepareHAStatsForPersist(HAStats stats) {
+        if (stats.getHaUuid() == null) {
+            stats.setHaUuid(haUuid);
         }
-        ensureVersionInMetadata(haStats.getMetadata());
+        ensureVersionInMetadata(stats.getMetadata());
     }
 
     private void doSessionStateUpsert(Connection conn, SessionState sessionState) throws SQLException {
@@ -508,7 +547,8 @@ public class H2StateManager extends AbstractHAStateManager {
             return null;
         }
         if (sessionState.getPartialEvents() != null) {
-            return encryptIfEnabled(toJson(sessionState.getPartialEvents()));
+            // the partial events may be a view of the records tracked by the session, copied only here to be serialized
+            return encryptIfEnabled(toJson(new ArrayList<>(sessionState.getPartialEvents())));
         }
         return null;
     }
@@ -559,9 +599,15 @@ public class H2StateManager extends AbstractHAStateManager {
         }
     }
 
-    private void doEventRecordUpsert(Connection conn, String ruleSetName, EventRecordEntry entry,
-                                     String encryptedEventJson, String eventRecordSha) throws SQLException {
-        EventRecord record = entry.getRecord();
+    /**
+     * Upserts the entries with a batched statement. H2 executes the entries of a batch one by one, so over a TCP connection each of them is a round trip.
+     *
+     * @return the number of round trips to the database
+     */
+    private int doEventRecordUpserts(Connection conn, String ruleSetName, List<PreparedEventRecordEntry> preparedEntries) throws SQLException {
+        if (preparedEntries.isEmpty()) {
+            return 0;
+        }
         String sql = "MERGE INTO " + EVENT_RECORD
                 + " (ha_uuid, rule_set_name, record_identifier, inserted_at, record_sequence, record_type,"
                 + " event_json, expiration_duration, event_record_sha, metadata, properties, settings, ext)"
@@ -569,31 +615,49 @@ public class H2StateManager extends AbstractHAStateManager {
                 + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, '{}', '{}', '{}', '{}')";
 
         try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, haUuid);
-            ps.setString(2, ruleSetName);
-            ps.setString(3, entry.getRecordIdentifier());
-            ps.setLong(4, record.getInsertedAt());
-            ps.setLong(5, entry.getRecordSequence());
-            ps.setString(6, record.getRecordType().name());
-            ps.setString(7, encryptedEventJson);
-            if (record.getExpirationDuration() == null) {
-                ps.setObject(8, null);
-            } else {
-                ps.setLong(8, record.getExpirationDuration());
+            for (PreparedEventRecordEntry preparedEntry : preparedEntries) {
+                EventRecordEntry entry = preparedEntry.entry();
+                EventRecord record = entry.getRecord();
+                ps.setString(1, haUuid);
+                ps.setString(2, ruleSetName);
+                ps.setString(3, entry.getRecordIdentifier());
+                ps.setLong(4, record.getInsertedAt());
+                ps.setLong(5, entry.getRecordSequence());
+                ps.setString(6, record.getRecordType().name());
+                ps.setString(7, preparedEntry.encryptedEventJson());
+                if (record.getExpirationDuration() == null) {
+                    ps.setObject(8, null);
+                } else {
+                    ps.setLong(8, record.getExpirationDuration());
+                }
+                ps.setString(9, preparedEntry.eventRecordSha());
+                ps.addBatch();
             }
-            ps.setString(9, eventRecordSha);
-            ps.executeUpdate();
+            ps.executeBatch();
         }
+        return preparedEntries.size();
     }
 
-    private void doEventRecordDelete(Connection conn, String ruleSetName, String recordIdentifier) throws SQLException {
+    /**
+     * Deletes the records with a batched statement. H2 executes the entries of a batch one by one, so over a TCP connection each of them is a round trip.
+     *
+     * @return the number of round trips to the database
+     */
+    private int doEventRecordDeletes(Connection conn, String ruleSetName, List<String> recordIdentifiers) throws SQLException {
+        if (recordIdentifiers.isEmpty()) {
+            return 0;
+        }
         String sql = "DELETE FROM " + EVENT_RECORD + " WHERE ha_uuid = ? AND rule_set_name = ? AND record_identifier = ?";
         try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, haUuid);
-            ps.setString(2, ruleSetName);
-            ps.setString(3, recordIdentifier);
-            ps.executeUpdate();
+            for (String recordIdentifier : recordIdentifiers) {
+                ps.setString(1, haUuid);
+                ps.setString(2, ruleSetName);
+                ps.setString(3, recordIdentifier);
+                ps.addBatch();
+            }
+            ps.executeBatch();
         }
+        return recordIdentifiers.size();
     }
 
     private EventRecordEntry readEventRecordEntry(ResultSet rs) throws SQLException {
@@ -637,17 +701,30 @@ public class H2StateManager extends AbstractHAStateManager {
         return preparedEntries;
     }
 
-    private void applyEventRecordChanges(Connection conn, String ruleSetName, List<PreparedEventRecordChange> preparedChanges) throws SQLException {
+    /**
+     * Applies the changes with a batch of deletes followed by a batch of upserts. Only the last change of each record is applied,
+     * so that every record is either deleted or upserted and the order of the 2 batches doesn't matter.
+     *
+     * @return the number of round trips to the database
+     */
+    private int applyEventRecordChanges(Connection conn, String ruleSetName, List<PreparedEventRecordChange> preparedChanges) throws SQLException {
+        Map<String, PreparedEventRecordChange> lastChanges = new LinkedHashMap<>();
         for (PreparedEventRecordChange preparedChange : preparedChanges) {
+            lastChanges.put(preparedChange.change().getRecordIdentifier(), preparedChange);
+        }
+        List<String> deletedIdentifiers = new ArrayList<>();
+        List<PreparedEventRecordEntry> upsertedEntries = new ArrayList<>();
+        for (PreparedEventRecordChange preparedChange : lastChanges.values()) {
             if (preparedChange.change().getType() == EventRecordChange.Type.UPSERT) {
-                doEventRecordUpsert(conn, ruleSetName, preparedChange.change().getEntry(), preparedChange.encryptedEventJson(), preparedChange.eventRecordSha());
+                upsertedEntries.add(new PreparedEventRecordEntry(preparedChange.change().getEntry(), preparedChange.encryptedEventJson(), preparedChange.eventRecordSha()));
             } else {
-                doEventRecordDelete(conn, ruleSetName, preparedChange.change().getRecordIdentifier());
+                deletedIdentifiers.add(preparedChange.change().getRecordIdentifier());
             }
         }
+        return doEventRecordDeletes(conn, ruleSetName, deletedIdentifiers) + doEventRecordUpserts(conn, ruleSetName, upsertedEntries);
     }
 
-    private void replaceEventRecordEntries(Connection conn, String ruleSetName, List<PreparedEventRecordEntry> preparedEntries) throws SQLException {
+    private int replaceEventRecordEntries(Connection conn, String ruleSetName, List<PreparedEventRecordEntry> preparedEntries) throws SQLException {
         String deleteEventRecords = "DELETE FROM " + EVENT_RECORD + " WHERE ha_uuid = ? AND rule_set_name = ?";
         try (PreparedStatement ps = conn.prepareStatement(deleteEventRecords)) {
             ps.setString(1, haUuid);
@@ -655,9 +732,7 @@ public class H2StateManager extends AbstractHAStateManager {
             ps.executeUpdate();
         }
 
-        for (PreparedEventRecordEntry preparedEntry : preparedEntries) {
-            doEventRecordUpsert(conn, ruleSetName, preparedEntry.entry(), preparedEntry.encryptedEventJson(), preparedEntry.eventRecordSha());
-        }
+        return 1 + doEventRecordUpserts(conn, ruleSetName, preparedEntries);
     }
 
     private record PreparedEventRecordEntry(EventRecordEntry entry, String encryptedEventJson, String eventRecordSha) {
@@ -682,7 +757,7 @@ public class H2StateManager extends AbstractHAStateManager {
         String encryptedEventData = encryptIfEnabled(matchingEvent.getEventData());
 
         executeInTransaction("Failed to add matching event", conn -> {
-            doMatchingEventInsert(conn, matchingEvent, encryptedEventData);
+            doMatchingEventInserts(conn, List.of(matchingEvent), Collections.singletonList(encryptedEventData));
         });
 
         logger.debug("Added matching event with UUID: {} for rule: {}/{}",
@@ -714,9 +789,7 @@ public class H2StateManager extends AbstractHAStateManager {
         }
 
         executeInTransaction("Failed to add matching events", conn -> {
-            for (int i = 0; i < matchingEvents.size(); i++) {
-                doMatchingEventInsert(conn, matchingEvents.get(i), encryptedEventDataList.get(i));
-            }
+            doMatchingEventInserts(conn, matchingEvents, encryptedEventDataList);
         });
 
         for (String meUuid : meUuids) {
@@ -757,26 +830,38 @@ public class H2StateManager extends AbstractHAStateManager {
         return events;
     }
 
-    private void doMatchingEventInsert(Connection conn, MatchingEvent matchingEvent, String encryptedEventData) throws SQLException {
+    /**
+     * Inserts the matching events with a batched statement. H2 executes the entries of a batch one by one, so over a TCP connection each of them is a round trip.
+     *
+     * @return the number of round trips to the database
+     */
+    private int doMatchingEventInserts(Connection conn, List<MatchingEvent> matchingEvents, List<String> encryptedEventDataList) throws SQLException {
+        if (matchingEvents.isEmpty()) {
+            return 0;
+        }
         String sql = "INSERT INTO " + MATCHING_EVENT
                 + " (me_uuid, ha_uuid, rule_set_name, rule_name, event_data, created_at,"
                 + " metadata, properties, settings, ext)"
                 + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
         try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, matchingEvent.getMeUuid());
-            ps.setString(2, matchingEvent.getHaUuid());
-            ps.setString(3, matchingEvent.getRuleSetName());
-            ps.setString(4, matchingEvent.getRuleName());
-            ps.setString(5, encryptedEventData);
-            ps.setLong(6, matchingEvent.getCreatedAt());
-            ps.setString(7, mapToJson(matchingEvent.getMetadata()));
-            ps.setString(8, mapToJson(matchingEvent.getProperties()));
-            ps.setString(9, mapToJson(matchingEvent.getSettings()));
-            ps.setString(10, mapToJson(matchingEvent.getExt()));
-
-            ps.executeUpdate();
+            for (int i = 0; i < matchingEvents.size(); i++) {
+                MatchingEvent matchingEvent = matchingEvents.get(i);
+                ps.setString(1, matchingEvent.getMeUuid());
+                ps.setString(2, matchingEvent.getHaUuid());
+                ps.setString(3, matchingEvent.getRuleSetName());
+                ps.setString(4, matchingEvent.getRuleName());
+                ps.setString(5, encryptedEventDataList.get(i));
+                ps.setLong(6, matchingEvent.getCreatedAt());
+                ps.setString(7, mapToJson(matchingEvent.getMetadata()));
+                ps.setString(8, mapToJson(matchingEvent.getProperties()));
+                ps.setString(9, mapToJson(matchingEvent.getSettings()));
+                ps.setString(10, mapToJson(matchingEvent.getExt()));
+                ps.addBatch();
+            }
+            ps.executeBatch();
         }
+        return matchingEvents.size();
     }
 
     // ── ActionInfo operations ───────────────────────────────────────────
@@ -968,9 +1053,7 @@ public class H2StateManager extends AbstractHAStateManager {
         executeInTransaction("Failed to persist SessionState and matching events", conn -> {
             doSessionStateUpsert(conn, sessionState);
             if (matchingEvents != null) {
-                for (int i = 0; i < matchingEvents.size(); i++) {
-                    doMatchingEventInsert(conn, matchingEvents.get(i), encryptedEventDataList.get(i));
-                }
+                doMatchingEventInserts(conn, matchingEvents, encryptedEventDataList);
             }
         });
 
@@ -1004,9 +1087,7 @@ public class H2StateManager extends AbstractHAStateManager {
             doSessionStateUpsert(conn, sessionState, null);
             applyEventRecordChanges(conn, sessionState.getRuleSetName(), preparedEventRecordChanges);
             if (matchingEvents != null) {
-                for (int i = 0; i < matchingEvents.size(); i++) {
-                    doMatchingEventInsert(conn, matchingEvents.get(i), encryptedEventDataList.get(i));
-                }
+                doMatchingEventInserts(conn, matchingEvents, encryptedEventDataList);
             }
         });
 
@@ -1042,9 +1123,7 @@ public class H2StateManager extends AbstractHAStateManager {
             doSessionStateUpsert(conn, sessionState, null);
             replaceEventRecordEntries(conn, sessionState.getRuleSetName(), preparedEventRecordEntries);
             if (matchingEvents != null) {
-                for (int i = 0; i < matchingEvents.size(); i++) {
-                    doMatchingEventInsert(conn, matchingEvents.get(i), encryptedEventDataList.get(i));
-                }
+                doMatchingEventInserts(conn, matchingEvents, encryptedEventDataList);
             }
         });
     }
@@ -1112,9 +1191,7 @@ public class H2StateManager extends AbstractHAStateManager {
 
             // 4. Insert all recovery matching events
             if (matchingEvents != null) {
-                for (int i = 0; i < matchingEvents.size(); i++) {
-                    doMatchingEventInsert(conn, matchingEvents.get(i), encryptedEventDataList.get(i));
-                }
+                doMatchingEventInserts(conn, matchingEvents, encryptedEventDataList);
             }
         });
 
@@ -1220,19 +1297,23 @@ public class H2StateManager extends AbstractHAStateManager {
     }
 
     private void doHAStatsUpsert(Connection conn) throws SQLException {
-        String propertiesJson = haStatsToJson(haStats);
+        doHAStatsUpsert(conn, haStats.copy());
+    }
+
+    private void doHAStatsUpsert(Connection conn, HAStats stats) throws SQLException {
+        String propertiesJson = haStatsToJson(stats);
 
         String h2Sql = "MERGE INTO " + HA_STATS
                 + " (ha_uuid, properties, updated_at, metadata, settings, ext)"
                 + " KEY(ha_uuid) VALUES (?, ?, ?, ?, ?, ?)";
 
         try (PreparedStatement ps = conn.prepareStatement(h2Sql)) {
-            ps.setString(1, haStats.getHaUuid());
+            ps.setString(1, stats.getHaUuid());
             ps.setString(2, propertiesJson);
             ps.setTimestamp(3, Timestamp.from(Instant.now()));
-            ps.setString(4, mapToJson(haStats.getMetadata()));
-            ps.setString(5, mapToJson(haStats.getSettings()));
-            ps.setString(6, mapToJson(haStats.getExt()));
+            ps.setString(4, mapToJson(stats.getMetadata()));
+            ps.setString(5, mapToJson(stats.getSettings()));
+            ps.setString(6, mapToJson(stats.getExt()));
 
             ps.executeUpdate();
         }
@@ -1332,6 +1413,8 @@ public class H2StateManager extends AbstractHAStateManager {
         props.put("global_session_stats", stats.getGlobalSessionStats());
         props.put("partial_fulfilled_rules", stats.getPartialFulfilledRules());
         props.put("session_state_size", stats.getSessionStateSize());
+        props.put("commits_in_term", stats.getCommitsInTerm());
+        props.put("commit_round_trips_in_term", stats.getCommitRoundTripsInTerm());
         return toJson(props);
     }
 
@@ -1355,6 +1438,9 @@ public class H2StateManager extends AbstractHAStateManager {
         stats.setPartialFulfilledRules(getIntFromMap(props, "partial_fulfilled_rules"));
         Object ssSize = props.get("session_state_size");
         stats.setSessionStateSize(ssSize instanceof Number ? ((Number) ssSize).longValue() : 0L);
+        stats.setCommitsInTerm(getIntFromMap(props, "commits_in_term"));
+        Object commitRoundTrips = props.get("commit_round_trips_in_term");
+        stats.setCommitRoundTripsInTerm(commitRoundTrips instanceof Number ? ((Number) commitRoundTrips).longValue() : 0L);
     }
 
     private int getIntFromMap(Map<String, Object> map, String key) {
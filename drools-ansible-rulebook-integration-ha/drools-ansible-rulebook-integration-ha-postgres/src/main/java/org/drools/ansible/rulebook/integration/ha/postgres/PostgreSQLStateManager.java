@@ -10,6 +10,7 @@ import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -53,6 +54,9 @@ public class PostgreSQLStateManager extends AbstractHAStateManager {
     private static final TypeReference<List<EventRecord>> EVENT_RECORD_LIST_TYPE = new TypeReference<>() {};
     private static final TypeReference<List<String>> STRING_LIST_TYPE = new TypeReference<>() {};
 
+    // rows of a multi-row EventRecord upsert, 9 bind parameters each, well below the limit of 32767 bind parameters of a statement
+    private static final int EVENT_RECORD_UPSERT_ROWS = 500;
+
     /**
      * SSL key format classification. Determines how the key file is handled:
      * <ul>
@@ -350,6 +354,7 @@ public class PostgreSQLStateManager extends AbstractHAStateManager {
                                                           .map(EventRecordEntry::getRecord)
                                                           .toList());
                     sessionState.setEventRecordsManifestSHA(HAUtils.calculateEventRecordsManifestSHA(eventRecordEntries));
+                    sessionState.setLegacyEventRecordsManifestSHA(HAUtils.calculateLegacyEventRecordsManifestSHA(eventRecordEntries));
                 } else {
                     String encryptedPartialEvents = rs.getString("partial_matching_events");
                     if (encryptedPartialEvents != null) {
@@ -364,6 +369,7 @@ public class PostgreSQLStateManager extends AbstractHAStateManager {
                     } else {
                         sessionState.setPartialEvents(new ArrayList<>());
                         sessionState.setEventRecordsManifestSHA(HAUtils.calculateEventRecordsManifestSHA(List.of()));
+                        sessionState.setLegacyEventRecordsManifestSHA(HAUtils.calculateLegacyEventRecordsManifestSHA(List.of()));
                     }
                 }
 
@@ -524,9 +530,7 @@ public class PostgreSQLStateManager extends AbstractHAStateManager {
             doSessionStateUpsert(conn, sessionState, finalEncryptedPartialEvents);
             doHAStatsUpsert(conn);
 
-            for (int i = 0; i < matchingEvents.size(); i++) {
-                doMatchingEventInsert(conn, matchingEvents.get(i), meUuids.get(i), encryptedEventDataList.get(i));
-            }
+            doMatchingEventInserts(conn, matchingEvents, meUuids, encryptedEventDataList);
         });
 
         logger.debug("Persisted SessionState, HAStats, and {} matching events to PostgreSQL in single transaction for haUuid: {}",
@@ -537,15 +541,24 @@ public class PostgreSQLStateManager extends AbstractHAStateManager {
     public void persistSessionStateStatsEventRecordsAndMatchingEvents(SessionState sessionState,
                                                                       List<EventRecordChange> eventRecordChanges,
                                                                       List<MatchingEvent> matchingEvents) {
+        persistSessionStateStatsEventRecordsAndMatchingEvents(sessionState, haStats != null ? haStats.copy() : null,
+                                                              eventRecordChanges, matchingEvents);
+    }
+
+    @Override
+    public void persistSessionStateStatsEventRecordsAndMatchingEvents(SessionState sessionState,
+                                                                      HAStats haStatsSnapshot,
+                                                                      List<EventRecordChange> eventRecordChanges,
+                                                                      List<MatchingEvent> matchingEvents) {
         validateForPersist(sessionState);
 
-        if (haStats == null) {
+        if (haStatsSnapshot == null) {
             persistSessionStateEventRecordsAndMatchingEvents(sessionState, eventRecordChanges, matchingEvents);
             return;
         }
 
         ensureVersionInMetadata(sessionState.getMetadata());
-        prepareHAStatsForPersist();
+        prepareHAStatsForPersist(haStatsSnapshot);
 
         List<PreparedEventRecordChange> preparedEventRecordChanges = prepareEventRecordChanges(eventRecordChanges);
         List<String> encryptedEventDataList = new ArrayList<>();
@@ -558,17 +571,22 @@ public class PostgreSQLStateManager extends AbstractHAStateManager {
             }
         }
 
-        executeInTransaction("Failed to persist SessionState, HAStats, EventRecord changes, and matching events to PostgreSQL", conn -> {
+        int roundTrips = executeInTransactionWithResult("Failed to persist SessionState, HAStats, EventRecord changes, and matching events to PostgreSQL", conn -> {
             doSessionStateUpsert(conn, sessionState, null);
-            doHAStatsUpsert(conn);
-            applyEventRecordChanges(conn, sessionState.getRuleSetName(), preparedEventRecordChanges);
+            int statements = 1 + applyEventRecordChanges(conn, sessionState.getRuleSetName(), preparedEventRecordChanges);
 
             if (matchingEvents != null) {
-                for (int i = 0; i < matchingEvents.size(); i++) {
-                    doMatchingEventInsert(conn, matchingEvents.get(i), meUuids.get(i), encryptedEventDataList.get(i));
-                }
+                statements += doMatchingEventInserts(conn, matchingEvents, meUuids, encryptedEventDataList);
             }
+
+            // the HA stats are upserted last, so that the persisted ones already count this transaction
+            int transactionRoundTrips = statements + 2; // the HA stats upsert and the commit
+            haStatsSnapshot.setCommitsInTerm(haStats.getCommitsInTerm() + 1);
+            haStatsSnapshot.setCommitRoundTripsInTerm(haStats.getCommitRoundTripsInTerm() + transactionRoundTrips);
+            doHAStatsUpsert(conn, haStatsSnapshot);
+            return transactionRoundTrips;
         });
+        haStats.recordCommit(roundTrips);
 
         logger.debug("Persisted SessionState, HAStats, {} EventRecord changes, and {} matching events to PostgreSQL in single transaction for haUuid: {}",
                      eventRecordChanges != null ? eventRecordChanges.size() : 0,
@@ -607,9 +625,7 @@ public class PostgreSQLStateManager extends AbstractHAStateManager {
             replaceEventRecordEntries(conn, sessionState.getRuleSetName(), preparedEventRecordEntries);
 
             if (matchingEvents != null) {
-                for (int i = 0; i < matchingEvents.size(); i++) {
-                    doMatchingEventInsert(conn, matchingEvents.get(i), meUuids.get(i), encryptedEventDataList.get(i));
-                }
+                doMatchingEventInserts(conn, matchingEvents, meUuids, encryptedEventDataList);
             }
         });
     }
@@ -619,10 +635,14 @@ public class PostgreSQLStateManager extends AbstractHAStateManager {
     }
 
     private void prepareHAStatsForPersist() {
-        if (haStats.getHaUuid() == null) {
-            haStats.setHaUuid(haUuid);
+        prepareHAStatsForPersist(haStats);
+    }
+
+    private void prepareHAStatsForPersist(HAStats stats) {
+        if (stats.getHaUuid() == null) {
+            stats.setHaUuid(haUuid);
         }
-        ensureVersionInMetadata(haStats.getMetadata());
+        ensureVersionInMetadata(stats.getMetadata());
     }
 
     private void doSessionStateUpsert(Connection conn, SessionState sessionState) throws SQLException {
@@ -634,7 +654,8 @@ public class PostgreSQLStateManager extends AbstractHAStateManager {
             return null;
         }
         if (sessionState.getPartialEvents() != null) {
-            return encryptIfEnabled(toJson(sessionState.getPartialEvents()));
+            // the partial events may be a view of the records tracked by the session, copied only here to be serialized
+            return encryptIfEnabled(toJson(new ArrayList<>(sessionState.getPartialEvents())));
         }
         return null;
     }
@@ -690,13 +711,29 @@ public class PostgreSQLStateManager extends AbstractHAStateManager {
         }
     }
 
-    private void doEventRecordUpsert(Connection conn, String ruleSetName, EventRecordEntry entry,
-                                     String encryptedEventJson, String eventRecordSha) throws SQLException {
-        EventRecord record = entry.getRecord();
+    /**
+     * Upserts the entries with multi-row statements, each one sending up to {@value #EVENT_RECORD_UPSERT_ROWS} rows in a single round trip.
+     * The entries must have distinct identifiers, since a row can't be affected twice by the same statement.
+     *
+     * @return the number of round trips to the database
+     */
+    private int doEventRecordUpserts(Connection conn, String ruleSetName, List<PreparedEventRecordEntry> preparedEntries) throws SQLException {
+        int roundTrips = 0;
+        for (int from = 0; from < preparedEntries.size(); from += EVENT_RECORD_UPSERT_ROWS) {
+            List<PreparedEventRecordEntry> rows = preparedEntries.subList(from, Math.min(from + EVENT_RECORD_UPSERT_ROWS, preparedEntries.size()));
+            doEventRecordMultiRowUpsert(conn, ruleSetName, rows);
+            roundTrips++;
+        }
+        return roundTrips;
+    }
+
+    private void doEventRecordMultiRowUpsert(Connection conn, String ruleSetName, List<PreparedEventRecordEntry> rows) throws SQLException {
+        String values = String.join(", ", Collections.nCopies(rows.size(),
+                "(?, ?, ?, ?, ?, ?, ?, ?, ?, '{}'::jsonb, '{}'::jsonb, '{}'::jsonb, '{}'::jsonb)"));
         String sql = "INSERT INTO " + EVENT_RECORD
                 + " (ha_uuid, rule_set_name, record_identifier, inserted_at, record_sequence, record_type,"
                 + " event_json, expiration_duration, event_record_sha, metadata, properties, settings, ext)"
-                + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, '{}'::jsonb, '{}'::jsonb, '{}'::jsonb, '{}'::jsonb)"
+                + " VALUES " + values
                 + " ON CONFLICT (ha_uuid, rule_set_name, record_identifier) DO UPDATE SET"
                 + " inserted_at = EXCLUDED.inserted_at,"
                 + " record_sequence = EXCLUDED.record_sequence,"
@@ -710,31 +747,40 @@ public class PostgreSQLStateManager extends AbstractHAStateManager {
                 + " ext = EXCLUDED.ext";
 
         try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, haUuid);
-            ps.setString(2, ruleSetName);
-            ps.setString(3, entry.getRecordIdentifier());
-            ps.setLong(4, record.getInsertedAt());
-            ps.setLong(5, entry.getRecordSequence());
-            ps.setString(6, record.getRecordType().name());
-            ps.setString(7, encryptedEventJson);
-            if (record.getExpirationDuration() == null) {
-                ps.setObject(8, null);
-            } else {
-                ps.setLong(8, record.getExpirationDuration());
+            int index = 0;
+            for (PreparedEventRecordEntry preparedEntry : rows) {
+                EventRecordEntry entry = preparedEntry.entry();
+                EventRecord record = entry.getRecord();
+                ps.setString(++index, haUuid);
+                ps.setString(++index, ruleSetName);
+                ps.setString(++index, entry.getRecordIdentifier());
+                ps.setLong(++index, record.getInsertedAt());
+                ps.setLong(++index, entry.getRecordSequence());
+                ps.setString(++index, record.getRecordType().name());
+                ps.setString(++index, preparedEntry.encryptedEventJson());
+                if (record.getExpirationDuration() == null) {
+                    ps.setObject(++index, null);
+                } else {
+                    ps.setLong(++index, record.getExpirationDuration());
+                }
+                ps.setString(++index, preparedEntry.eventRecordSha());
             }
-            ps.setString(9, eventRecordSha);
             ps.executeUpdate();
         }
     }
 
-    private void doEventRecordDelete(Connection conn, String ruleSetName, String recordIdentifier) throws SQLException {
-        String sql = "DELETE FROM " + EVENT_RECORD + " WHERE ha_uuid = ? AND rule_set_name = ? AND record_identifier = ?";
+    private int doEventRecordDeletes(Connection conn, String ruleSetName, List<String> recordIdentifiers) throws SQLException {
+        if (recordIdentifiers.isEmpty()) {
+            return 0;
+        }
+        String sql = "DELETE FROM " + EVENT_RECORD + " WHERE ha_uuid = ? AND rule_set_name = ? AND record_identifier = ANY(?)";
         try (PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setString(1, haUuid);
             ps.setString(2, ruleSetName);
-            ps.setString(3, recordIdentifier);
+            ps.setArray(3, conn.createArrayOf("text", recordIdentifiers.toArray()));
             ps.executeUpdate();
         }
+        return 1;
     }
 
     private EventRecordEntry readEventRecordEntry(ResultSet rs) throws SQLException {
@@ -778,17 +824,30 @@ public class PostgreSQLStateManager extends AbstractHAStateManager {
         return preparedEntries;
     }
 
-    private void applyEventRecordChanges(Connection conn, String ruleSetName, List<PreparedEventRecordChange> preparedChanges) throws SQLException {
+    /**
+     * Applies the changes with a single delete followed by the multi-row upserts. Only the last change of each record is applied,
+     * so that every record is either deleted or upserted and the order of the 2 statements doesn't matter.
+     *
+     * @return the number of round trips to the database
+     */
+    private int applyEventRecordChanges(Connection conn, String ruleSetName, List<PreparedEventRecordChange> preparedChanges) throws SQLException {
+        Map<String, PreparedEventRecordChange> lastChanges = new LinkedHashMap<>();
         for (PreparedEventRecordChange preparedChange : preparedChanges) {
+            lastChanges.put(preparedChange.change().getRecordIdentifier(), preparedChange);
+        }
+        List<String> deletedIdentifiers = new ArrayList<>();
+        List<PreparedEventRecordEntry> upsertedEntries = new ArrayList<>();
+        for (PreparedEventRecordChange preparedChange : lastChanges.values()) {
             if (preparedChange.change().getType() == EventRecordChange.Type.UPSERT) {
-                doEventRecordUpsert(conn, ruleSetName, preparedChange.change().getEntry(), preparedChange.encryptedEventJson(), preparedChange.eventRecordSha());
+                upsertedEntries.add(new PreparedEventRecordEntry(preparedChange.change().getEntry(), preparedChange.encryptedEventJson(), preparedChange.eventRecordSha()));
             } else {
-                doEventRecordDelete(conn, ruleSetName, preparedChange.change().getRecordIdentifier());
+                deletedIdentifiers.add(preparedChange.change().getRecordIdentifier());
             }
         }
+        return doEventRecordDeletes(conn, ruleSetName, deletedIdentifiers) + doEventRecordUpserts(conn, ruleSetName, upsertedEntries);
     }
 
-    private void replaceEventRecordEntries(Connection conn, String ruleSetName, List<PreparedEventRecordEntry> preparedEntries) throws SQLException {
+    private int replaceEventRecordEntries(Connection conn, String ruleSetName, List<PreparedEventRecordEntry> preparedEntries) throws SQLException {
         String deleteEventRecords = "DELETE FROM " + EVENT_RECORD + " WHERE ha_uuid = ? AND rule_set_name = ?";
         try (PreparedStatement ps = conn.prepareStatement(deleteEventRecords)) {
             ps.setString(1, haUuid);
@@ -796,9 +855,7 @@ public class PostgreSQLStateManager extends AbstractHAStateManager {
             ps.executeUpdate();
         }
 
-        for (PreparedEventRecordEntry preparedEntry : preparedEntries) {
-            doEventRecordUpsert(conn, ruleSetName, preparedEntry.entry(), preparedEntry.encryptedEventJson(), preparedEntry.eventRecordSha());
-        }
+        return 1 + doEventRecordUpserts(conn, ruleSetName, preparedEntries);
     }
 
     private record PreparedEventRecordEntry(EventRecordEntry entry, String encryptedEventJson, String eventRecordSha) {
@@ -824,7 +881,7 @@ public class PostgreSQLStateManager extends AbstractHAStateManager {
         String encryptedEventData = encryptIfEnabled(matchingEvent.getEventData());
 
         executeInTransaction("Failed to add matching event to PostgreSQL", conn -> {
-            doMatchingEventInsert(conn, matchingEvent, meUuid, encryptedEventData);
+            doMatchingEventInserts(conn, List.of(matchingEvent), List.of(meUuid), Collections.singletonList(encryptedEventData));
         });
 
         logger.debug("Added matching event with UUID: {} for rule: {}/{}",
@@ -856,9 +913,7 @@ public class PostgreSQLStateManager extends AbstractHAStateManager {
         }
 
         executeInTransaction("Failed to add matching events to PostgreSQL", conn -> {
-            for (int i = 0; i < matchingEvents.size(); i++) {
-                doMatchingEventInsert(conn, matchingEvents.get(i), meUuids.get(i), encryptedEventDataList.get(i));
-            }
+            doMatchingEventInserts(conn, matchingEvents, meUuids, encryptedEventDataList);
         });
 
         List<String> uuids = new ArrayList<>();
@@ -905,26 +960,34 @@ public class PostgreSQLStateManager extends AbstractHAStateManager {
         return events;
     }
 
-    private void doMatchingEventInsert(Connection conn, MatchingEvent matchingEvent, UUID meUuid, String encryptedEventData) throws SQLException {
+    private int doMatchingEventInserts(Connection conn, List<MatchingEvent> matchingEvents, List<UUID> meUuids,
+                                       List<String> encryptedEventDataList) throws SQLException {
+        if (matchingEvents.isEmpty()) {
+            return 0;
+        }
         String sql = "INSERT INTO " + MATCHING_EVENT
                 + " (me_uuid, ha_uuid, rule_set_name, rule_name, event_data, created_at,"
                 + " metadata, properties, settings, ext)"
                 + " VALUES (?::uuid, ?, ?, ?, ?, ?, ?::jsonb, ?::jsonb, ?::jsonb, ?::jsonb)";
 
         try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setObject(1, meUuid);
-            ps.setString(2, matchingEvent.getHaUuid());
-            ps.setString(3, matchingEvent.getRuleSetName());
-            ps.setString(4, matchingEvent.getRuleName());
-            ps.setString(5, encryptedEventData);
-            ps.setLong(6, matchingEvent.getCreatedAt());
-            ps.setString(7, mapToJson(matchingEvent.getMetadata()));
-            ps.setString(8, mapToJson(matchingEvent.getProperties()));
-            ps.setString(9, mapToJson(matchingEvent.getSettings()));
-            ps.setString(10, mapToJson(matchingEvent.getExt()));
-
-            ps.executeUpdate();
+            for (int i = 0; i < matchingEvents.size(); i++) {
+                MatchingEvent matchingEvent = matchingEvents.get(i);
+                ps.setObject(1, meUuids.get(i));
+                ps.setString(2, matchingEvent.getHaUuid());
+                ps.setString(3, matchingEvent.getRuleSetName());
+                ps.setString(4, matchingEvent.getRuleName());
+                ps.setString(5, encryptedEventDataList.get(i));
+                ps.setLong(6, matchingEvent.getCreatedAt());
+                ps.setString(7, mapToJson(matchingEvent.getMetadata()));
+                ps.setString(8, mapToJson(matchingEvent.getProperties()));
+                ps.setString(9, mapToJson(matchingEvent.getSettings()));
+                ps.setString(10, mapToJson(matchingEvent.getExt()));
+                ps.addBatch();
+            }
+            ps.executeBatch();
         }
+        return 1;
     }
 
     // ── ActionInfo operations ───────────────────────────────────────────
@@ -1117,9 +1180,7 @@ public class PostgreSQLStateManager extends AbstractHAStateManager {
         executeInTransaction("Failed to persist SessionState and matching events in PostgreSQL", conn -> {
             doSessionStateUpsert(conn, sessionState);
             if (matchingEvents != null) {
-                for (int i = 0; i < matchingEvents.size(); i++) {
-                    doMatchingEventInsert(conn, matchingEvents.get(i), meUuids.get(i), encryptedEventDataList.get(i));
-                }
+                doMatchingEventInserts(conn, matchingEvents, meUuids, encryptedEventDataList);
             }
         });
 
@@ -1154,9 +1215,7 @@ public class PostgreSQLStateManager extends AbstractHAStateManager {
             doSessionStateUpsert(conn, sessionState, null);
             applyEventRecordChanges(conn, sessionState.getRuleSetName(), preparedEventRecordChanges);
             if (matchingEvents != null) {
-                for (int i = 0; i < matchingEvents.size(); i++) {
-                    doMatchingEventInsert(conn, matchingEvents.get(i), meUuids.get(i), encryptedEventDataList.get(i));
-                }
+                doMatchingEventInserts(conn, matchingEvents, meUuids, encryptedEventDataList);
             }
         });
 
@@ -1193,9 +1252,7 @@ public class PostgreSQLStateManager extends AbstractHAStateManager {
             doSessionStateUpsert(conn, sessionState, null);
             replaceEventRecordEntries(conn, sessionState.getRuleSetName(), preparedEventRecordEntries);
             if (matchingEvents != null) {
-                for (int i = 0; i < matchingEvents.size(); i++) {
-                    doMatchingEventInsert(conn, matchingEvents.get(i), meUuids.get(i), encryptedEventDataList.get(i));
-                }
+                doMatchingEventInserts(conn, matchingEvents, meUuids, encryptedEventDataList);
             }
         });
     }
@@ -1264,9 +1321,7 @@ public class PostgreSQLStateManager extends AbstractHAStateManager {
 
             // 4. Insert all recovery matching events
             if (matchingEvents != null) {
-                for (int i = 0; i < matchingEvents.size(); i++) {
-                    doMatchingEventInsert(conn, matchingEvents.get(i), meUuids.get(i), encryptedEventDataList.get(i));
-                }
+                doMatchingEventInserts(conn, matchingEvents, meUuids, encryptedEventDataList);
             }
         });
 
@@ -1377,7 +1432,11 @@ public class PostgreSQLStateManager extends AbstractHAStateManager {
     }
 
     private void doHAStatsUpsert(Connection conn) throws SQLException {
-        String propertiesJson = haStatsToJson(haStats);
+        doHAStatsUpsert(conn, haStats.copy());
+    }
+
+    private void doHAStatsUpsert(Connection conn, HAStats stats) throws SQLException {
+        String propertiesJson = haStatsToJson(stats);
 
         String sql = "INSERT INTO " + HA_STATS
                 + " (ha_uuid, properties, updated_at, metadata, settings, ext)"
@@ -1390,12 +1449,12 @@ public class PostgreSQLStateManager extends AbstractHAStateManager {
                 + " ext = EXCLUDED.ext";
 
         try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, haStats.getHaUuid());
+            ps.setString(1, stats.getHaUuid());
             ps.setString(2, propertiesJson);
             ps.setTimestamp(3, Timestamp.from(Instant.now()));
-            ps.setString(4, mapToJson(haStats.getMetadata()));
-            ps.setString(5, mapToJson(haStats.getSettings()));
-            ps.setString(6, mapToJson(haStats.getExt()));
+            ps.setString(4, mapToJson(stats.getMetadata()));
+            ps.setString(5, mapToJson(stats.getSettings()));
+            ps.setString(6, mapToJson(stats.getExt()));
 
             ps.executeUpdate();
         }
@@ -1554,6 +1613,8 @@ public class PostgreSQLStateManager extends AbstractHAStateManager {
         props.put("global_session_stats", stats.getGlobalSessionStats());
         props.put("partial_fulfilled_rules", stats.getPartialFulfilledRules());
         props.put("session_state_size", stats.getSessionStateSize());
+        props.put("commits_in_term", stats.getCommitsInTerm());
+        props.put("commit_round_trips_in_term", stats.getCommitRoundTripsInTerm());
         return toJson(props);
     }
 
@@ -1577,6 +1638,9 @@ public class PostgreSQLStateManager extends AbstractHAStateManager {
         stats.setPartialFulfilledRules(getIntFromMap(props, "partial_fulfilled_rules"));
         Object ssSize = props.get("session_state_size");
         stats.setSessionStateSize(ssSize instanceof Number ? ((Number) ssSize).longValue() : 0L);
+        stats.setCommitsInTerm(getIntFromMap(props, "commits_in_term"));
+        Object commitRoundTrips = props.get("commit_round_trips_in_term");
+        stats.setCommitRoundTripsInTerm(commitRoundTrips instanceof Number ? ((Number) commitRoundTrips).longValue() : 0L);
     }
 
     private int getIntFromMap(Map<String, Object> map, String key) {
@@ -84,4 +84,28 @@ class HAEventRecordContextTest {
         assertThat(manifest).isEqualTo(reversedManifest);
         assertThat(manifest).isNotEqualTo(changedPayloadManifest);
     }
+
+    @Test
+    void incrementalManifestMatchesFullRecalculation() {
+        HASessionContext context = new HASessionContext();
+        assertThat(context.getEventRecordsManifestSHA()).isEqualTo(HAUtils.calculateEventRecordsManifestSHA(List.of()));
+
+        context.addTrackedRecord("event-1", new EventRecord("{\"i\":1}", 1_000L, EventRecord.RecordType.EVENT), 10L);
+        context.addTrackedRecord("event-2", new EventRecord("{\"i\":2}", 1_000L, EventRecord.RecordType.EVENT), 11L);
+        context.addTrackedRecord("fact-1", new EventRecord("{\"j\":1}", 2_000L, EventRecord.RecordType.FACT), 12L);
+        String manifestWithAllRecords = context.getEventRecordsManifestSHA();
+        assertThat(manifestWithAllRecords).isEqualTo(HAUtils.calculateEventRecordsManifestSHA(context.snapshotEventRecordEntries()));
+
+        context.updateTrackedRecordByFactHandle(11L, "{\"i\":20}");
+        assertThat(context.getEventRecordsManifestSHA())
+                .isNotEqualTo(manifestWithAllRecords)
+                .isEqualTo(HAUtils.calculateEventRecordsManifestSHA(context.snapshotEventRecordEntries()));
+
+        context.removeTrackedRecordByFactHandle(10L);
+        context.discardTrackedRecord("fact-1");
+        assertThat(context.getEventRecordsManifestSHA()).isEqualTo(HAUtils.calculateEventRecordsManifestSHA(context.snapshotEventRecordEntries()));
+
+        context.removeTrackedRecord("event-2");
+        assertThat(context.getEventRecordsManifestSHA()).isEqualTo(HAUtils.calculateEventRecordsManifestSHA(List.of()));
+    }
 }
@@ -1,6 +1,7 @@
 package org.drools.ansible.rulebook.integration.ha.tests;
 
 import java.util.List;
+import java.util.Map;
 
 import org.drools.ansible.rulebook.integration.ha.api.HAStateManager;
 import org.drools.ansible.rulebook.integration.ha.api.HAStateManagerFactory;
@@ -17,6 +18,7 @@ import org.junit.jupiter.api.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.drools.ansible.rulebook.integration.api.io.JsonMapper.readValueAsMapOfStringAndObject;
 
 class HAEventRecordPersistenceTest extends HAStateManagerTestBase {
 
@@ -133,6 +135,69 @@ class HAEventRecordPersistenceTest extends HAStateManagerTestBase {
         assertThat(legacyBlobAfterGenericUpsert).isEqualTo("__NULL__");
     }
 
+    @Test
+    void lastChangeOfEachRecordWinsWithinOneTransaction() {
+        EventRecordEntry existing = new EventRecordEntry(
+                "event-0",
+                0L,
+                new EventRecord("{\"h\":0}", 1_000L, EventRecord.RecordType.EVENT));
+        stateManager.persistEventRecordChanges(RULE_SET_NAME, List.of(EventRecordChange.upsert(existing)));
+
+        EventRecord event2 = new EventRecord("{\"j\":2}", 2_000L, EventRecord.RecordType.EVENT);
+        EventRecord updatedEvent3 = new EventRecord("{\"k\":30}", 3_000L, EventRecord.RecordType.EVENT);
+        EventRecordEntry entry1 = new EventRecordEntry("event-1", 1L, new EventRecord("{\"i\":1}", 1_000L, EventRecord.RecordType.EVENT));
+        EventRecordEntry entry2 = new EventRecordEntry("event-2", 2L, event2);
+        EventRecordEntry entry3 = new EventRecordEntry("event-3", 3L, new EventRecord("{\"k\":3}", 3_000L, EventRecord.RecordType.EVENT));
+        EventRecordEntry updatedEntry3 = new EventRecordEntry("event-3", 3L, updatedEvent3);
+        List<EventRecordEntry> finalEntries = List.of(entry2, updatedEntry3);
+
+        SessionState sessionState = new SessionState();
+        sessionState.setHaUuid(HA_UUID);
+        sessionState.setRuleSetName(RULE_SET_NAME);
+        sessionState.setLeaderId(LEADER_ID);
+        sessionState.setRulebookHash("rulebook-sha");
+        sessionState.setCreatedTime(100L);
+        sessionState.setPersistedTime(3_000L);
+        sessionState.setPartialEvents(List.of(event2, updatedEvent3));
+        sessionState.setEventRecordsManifestSHA(HAUtils.calculateEventRecordsManifestSHA(finalEntries));
+        sessionState.setCurrentStateSHA(HAUtils.calculateStateSHA(sessionState));
+
+        stateManager.loadOrCreateHAStats();
+        // a record upserted then deleted, an existing one deleted, one deleted then upserted and one upserted twice
+        stateManager.persistSessionStateStatsEventRecordsAndMatchingEvents(sessionState,
+                                                                           List.of(EventRecordChange.upsert(entry1),
+                                                                                   EventRecordChange.delete("event-0"),
+                                                                                   EventRecordChange.delete("event-2"),
+                                                                                   EventRecordChange.upsert(entry3),
+                                                                                   EventRecordChange.delete("event-1"),
+                                                                                   EventRecordChange.upsert(entry2),
+                                                                                   EventRecordChange.upsert(updatedEntry3)),
+                                                                           List.of());
+
+        List<EventRecordEntry> loaded = stateManager.getPersistedEventRecords(RULE_SET_NAME);
+        assertThat(loaded).extracting(EventRecordEntry::getRecordIdentifier)
+                .containsExactly("event-2", "event-3");
+        assertThat(loaded).extracting(entry -> entry.getRecord().getEventJson())
+                .containsExactly("{\"j\":2}", "{\"k\":30}");
+
+        SessionState loadedState = stateManager.getPersistedSessionState(RULE_SET_NAME);
+        assertThat(stateManager.verifySessionState(loadedState)).isTrue();
+
+        // the session state, the deletes of event-0 and event-1, the upserts of event-2 and event-3, the HA stats and the commit:
+        // H2 executes the batched deletes and upserts one by one, PostgreSQL sends each of them in a single statement
+        int expectedRoundTrips = USE_POSTGRES ? 5 : 7;
+        assertThat(stateManager.getHAStats().getCommitsInTerm()).isEqualTo(1);
+        assertThat(stateManager.getHAStats().getCommitRoundTripsInTerm()).isEqualTo(expectedRoundTrips);
+
+        // the persisted HA stats already count the transaction that wrote them
+        String persistedStats = TestUtils.queryRawColumn(dbParams,
+                                                         "SELECT properties FROM drools_ansible_ha_stats WHERE ha_uuid = ?",
+                                                         HA_UUID);
+        Map<String, Object> persistedProperties = readValueAsMapOfStringAndObject(persistedStats);
+        assertThat(((Number) persistedProperties.get("commits_in_term")).intValue()).isEqualTo(1);
+        assertThat(((Number) persistedProperties.get("commit_round_trips_in_term")).intValue()).isEqualTo(expectedRoundTrips);
+    }
+
     @Test
     void rowLoadFailsFastWhenEventRecordShaDoesNotMatchPayload() {
         EventRecordEntry tamperedShaEntry = new EventRecordEntry(
@@ -55,6 +55,11 @@ public abstract class HAIntegrationTestBase extends AbstractHATestBase {
 
     protected abstract String getRuleSet();
 
+    // HA config used by both nodes, override to test a different configuration
+    protected String getHAConfigJson() {
+        return dbHAConfigJson;
+    }
+
     @BeforeEach
     protected void setUp() {
         System.out.println("Running test with database: " + TEST_DB_TYPE);
@@ -64,7 +69,7 @@ public abstract class HAIntegrationTestBase extends AbstractHATestBase {
         consumer1 = new AsyncConsumer("consumer1");
         consumer1.startConsuming(rulesEngine1.port());
 
-        rulesEngine1.initializeHA(HA_UUID, "worker-1", dbParamsJson, dbHAConfigJson); // The same cluster. Both nodes share same DB
+        rulesEngine1.initializeHA(HA_UUID, "worker-1", dbParamsJson, getHAConfigJson()); // The same cluster. Both nodes share same DB
         sessionId1 = rulesEngine1.createRuleset(getRuleSet(), RuleConfigurationOption.FULLY_MANUAL_PSEUDOCLOCK);
 
         rulesEngine2 = new AstRulesEngine();
@@ -72,7 +77,7 @@ public abstract class HAIntegrationTestBase extends AbstractHATestBase {
         consumer2 = new AsyncConsumer("consumer2");
         consumer2.startConsuming(rulesEngine2.port());
 
-        rulesEngine2.initializeHA(HA_UUID, "worker-2", dbParamsJson, dbHAConfigJson); // The same cluster. Both nodes share same DB
+        rulesEngine2.initializeHA(HA_UUID, "worker-2", dbParamsJson, getHAConfigJson()); // The same cluster. Both nodes share same DB
         sessionId2 = rulesEngine2.createRuleset(getRuleSet(), RuleConfigurationOption.FULLY_MANUAL_PSEUDOCLOCK);
     }
 
@@ -76,6 +76,14 @@ class HAIntegrationEdgeCaseTest extends HAIntegrationTestBase {
         });
     }
 
+    @Test
+    void testMicroBatchingIsRejected() {
+        // the state of a session is persisted for each processed event, which can't be done for a micro-batch of them
+        assertThrows(UnsupportedOperationException.class, () -> {
+            rulesEngine1.createRuleset(getRuleSet(), RuleConfigurationOption.MICRO_BATCHING);
+        });
+    }
+
     // This is a little tricky scenario. Usually we expect a leader is taken over by another node.
     // But this HA implementation allows the same node to restart the engine process and become leader again.
     // Not a real requirement, but probably good to keep this capability.
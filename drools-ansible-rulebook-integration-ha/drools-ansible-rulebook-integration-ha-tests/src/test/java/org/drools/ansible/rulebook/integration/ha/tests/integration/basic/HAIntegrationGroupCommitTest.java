@@ -0,0 +1,182 @@
+package org.drools.ansible.rulebook.integration.ha.tests.integration.basic;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.drools.ansible.rulebook.integration.ha.api.HAStateManager;
+import org.drools.ansible.rulebook.integration.ha.model.SessionState;
+import org.drools.ansible.rulebook.integration.ha.tests.integration.HAIntegrationTestBase;
+import org.drools.ansible.rulebook.integration.ha.tests.support.TestUtils;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.drools.ansible.rulebook.integration.api.io.JsonMapper.readValueAsListOfMapOfStringAndObject;
+import static org.drools.ansible.rulebook.integration.api.io.JsonMapper.readValueAsMapOfStringAndObject;
+import static org.drools.ansible.rulebook.integration.api.io.JsonMapper.toJson;
+import static org.drools.ansible.rulebook.integration.ha.tests.support.TestUtils.createEvent;
+
+/**
+ * Integration tests for the batched durability, where the leader state is persisted by a group commit writer
+ */
+class HAIntegrationGroupCommitTest extends HAIntegrationTestBase {
+
+    private static final String RULE_SET_GROUP_COMMIT = """
+                {
+                    "name": "Group Commit Ruleset",
+                    "rules": [
+                        {"Rule": {
+                            "name": "temperature_alert",
+                            "condition": {
+                                "AllCondition": [
+                                    {
+                                        "EqualsExpression": {
+                                            "lhs": {
+                                                "Event": "i"
+                                            },
+                                            "rhs": {
+                                                "Integer": 1
+                                            }
+                                        }
+                                    },
+                                    {
+                                        "EqualsExpression": {
+                                            "lhs": {
+                                                "Event": "j"
+                                            },
+                                            "rhs": {
+                                                "Integer": 2
+                                            }
+                                        }
+                                    }
+                                ]
+                            },
+                            "action": {
+                                "run_playbook": [
+                                    {
+                                        "name": "send_alert.yml"
+                                    }
+                                ]
+                            }
+                        }}
+                    ]
+                }
+                """;
+
+    @Override
+    protected String getRuleSet() {
+        return RULE_SET_GROUP_COMMIT;
+    }
+
+    @Override
+    protected String getHAConfigJson() {
+        // an interval long enough to check what isn't committed yet
+        Map<String, Object> config = new HashMap<>(dbHAConfig);
+        config.put("durability", "batched");
+        config.put("group_commit_interval_ms", 2000);
+        config.put("group_commit_max_batch_size", 100);
+        return toJson(config);
+    }
+
+    @Test
+    void testMatchingEventIsDurableWhenReturned() {
+        rulesEngine1.enableLeader();
+
+        // a partial match doesn't wait for its batch
+        String result1 = rulesEngine1.assertEvent(sessionId1, createEvent("{\"i\":1}"));
+        assertThat(readValueAsListOfMapOfStringAndObject(result1)).isEmpty();
+        assertThat(countRows("drools_ansible_event_record")).isEqualTo("0");
+
+        // a match is returned only when its batch, containing also the former partial match, has been committed
+        String result2 = rulesEngine1.assertEvent(sessionId1, createEvent("{\"j\":2}"));
+        List<Map<String, Object>> matches = readValueAsListOfMapOfStringAndObject(result2);
+        assertThat(matches).hasSize(1);
+        assertThat(matches.get(0)).containsEntry("name", "temperature_alert");
+
+        assertThat(countRows("drools_ansible_matching_event")).isEqualTo("1");
+        // the partial event has been inserted and deleted within the same batch, so its row has never been written
+        assertThat(countRows("drools_ansible_event_record")).isEqualTo("0");
+
+        HAStateManager haManagerForAssertion = createHAStateManagerForAssertion();
+        try {
+            SessionState persistedState = haManagerForAssertion.getPersistedSessionState(getRuleSetNameValue());
+            assertThat(persistedState.getPartialEvents()).isEmpty();
+            assertThat(haManagerForAssertion.verifySessionState(persistedState)).isTrue();
+        } finally {
+            haManagerForAssertion.shutdown();
+        }
+    }
+
+    @Test
+    void testPendingBatchIsFlushedOnLeaderSwitch() {
+        rulesEngine1.enableLeader();
+
+        rulesEngine1.assertEvent(sessionId1, createEvent("{\"i\":1}"));
+        assertThat(countRows("drools_ansible_event_record")).isEqualTo("0");
+
+        // disabling the leader commits the pending batch without waiting for the interval
+        rulesEngine1.disableLeader();
+        assertThat(countRows("drools_ansible_event_record")).isEqualTo("1");
+
+        HAStateManager haManagerForAssertion = createHAStateManagerForAssertion();
+        try {
+            SessionState persistedState = haManagerForAssertion.getPersistedSessionState(getRuleSetNameValue());
+            assertThat(persistedState.getPartialEvents()).hasSize(1);
+            assertThat(persistedState.getPartialEvents().get(0).getEventJson()).contains("\"i\":1");
+            assertThat(haManagerForAssertion.verifySessionState(persistedState)).isTrue();
+        } finally {
+            haManagerForAssertion.shutdown();
+        }
+
+        rulesEngine1.close();
+        rulesEngine1 = null;
+        consumer1.stop();
+        consumer1 = null;
+
+        // Node 2 takes over and completes the match with the recovered partial event
+        rulesEngine2.enableLeader();
+        String result = rulesEngine2.assertEvent(sessionId2, createEvent("{\"j\":2}"));
+        assertThat(readValueAsListOfMapOfStringAndObject(result)).hasSize(1);
+    }
+
+    @Test
+    void testManyEventsInFewBatches() {
+        rulesEngine1.enableLeader();
+
+        for (int i = 0; i < 250; i++) {
+            rulesEngine1.assertEvent(sessionId1, createEvent("{\"i\":1, \"n\":" + i + "}"));
+        }
+
+        // getHAStats flushes the pending batches before reading the counts from the database
+        Map<String, Object> haStats = readValueAsMapOfStringAndObject(rulesEngine1.getHAStats());
+        assertThat(countRows("drools_ansible_event_record")).isEqualTo("250");
+
+        // the 250 events are committed by a few transactions, each one upserting the session state, its EventRecords and the HA stats.
+        // H2 executes the batched upserts of the EventRecords one by one, PostgreSQL sends the up to 100 of a transaction in a single statement
+        int commits = (Integer) haStats.get("commits_in_term");
+        assertThat(commits).isBetween(3, 10);
+        double expectedRoundTrips = USE_POSTGRES ? 4 * commits : 3 * commits + 250;
+        assertThat(((Number) haStats.get("round_trips_per_commit")).doubleValue() * commits).isCloseTo(expectedRoundTrips, within(0.001));
+
+        // the persisted HA stats already count the transaction that wrote them
+        Map<String, Object> persistedStats = readValueAsMapOfStringAndObject(
+                TestUtils.queryRawColumn(dbParams, "SELECT properties FROM drools_ansible_ha_stats WHERE ha_uuid = ?", HA_UUID));
+        assertThat(((Number) persistedStats.get("commits_in_term")).intValue()).isEqualTo(commits);
+
+        HAStateManager haManagerForAssertion = createHAStateManagerForAssertion();
+        try {
+            SessionState persistedState = haManagerForAssertion.getPersistedSessionState(getRuleSetNameValue());
+            assertThat(persistedState.getPartialEvents()).hasSize(250);
+            assertThat(haManagerForAssertion.verifySessionState(persistedState)).isTrue();
+        } finally {
+            haManagerForAssertion.shutdown();
+        }
+    }
+
+    private String countRows(String table) {
+        return TestUtils.queryRawColumn(dbParams,
+                                        "SELECT COUNT(*) FROM " + table + " WHERE ha_uuid = ?",
+                                        HA_UUID);
+    }
+}
@@ -0,0 +1,134 @@
+package org.drools.ansible.rulebook.integration.ha.tests.integration.basic;
+
+import java.util.List;
+import java.util.Map;
+
+import org.drools.ansible.rulebook.integration.ha.api.HAStateManager;
+import org.drools.ansible.rulebook.integration.ha.model.EventRecordEntry;
+import org.drools.ansible.rulebook.integration.ha.tests.integration.HAIntegrationTestBase;
+import org.drools.ansible.rulebook.integration.ha.tests.support.TestUtils;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.drools.ansible.rulebook.integration.api.io.JsonMapper.readValueAsListOfMapOfStringAndObject;
+import static org.drools.ansible.rulebook.integration.api.io.JsonMapper.readValueAsMapOfStringAndObject;
+
+/**
+ * Integration test for updateFact with HA functionality
+ */
+class HAIntegrationUpdateFactTest extends HAIntegrationTestBase {
+
+    private static final String RULE_SET_HOST_STATUS = """
+                {
+                    "name": "Host Status Ruleset",
+                    "rules": [
+                        {"Rule": {
+                            "name": "host_up",
+                            "condition": {
+                                "AllCondition": [
+                                    {
+                                        "EqualsExpression": {
+                                            "lhs": {
+                                                "Fact": "status"
+                                            },
+                                            "rhs": {
+                                                "String": "up"
+                                            }
+                                        }
+                                    }
+                                ]
+                            },
+                            "action": {
+                                "run_playbook": [
+                                    {
+                                        "name": "host_up.yml"
+                                    }
+                                ]
+                            }
+                        }}
+                    ]
+                }
+                """;
+
+    @Override
+    protected String getRuleSet() {
+        return RULE_SET_HOST_STATUS;
+    }
+
+    @Test
+    void testUpdatedFactIsPersistedAsSingleUpsertAndRecovered() {
+        // Step 1: Node 1 becomes leader and inserts a fact not matching the rule
+        rulesEngine1.enableLeader();
+
+        String result1 = rulesEngine1.assertFact(sessionId1, "{\"host\":\"h1\",\"status\":\"down\",\"checks\":0}");
+        assertThat(readValueAsListOfMapOfStringAndObject(result1)).isEmpty();
+
+        List<EventRecordEntry> recordsBefore = getPersistedEventRecords();
+        assertThat(recordsBefore).hasSize(1);
+        Map<String, Object> statsBefore = getPersistedHAStatsProperties();
+
+        // Step 2: Node 1 patches the fact in place
+        String result2 = rulesEngine1.updateFact(sessionId1, "{\"host\":\"h1\"}", "{\"checks\":1}");
+        assertThat(readValueAsListOfMapOfStringAndObject(result2)).isEmpty();
+
+        // read before opening another state manager on the database
+        Map<String, Object> statsAfter = getPersistedHAStatsProperties();
+
+        // the same record is upserted with the patched content, instead of being deleted and inserted again with a new identifier
+        List<EventRecordEntry> recordsAfter = getPersistedEventRecords();
+        assertThat(recordsAfter).hasSize(1);
+        assertThat(recordsAfter.get(0).getRecordIdentifier()).isEqualTo(recordsBefore.get(0).getRecordIdentifier());
+        assertThat(recordsAfter.get(0).getRecordSequence()).isEqualTo(recordsBefore.get(0).getRecordSequence());
+        assertThat(readValueAsMapOfStringAndObject(recordsAfter.get(0).getRecord().getEventJson()))
+                .containsEntry("host", "h1")
+                .containsEntry("status", "down")
+                .containsEntry("checks", 1);
+
+        // a single transaction made of the session state, the only upsert of the updated fact, the HA stats and the commit
+        assertThat(getNumber(statsAfter, "commits_in_term") - getNumber(statsBefore, "commits_in_term")).isEqualTo(1);
+        assertThat(getNumber(statsAfter, "commit_round_trips_in_term") - getNumber(statsBefore, "commit_round_trips_in_term")).isEqualTo(4);
+
+        // Step 3: Simulate Node 1 crash/shutdown
+        rulesEngine1.disableLeader();
+        rulesEngine1.close();
+        rulesEngine1 = null;
+        consumer1.stop();
+        consumer1 = null;
+
+        // Step 4: Node 2 takes over and recovers the patched fact
+        rulesEngine2.enableLeader();
+
+        List<Map<String, Object>> facts = readValueAsListOfMapOfStringAndObject(rulesEngine2.getFacts(sessionId2));
+        assertThat(facts).hasSize(1);
+        assertThat(facts.get(0))
+                .containsEntry("host", "h1")
+                .containsEntry("status", "down")
+                .containsEntry("checks", 1);
+
+        // Step 5: updating the recovered fact makes it match the rule
+        String result3 = rulesEngine2.updateFact(sessionId2, "{\"host\":\"h1\"}", "{\"status\":\"up\"}");
+        List<Map<String, Object>> matches = readValueAsListOfMapOfStringAndObject(result3);
+        assertThat(matches).hasSize(1);
+        assertThat(matches.get(0)).containsEntry("name", "host_up")
+                .containsKey("matching_uuid");
+    }
+
+    private List<EventRecordEntry> getPersistedEventRecords() {
+        HAStateManager haManager = createHAStateManagerForAssertion();
+        try {
+            return haManager.getPersistedEventRecords(getRuleSetNameValue());
+        } finally {
+            haManager.shutdown();
+        }
+    }
+
+    private Map<String, Object> getPersistedHAStatsProperties() {
+        return readValueAsMapOfStringAndObject(TestUtils.queryRawColumn(dbParams,
+                                                                        "SELECT properties FROM drools_ansible_ha_stats WHERE ha_uuid = ?",
+                                                                        HA_UUID));
+    }
+
+    private static long getNumber(Map<String, Object> properties, String key) {
+        return ((Number) properties.get(key)).longValue();
+    }
+}
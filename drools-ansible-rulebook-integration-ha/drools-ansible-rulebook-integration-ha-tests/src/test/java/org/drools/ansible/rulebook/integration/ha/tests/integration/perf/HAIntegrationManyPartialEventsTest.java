@@ -0,0 +1,124 @@
+package org.drools.ansible.rulebook.integration.ha.tests.integration.perf;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.util.Map;
+
+import org.drools.ansible.rulebook.integration.api.RuleConfigurationOption;
+import org.drools.ansible.rulebook.integration.core.jpy.AstRulesEngine;
+import org.drools.ansible.rulebook.integration.ha.tests.support.AbstractHATestBase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.drools.ansible.rulebook.integration.api.io.JsonMapper.readValueAsMapOfStringAndObject;
+import static org.drools.ansible.rulebook.integration.ha.tests.support.TestUtils.createEvent;
+
+/**
+ * Checks that the partial events retained by the HA leader are all tracked in memory.
+ * The response time while they grow is measured by HAManyPartialEventsBenchmark in the benchmark module.
+ */
+class HAIntegrationManyPartialEventsTest extends AbstractHATestBase {
+
+    private static final String HA_UUID = "many-partial-events-ha";
+    private static final int PARTIAL_EVENT_COUNT = 200;
+
+    private static final String RULE_SET_PARTIAL_EVENTS = """
+            {
+                "name": "Many Partial Events Ruleset",
+                "rules": [
+                    {"Rule": {
+                        "name": "many_partial_events_rule",
+                        "condition": {
+                            "AllCondition": [
+                                {
+                                    "EqualsExpression": {
+                                        "lhs": {
+                                            "Event": "phase"
+                                        },
+                                        "rhs": {
+                                            "String": "partial"
+                                        }
+                                    }
+                                },
+                                {
+                                    "EqualsExpression": {
+                                        "lhs": {
+                                            "Event": "complete"
+                                        },
+                                        "rhs": {
+                                            "Boolean": true
+                                        }
+                                    }
+                                }
+                            ]
+                        },
+                        "action": {
+                            "run_playbook": [
+                                {
+                                    "name": "noop.yml"
+                                }
+                            ]
+                        }
+                    }}
+                ]
+            }
+            """;
+
+    static {
+        System.setProperty("org.slf4j.simpleLogger.log.org.drools.ansible.rulebook.integration", "WARN");
+
+        if (USE_POSTGRES) {
+            initializePostgres("eda_ha_test", "HA many partial events tests");
+        } else {
+            initializeH2();
+        }
+    }
+
+    private AstRulesEngine rulesEngine;
+    private long sessionId;
+    private Socket asyncClientSocket;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        rulesEngine = new AstRulesEngine();
+
+        // HA leader startup requires an async client connection even though this test
+        // exercises the synchronous assertEvent path.
+        asyncClientSocket = new Socket("localhost", rulesEngine.port());
+
+        rulesEngine.initializeHA(HA_UUID, "worker-1", dbParamsJson, dbHAConfigJson);
+        sessionId = rulesEngine.createRuleset(RULE_SET_PARTIAL_EVENTS,
+                RuleConfigurationOption.FULLY_MANUAL_PSEUDOCLOCK);
+        rulesEngine.enableLeader();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (asyncClientSocket != null) {
+            asyncClientSocket.close();
+        }
+        if (rulesEngine != null) {
+            rulesEngine.dispose(sessionId);
+            rulesEngine.close();
+        }
+        cleanupDatabase();
+    }
+
+    @Test
+    void testPartialEventsInMemory() {
+        for (int i = 0; i < PARTIAL_EVENT_COUNT; i++) {
+            String event = createEvent("""
+                    {
+                        "phase": "partial",
+                        "sequence": %d
+                    }
+                    """.formatted(i));
+            rulesEngine.assertEvent(sessionId, event);
+        }
+
+        Map<String, Object> haStats = readValueAsMapOfStringAndObject(rulesEngine.getHAStats());
+        assertThat(haStats).containsEntry("partial_events_in_memory", PARTIAL_EVENT_COUNT);
+    }
+}
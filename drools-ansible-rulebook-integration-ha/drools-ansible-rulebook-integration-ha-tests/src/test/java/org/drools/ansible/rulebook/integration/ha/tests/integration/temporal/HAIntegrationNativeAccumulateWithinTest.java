@@ -0,0 +1,128 @@
+package org.drools.ansible.rulebook.integration.ha.tests.integration.temporal;
+
+import org.drools.ansible.rulebook.integration.ha.tests.integration.HAIntegrationTestBase;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.drools.ansible.rulebook.integration.api.io.JsonMapper.readValueAsListOfMapOfStringAndObject;
+import static org.drools.ansible.rulebook.integration.ha.tests.support.TestUtils.createEvent;
+
+/**
+ * Integration tests for AccumulateWithin evaluated with the native_throttling option with HA functionality.
+ * The counters of the groups are persisted as control records and restored into the session on recovery.
+ */
+class HAIntegrationNativeAccumulateWithinTest extends HAIntegrationTestBase {
+
+    // AccumulateWithin rule counted by the session without control events - fires when 3 events arrive within 10 seconds for the same host
+    private static final String RULE_SET_NATIVE_ACCUMULATE_WITHIN = """
+                {
+                    "name": "AccumulateWithin Ruleset",
+                    "native_throttling": true,
+                    "rules": [
+                        {
+                            "Rule": {
+                                "name": "alert_accumulator",
+                                "condition": {
+                                    "AllCondition": [
+                                        {
+                                            "EqualsExpression": {
+                                                "lhs": {
+                                                    "Event": "sensu.process.type"
+                                                },
+                                                "rhs": {
+                                                    "String": "alert"
+                                                }
+                                            }
+                                        }
+                                    ]
+                                },
+                                "throttle": {
+                                    "group_by_attributes": [
+                                        "event.sensu.host",
+                                        "event.sensu.process.type"
+                                    ],
+                                    "accumulate_within": "10 seconds",
+                                    "threshold": 3
+                                },
+                                "action": {
+                                    "run_playbook": [
+                                        {
+                                            "name": "alert_handler.yml"
+                                        }
+                                    ]
+                                }
+                            }
+                        }
+                    ]
+                }
+                """;
+
+    @Override
+    protected String getRuleSet() {
+        return RULE_SET_NATIVE_ACCUMULATE_WITHIN;
+    }
+
+    @Test
+    void testSessionRecoveryWithNativeAccumulateWithin() {
+        // This test verifies that the accumulation counter kept by the session is correctly restored across recovery
+
+        // Step 1: Node 1 becomes leader and processes events
+        rulesEngine1.enableLeader();
+
+        // Process first event (t=0, count=0->1)
+        String firstEvent = createEvent("{\"sensu\":{\"process\":{\"type\":\"alert\"},\"host\":\"h1\"},\"sequence\":1}");
+        String result1 = rulesEngine1.assertEvent(sessionId1, firstEvent);
+
+        // Should NOT match - count is 1, need 3
+        assertThat(readValueAsListOfMapOfStringAndObject(result1)).isEmpty();
+
+        // Advance time by 2 seconds (t=2)
+        rulesEngine1.advanceTime(sessionId1, 2, "SECONDS");
+
+        // Process second event (t=2, count=1->2)
+        String secondEvent = createEvent("{\"sensu\":{\"process\":{\"type\":\"alert\"},\"host\":\"h1\"},\"sequence\":2}");
+        String result2 = rulesEngine1.assertEvent(sessionId1, secondEvent);
+
+        // Should still NOT match - count is 2, need 3
+        assertThat(readValueAsListOfMapOfStringAndObject(result2)).isEmpty();
+
+        // Advance time by 1 more second (t=3)
+        rulesEngine1.advanceTime(sessionId1, 1, "SECONDS");
+
+        // Node2 should have the same time as Node1
+        // This is important to advance time correctly during recoverSession
+        rulesEngine2.advanceTime(sessionId2, 3, "SECONDS");
+
+        // Step 2: Simulate Node 1 crash/shutdown
+        rulesEngine1.disableLeader();
+        rulesEngine1.close();
+        rulesEngine1 = null;
+        consumer1.stop();
+        consumer1 = null;
+
+        // Step 3: Node 2 takes over and recovers session
+        // recovery happens here, restores the counter of the group with current_count=2, advances to t=3
+        rulesEngine2.enableLeader();
+
+        // Step 4: Process third event (t=3, count=2->3)
+        // This should trigger the rule because threshold (3) is reached
+        String thirdEvent = createEvent("{\"sensu\":{\"process\":{\"type\":\"alert\"},\"host\":\"h1\"},\"sequence\":3}");
+        String result3 = rulesEngine2.assertEvent(sessionId2, thirdEvent);
+
+        // Should MATCH - count reached threshold of 3
+        List<Map<String, Object>> matches3 = readValueAsListOfMapOfStringAndObject(result3);
+        assertThat(matches3).hasSize(1);
+        assertThat(matches3.get(0))
+                .containsEntry("name", "alert_accumulator")
+                .containsKey("matching_uuid");
+
+        // Verify the returned event is the triggering event (sequence=3)
+        Map<String, Object> eventData = (Map<String, Object>) matches3.get(0).get("events");
+        Map<String, Object> matchedEvent = (Map<String, Object>) eventData.get("m");
+        assertThat(matchedEvent).containsEntry("sequence", 3);
+    }
+}
@@ -0,0 +1,134 @@
+package org.drools.ansible.rulebook.integration.ha.tests.integration.temporal;
+
+import org.drools.ansible.rulebook.integration.ha.tests.integration.HAIntegrationTestBase;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.drools.ansible.rulebook.integration.api.io.JsonMapper.readValueAsListOfMapOfStringAndObject;
+import static org.drools.ansible.rulebook.integration.ha.tests.support.TestUtils.createEvent;
+
+/**
+ * Integration tests for OnceAfter evaluated with the native_throttling option with HA functionality.
+ * The groups collected in the window are persisted as control records and restored into the session on recovery.
+ */
+class HAIntegrationNativeOnceAfterTest extends HAIntegrationTestBase {
+
+    // OnceAfter rule collected by the session without control events - fires at the end of the 10 seconds window with a result per host
+    private static final String RULE_SET_NATIVE_ONCE_AFTER = """
+                {
+                    "name": "OnceAfter Ruleset",
+                    "native_throttling": true,
+                    "rules": [
+                        {"Rule": {
+                            "name": "alert_throttle",
+                            "condition": {
+                                "AllCondition": [
+                                    {
+                                        "EqualsExpression": {
+                                            "lhs": {
+                                                "Event": "alert.type"
+                                            },
+                                            "rhs": {
+                                                "String": "warning"
+                                            }
+                                        }
+                                    }
+                                ]
+                            },
+                            "throttle": {
+                                "group_by_attributes": [
+                                    "event.alert.host"
+                                ],
+                                "once_after": "10 seconds"
+                            },
+                            "action": {
+                                "run_playbook": [
+                                    {
+                                        "name": "alert_handler.yml"
+                                    }
+                                ]
+                            }
+                        }}
+                    ]
+                }
+                """;
+
+    @Override
+    protected String getRuleSet() {
+        return RULE_SET_NATIVE_ONCE_AFTER;
+    }
+
+    @Test
+    void testSessionRecoveryWithNativeOnceAfter() {
+        // This test verifies that the groups kept by the session, and the window they share, are correctly restored across recovery
+
+        // Step 1: Node 1 becomes leader and processes events
+        rulesEngine1.enableLeader();
+
+        // Open the window with the h1 group (t=0)
+        String h1Event = createEvent("{\"alert\":{\"type\":\"warning\",\"host\":\"h1\"}}");
+        assertThat(readValueAsListOfMapOfStringAndObject(rulesEngine1.assertEvent(sessionId1, h1Event))).isEmpty();
+
+        rulesEngine1.advanceTime(sessionId1, 1, "SECONDS");
+
+        // Add the h2 group to the same window (t=1)
+        String h2Event = createEvent("{\"alert\":{\"type\":\"warning\",\"host\":\"h2\"}}");
+        assertThat(readValueAsListOfMapOfStringAndObject(rulesEngine1.assertEvent(sessionId1, h2Event))).isEmpty();
+
+        // Collect a second event in the h1 group (t=2)
+        rulesEngine1.advanceTime(sessionId1, 1, "SECONDS");
+        String secondH1Event = createEvent("{\"alert\":{\"type\":\"warning\",\"host\":\"h1\"}}");
+        assertThat(readValueAsListOfMapOfStringAndObject(rulesEngine1.assertEvent(sessionId1, secondH1Event))).isEmpty();
+
+        // Total elapsed time on leader: 3 seconds
+        rulesEngine1.advanceTime(sessionId1, 1, "SECONDS");
+        rulesEngine2.advanceTime(sessionId2, 3, "SECONDS"); // keep follower clock aligned
+
+        // Step 2: Simulate Node 1 crash/shutdown
+        rulesEngine1.disableLeader();
+        rulesEngine1.close();
+        rulesEngine1 = null;
+        consumer1.stop();
+        consumer1 = null;
+
+        // Step 3: Node 2 takes over and recovers session, restoring both groups with the window ending at t=10
+        rulesEngine2.enableLeader();
+
+        // Step 4: Add the h3 group to the restored window (t=4)
+        rulesEngine2.advanceTime(sessionId2, 1, "SECONDS");
+        String h3Event = createEvent("{\"alert\":{\"type\":\"warning\",\"host\":\"h3\"}}");
+        assertThat(readValueAsListOfMapOfStringAndObject(rulesEngine2.assertEvent(sessionId2, h3Event))).isEmpty();
+
+        // Still within the window (t=9)
+        assertThat(readValueAsListOfMapOfStringAndObject(rulesEngine2.advanceTime(sessionId2, 5, "SECONDS"))).isEmpty();
+
+        // Step 5: Advance time past the end of the window (t=11)
+        List<Map<String, Object>> matches = readValueAsListOfMapOfStringAndObject(rulesEngine2.advanceTime(sessionId2, 2, "SECONDS"));
+        assertThat(matches).hasSize(1);
+        Map<String, Object> match = matches.get(0);
+        assertThat(match)
+                .containsEntry("name", "alert_throttle")
+                .containsKey("matching_uuid");
+
+        Map<String, Object> events = (Map<String, Object>) match.get("events");
+        assertThat(events.keySet()).containsExactlyInAnyOrder("m_0", "m_1", "m_2");
+
+        // Collect events_in_window by host (order of the results is not guaranteed)
+        Map<String, Integer> eventsInWindowByHost = new HashMap<>();
+        for (Object value : events.values()) {
+            Map<String, Object> event = (Map<String, Object>) value;
+            Map<String, Object> ruleEngineMeta = (Map<String, Object>) ((Map<String, Object>) event.get("meta")).get("rule_engine");
+            String host = (String) ((Map<String, Object>) event.get("alert")).get("host");
+            eventsInWindowByHost.put(host, ((Number) ruleEngineMeta.get("events_in_window")).intValue());
+        }
+        assertThat(eventsInWindowByHost)
+                .containsEntry("h1", 2)
+                .containsEntry("h2", 1)
+                .containsEntry("h3", 1);
+    }
+}
@@ -75,6 +75,10 @@ class HAIntegrationTimedOutGracePeriodTest extends AbstractHATestBase {
                 }
                 """;
 
+    // the same ruleset with the timed_out sequences kept by the session instead of control events, which are never persisted
+    private static final String RULE_SET_NATIVE_TIMED_OUT = RULE_SET_TIMED_OUT.replace(
+            "\"rules\": [", "\"native_timed_out\": true,\n                    \"rules\": [");
+
     static {
         if (USE_POSTGRES) {
             initializePostgres("eda_ha_grace_timedout_test", "Grace period timed out tests");
@@ -93,6 +97,10 @@ class HAIntegrationTimedOutGracePeriodTest extends AbstractHATestBase {
     protected HAIntegrationTestBase.AsyncConsumer consumer2;
 
     private void setUpWithGracePeriod(int gracePeriodSeconds) {
+        setUpWithGracePeriod(gracePeriodSeconds, RULE_SET_TIMED_OUT);
+    }
+
+    private void setUpWithGracePeriod(int gracePeriodSeconds, String ruleSet) {
         Map<String, Object> haConfig = Map.of(
                 "write_after", 1,
                 "expired_window_grace_period", gracePeriodSeconds
@@ -103,13 +111,13 @@ class HAIntegrationTimedOutGracePeriodTest extends AbstractHATestBase {
         consumer1 = new HAIntegrationTestBase.AsyncConsumer("consumer1");
         consumer1.startConsuming(rulesEngine1.port());
         rulesEngine1.initializeHA(HA_UUID, "worker-1", dbParamsJson, haConfigJson);
-        sessionId1 = rulesEngine1.createRuleset(RULE_SET_TIMED_OUT, RuleConfigurationOption.FULLY_MANUAL_PSEUDOCLOCK);
+        sessionId1 = rulesEngine1.createRuleset(ruleSet, RuleConfigurationOption.FULLY_MANUAL_PSEUDOCLOCK);
 
         rulesEngine2 = new AstRulesEngine();
         consumer2 = new HAIntegrationTestBase.AsyncConsumer("consumer2");
         consumer2.startConsuming(rulesEngine2.port());
         rulesEngine2.initializeHA(HA_UUID, "worker-2", dbParamsJson, haConfigJson);
-        sessionId2 = rulesEngine2.createRuleset(RULE_SET_TIMED_OUT, RuleConfigurationOption.FULLY_MANUAL_PSEUDOCLOCK);
+        sessionId2 = rulesEngine2.createRuleset(ruleSet, RuleConfigurationOption.FULLY_MANUAL_PSEUDOCLOCK);
     }
 
     private void tearDownEngines() {
@@ -132,7 +140,20 @@ class HAIntegrationTimedOutGracePeriodTest extends AbstractHATestBase {
      */
     @Test
     void testTimedOutWithinGracePeriod() {
-        setUpWithGracePeriod(600);
+        timedOutWithinGracePeriod(RULE_SET_TIMED_OUT);
+    }
+
+    /**
+     * Same as testTimedOutWithinGracePeriod, but with native_timed_out no CONTROL_TIMED_OUT record is persisted:
+     * the replay of the 1001 event has to rebuild the sequence and its deadline to recognize the window expired during the outage.
+     */
+    @Test
+    void testNativeTimedOutWithinGracePeriod() {
+        timedOutWithinGracePeriod(RULE_SET_NATIVE_TIMED_OUT);
+    }
+
+    private void timedOutWithinGracePeriod(String ruleSet) {
+        setUpWithGracePeriod(600, ruleSet);
         try {
             rulesEngine1.enableLeader();
 
@@ -201,7 +222,16 @@ class HAIntegrationTimedOutGracePeriodTest extends AbstractHATestBase {
      */
     @Test
     void testTimedOutOutsideGracePeriod() {
-        setUpWithGracePeriod(600);
+        timedOutOutsideGracePeriod(RULE_SET_TIMED_OUT);
+    }
+
+    @Test
+    void testNativeTimedOutOutsideGracePeriod() {
+        timedOutOutsideGracePeriod(RULE_SET_NATIVE_TIMED_OUT);
+    }
+
+    private void timedOutOutsideGracePeriod(String ruleSet) {
+        setUpWithGracePeriod(600, ruleSet);
         try {
             rulesEngine1.enableLeader();
 
@@ -11,10 +11,14 @@ import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+import org.drools.ansible.rulebook.integration.api.KieBaseCache;
 import org.drools.ansible.rulebook.integration.api.RuleConfigurationOption;
 import org.drools.ansible.rulebook.integration.api.RuleFormat;
 import org.drools.ansible.rulebook.integration.api.RuleNotation;
@@ -23,8 +27,11 @@ import org.drools.ansible.rulebook.integration.api.RulesExecutorContainer;
 import org.drools.ansible.rulebook.integration.api.RulesExecutorFactory;
 import org.drools.ansible.rulebook.integration.api.domain.RuleMatch;
 import org.drools.ansible.rulebook.integration.api.domain.RulesSet;
+import org.drools.ansible.rulebook.integration.api.io.FactsPageResponse;
 import org.drools.ansible.rulebook.integration.api.io.Response;
+import org.drools.ansible.rulebook.integration.api.io.RuleExecutorChannel;
 import org.drools.ansible.rulebook.integration.api.rulesmodel.RulesModelUtil;
+import org.drools.ansible.rulebook.integration.ha.api.HAGroupCommitWriter;
 import org.drools.ansible.rulebook.integration.ha.api.HARulesExecutor;
 import org.drools.ansible.rulebook.integration.ha.api.HARulesExecutorFactory;
 import org.drools.ansible.rulebook.integration.ha.api.HASessionContext;
@@ -37,7 +44,9 @@ import org.drools.ansible.rulebook.integration.ha.model.HAStats;
 import org.drools.ansible.rulebook.integration.ha.model.MatchingEvent;
 import org.drools.ansible.rulebook.integration.ha.model.SessionState;
 import org.drools.ansible.rulebook.integration.ha.util.PartialMatchCounter;
+import org.drools.ansible.rulebook.integration.api.rulesengine.FactsCursor;
 import org.drools.ansible.rulebook.integration.api.rulesengine.SessionStats;
+import org.kie.api.runtime.KieSession;
 import org.kie.api.runtime.rule.Match;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -58,11 +67,21 @@ public class AstRulesEngine implements Closeable {
     private final Map<String, SessionStats> lastAggregatedSessionStatsByLeader = new ConcurrentHashMap<>();
     
     private HAStateManager haStateManager;
+    private HAGroupCommitWriter groupCommitWriter; // null = strict durability, the state is persisted for each event
     private boolean haMode = false;
     private boolean shutdown = false;
     private int dedupBufferSize = 5;
     private boolean overwriteIfRulebookChanges = true;
 
+    /**
+     * Starts compiling in background the rulesets stored by a previous run, if a ruleset artifacts directory and key
+     * are configured, so that creating them again after a restart or a failover waits at most for the rest of their compilation.
+     * This has to be invoked before creating the rulesets and is a no-op after its first invocation.
+     */
+    public void preloadRulesets() {
+        KieBaseCache.get().preloadArtifacts();
+    }
+
     public long createRuleset(String rulesetString) {
         RulesSet rulesSet = RuleNotation.CoreNotation.INSTANCE.toRulesSet(RuleFormat.JSON, rulesetString);
         return createRuleset(rulesSet, rulesetString);
@@ -78,15 +97,53 @@ public class AstRulesEngine implements Closeable {
         return createRuleset(rulesSet, null);
     }
 
-    public long createRuleset(RulesSet rulesSet, String rulesetString) {
+    /**
+     * Creates the given rulesets compiling them concurrently on the common fork-join pool, while their sessions are
+     * still created and registered one at a time in the given order. If a ruleset can't be created, the exception
+     * is rethrown and the rulesets preceding it are left created.
+     *
+     * @return the ids of the created sessions, in the same order of the given rulesets
+     */
+    public long[] createRulesets(String... rulesetStrings) {
         checkAlive();
-        rulesSet.setHaMode(haMode);
-        if (rulesSet.hasTemporalConstraint()) {
-            rulesSet.withOptions(RuleConfigurationOption.USE_PSEUDO_CLOCK);
-            if (rulesSet.hasAsyncExecution()) {
-                rulesExecutorContainer.allowAsync();
+        List<RulesSet> rulesSets = new ArrayList<>();
+        for (String rulesetString : rulesetStrings) {
+            rulesSets.add(prepareRulesSet(RuleNotation.CoreNotation.INSTANCE.toRulesSet(RuleFormat.JSON, rulesetString)));
+        }
+
+        // the compiled KieBases are kept in the cache by the references taken here, until the sessions take their own ones
+        List<CompletableFuture<KieBaseCache.CachedKieBase>> compilations = new ArrayList<>();
+        if (KieBaseCache.get().isEnabled()) {
+            for (RulesSet rulesSet : rulesSets) {
+                compilations.add(CompletableFuture.supplyAsync(() -> KieBaseCache.get().acquire(rulesSet), ForkJoinPool.commonPool()));
+            }
+        }
+
+        try {
+            long[] ids = new long[rulesSets.size()];
+            for (int i = 0; i < ids.length; i++) {
+                if (!compilations.isEmpty()) {
+                    awaitCompilation(compilations.get(i));
+                }
+                ids[i] = createRuleset(rulesSets.get(i), rulesetStrings[i]);
             }
+            return ids;
+        } finally {
+            compilations.forEach(compilation -> compilation.thenAccept(kieBase -> KieBaseCache.get().release(kieBase.getKieBase())));
         }
+    }
+
+    private static void awaitCompilation(CompletableFuture<KieBaseCache.CachedKieBase> compilation) {
+        try {
+            compilation.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException runtimeException ? runtimeException : e;
+        }
+    }
+
+    public long createRuleset(RulesSet rulesSet, String rulesetString) {
+        checkAlive();
+        prepareRulesSet(rulesSet);
 
         RulesExecutor executor;
 
@@ -104,6 +161,17 @@ public class AstRulesEngine implements Closeable {
         return executor.getId();
     }
 
+    private RulesSet prepareRulesSet(RulesSet rulesSet) {
+        rulesSet.setHaMode(haMode);
+        if (rulesSet.hasTemporalConstraint()) {
+            rulesSet.withOptions(RuleConfigurationOption.USE_PSEUDO_CLOCK);
+            if (rulesSet.hasAsyncExecution()) {
+                rulesExecutorContainer.allowAsync();
+            }
+        }
+        return rulesSet;
+    }
+
     public String sessionStats(long sessionId) {
         RulesExecutor rulesExecutor = rulesExecutorContainer.get(sessionId);
         return rulesExecutor == null ? null : toJson( rulesExecutor.getSessionStats() );
@@ -139,6 +207,21 @@ public class AstRulesEngine implements Closeable {
         return matchesToJson(matches);
     }
 
+    /**
+     * Updates in place the facts containing all the fields of the matching json, applying the patch to them as a json merge patch.
+     * Differently from a retraction followed by an assertion, only the rules depending on the modified fields are re-evaluated
+     * and, in HA mode, each updated fact is persisted as a single record change.
+     */
+    public String updateFact(long sessionId, String matchJson, String patchJson) {
+        List<Match> matches = rulesExecutorContainer.get(sessionId).processUpdateMatchingFacts(matchJson, patchJson).join();
+
+        if (haMode && haStateManager != null) {
+            return processFactOrEventHA(sessionId, matches);
+        }
+
+        return matchesToJson(matches);
+    }
+
     public String assertFact(long sessionId, String serializedFact) {
         logger.debug("received fact {}", serializedFact);
         List<Match> matches = rulesExecutorContainer.get(sessionId).processFacts(serializedFact).join();
@@ -202,7 +285,15 @@ public class AstRulesEngine implements Closeable {
             haStats.incrementEventsProcessed();
             updateGlobalSessionStats(haStats);
             List<EventRecordChange> eventRecordChanges = rulesExecutor.getHaSessionContext().drainEventRecordChanges();
-            haStateManager.persistSessionStateStatsEventRecordsAndMatchingEvents(sessionState, eventRecordChanges, matchingEvents);
+            if (groupCommitWriter != null) {
+                long sequence = groupCommitWriter.enqueue(sessionState, haStats, eventRecordChanges, matchingEvents);
+                // the matching events can be handed out only when durable, otherwise their actions could be lost on a failover
+                if (!matchingEvents.isEmpty()) {
+                    groupCommitWriter.awaitDurable(sequence);
+                }
+            } else {
+                haStateManager.persistSessionStateStatsEventRecordsAndMatchingEvents(sessionState, eventRecordChanges, matchingEvents);
+            }
         }
 
         return haMatches;
@@ -214,11 +305,11 @@ public class AstRulesEngine implements Closeable {
      */
     private void updateInMemorySessionState(HARulesExecutor rulesExecutor, SessionState sessionState) {
         HASessionContext haSessionContext = rulesExecutor.getHaSessionContext();
-        LinkedHashMap<String, EventRecord> recordsInMemory = haSessionContext.getTrackedRecords();
 
         // Update partial events from memory
-        sessionState.setPartialEvents(new ArrayList<>(recordsInMemory.values()));
-        sessionState.setEventRecordsManifestSHA(calculateEventRecordsManifestSHA(haSessionContext.snapshotEventRecordEntries()));
+        sessionState.setPartialEvents(haSessionContext.getTrackedRecords());
+        // maintained by the context as the records change, so it doesn't need to rehash all of them
+        sessionState.setEventRecordsManifestSHA(haSessionContext.getEventRecordsManifestSHA());
 
         // Update processed event IDs from memory
         sessionState.setProcessedEventIds(haSessionContext.getProcessedEventIds());
@@ -348,11 +439,54 @@ public class AstRulesEngine implements Closeable {
     }
 
     public String getFacts(long sessionId) {
+        RulesExecutor executor = getExistingExecutor(sessionId);
+        return toJson(executor.getAllFactsAsMap().stream().map(RulesModelUtil::factToMap).collect(Collectors.toList()));
+    }
+
+    /**
+     * Returns a page of at most pageSize facts as a json object with the "facts" list and the "continuationToken"
+     * to be passed to read the following page, which is null on the last page. The optional filter is a json object
+     * mapping dotted paths in the facts to their expected values.
+     */
+    public String getFactsPage(long sessionId, String continuationToken, int pageSize, String pathFilterJson) {
+        return toJson(getExistingExecutor(sessionId).getFactsPage(continuationToken, pageSize, parsePathFilter(pathFilterJson)));
+    }
+
+    /**
+     * Streams all the facts matching the optional filter on the async channel, one {@link FactsPageResponse} of at most
+     * pageSize facts per message, so that they never have to be serialized all together. The pages are read through a
+     * single cursor, so the working memory is scanned only once, and the last one is flagged as such. Each page is a copy
+     * of the facts taken while holding the lock of the session, so it's serialized without blocking the rule evaluations.
+     *
+     * @return the number of pages that have been written on the channel
+     */
+    public int streamFacts(long sessionId, int pageSize, String pathFilterJson) {
+        RulesExecutor executor = getExistingExecutor(sessionId);
+        RuleExecutorChannel channel = rulesExecutorContainer.getChannel();
+        if (channel == null || !channel.isConnected()) {
+            throw new IllegalStateException("Async channel is not connected, facts of session " + sessionId + " can't be streamed");
+        }
+
+        Map<String, Object> pathFilter = parsePathFilter(pathFilterJson);
+        FactsCursor cursor = executor.openFactsCursor(pathFilter);
+        int pages = 0;
+        do {
+            List<Map<String, Object>> facts = cursor.nextPage(pageSize);
+            channel.write(new FactsPageResponse(sessionId, pages++, !cursor.hasNext(), facts));
+        } while (cursor.hasNext());
+        return pages;
+    }
+
+    private RulesExecutor getExistingExecutor(long sessionId) {
         RulesExecutor executor = rulesExecutorContainer.get(sessionId);
         if (executor == null) {
             throw new NoSuchElementException("No such session id: " + sessionId + ". " + "Was it disposed?");
         }
-        return toJson(executor.getAllFactsAsMap().stream().map(RulesModelUtil::factToMap).collect(Collectors.toList()));
+        return executor;
+    }
+
+    private static Map<String, Object> parsePathFilter(String pathFilterJson) {
+        return pathFilterJson == null || pathFilterJson.isBlank() ? null : readValueAsMapOfStringAndObject(pathFilterJson);
     }
 
     public void shutdown() {
@@ -363,6 +497,9 @@ public class AstRulesEngine implements Closeable {
     @Override
     public void close() {
         shutdown = true;
+        if (groupCommitWriter != null) {
+            groupCommitWriter.close();
+        }
         if (haStateManager != null) {
             haStateManager.shutdown();
         }
@@ -440,6 +577,17 @@ public class AstRulesEngine implements Closeable {
             }
             logger.info("HA overwrite_if_rulebook_changes set to {}", overwriteIfRulebookChanges);
 
+            // Extract durability from config (default: strict, i.e. one transaction per event)
+            String durability = config != null ? (String) config.getOrDefault("durability", "strict") : "strict";
+            if ("batched".equals(durability)) {
+                long groupCommitIntervalMs = ((Number) config.getOrDefault("group_commit_interval_ms", HAGroupCommitWriter.DEFAULT_INTERVAL_MS)).longValue();
+                int groupCommitMaxBatchSize = ((Number) config.getOrDefault("group_commit_max_batch_size", HAGroupCommitWriter.DEFAULT_MAX_BATCH_SIZE)).intValue();
+                this.groupCommitWriter = new HAGroupCommitWriter(haStateManager, groupCommitIntervalMs, groupCommitMaxBatchSize);
+            } else if (!"strict".equals(durability)) {
+                throw new IllegalArgumentException("Unknown HA durability: " + durability + ", it must be either strict or batched");
+            }
+            logger.info("HA durability set to {}", durability);
+
             // HA mode always requires async channel
             rulesExecutorContainer.allowAsync();
 
@@ -656,6 +804,7 @@ public class AstRulesEngine implements Closeable {
         requireHaMode();
 
         logger.info("Disabling leader mode for: {}", haStateManager.getWorkerName());
+        flushGroupCommit();
         haStateManager.disableLeader();
     }
     
@@ -716,6 +865,12 @@ public class AstRulesEngine implements Closeable {
         logger.debug("Deleted all actions for ME UUID: {}", matchingUuid);
     }
 
+    private void flushGroupCommit() {
+        if (groupCommitWriter != null) {
+            groupCommitWriter.flush();
+        }
+    }
+
     private void requireHaMode() {
         if (!haMode || haStateManager == null) {
             throw new IllegalStateException("HA mode not initialized");
@@ -742,6 +897,8 @@ public class AstRulesEngine implements Closeable {
     public String getHAStats() {
         requireHaMode();
 
+        // the counts read from the database have to include the batches still pending
+        flushGroupCommit();
         haStateManager.refreshHAStats();
         HAStats stats = haStateManager.getHAStats();
         stats.setPartialFulfilledRules(computePartialFulfilledRules());
@@ -758,6 +915,9 @@ public class AstRulesEngine implements Closeable {
         updateGlobalSessionStats(stats);
         result.put("global_session_stats", stats.getGlobalSessionStats());
         result.put("session_state_size", stats.getSessionStateSize());
+        result.put("commits_in_term", stats.getCommitsInTerm());
+        result.put("round_trips_per_commit", stats.getRoundTripsPerCommit());
+        result.put("retained_memory_by_ruleset", computeRetainedMemoryByRuleset());
 
         return toJson(result);
     }
@@ -784,11 +944,9 @@ public class AstRulesEngine implements Closeable {
         }
 
         HASessionContext ctx = haExecutor.getHaSessionContext();
-        Map<String, EventRecord> records = ctx.getTrackedRecords();
-
-        List<String> ids = records.entrySet().stream()
-                .filter(e -> e.getValue().getRecordType() == EventRecord.RecordType.EVENT)
-                .map(Map.Entry::getKey)
+        List<String> ids = ctx.getTrackedEntries().stream()
+                .filter(e -> e.getRecord().getRecordType() == EventRecord.RecordType.EVENT)
+                .map(EventRecordEntry::getRecordIdentifier)
                 .toList();
 
         return toJson(ids);
@@ -802,7 +960,9 @@ public class AstRulesEngine implements Closeable {
         int total = 0;
         for (RulesExecutor executor : rulesExecutorContainer.getAllExecutors()) {
             try {
-                total += PartialMatchCounter.countPartialTuplesTotal(executor.asKieSession());
+                for (KieSession kieSession : executor.asKieSessions()) {
+                    total += PartialMatchCounter.countPartialTuplesTotal(kieSession);
+                }
             } catch (Exception e) {
                 logger.debug("Failed to count partial matches for executor {}", executor.getId(), e);
             }
@@ -810,6 +970,17 @@ public class AstRulesEngine implements Closeable {
         return total;
     }
 
+    private Map<String, Long> computeRetainedMemoryByRuleset() {
+        Map<String, Long> retainedMemoryByRuleset = new HashMap<>();
+        for (RulesExecutor executor : rulesExecutorContainer.getAllExecutors()) {
+            SessionStats stats = executor.getSessionStats();
+            if (stats != null) {
+                retainedMemoryByRuleset.merge(stats.getRuleSetName(), stats.getRetainedMemory(), Long::sum);
+            }
+        }
+        return retainedMemoryByRuleset;
+    }
+
     private SessionStats aggregateAllSessionStats() {
         Collection<RulesExecutor> executors = rulesExecutorContainer.getAllExecutors();
         SessionStats aggregate = null;
@@ -841,6 +1012,7 @@ public class AstRulesEngine implements Closeable {
         int deltaClockAdvances = currentAggregate.getClockAdvanceCount() - (lastSnapshot == null ? 0 : lastSnapshot.getClockAdvanceCount());
         int deltaAsyncResponses = currentAggregate.getAsyncResponses() - (lastSnapshot == null ? 0 : lastSnapshot.getAsyncResponses());
         int deltaBytesSent = currentAggregate.getBytesSentOnAsync() - (lastSnapshot == null ? 0 : lastSnapshot.getBytesSentOnAsync());
+        int deltaEventsEvicted = currentAggregate.getEventsEvicted() - (lastSnapshot == null ? 0 : lastSnapshot.getEventsEvicted());
 
         SessionStats existingGlobal = haStats.getGlobalSessionStats();
         String start = existingGlobal == null ? currentAggregate.getStart() : existingGlobal.getStart();
@@ -866,7 +1038,9 @@ public class AstRulesEngine implements Closeable {
                 currentAggregate.getLastRuleFiredAt(),
                 currentAggregate.getLastEventReceivedAt(),
                 Math.max(existingGlobal == null ? 0 : existingGlobal.getBaseLevelMemory(), currentAggregate.getBaseLevelMemory()),
-                Math.max(existingGlobal == null ? 0 : existingGlobal.getPeakMemory(), currentAggregate.getPeakMemory())
+                Math.max(existingGlobal == null ? 0 : existingGlobal.getPeakMemory(), currentAggregate.getPeakMemory()),
+                currentAggregate.getRetainedMemory(),
+                (existingGlobal == null ? 0 : existingGlobal.getEventsEvicted()) + deltaEventsEvicted
         );
 
         haStats.setGlobalSessionStats(merged);
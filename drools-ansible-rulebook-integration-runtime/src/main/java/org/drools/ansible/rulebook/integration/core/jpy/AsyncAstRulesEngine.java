@@ -52,6 +52,10 @@ public class AsyncAstRulesEngine {
         rulesExecutorContainer.get(sessionId).processRetractMatchingFacts(serializedFact, allowPartialMatch, keysToExclude);
     }
 
+    public void updateFact(long sessionId, String matchJson, String patchJson) {
+        rulesExecutorContainer.get(sessionId).processUpdateMatchingFacts(matchJson, patchJson);
+    }
+
     public void assertFact(long sessionId, String serializedFact) {
         rulesExecutorContainer.get(sessionId).processFacts(serializedFact);
     }
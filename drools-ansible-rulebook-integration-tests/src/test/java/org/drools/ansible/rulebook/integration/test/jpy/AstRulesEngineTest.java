@@ -47,6 +47,24 @@ public class AstRulesEngineTest {
         }
     }
 
+    @Test
+    void testCreateRulesetsInParallel() {
+        String ruleset = "{ \"name\": \"%s\", \"rules\": [ {\"Rule\": { \"name\": \"R1\", \"condition\":{ \"EqualsExpression\":{ \"lhs\":{ \"event\":\"i\" }, \"rhs\":{ \"Integer\":%d } } } }} ] }";
+        try (AstRulesEngine engine = new AstRulesEngine()) {
+            long[] ids = engine.createRulesets(ruleset.formatted("rs0", 0), ruleset.formatted("rs1", 1), ruleset.formatted("rs2", 2), ruleset.formatted("rs0", 0));
+            assertEquals(4, ids.length);
+
+            for (int i = 0; i < ids.length; i++) {
+                Map<String, Object> statsMap = JsonMapper.readValueAsMapOfStringAndObject(engine.sessionStats(ids[i]));
+                assertEquals("rs" + (i % 3), statsMap.get("ruleSetName"));
+                assertEquals(1, statsMap.get("numberOfRules"));
+
+                List<Map<String, Object>> matches = JsonMapper.readValueAsListOfMapOfStringAndObject(engine.assertEvent(ids[i], "{ \"i\": " + (i % 3) + " }"));
+                assertEquals(1, matches.size());
+            }
+        }
+    }
+
     @Test
     void testBrokenApi() throws IOException {
         try (AstRulesEngine engine = new AstRulesEngine();